@@ -38,6 +38,22 @@ public interface StorageManagement {
 	final static String store_type = "store/type";
 	final static String store_size = "store/size";
 	final static String store_content_list = "store/content/list";
+	// paged listing: optional page size, resume token and summaries flag (default false)
+	// in, page and next token out
+	final static String store_page_size = "store/page/size";
+	final static String store_page_token = "store/page/token";
+	final static String store_page_summaries = "store/page/summaries";
+	final static String store_page = "store/page";
+	final static String store_page_next = "store/page/next";
+	// query conditions, all optional and combined with and; created range is [from, to)
+	final static String query_name = "query/name";
+	final static String query_principal = "query/principal";
+	final static String query_status = "query/status";
+	final static String query_domain = "query/domain";
+	final static String query_created_from = "query/created/from";
+	final static String query_created_to = "query/created/to";
+	final static String query_limit = "query/limit";
+	final static String query_result = "query/result";
 
 	public Context contextRetrieve(Context context) throws RemoteException,
 			ContextException;
@@ -63,4 +79,12 @@ public interface StorageManagement {
 	public Context contextSize(Context context) throws RemoteException,
 			ContextException, MalformedURLException;
 
+	/**
+	 * Find the records of the store given by {@link #store_type} matching the
+	 * query/* conditions, using the store's attribute indices. The SDB URLs
+	 * of the records are returned in {@link #query_result}.
+	 */
+	public Context contextQuery(Context context) throws RemoteException,
+			ContextException, MalformedURLException;
+
 }
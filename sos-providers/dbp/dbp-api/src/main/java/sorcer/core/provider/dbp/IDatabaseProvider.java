@@ -26,6 +26,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Rafał Krupiński
@@ -39,6 +41,40 @@ public interface IDatabaseProvider extends Remote {
 
     Object retrieve(URL url) throws RemoteException;
 
+    /**
+     * Store all the objects in as few transactions as possible.
+     *
+     * @return SDB URLs of the stored objects, in the order of the argument
+     */
+    List<URL> storeAll(List<?> objects) throws RemoteException;
+
+    /**
+     * Replace the objects stored under the URLs with the objects at the same
+     * positions, in as few transactions as possible.
+     *
+     * @return SDB URLs of the updated objects
+     */
+    List<URL> updateAll(List<URL> urls, List<?> objects) throws RemoteException;
+
+    /**
+     * List one page of a store in key order without reading the stored objects,
+     * unless their summaries are requested.
+     *
+     * @param resumeToken null for the first page, {@link StorePage#getNextToken()} otherwise
+     */
+    StorePage listPage(DatabaseStorer.Store store, int pageSize, String resumeToken, boolean summaries) throws RemoteException;
+
+    /**
+     * @return counters of the provider's object cache: hits, misses, hitRatioPercent, evictions, entries, weight
+     */
+    Map<String, Long> getCacheStatistics() throws RemoteException;
+
+    /**
+     * @return counters of the retention expirer: records expired per store, expiry
+     *         runs, log files cleaned, bytes reclaimed and the current log size
+     */
+    Map<String, Long> getRetentionStatistics() throws RemoteException;
+
     Uuid store(Object object);
 
     URL getDatabaseURL(DatabaseStorer.Store storeType, Uuid uuid) throws MalformedURLException;
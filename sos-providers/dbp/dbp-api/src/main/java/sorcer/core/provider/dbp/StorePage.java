@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.core.provider.dbp;
+
+import java.io.Serializable;
+import java.util.List;
+
+import net.jini.id.Uuid;
+import sorcer.core.provider.DatabaseStorer;
+
+/**
+ * One page of store records in key order, as returned by
+ * {@link IDatabaseProvider#listPage(DatabaseStorer.Store, int, String, boolean)}.
+ * Pass {@link #getNextToken()} to get the following page; it is null on the
+ * last page.
+ */
+public class StorePage implements Serializable {
+	private static final long serialVersionUID = -2871360237474155027L;
+
+	private final List<Entry> entries;
+
+	private final String nextToken;
+
+	public StorePage(List<Entry> entries, String nextToken) {
+		this.entries = entries;
+		this.nextToken = nextToken;
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	public String getNextToken() {
+		return nextToken;
+	}
+
+	public boolean isLast() {
+		return nextToken == null;
+	}
+
+	public static class Entry implements Serializable {
+		private static final long serialVersionUID = 4309147616738113465L;
+
+		private final DatabaseStorer.Store store;
+		private final Uuid id;
+		private final String summary;
+
+		public Entry(DatabaseStorer.Store store, Uuid id, String summary) {
+			this.store = store;
+			this.id = id;
+			this.summary = summary;
+		}
+
+		public DatabaseStorer.Store getStore() {
+			return store;
+		}
+
+		public Uuid getId() {
+			return id;
+		}
+
+		/**
+		 * @return string form of the stored object, or null if summaries were not requested
+		 */
+		public String getSummary() {
+			return summary;
+		}
+
+		@Override
+		public String toString() {
+			return store + "=" + id + (summary != null ? " " + summary : "");
+		}
+	}
+}
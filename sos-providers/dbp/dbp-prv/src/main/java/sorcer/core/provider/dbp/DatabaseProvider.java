@@ -24,6 +24,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.rmi.RemoteException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import net.jini.id.Uuid;
 import net.jini.id.UuidFactory;
@@ -35,18 +39,37 @@ import sorcer.core.provider.Provider;
 import sorcer.core.provider.StorageManagement;
 import sorcer.service.*;
 import sorcer.core.provider.DatabaseStorer;
+import sorcer.util.ConfigurableThreadFactory;
 import sorcer.util.ModelTable;
+import sorcer.util.bdb.objects.CodecEntityBinding;
+import sorcer.util.bdb.objects.RecordHeader;
+import sorcer.util.bdb.objects.RecordQuery;
 import sorcer.util.bdb.objects.SorcerDatabase;
 import sorcer.util.bdb.objects.SorcerDatabaseViews;
 import sorcer.util.bdb.objects.UuidKey;
 import sorcer.util.bdb.objects.UuidObject;
+import sorcer.util.bdb.objects.ValueCodecs;
 import sorcer.util.url.sos.SosDbUtil;
 
+import com.sleepycat.bind.EntityBinding;
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.collections.CurrentTransaction;
 import com.sleepycat.collections.StoredMap;
 import com.sleepycat.collections.StoredValueSet;
+import com.sleepycat.collections.TransactionRunner;
+import com.sleepycat.collections.TransactionWorker;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.CursorConfig;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
-
-import static sorcer.util.StringUtils.tName;
+import com.sleepycat.je.Durability;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.SecondaryDatabase;
+import com.sleepycat.je.Transaction;
+import com.sleepycat.je.TransactionConfig;
 
 @SuppressWarnings({ "rawtypes", "unchecked" })
 @Component
@@ -64,245 +87,410 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
         setupDatabase();
     }
 
-    private Set<Uuid> objectsBeingModified = Collections.synchronizedSet(new HashSet<Uuid>());
+    /**
+     * Number of writer threads; writes of a single object are always applied
+     * by the same writer, in order.
+     */
+    @ConfigEntry("writerThreads")
+    private int writerThreads = 2;
+
+    /**
+     * Writes queued per writer before callers are blocked.
+     */
+    @ConfigEntry("writerQueueSize")
+    private int writerQueueSize = 1024;
+
+    /**
+     * Maximum number of objects written in one transaction by
+     * {@link #storeAll(java.util.List)} and {@link #updateAll(java.util.List, java.util.List)}.
+     */
+    @ConfigEntry("batchSize")
+    private int batchSize = 1000;
+
+    /**
+     * Commit durability of batch transactions: sync, write_no_sync or no_sync.
+     */
+    @ConfigEntry("batchDurability")
+    private String batchDurability = "sync";
+
+    /**
+     * Memory limit of the deserialized object cache in bytes of the stored
+     * records of the objects, 0 disables the cache.
+     */
+    @ConfigEntry("cacheSize")
+    private long cacheSize = 32 * 1024 * 1024;
+
+    /**
+     * Objects with records larger than this are never cached.
+     */
+    @ConfigEntry("cacheMaxObjectSize")
+    private long cacheMaxObjectSize = 1024 * 1024;
+
+    /**
+     * Records deleted per transaction by {@link #clear(Store)}.
+     */
+    @ConfigEntry("clearBatchSize")
+    private int clearBatchSize = 1000;
+
+    /**
+     * Retention times of the stores in milliseconds, records older than that
+     * are deleted by the expirer. 0 keeps the records forever.
+     */
+    @ConfigEntry("contextRetention")
+    private long contextRetention;
+
+    @ConfigEntry("exertionRetention")
+    private long exertionRetention;
+
+    @ConfigEntry("tableRetention")
+    private long tableRetention;
+
+    @ConfigEntry("objectRetention")
+    private long objectRetention;
+
+    /**
+     * Delay between two runs of the expirer in milliseconds.
+     */
+    @ConfigEntry("expireInterval")
+    private long expireInterval = 10 * 60 * 1000;
+
+    /**
+     * Records deleted per transaction by the expirer.
+     */
+    @ConfigEntry("expireBatchSize")
+    private int expireBatchSize = 500;
+
+    /**
+     * Log cleaner and checkpointer settings of the Berkeley DB environment,
+     * 0 keeps the Berkeley DB default. See {@link EnvironmentConfig#CLEANER_MIN_UTILIZATION},
+     * {@link EnvironmentConfig#CLEANER_THREADS} and {@link EnvironmentConfig#CHECKPOINTER_BYTES_INTERVAL}.
+     */
+    @ConfigEntry("cleanerMinUtilization")
+    private int cleanerMinUtilization;
+
+    @ConfigEntry("cleanerThreads")
+    private int cleanerThreads;
+
+    @ConfigEntry("checkpointerBytesInterval")
+    private long checkpointerBytesInterval;
+
+    /**
+     * Stores written by this provider, in the order they are listed.
+     */
+    private static final Store[] LISTED_STORES = { Store.context, Store.exertion, Store.table, Store.object };
+
+    private WriteQueue writes;
+
+    private EntryBinding keyBinding;
+
+    private ObjectCache cache;
+
+    private TransactionRunner batchRunner;
+
+    private StoreExpirer expirer;
+
+    private ScheduledExecutorService expiryScheduler;
 
 	public Uuid store(Object object) {
-		Object obj = object;
-		if (!(object instanceof Identifiable)) {
-			obj = new UuidObject(object);
-		}
-        PersistThread pt = new PersistThread(obj);
-		Uuid id = pt.getUuid();
-        pt.start();
-        return id;
+		final Object obj = (object instanceof Identifiable) ? object : new UuidObject(object);
+		Uuid id = (Uuid) ((Identifiable) obj).getId();
+		writes.submit(id, new Runnable() {
+			public void run() {
+				doStore(obj);
+			}
+		});
+		return id;
 	}
-	
+
 	public Uuid update(Uuid uuid, Object object) throws InvalidObjectException {
 		Object uuidObject = object;
 		if (!(object instanceof Identifiable)) {
 			uuidObject = new UuidObject(uuid, object);
 		}
-		UpdateThread ut = new UpdateThread(uuid, uuidObject);
-        Uuid id = ut.getUuid();
-        //ut.start();
-        ut.run();
-        return id;
+		return writes.execute(uuid, new UpdateTask(uuid, uuidObject));
 	}
-	
+
 	public Uuid update(URL url, Object object) throws InvalidObjectException {
+		Uuid uuid = SosDbUtil.getUuid(url);
 		Object uuidObject = object;
 		if (!(object instanceof Identifiable)) {
-			uuidObject = new UuidObject(SosDbUtil.getUuid(url), object);
+			uuidObject = new UuidObject(uuid, object);
 		}
-		UpdateThread ut = new UpdateThread(url, uuidObject);
-        Uuid id = ut.getUuid();
-        ut.start();
-		return id;
+		writes.submit(uuid, new UpdateTask(uuid, uuidObject));
+		return uuid;
 	}
 
-    private void addToWaitingList(Uuid id) {
-        waitWhileObjectIsModified(id);
-        objectsBeingModified.add(id);
-    }
+	/**
+	 * Store all the objects, committing each group of up to batchSize objects
+	 * in a single transaction.
+	 *
+	 * @return SDB URLs of the stored objects, in order
+	 */
+	public List<URL> storeAll(List<?> objects) throws RemoteException {
+		final List<Object> entities = new ArrayList<Object>(objects.size());
+		List<Uuid> ids = new ArrayList<Uuid>(objects.size());
+		List<URL> urls = new ArrayList<URL>(objects.size());
+		for (Object object : objects) {
+			Object obj = (object instanceof Identifiable) ? object : new UuidObject(object);
+			Uuid id = (Uuid) ((Identifiable) obj).getId();
+			entities.add(obj);
+			ids.add(id);
+			urls.add(toDatabaseURL(getStoreType(object), id));
+		}
+		int step = Math.max(1, batchSize);
+		for (int from = 0; from < entities.size(); from += step) {
+			final List<Object> group = entities.subList(from, Math.min(from + step, entities.size()));
+			runBatch(ids.subList(from, from + group.size()), new TransactionWorker() {
+				public void doWork() {
+					for (Object obj : group)
+						doStore(obj);
+				}
+			});
+		}
+		return urls;
+	}
 
-    private void waitWhileObjectIsModified(Uuid uuid) {
-        while (objectsBeingModified.contains(uuid)) {
-            try {
-                logger.debug("waiting for uuid: " + uuid);
-                Thread.sleep(25);
-            } catch (InterruptedException ie) {
-                logger.error("Interrupted in getObject while waiting for object to be modified: " + uuid);
-            }
-        }
-    }
+	/**
+	 * Replace the objects stored under the given URLs, committing each group
+	 * of up to batchSize objects in a single transaction.
+	 *
+	 * @return SDB URLs of the updated objects, in order
+	 */
+	public List<URL> updateAll(List<URL> urls, List<?> objects) throws RemoteException {
+		if (urls.size() != objects.size())
+			throw new IllegalArgumentException("Got " + urls.size() + " URLs for " + objects.size() + " objects");
+		final List<UpdateTask> updates = new ArrayList<UpdateTask>(objects.size());
+		List<Uuid> ids = new ArrayList<Uuid>(objects.size());
+		List<URL> result = new ArrayList<URL>(objects.size());
+		for (int i = 0; i < objects.size(); i++) {
+			Object object = objects.get(i);
+			Uuid uuid = SosDbUtil.getUuid(urls.get(i));
+			updates.add(new UpdateTask(uuid, (object instanceof Identifiable) ? object : new UuidObject(uuid, object)));
+			ids.add(uuid);
+			result.add(toDatabaseURL(getStoreType(object), uuid));
+		}
+		int step = Math.max(1, batchSize);
+		for (int from = 0; from < updates.size(); from += step) {
+			final List<UpdateTask> group = updates.subList(from, Math.min(from + step, updates.size()));
+			runBatch(ids.subList(from, from + group.size()), new TransactionWorker() {
+				public void doWork() {
+					for (UpdateTask update : group)
+						update.run();
+				}
+			});
+		}
+		return result;
+	}
+
+	private void runBatch(final List<Uuid> ids, final TransactionWorker worker) throws RemoteException {
+		try {
+			writes.executeAll(ids, new Callable<Object>() {
+				public Object call() throws Exception {
+					try {
+						batchRunner.run(worker);
+					} finally {
+						// entries are invalidated when written, but a reader could
+						// have cached the old value before the commit
+						for (Uuid id : ids)
+							cache.invalidate(id);
+					}
+					return null;
+				}
+			});
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RemoteException("Batch write of " + ids.size() + " objects failed", e);
+		}
+	}
+
+	private URL toDatabaseURL(Store type, Uuid uuid) {
+		try {
+			return getDatabaseURL(type, uuid);
+		} catch (MalformedURLException e) {
+			throw new IllegalStateException("Couldn't parse my own URL", e);
+		}
+	}
 
-    private synchronized Set<Uuid> getAllObjectsBeingModified(){
-        return new HashSet<Uuid>(objectsBeingModified);
+	static Durability getDurability(String name) {
+		if ("no_sync".equalsIgnoreCase(name))
+			return Durability.COMMIT_NO_SYNC;
+		else if ("write_no_sync".equalsIgnoreCase(name))
+			return Durability.COMMIT_WRITE_NO_SYNC;
+		return Durability.COMMIT_SYNC;
+	}
+
+    private void waitWhileObjectIsModified(Uuid uuid) {
+        writes.await(uuid);
     }
 
     public void waitWhileObjectsAreModified() {
-        Set<Uuid> tmpObjectList = getAllObjectsBeingModified();
-        logger.debug("Init tmpObjList size: " + tmpObjectList.size());
-        while (!tmpObjectList.isEmpty()) {
-            try {
-                tmpObjectList.retainAll(objectsBeingModified);
-                logger.debug("tmpObjList size: " + tmpObjectList.size());
-                Thread.sleep(30);
-            } catch (InterruptedException ie) {
-                logger.error("Interrupted in getObject while waiting for objects to be modified");
-            }
-        }
+        writes.awaitAll();
     }
 
     public Object getObject(Uuid uuid) {
-        waitWhileObjectIsModified(uuid);
         logger.debug("Getting object: " + uuid);
-        StoredMap<UuidKey, UuidObject> uuidObjectMap = views.getUuidObjectMap();
-        int tries = 0;
-        while (uuidObjectMap==null && tries<20) {
-            logger.debug("Didn't get UuidObjectMap, trying: " + tries);
-            try {
-                Thread.sleep(25);
-            } catch (InterruptedException ie) {
-            }
-            views.getUuidObjectMap();
-            tries++;
-        }
-		UuidObject uuidObj = uuidObjectMap.get(new UuidKey(uuid));
-        /*int tries = 0;
-        while (uuidObj==null && tries<20) {
-            try {
-                Thread.sleep(25);
-            } catch (InterruptedException ie) {
-            }
-            uuidObj = uuidObjectMap.get(new UuidKey(uuid));
-            tries++;
-        }*/
-		return (uuidObj!=null ? uuidObj.getObject() : null);
+        return read(Store.object, uuid);
 	}
 	
 	public Context getContext(Uuid uuid) {
-        try {
-            addToWaitingList(uuid);
-            StoredMap<UuidKey, Context> cxtMap = views.getContextMap();
-            return cxtMap.get(new UuidKey(uuid));
-        } finally {
-            objectsBeingModified.remove(uuid);
-        }
+        return (Context) read(Store.context, uuid);
 	}
 	
 	public Exertion getExertion(Uuid uuid) {
-        try {
-            addToWaitingList(uuid);
-            StoredMap<UuidKey, Exertion> xrtMap = views.getExertionMap();
-		    return xrtMap.get(new UuidKey(uuid));
-        } finally {
-            objectsBeingModified.remove(uuid);
-        }
+        return (Exertion) read(Store.exertion, uuid);
 	}
 
     public ModelTable getTable(Uuid uuid) {
-        try {
-            addToWaitingList(uuid);
-            StoredMap<UuidKey, ModelTable> xrtMap = views.getTableMap();
-            return xrtMap.get(new UuidKey(uuid));
-        } finally {
-            objectsBeingModified.remove(uuid);
-        }
+        return (ModelTable) read(Store.table, uuid);
     }
 
-	protected class PersistThread extends Thread {
-
-		Object object;
-		Uuid uuid;
+	/**
+	 * Read through the object cache, after the pending writes of the object
+	 * have been applied. The cached object is shared by all readers, remote
+	 * callers get their own copy when the result is marshalled.
+	 */
+	private Object read(Store storeType, Uuid uuid) {
+		return read(storeType, uuid, false);
+	}
 
-		public PersistThread(Object object) {
-            super(tName("PersistThread-" + ((Identifiable)object).getId()));
-			this.object = object;
-			this.uuid = (Uuid)((Identifiable)object).getId();
-            addToWaitingList(uuid);
+	/**
+	 * @param copy if true, bypass the cache and decode a private copy of the
+	 *             object, for in-process callers that may modify it
+	 */
+	private Object read(Store storeType, Uuid uuid, boolean copy) {
+		waitWhileObjectIsModified(uuid);
+		Object obj;
+		if (!copy) {
+			obj = cache.get(storeType, uuid);
+			if (obj != null)
+				return obj;
 		}
+		long generation = cache.getGeneration();
+		DatabaseEntry key = new DatabaseEntry();
+		keyBinding.objectToEntry(new UuidKey(uuid), key);
+		DatabaseEntry data = new DatabaseEntry();
+		if (database(storeType).get(null, key, data, LockMode.READ_COMMITTED) != OperationStatus.SUCCESS)
+			return null;
+		obj = dataBinding(storeType).entryToObject(key, data);
+		if (obj instanceof UuidObject)
+			obj = ((UuidObject) obj).getObject();
+		if (!copy)
+			cache.put(storeType, uuid, obj, data.getSize(), generation);
+		return obj;
+	}
 
-		@SuppressWarnings("unchecked")
-		public void run() {
-			try {
-                StoredValueSet storedSet = null;
-                if (object instanceof Context) {
-                    storedSet = views.getContextSet();
-                    storedSet.add(object);
-                } else if (object instanceof Exertion) {
-                    storedSet = views.getExertionSet();
-                    storedSet.add(object);
-                } else if (object instanceof ModelTable) {
-                    storedSet = views.getTableSet();
-                    storedSet.add(object);
-                } else if (object instanceof UuidObject) {
-                    storedSet = views.getUuidObjectSet();
-                    storedSet.add(object);
-                }
-            } finally {
-                objectsBeingModified.remove(this.uuid);
-            }
-		}
-		
-		public Uuid getUuid() {
-			return uuid;
+	/**
+	 * @return hit, miss and size counters of the object cache
+	 */
+	public Map<String, Long> getCacheStatistics() {
+		return cache.getStatistics();
+	}
+
+	/**
+	 * @return records expired per store and the log space reclaimed after expiry
+	 */
+	public Map<String, Long> getRetentionStatistics() {
+		return expirer.getStatistics();
+	}
+
+	protected void doStore(Object object) {
+		StoredValueSet storedSet = null;
+		if (object instanceof Context) {
+			storedSet = views.getContextSet();
+		} else if (object instanceof Exertion) {
+			storedSet = views.getExertionSet();
+		} else if (object instanceof ModelTable) {
+			storedSet = views.getTableSet();
+		} else if (object instanceof UuidObject) {
+			storedSet = views.getUuidObjectSet();
 		}
+		if (storedSet != null)
+			storedSet.add(object);
+		cache.invalidate((Uuid) ((Identifiable) object).getId());
 	}
 
-	protected class UpdateThread extends Thread {
+	protected class UpdateTask implements Runnable {
 
 		Object object;
 		Uuid uuid;
 
-		public UpdateThread(Uuid uuid, Object object) throws InvalidObjectException {
+		public UpdateTask(Uuid uuid, Object object) {
 			this.uuid = uuid;
 			this.object = object;
 		}
 
-		public UpdateThread(URL url, Object object) throws InvalidObjectException {
-            super(tName("UpdateThread-" + url));
-			this.object = object;
-			this.uuid = SosDbUtil.getUuid(url);
-            addToWaitingList(uuid);
-		}
-		
 		public void run() {
-            StoredMap storedMap = null;
-            UuidKey key = null;
+			StoredMap storedMap = views.getUuidObjectMap();
+			UuidKey key = new UuidKey(uuid);
 			try {
-                key = new UuidKey(uuid);
-                if (object instanceof Context) {
-                    storedMap = views.getContextMap();
-                    storedMap.replace(key, object);
-                } else if (object instanceof Exertion) {
-                    storedMap = views.getExertionMap();
-                    storedMap.replace(key, object);
-                } else if (object instanceof ModelTable) {
-                    storedMap = views.getTableMap();
-                    storedMap.replace(key, object);
-                } else if (object instanceof Object) {
-                    storedMap = views.getUuidObjectMap();
-                    storedMap.replace(key, object);
-                }
-            } catch (IllegalArgumentException ie) {
-                logger.error("Problem updating object with key: " + key.toString() + "\n" + storedMap.get(key).toString());
-                objectsBeingModified.remove(this.uuid);
-                throw (ie);
-            } finally {
-                objectsBeingModified.remove(this.uuid);
-            }
+				if (object instanceof Context) {
+					storedMap = views.getContextMap();
+				} else if (object instanceof Exertion) {
+					storedMap = views.getExertionMap();
+				} else if (object instanceof ModelTable) {
+					storedMap = views.getTableMap();
+				}
+				Store store = getStoreType(object);
+				EntityBinding binding = dataBinding(store);
+				if (binding instanceof CodecEntityBinding)
+					replaceRecord(database(store), (CodecEntityBinding) binding, key, object);
+				else
+					storedMap.replace(key, object);
+			} catch (IllegalArgumentException ie) {
+				logger.error("Problem updating object with key: " + key + "\n" + storedMap.get(key));
+				throw (ie);
+			} finally {
+				cache.invalidate(uuid);
+			}
 		}
-		
-		public Uuid getUuid() {
-			return uuid;
+	}
+
+	/*
+	 * Replace the record of the tuple format, keeping the creation date of
+	 * its header, in the current batch transaction if any
+	 */
+	private void replaceRecord(Database database, CodecEntityBinding binding, UuidKey key, Object object) {
+		DatabaseEntry keyEntry = new DatabaseEntry();
+		keyBinding.objectToEntry(key, keyEntry);
+		DatabaseEntry data = new DatabaseEntry();
+		Transaction txn = CurrentTransaction.getInstance(db.getEnvironment()).getTransaction();
+		Transaction own = txn == null ? db.getEnvironment().beginTransaction(null, null) : null;
+		try {
+			Transaction t = txn != null ? txn : own;
+			if (database.get(t, keyEntry, data, LockMode.RMW) == OperationStatus.SUCCESS) {
+				binding.objectToData(object, RecordHeader.read(data), data);
+				database.put(t, keyEntry, data);
+			}
+			if (own != null) {
+				own.commit();
+				own = null;
+			}
+		} finally {
+			if (own != null)
+				own.abort();
 		}
 	}
-	
-	protected class DeleteThread extends Thread {
+
+	protected class DeleteTask implements Runnable {
 
 		Uuid uuid;
 		Store storeType;
-        StoredMap storedMap;
 
-        public DeleteThread(Uuid uuid, Store storeType) {
-            super(tName("DeleteThread-" + uuid));
-            this.uuid = uuid;
+		public DeleteTask(Uuid uuid, Store storeType) {
+			this.uuid = uuid;
 			this.storeType = storeType;
-            storedMap = getStoredMap(storeType);
-            addToWaitingList(uuid);
 		}
 
 		public void run() {
-            try {
-                storedMap.remove(new UuidKey(uuid));
-            } finally {
-                objectsBeingModified.remove(this.uuid);
-            }
-		}
-		
-		public Uuid getUuid() {
-			return uuid;
+			// called by the writer itself, so must not wait for pending writes
+			StoredMap storedMap = storedMap(storeType);
+			try {
+				if (storedMap != null)
+					storedMap.remove(new UuidKey(uuid));
+			} finally {
+				cache.invalidate(uuid);
+			}
 		}
 	}
 	
@@ -341,16 +529,13 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 	}
 	
 	public int size(Store storeType) {
-		StoredValueSet storedSet = getStoredSet(storeType);
-		return storedSet.size();
+		return getStoreSize(storeType);
 	}
 	
 	public Uuid deleteURL(URL url) {
 		Store storeType = SosDbUtil.getStoreType(url);
 		Uuid id = SosDbUtil.getUuid(url);
-		DeleteThread dt = new DeleteThread(id, storeType);
-		dt.start();
-		id = dt.getUuid();
+		writes.submit(id, new DeleteTask(id, storeType));
 		return id;
 	}
 
@@ -393,7 +578,8 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 				throw new ContextException("No valid stored object Uuid: " + id);
 			}
 				
-		Object obj = retrieve(uuid, storeType);
+		// the context goes on through the local exertion, it gets its own copy
+		Object obj = read(storeType, uuid, true);
 		if (context.getReturnPath() != null)
 			context.putOutValue(context.getReturnPath().path, obj);
 		
@@ -441,21 +627,136 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 	@Override
 	public Context contextList(Context context) throws RemoteException,
 			ContextException, MalformedURLException {
-		List<String> content = list((Store) context.getValue(StorageManagement.store_type));
-		context.putValue(StorageManagement.store_content_list, content);
+		Store type = (Store) context.getValue(StorageManagement.store_type);
+		Object pageSize = context.getValue(StorageManagement.store_page_size);
+		if (pageSize instanceof Integer) {
+			// objects are only read for their summaries
+			boolean summaries = Boolean.TRUE.equals(context.getValue(StorageManagement.store_page_summaries));
+			StorePage page = listPage(type, (Integer) pageSize,
+					(String) context.getValue(StorageManagement.store_page_token), summaries);
+			List<String> content = new ArrayList<String>(page.getEntries().size());
+			for (StorePage.Entry e : page.getEntries())
+				content.add(summaries ? e.getSummary() : e.toString());
+			context.putValue(StorageManagement.store_content_list, content);
+			context.putValue(StorageManagement.store_page, page);
+			context.putValue(StorageManagement.store_page_next, page.getNextToken());
+		} else {
+			context.putValue(StorageManagement.store_content_list, list(type));
+		}
 		return context;
 	}
-	
+
+	/**
+	 * String forms of all the objects in the store. Use
+	 * {@link #listPage(Store, int, String, boolean)} for large stores.
+	 */
 	public List<String> list(Store storeType) {
-		StoredValueSet storedSet = getStoredSet(storeType);
-        logger.debug("list got storedSet size: " + storedSet.size());
-		List<String> contents = new ArrayList<String>(storedSet.size());
-		Iterator it = storedSet.iterator();
-		while(it.hasNext()) {
-			contents.add(it.next().toString());
-		}
+		List<String> contents = new ArrayList<String>();
+		String token = null;
+		do {
+			StorePage page = listPage(storeType, 1000, token, true);
+			for (StorePage.Entry e : page.getEntries())
+				contents.add(e.getSummary());
+			token = page.getNextToken();
+		} while (token != null);
 		return contents;
 	}
+
+	/**
+	 * Walk the store in key order with a cursor, reading only the keys.
+	 * Objects are read, through the cache, only when summaries are requested.
+	 *
+	 * @param storeType   store to list, {@link Store#all} walks all the stores in turn
+	 * @param pageSize    maximum number of entries returned
+	 * @param resumeToken null for the first page, {@link StorePage#getNextToken()} of
+	 *                    the previous page otherwise
+	 * @param summaries   whether to include the string form of each object
+	 */
+	public StorePage listPage(Store storeType, int pageSize, String resumeToken, boolean summaries) {
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		Store[] stores = storeType == Store.all ? LISTED_STORES : new Store[] { storeType };
+		int first = 0;
+		byte[] after = null;
+		if (resumeToken != null) {
+			int i = resumeToken.indexOf(':');
+			Store tokenStore = Store.getStoreType(resumeToken.substring(0, Math.max(i, 0)));
+			first = Arrays.asList(stores).indexOf(tokenStore);
+			if (first < 0)
+				throw new IllegalArgumentException("Invalid resume token: " + resumeToken);
+			after = fromHex(resumeToken.substring(i + 1));
+		}
+
+		List<StorePage.Entry> entries = new ArrayList<StorePage.Entry>(Math.min(pageSize, 1024));
+		String next = null;
+		for (int si = first; si < stores.length && next == null; si++) {
+			Database database = database(stores[si]);
+			if (database == null)
+				continue;
+			Cursor cursor = database.openCursor(null, CursorConfig.READ_COMMITTED);
+			try {
+				DatabaseEntry key = new DatabaseEntry();
+				DatabaseEntry data = new DatabaseEntry();
+				data.setPartial(0, 0, true);
+				OperationStatus status;
+				if (si == first && after != null && after.length > 0) {
+					key.setData(after);
+					status = cursor.getSearchKeyRange(key, data, LockMode.DEFAULT);
+					if (status == OperationStatus.SUCCESS && Arrays.equals(keyBytes(key), after))
+						status = cursor.getNext(key, data, LockMode.DEFAULT);
+				} else {
+					status = cursor.getFirst(key, data, LockMode.DEFAULT);
+				}
+				byte[] last = null;
+				while (status == OperationStatus.SUCCESS) {
+					if (entries.size() == pageSize) {
+						next = stores[si] + ":" + toHex(last);
+						break;
+					}
+					last = keyBytes(key);
+					Uuid id = ((UuidKey) keyBinding.entryToObject(key)).getId();
+					entries.add(new StorePage.Entry(stores[si], id,
+							summaries ? String.valueOf(read(stores[si], id)) : null));
+					status = cursor.getNext(key, data, LockMode.DEFAULT);
+				}
+			} finally {
+				cursor.close();
+			}
+			if (next == null && entries.size() == pageSize && si + 1 < stores.length)
+				next = stores[si + 1] + ":";
+		}
+		return new StorePage(entries, next);
+	}
+
+	private static byte[] keyBytes(DatabaseEntry entry) {
+		return Arrays.copyOfRange(entry.getData(), entry.getOffset(), entry.getOffset() + entry.getSize());
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		return sb.toString();
+	}
+
+	private static byte[] fromHex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		return bytes;
+	}
+
+	private Database database(Store storeType) {
+		if (storeType == Store.context)
+			return db.getContextDatabase();
+		else if (storeType == Store.exertion)
+			return db.getExertionDatabase();
+		else if (storeType == Store.table)
+			return db.getTableDatabase();
+		else if (storeType == Store.object)
+			return db.getUuidObjectDatabase();
+		return null;
+	}
 	
 	public List<String> list(URL url) {
 		return list(SosDbUtil.getStoreType(url));
@@ -472,17 +773,75 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 		return context;
 	}
 	
+	/**
+	 * Remove all the records of the store with a key-only cursor, committing
+	 * every clearBatchSize deletions.
+	 *
+	 * @return number of removed records
+	 */
 	public int clear(Store type) throws RemoteException,
 			ContextException, MalformedURLException {
-		StoredValueSet storedSet = getStoredSet(type);
-		int size = storedSet.size();
-		storedSet.clear();
-		return size;
+		waitWhileObjectsAreModified();
+		int cleared = 0;
+		try {
+			for (Store store : type == Store.all ? LISTED_STORES : new Store[] { type }) {
+				Database database = database(store);
+				if (database != null)
+					cleared += clear(database);
+			}
+		} finally {
+			cache.invalidateAll();
+		}
+		return cleared;
+	}
+
+	private int clear(Database database) {
+		int cleared = 0;
+		int deleted;
+		do {
+			deleted = 0;
+			Transaction txn = db.getEnvironment().beginTransaction(null, null);
+			Cursor cursor = database.openCursor(txn, null);
+			try {
+				DatabaseEntry key = new DatabaseEntry();
+				DatabaseEntry data = new DatabaseEntry();
+				data.setPartial(0, 0, true);
+				while (deleted < clearBatchSize
+						&& cursor.getNext(key, data, LockMode.RMW) == OperationStatus.SUCCESS) {
+					cursor.delete();
+					deleted++;
+				}
+				cursor.close();
+				cursor = null;
+				txn.commit();
+				txn = null;
+			} finally {
+				if (cursor != null)
+					cursor.close();
+				if (txn != null)
+					txn.abort();
+			}
+			cleared += deleted;
+		} while (deleted == clearBatchSize);
+		return cleared;
 	}
 
     @ConfigEntry("dbHome")
     private String dbHome;
 
+    /**
+     * Format of a new database, see {@link SorcerDatabase#TUPLE_FORMAT}.
+     * Existing databases keep theirs until migrated with {@link sorcer.util.bdb.objects.StoreMigration}.
+     */
+    @ConfigEntry("storeFormat")
+    private String storeFormat = SorcerDatabase.TUPLE_FORMAT;
+
+    /**
+     * Codec of values written in the tuple format: serial or deflate
+     */
+    @ConfigEntry("valueCodec")
+    private String valueCodec = "serial";
+
 	protected void setupDatabase() throws DatabaseException, RemoteException {
 		logger.info("dbHome: " + dbHome);
 		if (dbHome == null || dbHome.length() == 0) {
@@ -504,8 +863,47 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 		}
 		logger.info("Opening provider's BDBJE in: {}"
 				, dbHomeFile.getAbsolutePath());
-		db = new SorcerDatabase(dbHome);
-		views = new SorcerDatabaseViews(db);
+		Properties envParams = new Properties();
+		if (cleanerMinUtilization > 0)
+			envParams.setProperty(EnvironmentConfig.CLEANER_MIN_UTILIZATION, String.valueOf(cleanerMinUtilization));
+		if (cleanerThreads > 0)
+			envParams.setProperty(EnvironmentConfig.CLEANER_THREADS, String.valueOf(cleanerThreads));
+		if (checkpointerBytesInterval > 0)
+			envParams.setProperty(EnvironmentConfig.CHECKPOINTER_BYTES_INTERVAL, String.valueOf(checkpointerBytesInterval));
+		db = new SorcerDatabase(dbHome, storeFormat, envParams);
+		views = new SorcerDatabaseViews(db, ValueCodecs.forName(valueCodec));
+		logger.info("Store format: {}, value codec: {}", db.getStoreFormat(), valueCodec);
+		writes = new WriteQueue(writerThreads, writerQueueSize);
+		cache = new ObjectCache(cacheSize, cacheMaxObjectSize);
+		keyBinding = views.getKeyBinding();
+		TransactionConfig batchConfig = new TransactionConfig();
+		batchConfig.setDurability(getDurability(batchDurability));
+		batchRunner = new TransactionRunner(db.getEnvironment(), 10, batchConfig);
+		setupExpirer();
+	}
+
+	private void setupExpirer() {
+		expirer = new StoreExpirer(db, keyBinding, cache, expireBatchSize);
+		long[] retention = { contextRetention, exertionRetention, tableRetention, objectRetention };
+		for (int i = 0; i < LISTED_STORES.length; i++) {
+			if (retention[i] <= 0)
+				continue;
+			SecondaryDatabase index = db.getIndex(database(LISTED_STORES[i]), RecordHeader.CREATED);
+			if (index == null) {
+				logger.warn("Retention of the {} store ignored, the {} store format has no age index",
+						LISTED_STORES[i], db.getStoreFormat());
+				continue;
+			}
+			expirer.setRetention(LISTED_STORES[i], index, retention[i]);
+		}
+		if (expirer.isEmpty())
+			return;
+		ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+		tf.setDaemon(true);
+		tf.setNameFormat("DatabaseExpirer-%2$d");
+		expiryScheduler = Executors.newSingleThreadScheduledExecutor(tf);
+		expiryScheduler.scheduleWithFixedDelay(expirer, expireInterval, expireInterval, TimeUnit.MILLISECONDS);
+		logger.info("Expiring stored records every {} ms", expireInterval);
 	}
 	
 	/**
@@ -515,14 +913,28 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 	 */
 	public void destroy() throws RemoteException {
 		try {
-            int tries=0;
-            try {
-                while (objectsBeingModified.size()>0 && tries<80) {
-                    Thread.sleep(50);
-                    tries++;
+            if (expiryScheduler != null) {
+                // interrupting a Berkeley DB operation would invalidate the environment
+                expirer.stop();
+                expiryScheduler.shutdown();
+                try {
+                    expiryScheduler.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                logger.info("Retention statistics: {}", expirer.getStatistics());
+            }
+            if (writes != null) {
+                try {
+                    int dropped = writes.shutdown(4, TimeUnit.SECONDS);
+                    if (dropped > 0)
+                        logger.error("{} queued writes were dropped on destroy", dropped);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
                 }
-                if (tries==80) logger.error("Interrupted while {} objects where still being modified", objectsBeingModified.size());
-            } catch (InterruptedException ie) {}
+            }
+			if (cache != null)
+				logger.info("Object cache statistics: {}", cache.getStatistics());
 			if (db != null) {
 				db.close();
 			}
@@ -553,6 +965,22 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 	
 	public StoredMap getStoredMap(Store storeType) {
         waitWhileObjectsAreModified();
+		return storedMap(storeType);
+	}
+
+	private EntityBinding dataBinding(Store storeType) {
+		if (storeType == Store.context)
+			return views.getContextBinding();
+		else if (storeType == Store.exertion)
+			return views.getExertionBinding();
+		else if (storeType == Store.table)
+			return views.getTableBinding();
+		else if (storeType == Store.object)
+			return views.getUuidObjectBinding();
+		return null;
+	}
+
+	private StoredMap storedMap(Store storeType) {
 		StoredMap storedMap = null;
 		if (storeType == Store.context) {
 			storedMap = views.getContextMap();
@@ -591,32 +1019,19 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 	
 	public Uuid deleteIdentifiable(Object object) {
 		Uuid id = (Uuid) ((Identifiable) object).getId();
-		DeleteThread dt = null;
-		if (object instanceof Context) {
-			dt = new DeleteThread(id, Store.context);
-		} else if (object instanceof Exertion) {
-			dt = new DeleteThread(id, Store.exertion);
-		} else if (object instanceof ModelTable) {
-            dt = new DeleteThread(id, Store.table);
-        } else {
-			dt = new DeleteThread(id, Store.object);			
-		}
-		dt.start();
-		id = dt.getUuid();
+		writes.submit(id, new DeleteTask(id, getStoreType(object)));
 		return id;
 	}
 	
 	private int getStoreSize(Store type) {
         waitWhileObjectsAreModified();
-		if (type == Store.context) {
-			return views.getContextSet().size();
-		} else if (type == Store.exertion) {
-			return views.getExertionSet().size();
-		} else if (type == Store.table) {
-            return views.getTableSet().size();
-        } else {
-			return views.getUuidObjectSet().size();
+		long count = 0;
+		for (Store store : type == Store.all ? LISTED_STORES : new Store[] { type }) {
+			Database database = database(store);
+			if (database != null)
+				count += database.count();
 		}
+		return (int) count;
 	}
 	
 	private Store getStoreType(Object object) {
@@ -654,15 +1069,54 @@ public class DatabaseProvider implements DatabaseStorer, IDatabaseProvider {
 		return null;
 	}
 
+	/* (non-Javadoc)
+	 * @see sorcer.core.provider.StorageManagement#contextQuery(sorcer.service.Context)
+	 */
+	@Override
+	public Context contextQuery(Context context) throws RemoteException,
+			ContextException, MalformedURLException {
+		Store type = (Store) context.getValue(StorageManagement.store_type);
+		RecordQuery query = new RecordQuery()
+				.name((String) context.getValue(StorageManagement.query_name))
+				.principal((String) context.getValue(StorageManagement.query_principal))
+				.status((Integer) context.getValue(StorageManagement.query_status))
+				.domain((String) context.getValue(StorageManagement.query_domain))
+				.created((Date) context.getValue(StorageManagement.query_created_from),
+						(Date) context.getValue(StorageManagement.query_created_to));
+		Object limit = context.getValue(StorageManagement.query_limit);
+		List<URL> result = query(type, query, limit instanceof Integer ? (Integer) limit : 1000);
+		if (context.getReturnPath() != null)
+			context.putOutValue(context.getReturnPath().path, result);
+		context.putOutValue(StorageManagement.query_result, result);
+		return context;
+	}
+
+	/**
+	 * @return SDB URLs of up to limit records of the store matching the query
+	 */
+	public List<URL> query(Store storeType, RecordQuery query, int limit) {
+		waitWhileObjectsAreModified();
+		logger.debug("Query {}: {}", storeType, query);
+		List<URL> urls = new ArrayList<URL>();
+		for (Store store : storeType == Store.all ? LISTED_STORES : new Store[] { storeType }) {
+			Database database = database(store);
+			if (database == null || urls.size() >= limit)
+				continue;
+			List<Uuid> ids;
+			if (SorcerDatabase.TUPLE_FORMAT.equals(db.getStoreFormat()))
+				ids = query.run(db, database, limit - urls.size());
+			else
+				ids = query.filter(storedMap(store).values(), limit - urls.size());
+			for (Uuid id : ids)
+				urls.add(toDatabaseURL(store, id));
+		}
+		return urls;
+	}
+
     @Override
     public URL storeObject(Object object) {
         Uuid uuid = store(object);
-        Store type = getStoreType(object);
-        try {
-            return getDatabaseURL(type, uuid);
-        } catch (MalformedURLException e) {
-            throw new IllegalStateException("Couldn't parse my own URL", e);
-        }
+        return toDatabaseURL(getStoreType(object), uuid);
     }
 
     /**
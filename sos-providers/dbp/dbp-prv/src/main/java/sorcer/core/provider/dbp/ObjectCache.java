@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.core.provider.dbp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jini.id.Uuid;
+import sorcer.core.provider.DatabaseStorer.Store;
+
+/**
+ * Least recently used cache of deserialized stored objects, bounded by the
+ * total weight of the entries. The weight of an entry is the size of the
+ * stored record it was decoded from. The cached objects are shared by all
+ * readers and must not be modified.
+ * <p>
+ * A value read from the database may only be added if no invalidation
+ * happened since the read started, see {@link #getGeneration()}, so a read
+ * racing with an update can never put a stale value into the cache.
+ */
+class ObjectCache {
+	private final long maxWeight;
+
+	private final long maxEntryWeight;
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(256, .75f, true);
+
+	private long weight;
+
+	private long generation;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * @param maxWeight      total weight of cached values in bytes, 0 disables the cache
+	 * @param maxEntryWeight values heavier than this are never cached
+	 */
+	public ObjectCache(long maxWeight, long maxEntryWeight) {
+		this.maxWeight = maxWeight;
+		this.maxEntryWeight = Math.min(maxWeight, maxEntryWeight);
+	}
+
+	public boolean isEnabled() {
+		return maxWeight > 0;
+	}
+
+	/**
+	 * @return the cached value, not to be modified by the caller
+	 */
+	public Object get(Store store, Uuid id) {
+		if (!isEnabled())
+			return null;
+		Entry e;
+		synchronized (this) {
+			e = entries.get(new Key(store, id));
+		}
+		if (e == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return e.value;
+	}
+
+	/**
+	 * Current invalidation generation, to be taken before reading the value
+	 * from the database and passed to {@link #put(Store, Uuid, Object, long, long)}
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Add a value read from the database, unless the cache was invalidated
+	 * after the read started. The value must not be modified afterwards.
+	 *
+	 * @param weight size of the stored record of the value
+	 */
+	public void put(Store store, Uuid id, Object value, long weight, long readGeneration) {
+		if (!isEnabled() || value == null)
+			return;
+		long w = weight;
+		if (w > maxEntryWeight) {
+			rejected.incrementAndGet();
+			return;
+		}
+		synchronized (this) {
+			if (readGeneration != generation) {
+				rejected.incrementAndGet();
+				return;
+			}
+			Entry old = entries.put(new Key(store, id), new Entry(value, w));
+			if (old != null)
+				weight -= old.weight;
+			weight += w;
+			Iterator<Entry> it = entries.values().iterator();
+			while (weight > maxWeight && it.hasNext()) {
+				weight -= it.next().weight;
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	public void invalidate(Uuid id) {
+		if (!isEnabled())
+			return;
+		synchronized (this) {
+			generation++;
+			for (Store store : Store.values()) {
+				Entry old = entries.remove(new Key(store, id));
+				if (old != null)
+					weight -= old.weight;
+			}
+		}
+	}
+
+	public synchronized void invalidateAll() {
+		generation++;
+		entries.clear();
+		weight = 0;
+	}
+
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> stats = new LinkedHashMap<String, Long>();
+		long h = hits.get(), m = misses.get();
+		stats.put("hits", h);
+		stats.put("misses", m);
+		stats.put("hitRatioPercent", h + m == 0 ? 0 : h * 100 / (h + m));
+		stats.put("evictions", evictions.get());
+		stats.put("rejected", rejected.get());
+		synchronized (this) {
+			stats.put("entries", (long) entries.size());
+			stats.put("weight", weight);
+		}
+		stats.put("maxWeight", maxWeight);
+		return stats;
+	}
+
+	private static class Entry {
+		final Object value;
+		final long weight;
+
+		Entry(Object value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private static class Key {
+		final Store store;
+		final Uuid id;
+
+		Key(Store store, Uuid id) {
+			this.store = store;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return store == k.store && id.equals(k.id);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * store.ordinal() + id.hashCode();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.core.provider.dbp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jini.id.Uuid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.core.provider.DatabaseStorer.Store;
+import sorcer.util.bdb.objects.SorcerDatabase;
+import sorcer.util.bdb.objects.UuidKey;
+
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.SecondaryCursor;
+import com.sleepycat.je.SecondaryDatabase;
+import com.sleepycat.je.Transaction;
+
+/**
+ * Deletes the records older than the retention time of their store. The
+ * records are found in creation order through the age index of the store and
+ * deleted in transactions of at most batchSize records, so the expirer never
+ * holds many locks. After a run that deleted records the database log is
+ * cleaned and checkpointed, and the space it gave back is counted.
+ */
+class StoreExpirer implements Runnable {
+	private static final Logger logger = LoggerFactory.getLogger(StoreExpirer.class);
+
+	private final SorcerDatabase db;
+
+	private final EntryBinding keyBinding;
+
+	private final ObjectCache cache;
+
+	private final int batchSize;
+
+	private final Map<Store, Policy> policies = new LinkedHashMap<Store, Policy>();
+
+	private volatile boolean stopped;
+
+	private final AtomicLong runs = new AtomicLong();
+	private final AtomicLong cleanedFiles = new AtomicLong();
+	private final AtomicLong reclaimedBytes = new AtomicLong();
+	private final AtomicLong lastRunMillis = new AtomicLong();
+
+	public StoreExpirer(SorcerDatabase db, EntryBinding keyBinding, ObjectCache cache, int batchSize) {
+		this.db = db;
+		this.keyBinding = keyBinding;
+		this.cache = cache;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Expire records of the store older than the retention time
+	 *
+	 * @param index age index of the store, see {@link sorcer.util.bdb.objects.RecordHeader#CREATED}
+	 */
+	public void setRetention(Store store, SecondaryDatabase index, long retention) {
+		policies.put(store, new Policy(index, retention));
+	}
+
+	public boolean isEmpty() {
+		return policies.isEmpty();
+	}
+
+	/**
+	 * Make a running expiry stop after its current transaction
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	public void run() {
+		try {
+			expire();
+		} catch (RuntimeException e) {
+			logger.error("Expiry of stored records failed", e);
+		}
+	}
+
+	/**
+	 * Delete all expired records and compact the log
+	 *
+	 * @return number of deleted records
+	 */
+	public synchronized int expire() {
+		long start = System.currentTimeMillis();
+		long sizeBefore = db.getLogSize();
+		int total = 0;
+		for (Map.Entry<Store, Policy> e : policies.entrySet()) {
+			Policy policy = e.getValue();
+			int n = expire(policy.index, start - policy.retention);
+			policy.expired.addAndGet(n);
+			if (n > 0)
+				logger.info("Expired {} records of the {} store", n, e.getKey());
+			total += n;
+		}
+		if (total > 0 && !stopped) {
+			cleanedFiles.addAndGet(db.compact());
+			long reclaimed = sizeBefore - db.getLogSize();
+			if (reclaimed > 0)
+				reclaimedBytes.addAndGet(reclaimed);
+		}
+		runs.incrementAndGet();
+		lastRunMillis.set(System.currentTimeMillis() - start);
+		return total;
+	}
+
+	private int expire(SecondaryDatabase index, long cutoff) {
+		int expired = 0;
+		int deleted;
+		do {
+			deleted = 0;
+			List<Uuid> ids = new ArrayList<Uuid>(batchSize);
+			Transaction txn = db.getEnvironment().beginTransaction(null, null);
+			SecondaryCursor cursor = index.openCursor(txn, null);
+			try {
+				DatabaseEntry key = new DatabaseEntry();
+				DatabaseEntry pKey = new DatabaseEntry();
+				DatabaseEntry data = new DatabaseEntry();
+				data.setPartial(0, 0, true);
+				while (deleted < batchSize
+						&& cursor.getNext(key, pKey, data, LockMode.RMW) == OperationStatus.SUCCESS
+						&& LongBinding.entryToLong(key) < cutoff) {
+					// deletes the primary record and its other index entries
+					cursor.delete();
+					ids.add(((UuidKey) keyBinding.entryToObject(pKey)).getId());
+					deleted++;
+				}
+				cursor.close();
+				cursor = null;
+				txn.commit();
+				txn = null;
+			} finally {
+				if (cursor != null)
+					cursor.close();
+				if (txn != null)
+					txn.abort();
+			}
+			for (Uuid id : ids)
+				cache.invalidate(id);
+			expired += deleted;
+		} while (deleted == batchSize && !stopped);
+		return expired;
+	}
+
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> stats = new LinkedHashMap<String, Long>();
+		for (Map.Entry<Store, Policy> e : policies.entrySet()) {
+			stats.put("expired." + e.getKey(), e.getValue().expired.get());
+			stats.put("retention." + e.getKey(), e.getValue().retention);
+		}
+		stats.put("runs", runs.get());
+		stats.put("lastRunMillis", lastRunMillis.get());
+		stats.put("cleanedFiles", cleanedFiles.get());
+		stats.put("reclaimedBytes", reclaimedBytes.get());
+		stats.put("logSize", db.getLogSize());
+		return stats;
+	}
+
+	private static class Policy {
+		final SecondaryDatabase index;
+		final long retention;
+		final AtomicLong expired = new AtomicLong();
+
+		Policy(SecondaryDatabase index, long retention) {
+			this.index = index;
+			this.retention = retention;
+		}
+	}
+}
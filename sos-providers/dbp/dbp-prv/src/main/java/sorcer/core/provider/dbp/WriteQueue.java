@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.core.provider.dbp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+import net.jini.id.Uuid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.util.ConfigurableThreadFactory;
+
+/**
+ * Bounded set of database writers. Writes are striped by object id, so all
+ * modifications of one object are applied in submission order by the same
+ * writer thread. The most recent write of every object is kept as a future
+ * that readers can wait on instead of polling.
+ */
+class WriteQueue {
+	private static final Logger logger = LoggerFactory.getLogger(WriteQueue.class);
+
+	private final ThreadPoolExecutor[] writers;
+
+	private final ConcurrentMap<Uuid, Future<?>> pending = new ConcurrentHashMap<Uuid, Future<?>>();
+
+	public WriteQueue(int writerCount, int queueCapacity) {
+		ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+		tf.setDaemon(true);
+		tf.setNameFormat("DatabaseWriter-%2$d");
+		writers = new ThreadPoolExecutor[Math.max(1, writerCount)];
+		for (int i = 0; i < writers.length; i++) {
+			writers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, queueCapacity)),
+					tf, new BlockWhenFull());
+		}
+	}
+
+	/**
+	 * Queue a write of the object with the given id. Blocks the caller while
+	 * the writer's queue is full.
+	 */
+	public Future<Uuid> submit(final Uuid id, final Runnable write) {
+		WriteTask task = new WriteTask(id, write);
+		pending.put(id, task);
+		try {
+			writers[(id.hashCode() & Integer.MAX_VALUE) % writers.length].execute(task);
+		} catch (RejectedExecutionException e) {
+			pending.remove(id, task);
+			throw e;
+		}
+		return task;
+	}
+
+	/**
+	 * Queue a write and wait for it to be applied, rethrowing any runtime
+	 * exception of the write in the calling thread.
+	 */
+	public Uuid execute(Uuid id, Runnable write) {
+		Future<Uuid> f = submit(id, write);
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while writing " + id, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException("Failed to write " + id, cause);
+		}
+	}
+
+	/**
+	 * Apply a write of several objects in the calling thread, after the writes
+	 * already queued for these objects. Readers of any of the objects wait
+	 * for the whole batch. Batches do not wait for each other, concurrent
+	 * batches touching the same objects are serialized by the database locks.
+	 */
+	public <T> T executeAll(Collection<Uuid> ids, Callable<T> write) throws Exception {
+		BatchTask<T> task = new BatchTask<T>(ids, write);
+		List<Future<?>> previous = new ArrayList<Future<?>>();
+		for (Uuid id : ids) {
+			Future<?> prev = pending.put(id, task);
+			if (prev != null && prev != task && !(prev instanceof BatchTask))
+				previous.add(prev);
+		}
+		for (Future<?> prev : previous)
+			awaitQuietly(null, prev);
+		task.run();
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
+	}
+
+	/**
+	 * Wait until the last queued write of the object is applied.
+	 */
+	public void await(Uuid id) {
+		Future<?> f = pending.get(id);
+		if (f != null)
+			awaitQuietly(id, f);
+	}
+
+	/**
+	 * Wait until all writes queued so far are applied.
+	 */
+	public void awaitAll() {
+		for (Future<?> f : new ArrayList<Future<?>>(pending.values()))
+			awaitQuietly(null, f);
+	}
+
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Stop accepting writes and wait for the queued ones to finish.
+	 *
+	 * @return writes left unapplied after the timeout
+	 */
+	public int shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		for (ThreadPoolExecutor w : writers)
+			w.shutdown();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (ThreadPoolExecutor w : writers)
+			w.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		List<Runnable> dropped = new ArrayList<Runnable>();
+		for (ThreadPoolExecutor w : writers)
+			dropped.addAll(w.shutdownNow());
+		for (Runnable r : dropped)
+			((Future<?>) r).cancel(false);
+		return dropped.size();
+	}
+
+	private void awaitQuietly(Uuid id, Future<?> f) {
+		try {
+			f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Interrupted while waiting for object to be modified: {}", id);
+		} catch (ExecutionException e) {
+			// the failure is reported to the writer's caller; readers see the stored state
+			logger.debug("Write of {} failed", id, e.getCause());
+		} catch (CancellationException ignored) {
+		}
+	}
+
+	private class WriteTask extends FutureTask<Uuid> {
+		private final Uuid id;
+
+		WriteTask(Uuid id, Runnable write) {
+			super(write, id);
+			this.id = id;
+		}
+
+		@Override
+		protected void done() {
+			pending.remove(id, this);
+		}
+	}
+
+	private class BatchTask<T> extends FutureTask<T> {
+		private final Collection<Uuid> ids;
+
+		BatchTask(Collection<Uuid> ids, Callable<T> write) {
+			super(write);
+			this.ids = ids;
+		}
+
+		@Override
+		protected void done() {
+			for (Uuid id : ids)
+				pending.remove(id, this);
+		}
+	}
+
+	private static class BlockWhenFull implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			if (executor.isShutdown())
+				throw new RejectedExecutionException("Database writer is shut down");
+			try {
+				executor.getQueue().put(r);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while queueing a write", e);
+			}
+		}
+	}
+}
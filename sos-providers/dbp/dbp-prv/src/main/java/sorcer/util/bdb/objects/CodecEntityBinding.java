@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.bdb.objects;
+
+import java.io.IOException;
+
+import net.jini.id.Uuid;
+import sorcer.service.Context;
+import sorcer.service.Identifiable;
+import sorcer.service.ServiceExertion;
+import sorcer.util.Table;
+
+import com.sleepycat.bind.EntityBinding;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.util.RuntimeExceptionWrapper;
+
+/**
+ * Entity binding of the tuple store format: the key is the 16 byte Uuid of
+ * the entity and the data is the {@link RecordHeader} of the entity followed
+ * by the entity encoded with a {@link ValueCodec}.
+ * As with the serial bindings, the id of a read entity is set from its key.
+ */
+public class CodecEntityBinding implements EntityBinding<Object> {
+
+	private final UuidKeyBinding keyBinding = new UuidKeyBinding();
+
+	private final ValueCodec codec;
+
+	public CodecEntityBinding(ValueCodec codec) {
+		this.codec = codec;
+	}
+
+	@Override
+	public Object entryToObject(DatabaseEntry key, DatabaseEntry data) {
+		Uuid id = keyBinding.entryToObject(key).getId();
+		try {
+			int offset = RecordHeader.valueOffset(data);
+			Object entity = ValueCodecs.decode(data.getData(), offset, data.getOffset() + data.getSize() - offset);
+			setId(entity, id);
+			return entity;
+		} catch (IOException e) {
+			throw new RuntimeExceptionWrapper(e);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeExceptionWrapper(e);
+		}
+	}
+
+	@Override
+	public void objectToKey(Object object, DatabaseEntry key) {
+		keyBinding.objectToEntry(new UuidKey((Uuid) ((Identifiable) object).getId()), key);
+	}
+
+	@Override
+	public void objectToData(Object object, DatabaseEntry data) {
+		objectToData(object, null, data);
+	}
+
+	/**
+	 * Write the entity over a stored record, see {@link RecordHeader#of(Object, RecordHeader)}
+	 *
+	 * @param previous header of the stored record, or null
+	 */
+	public void objectToData(Object object, RecordHeader previous, DatabaseEntry data) {
+		try {
+			TupleOutput out = new TupleOutput();
+			RecordHeader.of(object, previous).write(out);
+			out.writeFast(ValueCodecs.encode(codec, object));
+			data.setData(out.getBufferBytes(), 0, out.getBufferLength());
+		} catch (IOException e) {
+			throw new RuntimeExceptionWrapper(e);
+		}
+	}
+
+	static void setId(Object entity, Uuid id) {
+		if (entity instanceof ServiceExertion)
+			((ServiceExertion) entity).setId(id);
+		else if (entity instanceof Context)
+			((Context) entity).setId(id);
+		else if (entity instanceof Table)
+			((Table) entity).setId(id);
+		else if (entity instanceof UuidObject)
+			((UuidObject) entity).setId(id);
+	}
+}
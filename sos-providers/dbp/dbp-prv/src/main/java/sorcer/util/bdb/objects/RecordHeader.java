@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.bdb.objects;
+
+import java.security.Principal;
+import java.util.Date;
+
+import sorcer.service.Context;
+import sorcer.service.Identifiable;
+import sorcer.service.SecureIdentifiable;
+import sorcer.service.ServiceExertion;
+
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.DatabaseEntry;
+
+/**
+ * The queryable attributes of a stored entity, written in tuple format in
+ * front of the encoded value, so the secondary indexes and query filters
+ * can read them without deserializing the entity.
+ * <p>
+ * The record layout is the {@link #TAG} byte, the header, then the codec id
+ * and the value as written by {@link ValueCodecs#encode(ValueCodec, Object)}.
+ * Records without the tag have no header.
+ */
+public class RecordHeader {
+
+	public static final byte TAG = 0;
+
+	public static final String NAME = "name";
+	public static final String PRINCIPAL = "principal";
+	public static final String STATUS = "status";
+	public static final String CREATED = "created";
+	public static final String DOMAIN = "domain";
+
+	/**
+	 * The indexed attributes
+	 */
+	public static final String[] FIELDS = { NAME, PRINCIPAL, STATUS, CREATED, DOMAIN };
+
+	private String name;
+	private String principal;
+	private Integer status;
+	private long created;
+	private String domain;
+
+	private RecordHeader() {
+	}
+
+	public RecordHeader(String name, String principal, Integer status, long created, String domain) {
+		this.name = name;
+		this.principal = principal;
+		this.status = status;
+		this.created = created;
+		this.domain = domain;
+	}
+
+	/**
+	 * Extract the header of an entity. The creation date is the exertion's,
+	 * or the object's if it has one, otherwise the time it is stored.
+	 */
+	public static RecordHeader of(Object entity) {
+		return of(entity, null);
+	}
+
+	/**
+	 * Extract the header of an entity rewritten over a stored record. Unless
+	 * the entity has a creation date of its own, the creation date of the
+	 * stored record is kept.
+	 *
+	 * @param previous header of the stored record, or null
+	 */
+	public static RecordHeader of(Object entity, RecordHeader previous) {
+		RecordHeader h = new RecordHeader();
+		Date created = null;
+		if (entity instanceof Identifiable)
+			h.name = ((Identifiable) entity).getName();
+		if (entity instanceof ServiceExertion) {
+			ServiceExertion xrt = (ServiceExertion) entity;
+			h.principal = nameOf(xrt.getPrincipal());
+			h.status = xrt.getStatus();
+			created = xrt.getCreationDate();
+			h.domain = xrt.getDomainId();
+		} else if (entity instanceof Context) {
+			Context cxt = (Context) entity;
+			h.principal = nameOf(cxt.getPrincipal());
+			h.domain = cxt.getDomainName() != null ? cxt.getDomainName() : cxt.getDomainID();
+		} else if (entity instanceof SecureIdentifiable) {
+			h.principal = nameOf(((SecureIdentifiable) entity).getPrincipal());
+		}
+		if (entity instanceof UuidObject && ((UuidObject) entity).getDateCreated() != null)
+			created = ((UuidObject) entity).getDateCreated();
+		if (created != null)
+			h.created = created.getTime();
+		else if (previous != null)
+			h.created = previous.created;
+		else
+			h.created = System.currentTimeMillis();
+		return h;
+	}
+
+	static String nameOf(Principal principal) {
+		return principal != null ? principal.getName() : null;
+	}
+
+	/**
+	 * Read the header of a stored record
+	 *
+	 * @return the header or null if the record has none
+	 */
+	public static RecordHeader read(DatabaseEntry data) {
+		if (data.getSize() == 0 || data.getData()[data.getOffset()] != TAG)
+			return null;
+		TupleInput in = new TupleInput(data.getData(), data.getOffset() + 1, data.getSize() - 1);
+		return read(in);
+	}
+
+	/**
+	 * @return offset of the encoded value in the record data
+	 */
+	public static int valueOffset(DatabaseEntry data) {
+		if (data.getSize() == 0 || data.getData()[data.getOffset()] != TAG)
+			return data.getOffset();
+		TupleInput in = new TupleInput(data.getData(), data.getOffset() + 1, data.getSize() - 1);
+		read(in);
+		return in.getBufferOffset();
+	}
+
+	private static RecordHeader read(TupleInput in) {
+		RecordHeader h = new RecordHeader();
+		h.name = in.readString();
+		h.principal = in.readString();
+		if (in.readBoolean())
+			h.status = in.readInt();
+		else
+			in.readInt();
+		h.created = in.readLong();
+		h.domain = in.readString();
+		return h;
+	}
+
+	public void write(TupleOutput out) {
+		out.writeByte(TAG);
+		out.writeString(name);
+		out.writeString(principal);
+		out.writeBoolean(status != null);
+		out.writeInt(status != null ? status : 0);
+		out.writeLong(created);
+		out.writeString(domain);
+	}
+
+	/**
+	 * Write the index key of the field
+	 *
+	 * @return false if the record has no value of the field
+	 */
+	public boolean writeKey(String field, TupleOutput key) {
+		if (NAME.equals(field) && name != null)
+			key.writeString(name);
+		else if (PRINCIPAL.equals(field) && principal != null)
+			key.writeString(principal);
+		else if (STATUS.equals(field) && status != null)
+			key.writeInt(status);
+		else if (CREATED.equals(field))
+			key.writeLong(created);
+		else if (DOMAIN.equals(field) && domain != null)
+			key.writeString(domain);
+		else
+			return false;
+		return true;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getPrincipal() {
+		return principal;
+	}
+
+	public Integer getStatus() {
+		return status;
+	}
+
+	public Date getCreated() {
+		return new Date(created);
+	}
+
+	public long getCreatedMillis() {
+		return created;
+	}
+
+	public String getDomain() {
+		return domain;
+	}
+}
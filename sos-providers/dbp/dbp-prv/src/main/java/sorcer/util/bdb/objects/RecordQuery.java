@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.bdb.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import net.jini.id.Uuid;
+import sorcer.service.Identifiable;
+
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.CursorConfig;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.JoinCursor;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.SecondaryCursor;
+import com.sleepycat.je.SecondaryDatabase;
+
+/**
+ * A conjunction of conditions on the {@link RecordHeader} attributes of
+ * stored records. Equality conditions are answered by joining the attribute
+ * indices, a creation date range by a range scan of the date index. Without
+ * a usable index the store is scanned, reading only the record headers.
+ */
+public class RecordQuery {
+
+	private String name;
+	private String principal;
+	private Integer status;
+	private String domain;
+	private Long createdFrom;
+	private Long createdTo;
+
+	public RecordQuery name(String name) {
+		this.name = name;
+		return this;
+	}
+
+	public RecordQuery principal(String principal) {
+		this.principal = principal;
+		return this;
+	}
+
+	public RecordQuery status(Integer status) {
+		this.status = status;
+		return this;
+	}
+
+	public RecordQuery domain(String domain) {
+		this.domain = domain;
+		return this;
+	}
+
+	/**
+	 * Records created in [from, to), either bound may be null
+	 */
+	public RecordQuery created(Date from, Date to) {
+		this.createdFrom = from != null ? from.getTime() : null;
+		this.createdTo = to != null ? to.getTime() : null;
+		return this;
+	}
+
+	public boolean matches(RecordHeader h) {
+		return (name == null || name.equals(h.getName()))
+				&& (principal == null || principal.equals(h.getPrincipal()))
+				&& (status == null || status.equals(h.getStatus()))
+				&& (domain == null || domain.equals(h.getDomain()))
+				&& (createdFrom == null || h.getCreatedMillis() >= createdFrom)
+				&& (createdTo == null || h.getCreatedMillis() < createdTo);
+	}
+
+	/**
+	 * Match the entities of a store in the serial format, which has no
+	 * record headers nor indices.
+	 */
+	public List<Uuid> filter(Iterable<?> entities, int limit) {
+		List<Uuid> ids = new ArrayList<Uuid>();
+		for (Object entity : entities) {
+			if (ids.size() >= limit)
+				break;
+			if (entity != null && matches(RecordHeader.of(entity)))
+				ids.add((Uuid) ((Identifiable) entity).getId());
+		}
+		return ids;
+	}
+
+	/**
+	 * Run the query on a store in the tuple format.
+	 *
+	 * @return ids of up to limit matching records
+	 */
+	public List<Uuid> run(SorcerDatabase db, Database store, int limit) throws DatabaseException {
+		List<Uuid> ids = new ArrayList<Uuid>();
+		List<Cursor> cursors = new ArrayList<Cursor>();
+		DatabaseEntry pKey = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry();
+		try {
+			for (String field : new String[] { RecordHeader.NAME, RecordHeader.PRINCIPAL, RecordHeader.STATUS, RecordHeader.DOMAIN }) {
+				DatabaseEntry key = key(field);
+				SecondaryDatabase index = key != null ? db.getIndex(store, field) : null;
+				if (index == null)
+					continue;
+				SecondaryCursor cursor = index.openCursor(null, CursorConfig.READ_COMMITTED);
+				cursors.add(cursor);
+				if (cursor.getSearchKey(key, data, LockMode.DEFAULT) != OperationStatus.SUCCESS)
+					return Collections.emptyList();
+			}
+			if (!cursors.isEmpty()) {
+				JoinCursor join = store.join(cursors.toArray(new Cursor[cursors.size()]), null);
+				try {
+					while (ids.size() < limit && join.getNext(pKey, data, LockMode.DEFAULT) == OperationStatus.SUCCESS)
+						collect(pKey, data, ids);
+				} finally {
+					join.close();
+				}
+				return ids;
+			}
+
+			SecondaryDatabase createdIndex = createdFrom != null || createdTo != null
+					? db.getIndex(store, RecordHeader.CREATED) : null;
+			if (createdIndex != null) {
+				SecondaryCursor cursor = createdIndex.openCursor(null, CursorConfig.READ_COMMITTED);
+				cursors.add(cursor);
+				TupleOutput out = new TupleOutput();
+				out.writeLong(createdFrom != null ? createdFrom : Long.MIN_VALUE);
+				DatabaseEntry key = new DatabaseEntry(out.getBufferBytes(), 0, out.getBufferLength());
+				OperationStatus status = cursor.getSearchKeyRange(key, pKey, data, LockMode.DEFAULT);
+				while (status == OperationStatus.SUCCESS && ids.size() < limit) {
+					long created = new TupleInput(key.getData(), key.getOffset(), key.getSize()).readLong();
+					if (createdTo != null && created >= createdTo)
+						break;
+					collect(pKey, data, ids);
+					status = cursor.getNext(key, pKey, data, LockMode.DEFAULT);
+				}
+				return ids;
+			}
+
+			Cursor cursor = store.openCursor(null, CursorConfig.READ_COMMITTED);
+			cursors.add(cursor);
+			while (ids.size() < limit && cursor.getNext(pKey, data, LockMode.DEFAULT) == OperationStatus.SUCCESS)
+				collect(pKey, data, ids);
+			return ids;
+		} finally {
+			for (Cursor cursor : cursors)
+				cursor.close();
+		}
+	}
+
+	private void collect(DatabaseEntry pKey, DatabaseEntry data, List<Uuid> ids) {
+		RecordHeader header = RecordHeader.read(data);
+		if (header != null && matches(header))
+			ids.add(new UuidKeyBinding().entryToObject(pKey).getId());
+	}
+
+	private DatabaseEntry key(String field) {
+		RecordHeader probe = new RecordHeader(name, principal, status, 0, domain);
+		TupleOutput out = new TupleOutput();
+		if (RecordHeader.CREATED.equals(field) || !probe.writeKey(field, out))
+			return null;
+		return new DatabaseEntry(out.getBufferBytes(), 0, out.getBufferLength());
+	}
+
+	@Override
+	public String toString() {
+		return "RecordQuery{name=" + name + ", principal=" + principal + ", status=" + status
+				+ ", domain=" + domain + ", created=[" + createdFrom + ", " + createdTo + ")}";
+	}
+}
@@ -19,6 +19,9 @@
 package sorcer.util.bdb.objects;
 
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
 
 import sorcer.core.provider.ProviderRuntime;
 import sorcer.service.ServiceExertion;
@@ -26,16 +29,22 @@ import sorcer.service.ServiceExertion;
 import com.sleepycat.bind.serial.ClassCatalog;
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.bind.serial.TupleSerialKeyCreator;
+import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.bind.tuple.TupleInput;
 import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.CheckpointConfig;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentConfig;
 import com.sleepycat.je.ForeignKeyDeleteAction;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
 import com.sleepycat.je.SecondaryConfig;
 import com.sleepycat.je.SecondaryDatabase;
+import com.sleepycat.je.SecondaryKeyCreator;
 
 /**
  * SorcerDatabase defines the storage containers, indices and foreign keys for
@@ -54,9 +63,23 @@ public class SorcerDatabase {
     private static final String VAR_MODEL_STORE = "var_model_store";
     private static final String OBJECT_STORE = "uuid_object_store";
 
+    private static final String STORE_FORMAT = "store_format";
+
+    /**
+     * Store format of environments created before the tuple format: keys
+     * and values serialized with the class catalog.
+     */
+    public static final String SERIAL_FORMAT = "serial";
+
+    /**
+     * Store format with 16 byte Uuid tuple keys and {@link ValueCodec} values.
+     */
+    public static final String TUPLE_FORMAT = "tuple";
+
     private static final String RUNTIME_PROVIDER_NAME_INDEX =
         "runtime_provider_name_index";
 
+    private File home;
     private Environment env;
     private Database exertionDb;
     private Database runtimeDb;
@@ -66,20 +89,54 @@ public class SorcerDatabase {
     private Database varModelDb;
     private Database uuidObjectDb;
 
+    private Database formatDb;
+
     private SecondaryDatabase runtimeByProviderNameDb;
     private StoredClassCatalog javaCatalog;
 
+    private String storeFormat;
+
+    private Map<String, SecondaryDatabase> indexes = new LinkedHashMap<String, SecondaryDatabase>();
+
     /**
-     * Open all storage containers, indices, and catalogs.
+     * Open all storage containers, indices, and catalogs. New environments
+     * use the tuple store format.
      */
     public SorcerDatabase(String homeDirectory)
+        throws DatabaseException {
+        this(homeDirectory, TUPLE_FORMAT);
+    }
+
+    /**
+     * Open all storage containers, indices, and catalogs.
+     *
+     * @param newStoreFormat format used if the environment has no records yet,
+     *                       existing environments keep their format
+     */
+    public SorcerDatabase(String homeDirectory, String newStoreFormat)
+        throws DatabaseException {
+        this(homeDirectory, newStoreFormat, new Properties());
+    }
+
+    /**
+     * Open all storage containers, indices, and catalogs.
+     *
+     * @param newStoreFormat format used if the environment has no records yet,
+     *                       existing environments keep their format
+     * @param envParams      Berkeley DB environment parameters, e.g. the log
+     *                       cleaner and checkpointer settings of {@link EnvironmentConfig}
+     */
+    public SorcerDatabase(String homeDirectory, String newStoreFormat, Properties envParams)
         throws DatabaseException {
         // Open the Berkeley DB environment in transactional mode.
         //System.out.println("Opening environment in: " + homeDirectory);
         EnvironmentConfig envConfig = new EnvironmentConfig();
         envConfig.setTransactional(true);
         envConfig.setAllowCreate(true);
-        env = new Environment(new File(homeDirectory), envConfig);
+        for (String name : envParams.stringPropertyNames())
+            envConfig.setConfigParam(name, envParams.getProperty(name));
+        home = new File(homeDirectory);
+        env = new Environment(home, envConfig);
 
         // Set the Berkeley DB config for opening all stores.
         DatabaseConfig dbConfig = new DatabaseConfig();
@@ -109,6 +166,21 @@ public class SorcerDatabase {
         
         uuidObjectDb = env.openDatabase(null, OBJECT_STORE, dbConfig);
 
+        formatDb = env.openDatabase(null, STORE_FORMAT, dbConfig);
+        storeFormat = initStoreFormat(newStoreFormat);
+
+        // Attribute indices read the record headers of the tuple format.
+        // Records without a header, e.g. written before the indices existed,
+        // are not indexed.
+        // The object store is only indexed by age, for expiry.
+        if (TUPLE_FORMAT.equals(storeFormat)) {
+            for (Database primary : new Database[] { exertionDb, contextDb, tableDb }) {
+                for (String field : RecordHeader.FIELDS)
+                    openIndex(primary, field);
+            }
+            openIndex(uuidObjectDb, RecordHeader.CREATED);
+        }
+
         // Open the SecondaryDatabase for the name index of the provider in the runtime store.
         // Duplicate keys are allowed since more than one provider may be in
         // the same exertion.  A foreign key constraint is defined for the
@@ -132,6 +204,47 @@ public class SorcerDatabase {
                                                              ServiceExertion.class));
     }
 
+    private void openIndex(Database primary, String field) throws DatabaseException {
+        SecondaryConfig indexConfig = new SecondaryConfig();
+        indexConfig.setTransactional(true);
+        indexConfig.setAllowCreate(true);
+        indexConfig.setAllowPopulate(true);
+        indexConfig.setSortedDuplicates(true);
+        indexConfig.setKeyCreator(new RecordHeaderKeyCreator(field));
+        String indexName = primary.getDatabaseName() + "_" + field + "_index";
+        indexes.put(indexName, env.openSecondaryDatabase(null, indexName, primary, indexConfig));
+    }
+
+    /**
+     * Read the recorded store format. Environments without one are in the
+     * serial format if they already hold records, otherwise they get the
+     * requested format.
+     */
+    private String initStoreFormat(String newStoreFormat) throws DatabaseException {
+        DatabaseEntry key = new DatabaseEntry();
+        StringBinding.stringToEntry(STORE_FORMAT, key);
+        DatabaseEntry data = new DatabaseEntry();
+        if (formatDb.get(null, key, data, LockMode.DEFAULT) == OperationStatus.SUCCESS)
+            return StringBinding.entryToString(data);
+
+        long records = exertionDb.count() + contextDb.count() + tableDb.count()
+                + uuidObjectDb.count();
+        String format = records > 0 ? SERIAL_FORMAT : newStoreFormat;
+        if (!SERIAL_FORMAT.equals(format) && !TUPLE_FORMAT.equals(format))
+            throw new IllegalArgumentException("Unknown store format: " + format);
+        StringBinding.stringToEntry(format, data);
+        formatDb.put(null, key, data);
+        return format;
+    }
+
+    /**
+     * Return the format of the exertion, context, table and object stores,
+     * {@link #SERIAL_FORMAT} or {@link #TUPLE_FORMAT}.
+     */
+    public final String getStoreFormat() {
+        return storeFormat;
+    }
+
     /**
      * Return the storage environment for the database.
      */
@@ -195,6 +308,41 @@ public class SorcerDatabase {
         return uuidObjectDb;
     }
     
+    /**
+     * Return the index of a {@link RecordHeader} field of the store.
+     *
+     * @return the index, or null if the store is not indexed on the field
+     */
+    public final SecondaryDatabase getIndex(Database store, String field) {
+        return indexes.get(store.getDatabaseName() + "_" + field + "_index");
+    }
+
+    /**
+     * Return the total size of the log files of the environment in bytes.
+     */
+    public final long getLogSize() {
+        return StoreMigration.getEnvironmentSize(home);
+    }
+
+    /**
+     * Clean the log files until none is below the cleaner's utilization
+     * threshold, then force a checkpoint so the cleaned files can be deleted.
+     *
+     * @return number of log files cleaned
+     */
+    public int compact() throws DatabaseException {
+        int cleaned = 0;
+        int n;
+        while ((n = env.cleanLog()) > 0)
+            cleaned += n;
+        if (cleaned > 0) {
+            CheckpointConfig force = new CheckpointConfig();
+            force.setForce(true);
+            env.checkpoint(force);
+        }
+        return cleaned;
+    }
+
     /**
      * Return the shipment-by-part index.
      */
@@ -209,6 +357,8 @@ public class SorcerDatabase {
         throws DatabaseException {
         // Close secondary databases, then primary databases.
         runtimeByProviderNameDb.close();
+        for (SecondaryDatabase index : indexes.values())
+            index.close();
         exertionDb.close();
         runtimeDb.close();
         contextDb.close();
@@ -216,6 +366,7 @@ public class SorcerDatabase {
         varDb.close();
         varModelDb.close();
         uuidObjectDb.close();
+        formatDb.close();
         
         // close the catalog and the environment.
         javaCatalog.close();
@@ -262,6 +413,31 @@ public class SorcerDatabase {
 		}
 	}
 
+    /**
+     * The SecondaryKeyCreator for the record attribute indices, reads the
+     * field from the {@link RecordHeader} without deserializing the value.
+     */
+    private static class RecordHeaderKeyCreator implements SecondaryKeyCreator {
+
+        private final String field;
+
+        private RecordHeaderKeyCreator(String field) {
+            this.field = field;
+        }
+
+        public boolean createSecondaryKey(SecondaryDatabase secondary,
+                DatabaseEntry key, DatabaseEntry data, DatabaseEntry result) {
+            RecordHeader header = RecordHeader.read(data);
+            if (header == null)
+                return false;
+            TupleOutput out = new TupleOutput();
+            if (!header.writeKey(field, out))
+                return false;
+            result.setData(out.getBufferBytes(), 0, out.getBufferLength());
+            return true;
+        }
+    }
+
     /**
      * The SecondaryKeyCreator for the ExertionByRuntime index.  This is an
      * extension of the abstract class TupleSerialKeyCreator, which implements
@@ -53,11 +53,25 @@ public class SorcerDatabaseViews {
 	private StoredMap contextMap;
 	private StoredMap tableMap;
 	private StoredMap uuidObjectMap;
+	private EntryBinding keyBinding;
+	private EntityBinding exertionBinding;
+	private EntityBinding contextBinding;
+	private EntityBinding tableBinding;
+	private EntityBinding uuidObjectBinding;
 
     /**
 	 * Create the data bindings and collection views.
 	 */
 	public SorcerDatabaseViews(SorcerDatabase db) {
+		this(db, ValueCodecs.SERIAL);
+	}
+
+	/**
+	 * Create the data bindings and collection views.
+	 *
+	 * @param codec codec of the values written to the stores in the tuple format
+	 */
+	public SorcerDatabaseViews(SorcerDatabase db, ValueCodec codec) {
 		// Create the data bindings.
 		ClassCatalog catalog = db.getClassCatalog();
 		SerialBinding runtimeKeyBinding = new SerialBinding(catalog, Uuid.class);
@@ -71,10 +85,27 @@ public class SorcerDatabaseViews {
 		runtimeByProviderNameMap = new StoredSortedMap(
 				db.getRuntimeByProviderNameDatabase(), providerNameKeyBinding,
 				runtimeDataBinding, true);
+
+		if (SorcerDatabase.TUPLE_FORMAT.equals(db.getStoreFormat())) {
+			keyBinding = new UuidKeyBinding();
+			EntityBinding entityBinding = new CodecEntityBinding(codec);
+			exertionBinding = contextBinding = tableBinding = uuidObjectBinding = entityBinding;
+			exertionMap = new StoredSortedMap(db.getExertionDatabase(),
+					keyBinding, entityBinding, true);
+			contextMap = new StoredSortedMap(db.getContextDatabase(),
+					keyBinding, entityBinding, true);
+			tableMap = new StoredSortedMap(db.getTableDatabase(),
+					keyBinding, entityBinding, true);
+			uuidObjectMap = new StoredSortedMap(db.getUuidObjectDatabase(),
+					keyBinding, entityBinding, true);
+			return;
+		}
 		
 		SerialBinding exertiontKeyBinding = new SerialBinding(catalog, UuidKey.class);
+		keyBinding = exertiontKeyBinding;
 		EntityBinding exertionDataBinding = new ExertionBinding(catalog,
 				UuidKey.class, ServiceExertion.class);
+		exertionBinding = exertionDataBinding;
 	
 		exertionMap = new StoredSortedMap(db.getExertionDatabase(),
 				exertiontKeyBinding, exertionDataBinding, true);
@@ -82,6 +113,7 @@ public class SorcerDatabaseViews {
 		SerialBinding contextKeyBinding = new SerialBinding(catalog, UuidKey.class);
 		EntityBinding contextDataBinding = new ContextBinding(catalog,
 				UuidKey.class, MarshalledData.class);
+		contextBinding = contextDataBinding;
 		
 		contextMap = new StoredMap(db.getContextDatabase(),
 				contextKeyBinding, contextDataBinding, true);
@@ -89,6 +121,7 @@ public class SorcerDatabaseViews {
 		SerialBinding tableKeyBinding = new SerialBinding(catalog, UuidKey.class);
 		EntityBinding tableDataBinding = new TableBinding(catalog,
 				UuidKey.class, MarshalledData.class);
+		tableBinding = tableDataBinding;
 		
 		tableMap = new StoredMap(db.getTableDatabase(),
 				tableKeyBinding, tableDataBinding, true);
@@ -97,11 +130,48 @@ public class SorcerDatabaseViews {
 		SerialBinding objectKeyBinding = new SerialBinding(catalog, UuidKey.class);
 		EntityBinding objectDataBinding = new UuidObjectBinding(catalog,
 				UuidKey.class, MarshalledData.class);
+		uuidObjectBinding = objectDataBinding;
 		
 		uuidObjectMap = new StoredMap(db.getUuidObjectDatabase(),
 				objectKeyBinding, objectDataBinding, true);
 	}
 
+	/**
+	 * Return the binding of the {@link UuidKey} keys of the exertion, context,
+	 * table and object stores.
+	 */
+	public EntryBinding getKeyBinding() {
+		return keyBinding;
+	}
+
+	/**
+	 * Return the binding of the records of the Exertion storage container.
+	 */
+	public EntityBinding getExertionBinding() {
+		return exertionBinding;
+	}
+
+	/**
+	 * Return the binding of the records of the Context storage container.
+	 */
+	public EntityBinding getContextBinding() {
+		return contextBinding;
+	}
+
+	/**
+	 * Return the binding of the records of the Table storage container.
+	 */
+	public EntityBinding getTableBinding() {
+		return tableBinding;
+	}
+
+	/**
+	 * Return the binding of the records of the UuidObject storage container.
+	 */
+	public EntityBinding getUuidObjectBinding() {
+		return uuidObjectBinding;
+	}
+
 	// The views returned below can be accessed using the java.util.Map or
 	// java.util.Set interfaces, or using the StoredSortedMap and
 	// StoredValueSet classes, which provide additional methods. The entity
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.bdb.objects;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sleepycat.bind.serial.SerialBinding;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+
+/**
+ * Offline migration of a provider database from the serial store format to
+ * the tuple store format. The provider using the source database must be
+ * stopped. Records are copied to a new, empty environment, which then
+ * replaces the old one in the provider configuration (dbHome).
+ * <p>
+ * Context, table and object records are copied without loading their
+ * classes: the {@link net.jini.io.MarshalledInstance} stored in each
+ * {@link MarshalledData} is written as is, with the name, principal and
+ * date recorded in the MarshalledData as its {@link RecordHeader}. Exertion records are stored as
+ * serialized objects, so their classes have to be on the classpath. The
+ * provider runtime store is not migrated.
+ *
+ * <pre>
+ * java sorcer.util.bdb.objects.StoreMigration &lt;source dbHome&gt; &lt;target dbHome&gt; [serial|deflate]
+ * </pre>
+ */
+public class StoreMigration {
+
+	private static final int RECORDS_PER_TRANSACTION = 1000;
+
+	private final SorcerDatabase source;
+
+	private final SorcerDatabase target;
+
+	private final ValueCodec codec;
+
+	private final UuidKeyBinding targetKeyBinding = new UuidKeyBinding();
+
+	public StoreMigration(SorcerDatabase source, SorcerDatabase target, ValueCodec codec) {
+		if (!SorcerDatabase.SERIAL_FORMAT.equals(source.getStoreFormat()))
+			throw new IllegalArgumentException("Source database is already in the " + source.getStoreFormat() + " format");
+		if (!SorcerDatabase.TUPLE_FORMAT.equals(target.getStoreFormat()))
+			throw new IllegalArgumentException("Target database must be a new, empty environment");
+		this.source = source;
+		this.target = target;
+		this.codec = codec;
+	}
+
+	/**
+	 * @return number of copied records per store
+	 */
+	public Map<String, Long> migrate() throws DatabaseException, IOException {
+		Map<String, Long> copied = new LinkedHashMap<String, Long>();
+		copied.put("exertion", copy(source.getExertionDatabase(), target.getExertionDatabase()));
+		copied.put("context", copy(source.getContextDatabase(), target.getContextDatabase()));
+		copied.put("table", copy(source.getTableDatabase(), target.getTableDatabase()));
+		copied.put("object", copy(source.getUuidObjectDatabase(), target.getUuidObjectDatabase()));
+		return copied;
+	}
+
+	private long copy(Database from, Database to) throws DatabaseException, IOException {
+		SerialBinding<UuidKey> keyBinding = new SerialBinding<UuidKey>(source.getClassCatalog(), UuidKey.class);
+		SerialBinding<Object> valueBinding = new SerialBinding<Object>(source.getClassCatalog(), Object.class);
+		DatabaseEntry key = new DatabaseEntry();
+		DatabaseEntry data = new DatabaseEntry();
+		DatabaseEntry newKey = new DatabaseEntry();
+		DatabaseEntry newData = new DatabaseEntry();
+		long count = 0;
+		Transaction txn = null;
+		Cursor cursor = from.openCursor(null, null);
+		try {
+			while (cursor.getNext(key, data, LockMode.READ_UNCOMMITTED) == OperationStatus.SUCCESS) {
+				if (txn == null)
+					txn = target.getEnvironment().beginTransaction(null, null);
+				Object value = valueBinding.entryToObject(data);
+				RecordHeader header;
+				if (value instanceof MarshalledData) {
+					MarshalledData md = (MarshalledData) value;
+					header = new RecordHeader(md.getName(), RecordHeader.nameOf(md.getPrincipal()), null,
+							md.getDateCreated() != null ? md.getDateCreated().getTime() : System.currentTimeMillis(),
+							null);
+					value = md.getMarshalledObject();
+				} else {
+					header = RecordHeader.of(value);
+				}
+				targetKeyBinding.objectToEntry(keyBinding.entryToObject(key), newKey);
+				TupleOutput out = new TupleOutput();
+				header.write(out);
+				out.writeFast(ValueCodecs.encode(codec, value));
+				newData.setData(out.getBufferBytes(), 0, out.getBufferLength());
+				to.put(txn, newKey, newData);
+				if (++count % RECORDS_PER_TRANSACTION == 0) {
+					txn.commit();
+					txn = null;
+				}
+			}
+			if (txn != null) {
+				txn.commit();
+				txn = null;
+			}
+		} finally {
+			cursor.close();
+			if (txn != null)
+				txn.abort();
+		}
+		return count;
+	}
+
+	/**
+	 * @return total size of the log files of the environment in the directory
+	 */
+	public static long getEnvironmentSize(File home) {
+		long size = 0;
+		File[] files = home.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.getName().endsWith(".jdb"))
+					size += f.length();
+			}
+		}
+		return size;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: StoreMigration <source dbHome> <target dbHome> [serial|deflate]");
+			System.exit(1);
+		}
+		File sourceHome = new File(args[0]);
+		File targetHome = new File(args[1]);
+		if (!sourceHome.isDirectory()) {
+			System.err.println("No database in " + sourceHome);
+			System.exit(1);
+		}
+		if (!targetHome.isDirectory() && !targetHome.mkdirs()) {
+			System.err.println("Could not create " + targetHome);
+			System.exit(1);
+		}
+		ValueCodec codec = ValueCodecs.forName(args.length > 2 ? args[2] : "serial");
+
+		SorcerDatabase source = new SorcerDatabase(sourceHome.getPath(), SorcerDatabase.SERIAL_FORMAT);
+		SorcerDatabase target = null;
+		try {
+			target = new SorcerDatabase(targetHome.getPath(), SorcerDatabase.TUPLE_FORMAT);
+			long start = System.currentTimeMillis();
+			Map<String, Long> copied = new StoreMigration(source, target, codec).migrate();
+			System.out.println("Copied " + copied + " in " + (System.currentTimeMillis() - start) + " ms");
+		} finally {
+			if (target != null)
+				target.close();
+			source.close();
+		}
+		System.out.println("Size before: " + getEnvironmentSize(sourceHome) + " bytes, after: "
+				+ getEnvironmentSize(targetHome) + " bytes");
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.bdb.objects;
+
+import net.jini.id.Uuid;
+import net.jini.id.UuidFactory;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+
+/**
+ * Binds a {@link UuidKey} to a fixed 16 byte tuple: the most and then the
+ * least significant bits of the Uuid. Unlike the serial key format, the keys
+ * need no class catalog and sort in Uuid order.
+ */
+public class UuidKeyBinding extends TupleBinding<UuidKey> {
+
+	public static final int KEY_SIZE = 16;
+
+	@Override
+	public UuidKey entryToObject(TupleInput input) {
+		long msb = input.readLong();
+		long lsb = input.readLong();
+		return new UuidKey(UuidFactory.create(msb, lsb));
+	}
+
+	@Override
+	public void objectToEntry(UuidKey key, TupleOutput output) {
+		Uuid id = key.getId();
+		output.writeLong(id.getMostSignificantBits());
+		output.writeLong(id.getLeastSignificantBits());
+	}
+}
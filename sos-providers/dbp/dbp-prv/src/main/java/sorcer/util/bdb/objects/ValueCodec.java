@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.bdb.objects;
+
+import java.io.IOException;
+
+/**
+ * Converts stored values to and from their byte representation in the
+ * tuple store format. Every encoded value is prefixed with the
+ * {@link #getId() id} of its codec, so records written with different
+ * codecs can be read from one store.
+ *
+ * @see ValueCodecs
+ */
+public interface ValueCodec {
+
+	/**
+	 * @return the tag written in front of the values encoded by this codec
+	 */
+	byte getId();
+
+	String getName();
+
+	byte[] encode(Object value) throws IOException;
+
+	Object decode(byte[] data, int offset, int length) throws IOException, ClassNotFoundException;
+}
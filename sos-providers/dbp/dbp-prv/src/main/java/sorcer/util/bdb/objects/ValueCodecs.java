@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.bdb.objects;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import net.jini.io.MarshalInputStream;
+import net.jini.io.MarshalOutputStream;
+
+/**
+ * The value codecs known to the tuple store format.
+ * <ul>
+ * <li><b>serial</b> - the value written to a {@link MarshalOutputStream}, so
+ * classes are annotated with and loaded from their codebase as with
+ * {@link MarshalledData}, but in a single serialization pass and without the
+ * class catalog lookups of the serial store format</li>
+ * <li><b>deflate</b> - the serial form compressed with deflate, for large
+ * contexts and tables</li>
+ * </ul>
+ */
+public class ValueCodecs {
+
+	public static final ValueCodec SERIAL = new SerialCodec((byte) 1, "serial", false);
+
+	public static final ValueCodec DEFLATE = new SerialCodec((byte) 2, "deflate", true);
+
+	private static final ValueCodec[] CODECS = { SERIAL, DEFLATE };
+
+	public static ValueCodec forName(String name) {
+		for (ValueCodec codec : CODECS) {
+			if (codec.getName().equalsIgnoreCase(name))
+				return codec;
+		}
+		throw new IllegalArgumentException("Unknown value codec: " + name);
+	}
+
+	public static ValueCodec forId(byte id) {
+		for (ValueCodec codec : CODECS) {
+			if (codec.getId() == id)
+				return codec;
+		}
+		throw new IllegalArgumentException("Unknown value codec id: " + id);
+	}
+
+	/**
+	 * Encode the value with the codec, prefixed with the codec id
+	 */
+	public static byte[] encode(ValueCodec codec, Object value) throws IOException {
+		byte[] encoded = codec.encode(value);
+		byte[] data = new byte[encoded.length + 1];
+		data[0] = codec.getId();
+		System.arraycopy(encoded, 0, data, 1, encoded.length);
+		return data;
+	}
+
+	/**
+	 * Decode a value encoded by {@link #encode(ValueCodec, Object)}, with whatever codec it was written
+	 */
+	public static Object decode(byte[] data, int offset, int length) throws IOException, ClassNotFoundException {
+		if (length < 1)
+			throw new IOException("Empty value");
+		return forId(data[offset]).decode(data, offset + 1, length - 1);
+	}
+
+	private static class SerialCodec implements ValueCodec {
+		private final byte id;
+		private final String name;
+		private final boolean deflate;
+
+		SerialCodec(byte id, String name, boolean deflate) {
+			this.id = id;
+			this.name = name;
+			this.deflate = deflate;
+		}
+
+		@Override
+		public byte getId() {
+			return id;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public byte[] encode(Object value) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+			// a deflater passed to the stream is not ended when the stream is closed
+			Deflater deflater = deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+			try {
+				OutputStream out = deflate ? new DeflaterOutputStream(bytes, deflater) : bytes;
+				MarshalOutputStream oos = new MarshalOutputStream(out, new ArrayList());
+				oos.writeObject(value);
+				oos.close();
+			} finally {
+				if (deflater != null)
+					deflater.end();
+			}
+			return bytes.toByteArray();
+		}
+
+		@Override
+		public Object decode(byte[] data, int offset, int length) throws IOException, ClassNotFoundException {
+			InputStream in = new ByteArrayInputStream(data, offset, length);
+			if (deflate)
+				in = new InflaterInputStream(in);
+			MarshalInputStream ois = new MarshalInputStream(in, null, false, null, new ArrayList());
+			ois.useCodebaseAnnotations();
+			try {
+				return ois.readObject();
+			} finally {
+				ois.close();
+			}
+		}
+	}
+}
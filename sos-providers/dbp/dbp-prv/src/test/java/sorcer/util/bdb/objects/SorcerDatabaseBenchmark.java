@@ -0,0 +1,80 @@
+package sorcer.util.bdb.objects;
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+
+import com.sleepycat.collections.StoredMap;
+import com.sleepycat.collections.StoredValueSet;
+
+import net.jini.id.Uuid;
+import sorcer.core.context.ServiceContext;
+import sorcer.service.Context;
+import sorcer.util.IOUtils;
+
+/**
+ * Store/retrieve throughput and on-disk size of the store formats, run as
+ * <pre>
+ * java sorcer.util.bdb.objects.SorcerDatabaseBenchmark [records] [values per context]
+ * </pre>
+ */
+public class SorcerDatabaseBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int values = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		run("serial", SorcerDatabase.SERIAL_FORMAT, ValueCodecs.SERIAL, records, values);
+		run("tuple/serial", SorcerDatabase.TUPLE_FORMAT, ValueCodecs.SERIAL, records, values);
+		run("tuple/deflate", SorcerDatabase.TUPLE_FORMAT, ValueCodecs.DEFLATE, records, values);
+	}
+
+	private static void run(String label, String format, ValueCodec codec, int records, int values) throws Exception {
+		File home = File.createTempFile("sdb-bench", "");
+		home.delete();
+		home.mkdirs();
+		SorcerDatabase db = new SorcerDatabase(home.getPath(), format);
+		try {
+			SorcerDatabaseViews views = new SorcerDatabaseViews(db, codec);
+			StoredValueSet<Context> contexts = views.getContextSet();
+			Uuid[] ids = new Uuid[records];
+
+			long start = System.nanoTime();
+			for (int i = 0; i < records; i++) {
+				Context cxt = new ServiceContext("bench-" + i);
+				for (int v = 0; v < values; v++)
+					cxt.putValue("arg/x" + v, (double) v * i);
+				ids[i] = (Uuid) cxt.getId();
+				contexts.add(cxt);
+			}
+			long stored = System.nanoTime() - start;
+
+			StoredMap<UuidKey, Context> map = views.getContextMap();
+			start = System.nanoTime();
+			for (Uuid id : ids)
+				map.get(new UuidKey(id));
+			long retrieved = System.nanoTime() - start;
+
+			db.getEnvironment().sync();
+			System.out.println(String.format("%-14s store %8.0f/s  retrieve %8.0f/s  size %,d bytes",
+					label, records / (stored / 1e9), records / (retrieved / 1e9),
+					StoreMigration.getEnvironmentSize(home)));
+		} finally {
+			db.close();
+			IOUtils.deleteDir(home);
+		}
+	}
+}
@@ -21,11 +21,12 @@ import java.io.File;
 import java.io.IOException;
 import java.rmi.RemoteException;
 import java.security.Principal;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +34,8 @@ import net.jini.core.event.RemoteEventListener;
 import net.jini.core.lease.Lease;
 import net.jini.id.Uuid;
 import sorcer.core.context.IControlContext;
+import sorcer.core.monitor.ExertionInfoPage;
+import sorcer.core.monitor.ExertionInfoQuery;
 import sorcer.core.monitor.MonitoringManagement;
 import sorcer.core.provider.MonitorManagementSession;
 import sorcer.service.*;
@@ -40,12 +43,16 @@ import sorcer.core.UEID;
 import sorcer.core.provider.ServiceProvider;
 import sorcer.core.provider.exertmonitor.db.SessionDatabase;
 import sorcer.core.provider.exertmonitor.db.SessionDatabaseViews;
+import sorcer.core.provider.exertmonitor.db.SessionExpirer;
+import sorcer.core.provider.exertmonitor.db.SessionIndex;
+import sorcer.core.provider.exertmonitor.db.WriteBehindSessionStore;
 import sorcer.core.provider.exertmonitor.lease.MonitorLandlord;
 import sorcer.security.util.SorcerPrincipal;
 import sorcer.util.bdb.objects.UuidKey;
 
 import com.sleepycat.collections.StoredMap;
 import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.EnvironmentConfig;
 import com.sun.jini.start.LifeCycle;
 
 public class ExertMonitor extends ServiceProvider implements
@@ -59,7 +66,11 @@ public class ExertMonitor extends ServiceProvider implements
 	
 	private StoredMap<UuidKey, MonitorManagementSession> resources;
 
-    private Map<Uuid, UuidKey> cacheSessionKeyMap = new HashMap<Uuid, UuidKey>();
+	private SessionIndex index;
+
+	private WriteBehindSessionStore store;
+
+	private SessionExpirer expirer;
 
 	public ExertMonitor(String[] args, LifeCycle lifeCycle) throws Exception {
 		super(args, lifeCycle);
@@ -85,13 +96,39 @@ public class ExertMonitor extends ServiceProvider implements
 			}
 		}
         logger.debug("Opening BDBJE environment in: " + dbHomeFile);
-		db = new SessionDatabase(dbHome);
+		Properties envParams = new Properties();
+		String minUtilization = getProperty("monitor.cleaner.minUtilization");
+		if (minUtilization != null && minUtilization.length() > 0)
+			envParams.setProperty(EnvironmentConfig.CLEANER_MIN_UTILIZATION, minUtilization);
+		String cleanerThreads = getProperty("monitor.cleaner.threads");
+		if (cleanerThreads != null && cleanerThreads.length() > 0)
+			envParams.setProperty(EnvironmentConfig.CLEANER_THREADS, cleanerThreads);
+		db = new SessionDatabase(dbHome, envParams);
 		SessionDatabaseViews views = new SessionDatabaseViews(db);
 		resources = views.getSessionMap();
+		long flushInterval = Long.parseLong(getProperty("monitor.persist.interval",
+				String.valueOf(WriteBehindSessionStore.DEFAULT_FLUSH_INTERVAL)));
+		int flushThreshold = Integer.parseInt(getProperty("monitor.persist.threshold",
+				String.valueOf(WriteBehindSessionStore.DEFAULT_FLUSH_THRESHOLD)));
+		index = new SessionIndex(views.getSummaryMap());
+		index.rebuild(resources);
+		store = new WriteBehindSessionStore(views, index, flushInterval, flushThreshold);
+		store.recover();
+		logger.info("Indexed {} monitor sessions", index.size());
+
+		long retention = Long.parseLong(getProperty("monitor.retention", "0"));
+		if (retention > 0) {
+			long expireInterval = Long.parseLong(getProperty("monitor.expire.interval",
+					String.valueOf(SessionExpirer.DEFAULT_EXPIRE_INTERVAL)));
+			int expireBatchSize = Integer.parseInt(getProperty("monitor.expire.batch",
+					String.valueOf(SessionExpirer.DEFAULT_BATCH_SIZE)));
+			expirer = new SessionExpirer(db, store, index, retention, expireInterval, expireBatchSize);
+		}
 
 		// statically initialize
 		MonitorSession.mLandlord = landlord;
 		MonitorSession.sessionManager = (MonitoringManagement) getServiceProxy();
+		MonitorSession.sessionStore = store;
 	}
 
 	final Object resourcesWriteLock = new Object();
@@ -173,21 +210,13 @@ public class ExertMonitor extends ServiceProvider implements
 		// (SessionResource)landlord.getResource(cookie);
 
 		// Ok it's not with landlord. So we retrieve it from the database
+		UuidKey rootKey = index.getRootKey(cookie);
+		if (rootKey == null)
+			return null;
 		synchronized (resourcesWriteLock) {
-			Iterator<Map.Entry<UuidKey, MonitorManagementSession>> si = resources.entrySet().iterator();
-			Map.Entry<UuidKey, MonitorManagementSession> next;
-			while (si.hasNext()) {
-				next = si.next();
-				try {
-					resource = getSession(next.getKey()).getSessionResource(cookie);
-				} catch (Exception e) {
-					throw new MonitorException(e);
-				} 
-				if (resource != null)
-					return resource;
-			}
+			MonitorSession root = getSession(rootKey);
+			return root == null ? null : root.getSessionResource(cookie);
 		}
-			return null;
 	}
 
 	/**
@@ -363,12 +392,11 @@ public class ExertMonitor extends ServiceProvider implements
 		Map<Uuid, ExertionInfo> table = new HashMap<Uuid, ExertionInfo>();
 		try {
 			if (resources==null) return table;
-			Iterator<UuidKey> ki = resources.keySet().iterator();
-			UuidKey key;
-			while (ki.hasNext()) {
-				key = ki.next();
+			for (Uuid root : index.getRootsByPrincipal(((SorcerPrincipal) principal).getId())) {
+				UuidKey key = new UuidKey(root);
                 MonitorSession monSession = getSession(key);
-                table.putAll(getMonitorableExertionInfo(monSession, key, state, principal));
+                if (monSession != null)
+                    table.putAll(getMonitorableExertionInfo(monSession, key, state, principal));
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -396,6 +424,21 @@ public class ExertMonitor extends ServiceProvider implements
 
 
 
+	/**
+	 * Answers the query from the session summaries, no exertion is
+	 * deserialized.
+	 * 
+	 * @see sorcer.core.monitor.MonitorUIManagement#getMonitorableExertionInfo(ExertionInfoQuery, Principal)
+	 */
+	public ExertionInfoPage getMonitorableExertionInfo(ExertionInfoQuery query,
+			Principal principal) throws RemoteException, MonitorException {
+		try {
+			return index.query(query, ((SorcerPrincipal) principal).getId());
+		} catch (IllegalArgumentException e) {
+			throw new MonitorException(e);
+		}
+	}
+
 	public Exertion getMonitorableExertion(Uuid id, Principal principal)
 			throws RemoteException, MonitorException {
 			Exertion xrt = getSession(id).getRuntimeExertion();
@@ -416,24 +459,24 @@ public class ExertMonitor extends ServiceProvider implements
 	 */
 	public Exertion getMonitorableExertion(UEID cookie, Principal principal)
 			throws RemoteException, MonitorException {
-        UuidKey lkey = cacheSessionKeyMap.get(cookie.exertionID);
-        Exertion ex;
-        if (lkey!=null) {
-            ex = (getSession(lkey)).getRuntimeExertion();
-            if (ex!=null && ((ServiceExertion) ex).getPrincipal().getId()
-                    .equals(((SorcerPrincipal) principal).getId()))
-                return ex;
-            else
-                return null;
-        }
-		Iterator<UuidKey> ki = resources.keySet().iterator();
-		while (ki.hasNext()) {
-			lkey = ki.next();
-			ex = (getSession(lkey)).getRuntimeExertion();
-            if (ex!=null) cacheSessionKeyMap.put(ex.getId(), lkey);
-            if (cookie.exertionID.equals(ex.getId().toString())
-					&& ((ServiceExertion) ex).getPrincipal().getId()
-							.equals(((SorcerPrincipal) principal).getId()))
+        UuidKey lkey = index.getRootKeyByExertion(cookie.exertionID);
+        if (lkey == null)
+            return null;
+        MonitorSession root = getSession(lkey);
+        Exertion ex = root == null ? null : findExertion(root, cookie.exertionID);
+        if (ex != null && ((ServiceExertion) root.getRuntimeExertion()).getPrincipal().getId()
+                .equals(((SorcerPrincipal) principal).getId()))
+            return ex;
+        return null;
+	}
+
+	private Exertion findExertion(MonitorSession session, String exertionId) {
+		Exertion ex = session.getRuntimeExertion();
+		if (ex != null && exertionId.equals(ex.getId().toString()))
+			return ex;
+		for (MonitorSession child : session) {
+			ex = findExertion(child, exertionId);
+			if (ex != null)
 				return ex;
 		}
 		return null;
@@ -461,8 +504,21 @@ public class ExertMonitor extends ServiceProvider implements
 
 	}
 
+	@Override
+	public Map<String, Long> getRetentionStatistics() {
+		if (expirer == null)
+			return Collections.emptyMap();
+		return expirer.getStatistics();
+	}
+
 	public void destroy() throws RemoteException {
 		try {
+			if (expirer != null) {
+				expirer.close();
+				logger.info("Session retention statistics: {}", expirer.getStatistics());
+			}
+			if (store != null)
+				store.close();
 			db.close();
 		} catch (DatabaseException e) {
 			e.printStackTrace();
@@ -476,13 +532,13 @@ public class ExertMonitor extends ServiceProvider implements
 	 */
 	@Override
 	public boolean persist(MonitorManagementSession session) throws IOException {
-		resources.put(new UuidKey(((MonitorSession)session).getCookie()), session);
+		store.put((MonitorSession) session);
 		return true;
 	}
 	
 	public MonitorSession getSession(UuidKey key) throws MonitorException {
 		try {
-			return (MonitorSession) resources.get(key);
+			return store.get(key);
 		} catch (Exception e) {
 			throw new MonitorException(e);
 		}
@@ -490,7 +546,7 @@ public class ExertMonitor extends ServiceProvider implements
 
 	public MonitorSession getSession(Uuid key) throws MonitorException {
 		try {
-			return (MonitorSession) resources.get(new UuidKey(key));
+			return store.get(new UuidKey(key));
 		} catch (Exception e) {
 			throw new MonitorException(e);
 		}
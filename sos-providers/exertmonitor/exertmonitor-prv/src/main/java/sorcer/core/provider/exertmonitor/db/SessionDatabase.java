@@ -18,8 +18,10 @@
 package sorcer.core.provider.exertmonitor.db;
 
 import java.io.File;
+import java.util.Properties;
 
 import com.sleepycat.bind.serial.StoredClassCatalog;
+import com.sleepycat.je.CheckpointConfig;
 import com.sleepycat.je.Database;
 import com.sleepycat.je.DatabaseConfig;
 import com.sleepycat.je.DatabaseException;
@@ -35,21 +37,40 @@ public class SessionDatabase {
 
     private static final String CLASS_CATALOG = "java_class_catalog";
     private static final String SESSION_STORE = "sesion_store";
+    private static final String SESSION_JOURNAL = "session_journal";
+    private static final String SESSION_SUMMARY = "session_summary";
 
+    private File home;
     private Environment env;
     private Database sessionDb;
+    private Database journalDb;
+    private Database summaryDb;
     private StoredClassCatalog javaCatalog;
 
     /**
      * Open all storage containers and catalogs.
      */
     public SessionDatabase(String homeDirectory)
+        throws DatabaseException {
+        this(homeDirectory, new Properties());
+    }
+
+    /**
+     * Open all storage containers and catalogs.
+     *
+     * @param envParams Berkeley DB environment parameters, e.g. the log
+     *                  cleaner and checkpointer settings of {@link EnvironmentConfig}
+     */
+    public SessionDatabase(String homeDirectory, Properties envParams)
         throws DatabaseException {
         // Open the Berkeley DB environment in transactional mode.
         EnvironmentConfig envConfig = new EnvironmentConfig();
         envConfig.setTransactional(true);
         envConfig.setAllowCreate(true);
-        env = new Environment(new File(homeDirectory), envConfig);
+        for (String name : envParams.stringPropertyNames())
+            envConfig.setConfigParam(name, envParams.getProperty(name));
+        home = new File(homeDirectory);
+        env = new Environment(home, envConfig);
 
         // Set the Berkeley DB config for opening all stores.
         DatabaseConfig dbConfig = new DatabaseConfig();
@@ -65,6 +86,13 @@ public class SessionDatabase {
         // Open the Berkeley DB database for the monitor session
         // store.  The store is opened with no duplicate keys allowed.
         sessionDb = env.openDatabase(null, SESSION_STORE, dbConfig);
+
+        // Open the journal of session changes not yet written to the
+        // session store.
+        journalDb = env.openDatabase(null, SESSION_JOURNAL, dbConfig);
+
+        // Open the store of session summaries, one per monitored exertion.
+        summaryDb = env.openDatabase(null, SESSION_SUMMARY, dbConfig);
     }
 
     /**
@@ -88,12 +116,62 @@ public class SessionDatabase {
         return sessionDb;
     }
     
+    /**
+     * Return the session change journal container.
+     */
+    public final Database getJournalDatabase() {
+        return journalDb;
+    }
+
+    /**
+     * Return the session summary storage container.
+     */
+    public final Database getSummaryDatabase() {
+        return summaryDb;
+    }
+
+    /**
+     * Return the total size of the log files of the environment in bytes.
+     */
+    public final long getLogSize() {
+        long size = 0;
+        File[] files = home.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().endsWith(".jdb"))
+                    size += f.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Clean the log files until none is below the cleaner's utilization
+     * threshold, then force a checkpoint so the cleaned files can be deleted.
+     *
+     * @return number of log files cleaned
+     */
+    public int compact() throws DatabaseException {
+        int cleaned = 0;
+        int n;
+        while ((n = env.cleanLog()) > 0)
+            cleaned += n;
+        if (cleaned > 0) {
+            CheckpointConfig force = new CheckpointConfig();
+            force.setForce(true);
+            env.checkpoint(force);
+        }
+        return cleaned;
+    }
+
     /**
      * Close all stores (closing a store automatically closes its indices).
      */
     public void close()
         throws DatabaseException {
         // Close secondary databases, then primary databases.
+        summaryDb.close();
+        journalDb.close();
         sessionDb.close();
         // And don't forget to close the catalog and the environment.
         javaCatalog.close();
@@ -25,11 +25,15 @@ import sorcer.util.bdb.objects.MarshalledData;
 import sorcer.util.bdb.objects.UuidKey;
 
 import com.sleepycat.bind.EntityBinding;
+import com.sleepycat.bind.EntryBinding;
 import com.sleepycat.bind.serial.ClassCatalog;
 import com.sleepycat.bind.serial.SerialBinding;
 import com.sleepycat.bind.serial.SerialSerialBinding;
+import com.sleepycat.bind.tuple.TupleBinding;
 import com.sleepycat.collections.StoredMap;
+import com.sleepycat.collections.StoredSortedMap;
 import com.sleepycat.collections.StoredValueSet;
+import com.sleepycat.je.Environment;
 
 /**
  * SessionDatabaseViews defines the data bindings and collection views for the
@@ -42,10 +46,17 @@ public class SessionDatabaseViews {
 	
 	private StoredMap<UuidKey, MonitorManagementSession>  sessionMap;
 
+	private StoredSortedMap<Long, MarshalledData> journalMap;
+
+	private StoredMap<UuidKey, SessionSummary> summaryMap;
+
+	private Environment environment;
+
 	/**
 	 * Create the data bindings and collection views.
 	 */
 	public SessionDatabaseViews(SessionDatabase db) {
+		environment = db.getEnvironment();
 		// Create the data bindings.
 		ClassCatalog catalog = db.getClassCatalog();
 		SerialBinding sessionKeyBinding = new SerialBinding(catalog, UuidKey.class);
@@ -54,6 +65,15 @@ public class SessionDatabaseViews {
 		
 		sessionMap = new StoredMap(db.getSessionDatabase(),
 				sessionKeyBinding, sessionDataBinding, true);
+
+		EntryBinding journalKeyBinding = TupleBinding.getPrimitiveBinding(Long.class);
+		SerialBinding journalDataBinding = new SerialBinding(catalog, MarshalledData.class);
+		journalMap = new StoredSortedMap(db.getJournalDatabase(),
+				journalKeyBinding, journalDataBinding, true);
+
+		SerialBinding summaryDataBinding = new SerialBinding(catalog, SessionSummary.class);
+		summaryMap = new StoredMap(db.getSummaryDatabase(),
+				sessionKeyBinding, summaryDataBinding, true);
 	}
 
 	// The views returned below can be accessed using the java.util.Map or
@@ -69,6 +89,29 @@ public class SessionDatabaseViews {
 		return sessionMap;
 	}
 	
+	/**
+	 * Return a sorted map view of the session change journal, keyed by the
+	 * sequence number of the change.
+	 */
+	public StoredSortedMap<Long, MarshalledData> getJournalMap() {
+		return journalMap;
+	}
+
+	/**
+	 * Return a map view of the session summary storage container, keyed by
+	 * the cookie of each (root or child) session.
+	 */
+	public StoredMap<UuidKey, SessionSummary> getSummaryMap() {
+		return summaryMap;
+	}
+
+	/**
+	 * Return the environment of the views, to run transactions over them.
+	 */
+	public Environment getEnvironment() {
+		return environment;
+	}
+
 	/**
 	 * Return an entity set view of the session storage container.
 	 */
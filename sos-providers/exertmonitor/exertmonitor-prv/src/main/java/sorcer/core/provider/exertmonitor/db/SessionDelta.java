@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.exertmonitor.db;
+
+import java.io.Serializable;
+
+import net.jini.id.Uuid;
+import sorcer.core.context.IControlContext;
+import sorcer.core.provider.exertmonitor.MonitorSession;
+import sorcer.service.Context;
+import sorcer.service.ContextException;
+import sorcer.service.ServiceExertion;
+
+/**
+ * A change of a single monitor session as recorded in the session journal:
+ * its state and the data and control contexts of its runtime exertion.
+ */
+public class SessionDelta implements Serializable {
+
+	static final long serialVersionUID = 3571288736014375140L;
+
+	private final Uuid rootCookie;
+
+	private final Uuid cookie;
+
+	private final int state;
+
+	private final Context<?> context;
+
+	private final IControlContext controlContext;
+
+	private final long timestamp = System.currentTimeMillis();
+
+	public SessionDelta(Uuid rootCookie, MonitorSession session) throws ContextException {
+		this.rootCookie = rootCookie;
+		this.cookie = session.getCookie();
+		this.state = session.getState();
+		ServiceExertion xrt = (ServiceExertion) session.getRuntimeExertion();
+		this.context = xrt.getDataContext();
+		this.controlContext = xrt.getControlContext();
+	}
+
+	/**
+	 * Apply this change to the session tree.
+	 *
+	 * @return false if the tree has no session this change refers to
+	 */
+	public boolean applyTo(MonitorSession root) {
+		MonitorSession session = root.getSessionResource(cookie);
+		if (session == null)
+			return false;
+		session.restore(state, context, controlContext);
+		return true;
+	}
+
+	public Uuid getRootCookie() {
+		return rootCookie;
+	}
+
+	public Uuid getCookie() {
+		return cookie;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.core.provider.exertmonitor.db;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.jini.id.Uuid;
+import sorcer.util.ConfigurableThreadFactory;
+
+/**
+ * Periodically deletes finished monitor sessions older than the retention
+ * time. Expired root sessions are taken oldest first from the age index of
+ * the {@link SessionIndex} and deleted, with the summaries of their whole
+ * tree, in transactions of at most batchSize root sessions. After a run that
+ * deleted sessions the database log is cleaned and checkpointed, and the
+ * space it gave back is counted.
+ */
+public class SessionExpirer {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionExpirer.class);
+
+	public static final long DEFAULT_EXPIRE_INTERVAL = 10 * 60 * 1000;
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private final SessionDatabase db;
+
+	private final WriteBehindSessionStore store;
+
+	private final SessionIndex index;
+
+	private final long retention;
+
+	private final int batchSize;
+
+	private final ScheduledExecutorService scheduler;
+
+	private volatile boolean stopped;
+
+	private final AtomicLong expired = new AtomicLong();
+	private final AtomicLong runs = new AtomicLong();
+	private final AtomicLong cleanedFiles = new AtomicLong();
+	private final AtomicLong reclaimedBytes = new AtomicLong();
+
+	/**
+	 * @param retention age of the finished sessions to delete in milliseconds
+	 */
+	public SessionExpirer(SessionDatabase db, WriteBehindSessionStore store, SessionIndex index,
+			long retention, long interval, int batchSize) {
+		this.db = db;
+		this.store = store;
+		this.index = index;
+		this.retention = retention;
+		this.batchSize = Math.max(1, batchSize);
+
+		ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+		tf.setDaemon(true);
+		tf.setNameFormat("MonitorSessionExpirer-%2$d");
+		scheduler = Executors.newSingleThreadScheduledExecutor(tf);
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					expire();
+				} catch (RuntimeException e) {
+					logger.error("Could not expire monitor sessions", e);
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Delete the expired sessions and compact the log.
+	 *
+	 * @return number of deleted root sessions
+	 */
+	public synchronized int expire() {
+		long cutoff = System.currentTimeMillis() - retention;
+		long sizeBefore = db.getLogSize();
+		int total = 0;
+		List<Uuid> roots;
+		while (!stopped && !(roots = index.getExpiredRoots(cutoff, batchSize)).isEmpty()) {
+			store.remove(roots);
+			total += roots.size();
+		}
+		runs.incrementAndGet();
+		if (total > 0) {
+			expired.addAndGet(total);
+			if (!stopped) {
+				cleanedFiles.addAndGet(db.compact());
+				long reclaimed = sizeBefore - db.getLogSize();
+				if (reclaimed > 0)
+					reclaimedBytes.addAndGet(reclaimed);
+			}
+			logger.info("Expired {} monitor sessions, {}", total, getStatistics());
+		}
+		return total;
+	}
+
+	/**
+	 * @return sessions expired, expiry runs, log files cleaned, bytes
+	 *         reclaimed and the current log size
+	 */
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> stats = new LinkedHashMap<String, Long>();
+		stats.put("retention", retention);
+		stats.put("expired", expired.get());
+		stats.put("runs", runs.get());
+		stats.put("cleanedFiles", cleanedFiles.get());
+		stats.put("reclaimedBytes", reclaimedBytes.get());
+		stats.put("logSize", db.getLogSize());
+		return stats;
+	}
+
+	/**
+	 * Stop expiring, letting a running transaction finish since
+	 * interrupting it would invalidate the environment.
+	 */
+	public void close() {
+		stopped = true;
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
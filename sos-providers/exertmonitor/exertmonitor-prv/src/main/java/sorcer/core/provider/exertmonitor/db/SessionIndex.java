@@ -0,0 +1,383 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.exertmonitor.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jini.id.Uuid;
+import sorcer.core.monitor.ExertionInfoPage;
+import sorcer.core.monitor.ExertionInfoQuery;
+import sorcer.core.provider.MonitorManagementSession;
+import sorcer.core.provider.exertmonitor.MonitorSession;
+import sorcer.service.Exec;
+import sorcer.service.ExertionInfo;
+import sorcer.service.ServiceExertion;
+import sorcer.util.bdb.objects.UuidKey;
+
+/**
+ * In-memory secondary indexes of the session store. Root sessions are the
+ * records of the store, the indexes map the cookies and exertion ids of all
+ * sessions in a tree, the principal of the root exertion and the state of
+ * every session to the key of the root session.
+ * <p>
+ * Every indexed session has a {@link SessionSummary} written to the summary
+ * store whenever it changes. The indexes are rebuilt from the summaries at
+ * startup (from the full sessions only if there are no summaries yet) and
+ * exertion info queries are answered from them, so neither needs to
+ * deserialize the session trees. The summaries of each principal are kept
+ * in creation order, so that a page of a query is read from the position
+ * where the previous page ended.
+ */
+public class SessionIndex {
+
+	private static final Comparator<SessionSummary> CREATION_ORDER = new Comparator<SessionSummary>() {
+		@Override
+		public int compare(SessionSummary o1, SessionSummary o2) {
+			long t1 = time(o1), t2 = time(o2);
+			if (t1 != t2)
+				return t1 < t2 ? -1 : 1;
+			return o1.getCookie().toString().compareTo(o2.getCookie().toString());
+		}
+	};
+
+	private final Map<UuidKey, SessionSummary> summaryStore;
+
+	// cookie of any session -> its summary
+	private final ConcurrentMap<Uuid, SessionSummary> summaries = new ConcurrentHashMap<Uuid, SessionSummary>();
+
+	// cookie of a root session -> cookies of all sessions in its tree
+	private final ConcurrentMap<Uuid, Set<Uuid>> rootSessions = new ConcurrentHashMap<Uuid, Set<Uuid>>();
+
+	// exertion id (as in UEID) -> cookie of the root session
+	private final ConcurrentMap<String, Uuid> exertionRoots = new ConcurrentHashMap<String, Uuid>();
+
+	// principal id -> cookies of the root sessions
+	private final ConcurrentMap<String, Set<Uuid>> principalRoots = new ConcurrentHashMap<String, Set<Uuid>>();
+
+	// state -> cookies of the sessions in that state
+	private final ConcurrentMap<Integer, Set<Uuid>> stateSessions = new ConcurrentHashMap<Integer, Set<Uuid>>();
+
+	// summaries of the root sessions in creation order, the age index of
+	// the expirer; guarded by this
+	private final TreeSet<SessionSummary> rootsByAge = new TreeSet<SessionSummary>(CREATION_ORDER);
+
+	// principal id -> summaries of all sessions of the principal by creation
+	// time, the index of the queries; guarded by this
+	private final Map<String, NavigableMap<Position, SessionSummary>> principalSessions
+			= new HashMap<String, NavigableMap<Position, SessionSummary>>();
+
+	/**
+	 * @param summaryStore persistent store of the session summaries
+	 */
+	public SessionIndex(Map<UuidKey, SessionSummary> summaryStore) {
+		this.summaryStore = summaryStore;
+	}
+
+	/**
+	 * Rebuild the indexes from the stored summaries, or if there are none,
+	 * reading every session in the store once.
+	 */
+	public synchronized void rebuild(Map<UuidKey, MonitorManagementSession> sessions) {
+		summaries.clear();
+		rootSessions.clear();
+		exertionRoots.clear();
+		principalRoots.clear();
+		stateSessions.clear();
+		rootsByAge.clear();
+		principalSessions.clear();
+		if (!summaryStore.isEmpty()) {
+			for (SessionSummary summary : summaryStore.values())
+				index(summary, null);
+		} else {
+			for (MonitorManagementSession session : sessions.values()) {
+				if (session != null)
+					index((MonitorSession) session);
+			}
+		}
+	}
+
+	/**
+	 * Index the root session and all its children, updating the stored
+	 * summaries of the sessions that changed.
+	 */
+	public synchronized void index(MonitorSession root) {
+		ServiceExertion xrt = (ServiceExertion) root.getRuntimeExertion();
+		String principalId = xrt != null && xrt.getPrincipal() != null ? xrt.getPrincipal().getId() : null;
+		index(root, root.getCookie(), principalId);
+	}
+
+	private void index(MonitorSession session, Uuid rootCookie, String principalId) {
+		if (session.getRuntimeExertion() != null) {
+			SessionSummary summary = new SessionSummary(session, rootCookie, principalId);
+			SessionSummary old = summaries.get(summary.getCookie());
+			if (summary.differsFrom(old)) {
+				summaryStore.put(new UuidKey(summary.getCookie()), summary);
+				index(summary, old);
+			}
+		}
+		for (MonitorSession child : session)
+			index(child, rootCookie, principalId);
+	}
+
+	private void index(SessionSummary summary, SessionSummary old) {
+		Uuid cookie = summary.getCookie();
+		summaries.put(cookie, summary);
+		if (old != null) {
+			remove(stateSessions, old.getStatus(), cookie);
+			if (old.getPrincipalId() != null && old.getCookie().equals(old.getRootCookie()))
+				remove(principalRoots, old.getPrincipalId(), old.getRootCookie());
+			removeByPrincipal(old);
+		}
+		add(rootSessions, summary.getRootCookie(), cookie);
+		exertionRoots.put(summary.getExertionId(), summary.getRootCookie());
+		add(stateSessions, summary.getStatus(), cookie);
+		if (summary.getPrincipalId() != null && cookie.equals(summary.getRootCookie()))
+			add(principalRoots, summary.getPrincipalId(), cookie);
+		if (summary.getPrincipalId() != null) {
+			NavigableMap<Position, SessionSummary> sessions = principalSessions.get(summary.getPrincipalId());
+			if (sessions == null) {
+				sessions = new TreeMap<Position, SessionSummary>();
+				principalSessions.put(summary.getPrincipalId(), sessions);
+			}
+			sessions.put(new Position(summary), summary);
+		}
+		if (cookie.equals(summary.getRootCookie())) {
+			if (old != null)
+				rootsByAge.remove(old);
+			rootsByAge.add(summary);
+		}
+	}
+
+	/**
+	 * Remove the root session and all its children from the indexes.
+	 */
+	public synchronized void remove(Uuid rootCookie) {
+		for (Uuid cookie : unindex(rootCookie))
+			summaryStore.remove(new UuidKey(cookie));
+	}
+
+	/**
+	 * Remove the root session and all its children from the in-memory
+	 * indexes only, when their summaries are already deleted.
+	 *
+	 * @return cookies of the removed sessions
+	 */
+	public synchronized Set<Uuid> unindex(Uuid rootCookie) {
+		Set<Uuid> cookies = snapshot(rootSessions.remove(rootCookie));
+		for (Uuid cookie : cookies) {
+			SessionSummary summary = summaries.remove(cookie);
+			if (summary == null)
+				continue;
+			exertionRoots.remove(summary.getExertionId());
+			remove(stateSessions, summary.getStatus(), cookie);
+			if (summary.getPrincipalId() != null)
+				remove(principalRoots, summary.getPrincipalId(), rootCookie);
+			if (cookie.equals(rootCookie))
+				rootsByAge.remove(summary);
+			removeByPrincipal(summary);
+		}
+		return cookies;
+	}
+
+	private void removeByPrincipal(SessionSummary summary) {
+		if (summary.getPrincipalId() == null)
+			return;
+		NavigableMap<Position, SessionSummary> sessions = principalSessions.get(summary.getPrincipalId());
+		if (sessions == null)
+			return;
+		sessions.remove(new Position(summary));
+		if (sessions.isEmpty())
+			principalSessions.remove(summary.getPrincipalId());
+	}
+
+	/**
+	 * @return cookies of the root session and all its children
+	 */
+	public Set<Uuid> getSessions(Uuid rootCookie) {
+		return snapshot(rootSessions.get(rootCookie));
+	}
+
+	/**
+	 * Walk the age index for root sessions to expire.
+	 *
+	 * @return cookies of at most limit finished (done, failed or in error)
+	 *         root sessions created before the time, oldest first
+	 */
+	public synchronized List<Uuid> getExpiredRoots(long createdBefore, int limit) {
+		List<Uuid> expired = new ArrayList<Uuid>();
+		for (SessionSummary root : rootsByAge) {
+			if (expired.size() >= limit || time(root) >= createdBefore)
+				break;
+			int status = root.getStatus();
+			if (status == Exec.DONE || status == Exec.FAILED || status == Exec.ERROR)
+				expired.add(root.getCookie());
+		}
+		return expired;
+	}
+
+	/**
+	 * @return key of the root session containing the session with the cookie,
+	 *         or null if there is no such session
+	 */
+	public UuidKey getRootKey(Uuid cookie) {
+		SessionSummary summary = summaries.get(cookie);
+		return summary == null ? null : new UuidKey(summary.getRootCookie());
+	}
+
+	/**
+	 * @return key of the root session containing the exertion, or null if
+	 *         the exertion is not monitored
+	 */
+	public UuidKey getRootKeyByExertion(String exertionId) {
+		Uuid root = exertionRoots.get(exertionId);
+		return root == null ? null : new UuidKey(root);
+	}
+
+	public Set<Uuid> getRootsByPrincipal(String principalId) {
+		return snapshot(principalRoots.get(principalId));
+	}
+
+	/**
+	 * @return cookies of root and child sessions in the state
+	 */
+	public Set<Uuid> getSessionsByState(int state) {
+		return snapshot(stateSessions.get(state));
+	}
+
+	public int size() {
+		return summaries.size();
+	}
+
+	/**
+	 * Answer the query from the summaries of the sessions of the principal,
+	 * reading them in creation order from the start of the creation date
+	 * window or the end of the previous page, whichever is later.
+	 */
+	public synchronized ExertionInfoPage query(ExertionInfoQuery query, String principalId) {
+		List<ExertionInfo> infos = new ArrayList<ExertionInfo>();
+		NavigableMap<Position, SessionSummary> sessions = principalSessions.get(principalId);
+		if (sessions == null)
+			return new ExertionInfoPage(infos, null);
+
+		Position start = null;
+		boolean inclusive = true;
+		if (query.getFrom() != null)
+			start = new Position(query.getFrom().getTime(), "");
+		String token = query.getContinuation();
+		if (token != null) {
+			Position last = Position.parse(token);
+			if (start == null || last.compareTo(start) >= 0) {
+				start = last;
+				inclusive = false;
+			}
+		}
+		if (start != null)
+			sessions = sessions.tailMap(start, inclusive);
+
+		SessionSummary last = null;
+		for (SessionSummary summary : sessions.values()) {
+			if (query.getTo() != null && time(summary) >= query.getTo().getTime())
+				break;
+			if (!query.matches(summary.getStatus(), summary.getCreationDate()))
+				continue;
+			if (infos.size() == query.getPageSize())
+				return new ExertionInfoPage(infos, new Position(last).toString());
+			infos.add(summary.toExertionInfo());
+			last = summary;
+		}
+		return new ExertionInfoPage(infos, null);
+	}
+
+	/*
+	 * Position of a summary in creation order: creation time, then cookie.
+	 * As a string it is the continuation token of the page that ends with
+	 * the summary.
+	 */
+	private static class Position implements Comparable<Position> {
+		final long time;
+		final String cookie;
+
+		Position(long time, String cookie) {
+			this.time = time;
+			this.cookie = cookie;
+		}
+
+		Position(SessionSummary summary) {
+			this(time(summary), summary.getCookie().toString());
+		}
+
+		static Position parse(String token) {
+			int sep = token.indexOf('/');
+			try {
+				return new Position(Long.parseLong(token.substring(0, sep)), token.substring(sep + 1));
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Invalid continuation token: " + token);
+			}
+		}
+
+		@Override
+		public int compareTo(Position o) {
+			if (time != o.time)
+				return time < o.time ? -1 : 1;
+			return cookie.compareTo(o.cookie);
+		}
+
+		public String toString() {
+			return time + "/" + cookie;
+		}
+	}
+
+	private static long time(SessionSummary summary) {
+		return summary.getCreationDate() == null ? 0 : summary.getCreationDate().getTime();
+	}
+
+	private static Set<Uuid> snapshot(Set<Uuid> set) {
+		if (set == null)
+			return Collections.emptySet();
+		synchronized (set) {
+			return new HashSet<Uuid>(set);
+		}
+	}
+
+	private static <K> void add(ConcurrentMap<K, Set<Uuid>> index, K key, Uuid value) {
+		Set<Uuid> set = index.get(key);
+		if (set == null) {
+			set = Collections.synchronizedSet(new HashSet<Uuid>());
+			Set<Uuid> existing = index.putIfAbsent(key, set);
+			if (existing != null)
+				set = existing;
+		}
+		set.add(value);
+	}
+
+	private static <K> void remove(ConcurrentMap<K, Set<Uuid>> index, K key, Uuid value) {
+		Set<Uuid> set = index.get(key);
+		if (set != null)
+			set.remove(value);
+	}
+}
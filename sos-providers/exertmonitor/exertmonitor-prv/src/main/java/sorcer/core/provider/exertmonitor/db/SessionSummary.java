@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.exertmonitor.db;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import net.jini.id.Uuid;
+import sorcer.core.provider.exertmonitor.MonitorSession;
+import sorcer.service.ExertionInfo;
+import sorcer.service.ServiceExertion;
+
+/**
+ * Lightweight record of a monitored exertion kept in the summary store next
+ * to the full session trees. It holds what is needed to index the session and
+ * to answer exertion info queries without deserializing the exertion.
+ */
+public class SessionSummary implements Serializable {
+
+	static final long serialVersionUID = -6352127707016285236L;
+
+	private final Uuid cookie;
+
+	private final Uuid rootCookie;
+
+	private final String exertionId;
+
+	private final Uuid exertionUuid;
+
+	private final String name;
+
+	private final String principalId;
+
+	private final int status;
+
+	private final Date creationDate;
+
+	private final String lastUpdateDate;
+
+	public SessionSummary(MonitorSession session, Uuid rootCookie, String principalId) {
+		this.cookie = session.getCookie();
+		this.rootCookie = rootCookie;
+		this.principalId = principalId;
+		ServiceExertion xrt = (ServiceExertion) session.getRuntimeExertion();
+		this.exertionUuid = xrt.getId();
+		this.exertionId = xrt.getId().toString();
+		this.name = xrt.getName();
+		this.status = xrt.getStatus();
+		this.creationDate = xrt.getCreationDate();
+		this.lastUpdateDate = xrt.getControlContext() != null ? xrt.getControlContext().getLastUpdateDate() : null;
+	}
+
+	public Uuid getCookie() {
+		return cookie;
+	}
+
+	public Uuid getRootCookie() {
+		return rootCookie;
+	}
+
+	public String getExertionId() {
+		return exertionId;
+	}
+
+	public String getPrincipalId() {
+		return principalId;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public Date getCreationDate() {
+		return creationDate;
+	}
+
+	/**
+	 * @return true if the stored record of the session has to be rewritten
+	 */
+	public boolean differsFrom(SessionSummary other) {
+		return other == null
+				|| status != other.status
+				|| !eq(name, other.name)
+				|| !eq(lastUpdateDate, other.lastUpdateDate)
+				|| !eq(rootCookie, other.rootCookie)
+				|| !eq(principalId, other.principalId);
+	}
+
+	private static boolean eq(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	public ExertionInfo toExertionInfo() {
+		return new ExertionInfo(exertionUuid, name, status, creationDate, lastUpdateDate, rootCookie);
+	}
+
+	public String toString() {
+		return "SessionSummary[" + name + ", cookie=" + cookie + ", status=" + status + "]";
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.exertmonitor.db;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.jini.id.Uuid;
+import sorcer.core.provider.MonitorManagementSession;
+import sorcer.core.provider.exertmonitor.MonitorSession;
+import sorcer.core.provider.exertmonitor.MonitorSessionStore;
+import sorcer.service.ContextException;
+import sorcer.util.ConfigurableThreadFactory;
+import sorcer.util.bdb.objects.MarshalledData;
+import sorcer.util.bdb.objects.UuidKey;
+
+import com.sleepycat.collections.CurrentTransaction;
+import com.sleepycat.collections.StoredMap;
+import com.sleepycat.collections.StoredSortedMap;
+
+/**
+ * Write-behind persistence of monitor sessions. A change of a session is
+ * appended to the journal as a small {@link SessionDelta} and its root
+ * session is marked dirty. The dirty root sessions are written to the
+ * session store on a timer or when the number of dirty sessions reaches the
+ * threshold, each serialized once under the lock of the root session so that
+ * the snapshot is consistent, after which the journal entries covered by the
+ * snapshots are removed. Repeated changes of the same job between two
+ * flushes are thus coalesced into a single serialization and write.
+ * <p>
+ * After a crash {@link #recover()} replays the journal on top of the last
+ * snapshots, so the current state of every session is restored.
+ */
+public class WriteBehindSessionStore implements MonitorSessionStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(WriteBehindSessionStore.class);
+
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	public static final int DEFAULT_FLUSH_THRESHOLD = 64;
+
+	private final StoredMap<UuidKey, MonitorManagementSession> sessions;
+
+	private final StoredSortedMap<Long, MarshalledData> journal;
+
+	private final StoredMap<UuidKey, SessionSummary> summaries;
+
+	private final CurrentTransaction transactions;
+
+	private final SessionIndex index;
+
+	private final int flushThreshold;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final Object lock = new Object();
+
+	private final Object flushLock = new Object();
+
+	// root sessions changed since they were last written; guarded by lock
+	private final Map<Uuid, Dirty> dirty = new LinkedHashMap<Uuid, Dirty>();
+
+	// guarded by lock
+	private long seq;
+
+	public WriteBehindSessionStore(SessionDatabaseViews views, SessionIndex index,
+			long flushInterval, int flushThreshold) {
+		this.sessions = views.getSessionMap();
+		this.journal = views.getJournalMap();
+		this.summaries = views.getSummaryMap();
+		this.transactions = CurrentTransaction.getInstance(views.getEnvironment());
+		this.index = index;
+		this.flushThreshold = flushThreshold;
+		if (!journal.isEmpty())
+			seq = journal.lastKey();
+
+		ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+		tf.setDaemon(true);
+		tf.setNameFormat("MonitorSessionFlusher-%2$d");
+		scheduler = Executors.newSingleThreadScheduledExecutor(tf);
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				flushQuietly();
+			}
+		}, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Replay the journal on top of the stored snapshots and write the
+	 * recovered sessions. Must be called before the store is used.
+	 *
+	 * @return number of replayed changes
+	 */
+	public int recover() throws IOException {
+		Map<Uuid, MonitorSession> recovered = new LinkedHashMap<Uuid, MonitorSession>();
+		int count = 0;
+		for (Map.Entry<Long, MarshalledData> entry : journal.entrySet()) {
+			SessionDelta delta;
+			try {
+				delta = (SessionDelta) entry.getValue().get();
+			} catch (ClassNotFoundException e) {
+				logger.warn("Skipping unreadable journal entry {}", entry.getKey(), e);
+				continue;
+			}
+			Uuid rootCookie = delta.getRootCookie();
+			MonitorSession root = recovered.get(rootCookie);
+			if (root == null)
+				root = (MonitorSession) sessions.get(new UuidKey(rootCookie));
+			if (root == null || !delta.applyTo(root)) {
+				logger.warn("No session {} for journal entry {}", delta.getCookie(), entry.getKey());
+				continue;
+			}
+			recovered.put(rootCookie, root);
+			count++;
+		}
+		for (MonitorSession root : recovered.values()) {
+			sessions.put(new UuidKey(root.getCookie()), root);
+			index.index(root);
+		}
+		journal.clear();
+		if (count > 0)
+			logger.info("Recovered {} session changes of {} jobs from the journal", count, recovered.size());
+		return count;
+	}
+
+	@Override
+	public void persist(MonitorSession root, MonitorSession changed) throws IOException {
+		MarshalledData delta;
+		// the session tree is changed under the lock of its root
+		synchronized (root) {
+			try {
+				delta = new MarshalledData(new SessionDelta(root.getCookie(), changed));
+			} catch (ContextException e) {
+				throw new IOException(e);
+			}
+		}
+		int dirtyCount;
+		synchronized (lock) {
+			long s = ++seq;
+			journal.put(s, delta);
+			dirty.put(root.getCookie(), new Dirty(root, s));
+			dirtyCount = dirty.size();
+		}
+		index.index(root);
+		if (dirtyCount >= flushThreshold) {
+			scheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					flushQuietly();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Write the snapshot of the root session immediately.
+	 */
+	public void put(MonitorSession root) {
+		synchronized (flushLock) {
+			synchronized (root) {
+				sessions.put(new UuidKey(root.getCookie()), root);
+			}
+			synchronized (lock) {
+				dirty.remove(root.getCookie());
+			}
+		}
+		index.index(root);
+	}
+
+	/**
+	 * Delete the root sessions with all their summaries in one transaction,
+	 * then drop them from the index. Their journal entries are left to the
+	 * next flush; recovery skips entries of deleted sessions.
+	 */
+	public void remove(Collection<Uuid> rootCookies) {
+		synchronized (flushLock) {
+			synchronized (lock) {
+				for (Uuid cookie : rootCookies)
+					dirty.remove(cookie);
+			}
+			transactions.beginTransaction(null);
+			boolean committed = false;
+			try {
+				// removing through the key sets does not read the values
+				for (Uuid root : rootCookies) {
+					sessions.keySet().remove(new UuidKey(root));
+					for (Uuid cookie : index.getSessions(root))
+						summaries.keySet().remove(new UuidKey(cookie));
+				}
+				transactions.commitTransaction();
+				committed = true;
+			} finally {
+				if (!committed)
+					transactions.abortTransaction();
+			}
+			for (Uuid root : rootCookies)
+				index.unindex(root);
+		}
+	}
+
+	/**
+	 * Get the root session, the not yet written one if it is dirty.
+	 */
+	public MonitorSession get(UuidKey key) {
+		synchronized (lock) {
+			Dirty session = dirty.get(key.getId());
+			if (session != null)
+				return session.root;
+		}
+		return (MonitorSession) sessions.get(key);
+	}
+
+	/**
+	 * Write snapshots of all dirty root sessions and compact the journal.
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			Map<Uuid, Dirty> toWrite;
+			long upTo;
+			synchronized (lock) {
+				if (dirty.isEmpty())
+					return;
+				toWrite = new LinkedHashMap<Uuid, Dirty>(dirty);
+				upTo = seq;
+			}
+			for (Map.Entry<Uuid, Dirty> entry : toWrite.entrySet()) {
+				MonitorSession root = entry.getValue().root;
+				// a consistent snapshot, with every change up to upTo
+				synchronized (root) {
+					sessions.put(new UuidKey(entry.getKey()), root);
+				}
+			}
+
+			synchronized (lock) {
+				for (Uuid cookie : toWrite.keySet()) {
+					// unless changed again in the meantime
+					Dirty current = dirty.get(cookie);
+					if (current != null && current.seq <= upTo)
+						dirty.remove(cookie);
+				}
+			}
+			// every change up to upTo is in the snapshots now
+			journal.headMap(upTo + 1).clear();
+			logger.debug("Flushed {} sessions up to journal entry {}", toWrite.size(), upTo);
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			logger.error("Could not flush monitor sessions", e);
+		}
+	}
+
+	/**
+	 * Flush the dirty sessions and stop the flushing thread.
+	 */
+	public void close() {
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+
+	/*
+	 * A root session changed since it was last written and the journal entry
+	 * of its last change
+	 */
+	private static class Dirty {
+		final MonitorSession root;
+		final long seq;
+
+		Dirty(MonitorSession root, long seq) {
+			this.root = root;
+			this.seq = seq;
+		}
+	}
+}
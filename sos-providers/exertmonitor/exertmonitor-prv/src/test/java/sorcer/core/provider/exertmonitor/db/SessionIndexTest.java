@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.exertmonitor.db;
+
+import net.jini.id.Uuid;
+import org.junit.Before;
+import org.junit.Test;
+import sorcer.core.exertion.NetJob;
+import sorcer.core.exertion.NetTask;
+import sorcer.core.provider.exertmonitor.MonitorSession;
+import sorcer.security.util.SorcerPrincipal;
+import sorcer.service.Exec;
+import sorcer.util.bdb.objects.UuidKey;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SessionIndexTest {
+    private final Map<UuidKey, SessionSummary> summaryStore = new HashMap<UuidKey, SessionSummary>();
+    private final SessionIndex index = new SessionIndex(summaryStore);
+    private MonitorSession root;
+
+    @Before
+    public void setUp() throws Exception {
+        SorcerPrincipal principal = new SorcerPrincipal("alice");
+        principal.setId("alice-id");
+        NetJob job = new NetJob("job", principal);
+        job.addExertion(new NetTask("a"));
+        job.addExertion(new NetTask("b"));
+        root = new MonitorSession(job, null, 0);
+        index.index(root);
+    }
+
+    @Test
+    public void testIndexTree() {
+        assertEquals(3, index.size());
+        assertEquals(3, summaryStore.size());
+        assertEquals(Collections.singleton(root.getCookie()), index.getRootsByPrincipal("alice-id"));
+        assertEquals(3, index.getSessions(root.getCookie()).size());
+        assertEquals(new UuidKey(root.getCookie()), index.getRootKey(root.get(1).getCookie()));
+    }
+
+    @Test
+    public void testUpdateChildKeepsRootByPrincipal() {
+        MonitorSession child = root.get(0);
+        child.restore(Exec.RUNNING, null, null);
+        index.index(root);
+
+        assertEquals(Collections.singleton(root.getCookie()), index.getRootsByPrincipal("alice-id"));
+        assertTrue(index.getSessionsByState(Exec.RUNNING).contains(child.getCookie()));
+        assertFalse(index.getSessionsByState(Exec.INITIAL).contains(child.getCookie()));
+    }
+
+    @Test
+    public void testUpdateRoot() {
+        root.restore(Exec.DONE, null, null);
+        index.index(root);
+
+        assertEquals(Collections.singleton(root.getCookie()), index.getRootsByPrincipal("alice-id"));
+        assertTrue(index.getSessionsByState(Exec.DONE).contains(root.getCookie()));
+    }
+
+    @Test
+    public void testRemove() {
+        Uuid cookie = root.getCookie();
+        index.remove(cookie);
+
+        assertEquals(0, index.size());
+        assertTrue(summaryStore.isEmpty());
+        assertTrue(index.getRootsByPrincipal("alice-id").isEmpty());
+        assertNull(index.getRootKey(root.get(0).getCookie()));
+    }
+}
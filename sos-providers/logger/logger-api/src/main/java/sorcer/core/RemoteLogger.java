@@ -20,6 +20,7 @@ package sorcer.core;
 import net.jini.core.event.EventRegistration;
 import net.jini.core.event.RemoteEventListener;
 import net.jini.core.lease.LeaseDeniedException;
+import sorcer.core.provider.logger.LogPage;
 import sorcer.core.provider.logger.LoggingConfig;
 
 import java.io.IOException;
@@ -37,15 +38,40 @@ public interface RemoteLogger extends Remote {
     String KEY_HOSTNAME = "hostname";
     String KEY_EXERTION_ID = "xrtId";
     String KEY_PROVIDER_ID = "prvId";
+    /**
+     * Listener filter key matched against the logger name of an event rather than its MDC
+     */
+    String KEY_LOGGER_NAME = "logger";
 
     public void publish(List<LoggingEventVO> record) throws RemoteException;
 
+    /**
+     * Publish a batch of events compressed with {@link sorcer.core.provider.logger.LogBatch#compress(java.util.List)}
+     */
+    public void publish(byte[] batch) throws RemoteException;
+
     public List<LoggingConfig> getLoggers() throws IOException;
 
     public String[] getLogNames() throws RemoteException;
 
+    /**
+     * @deprecated reads the whole file, use {@link #getLog(String, long, int)} or {@link #tailLog(String, long, int)}
+     */
+    @Deprecated
     public List<String> getLog(String fileName) throws RemoteException;
 
+    /**
+     * Read at most limit lines of a log file, starting at the byte offset, 0 for the beginning of the file. The
+     * following page starts at {@link LogPage#getNextOffset()}. A page is also limited in bytes by the provider.
+     */
+    public LogPage getLog(String fileName, long offset, int limit) throws RemoteException;
+
+    /**
+     * Follow a log file. With a negative offset, read the last limit lines of the file, otherwise the complete lines
+     * written since the offset, usually the {@link LogPage#getNextOffset()} of the previous call.
+     */
+    public LogPage tailLog(String fileName, long offset, int limit) throws RemoteException;
+
     public void deleteLog(String logName) throws RemoteException;
 
 
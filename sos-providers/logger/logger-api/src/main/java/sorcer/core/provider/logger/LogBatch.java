@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.logger;
+
+import ch.qos.logback.classic.spi.LoggingEventVO;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIP compressed form of a list of logging events, as sent to
+ * {@link sorcer.core.RemoteLogger#publish(byte[])}. Log messages repeat a lot,
+ * a batch usually compresses to a fraction of its serialized size.
+ */
+public class LogBatch {
+    private LogBatch() {
+    }
+
+    public static byte[] compress(List<LoggingEventVO> events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(events.size() * 64 + 64);
+        ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes, 8 * 1024));
+        try {
+            out.writeInt(events.size());
+            for (LoggingEventVO event : events)
+                out.writeObject(event);
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<LoggingEventVO> decompress(byte[] batch) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(batch), 8 * 1024));
+        try {
+            int size = in.readInt();
+            List<LoggingEventVO> events = new ArrayList<LoggingEventVO>(size);
+            for (int i = 0; i < size; i++)
+                events.add((LoggingEventVO) in.readObject());
+            return events;
+        } catch (ClassNotFoundException e) {
+            throw new InvalidObjectException("Unknown class in a logging event batch: " + e.getMessage());
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.logger;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Lines of a log file read from a byte offset. The next page, or the lines
+ * written since, start at {@link #getNextOffset()}.
+ */
+public class LogPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> lines;
+    private final long offset;
+    private final long nextOffset;
+    private final long length;
+
+    public LogPage(List<String> lines, long offset, long nextOffset, long length) {
+        this.lines = lines;
+        this.offset = offset;
+        this.nextOffset = nextOffset;
+        this.length = length;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Byte offset of the first line
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Byte offset following the last line
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Length of the file when it was read
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return whether there was nothing more to read in the file
+     */
+    public boolean isEnd() {
+        return nextOffset >= length;
+    }
+
+    public String toString() {
+        return "LogPage[" + offset + "-" + nextOffset + "/" + length + ", " + lines.size() + " lines]";
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.platform.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of logging events waiting to be sent to the remote logger.
+ * What happens to an event that finds the queue full depends on the
+ * {@link OverflowPolicy}. Events are drained in the order they were queued.
+ */
+public class LogEventQueue {
+    /**
+     * Handling of events when the queue is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the oldest event of the lowest level in the queue, or the new event if its level is the lowest
+         */
+        DROP_LOWEST_LEVEL,
+        /**
+         * Once the queue is half full, queue only one in sampleRate events below WARN, drop new events when full
+         */
+        SAMPLE,
+        /**
+         * Make the logging thread wait for room, at most blockTimeout ms, then drop the event
+         */
+        BLOCK
+    }
+
+    // TRACE, DEBUG, INFO, WARN, ERROR
+    private static final int LEVELS = 5;
+    private static final int WARN = 3;
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final long blockTimeout;
+
+    // queued events by level, each entry is a sequence number and an event
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Entry>[] levels = new ArrayDeque[LEVELS];
+    private int size;
+    private long sequence;
+    private long sampled;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flush = lock.newCondition();
+    private int flushThreshold = Integer.MAX_VALUE;
+
+    private final AtomicLong[] dropped = new AtomicLong[LEVELS];
+
+    public LogEventQueue(int capacity, OverflowPolicy policy, int sampleRate, long blockTimeout) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.blockTimeout = blockTimeout;
+        for (int i = 0; i < LEVELS; i++) {
+            levels[i] = new ArrayDeque<Entry>();
+            dropped[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * @return whether the event was queued
+     */
+    public boolean offer(ILoggingEvent event) {
+        int level = levelIndex(event.getLevel());
+        lock.lock();
+        try {
+            if (size >= capacity / 2 && policy == OverflowPolicy.SAMPLE && level < WARN && sampled++ % sampleRate != 0) {
+                dropped[level].incrementAndGet();
+                return false;
+            }
+            if (size >= capacity && !makeRoom(level)) {
+                dropped[level].incrementAndGet();
+                return false;
+            }
+            levels[level].addLast(new Entry(sequence++, event));
+            if (++size >= flushThreshold)
+                flush.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean makeRoom(int level) {
+        switch (policy) {
+            case DROP_LOWEST_LEVEL:
+                for (int i = 0; i < level; i++) {
+                    if (!levels[i].isEmpty()) {
+                        levels[i].removeFirst();
+                        size--;
+                        dropped[i].incrementAndGet();
+                        return true;
+                    }
+                }
+                return false;
+            case BLOCK:
+                try {
+                    long wait = TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+                    while (size >= capacity) {
+                        if (wait <= 0)
+                            return false;
+                        wait = notFull.awaitNanos(wait);
+                    }
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Wait until at least threshold events are queued or the timeout elapses
+     *
+     * @return number of queued events
+     */
+    public int await(int threshold, long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            long wait = unit.toNanos(timeout);
+            flushThreshold = threshold;
+            while (size < threshold && wait > 0)
+                wait = flush.awaitNanos(wait);
+            flushThreshold = Integer.MAX_VALUE;
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move at most max events, oldest first, to the list
+     *
+     * @return number of events moved
+     */
+    public int drainTo(List<? super ILoggingEvent> list, int max) {
+        lock.lock();
+        try {
+            int n = 0;
+            for (; n < max && size > 0; n++) {
+                // the level holding the oldest event
+                int oldest = -1;
+                for (int i = 0; i < LEVELS; i++) {
+                    Entry e = levels[i].peekFirst();
+                    if (e != null && (oldest < 0 || e.sequence < levels[oldest].peekFirst().sequence))
+                        oldest = i;
+                }
+                list.add(levels[oldest].removeFirst().event);
+                size--;
+            }
+            if (n > 0)
+                notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return events dropped so far, by level from TRACE to ERROR
+     */
+    public long[] getDropped() {
+        long[] result = new long[LEVELS];
+        for (int i = 0; i < LEVELS; i++)
+            result[i] = dropped[i].get();
+        return result;
+    }
+
+    private static int levelIndex(Level level) {
+        if (level == null)
+            return 2;
+        switch (level.toInt()) {
+            case Level.TRACE_INT:
+                return 0;
+            case Level.DEBUG_INT:
+                return 1;
+            case Level.INFO_INT:
+                return 2;
+            case Level.WARN_INT:
+                return WARN;
+            default:
+                return level.toInt() > Level.WARN_INT ? LEVELS - 1 : 0;
+        }
+    }
+
+    private static class Entry {
+        final long sequence;
+        final ILoggingEvent event;
+
+        Entry(long sequence, ILoggingEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+}
@@ -20,18 +20,16 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import sorcer.core.RemoteLogger;
 
-import java.util.Queue;
-
 /**
- * Publish log to remote logger service through a queue.
+ * Publish log to remote logger service through a bounded queue.
  *
  * @author Rafał Krupiński
  */
 public class RemoteLoggerAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
-    private Queue<ILoggingEvent> queue;
+    private LogEventQueue queue;
     private String hostname;
 
-    public RemoteLoggerAppender(Queue<ILoggingEvent> queue, String hostname) {
+    public RemoteLoggerAppender(LogEventQueue queue, String hostname) {
         assert queue != null;
         this.queue = queue;
         this.hostname = hostname;
@@ -40,6 +38,7 @@ public class RemoteLoggerAppender extends UnsynchronizedAppenderBase<ILoggingEve
     @Override
     protected void append(ILoggingEvent eventObject) {
         eventObject.getMDCPropertyMap().put(RemoteLogger.KEY_HOSTNAME, hostname);
-        queue.add(eventObject);
+        // dropped events are counted by the queue
+        queue.offer(eventObject);
     }
 }
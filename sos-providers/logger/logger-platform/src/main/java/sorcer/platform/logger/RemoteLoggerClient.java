@@ -21,49 +21,106 @@ import ch.qos.logback.classic.spi.LoggingEventVO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sorcer.core.RemoteLogger;
+import sorcer.core.provider.logger.LogBatch;
 import sorcer.service.Accessor;
 
+import java.io.IOException;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Reads the log message queue. If RemoteLogger is available, the message is sent.
+ * Reads the log message queue. If RemoteLogger is available, the messages are sent in batches, compressed unless
+ * disabled.
  * <p>
- * If RemoteLogger is not available, or it fails twice, the messages are discarded.
+ * The queue is flushed as soon as it holds a full batch, otherwise after an interval that shrinks from maxInterval to
+ * minInterval as the queue fills up, so a quiet service makes few calls and a chatty one doesn't lag behind.
+ * <p>
+ * If RemoteLogger is not available, or it fails twice, the messages are discarded. A missing RemoteLogger is looked
+ * up again after {@link #LOOKUP_DELAY} ms.
  *
  * @author Rafał Krupiński
  */
 public class RemoteLoggerClient implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(RemoteLoggerClient.class);
-    private BlockingQueue<ILoggingEvent> queue;
+    static final long LOOKUP_DELAY = 5000;
+
+    private final LogEventQueue queue;
+    private final int batchSize;
+    private final long minInterval;
+    private final long maxInterval;
+    private final boolean compress;
     private RemoteLogger remoteLogger;
+    private long nextLookup;
+    private long[] reportedDropped;
+    private volatile boolean running = true;
 
-    public RemoteLoggerClient(BlockingQueue<ILoggingEvent> queue) {
+    public RemoteLoggerClient(LogEventQueue queue, int batchSize, long minInterval, long maxInterval, boolean compress) {
         assert queue != null;
         this.queue = queue;
+        this.batchSize = Math.max(1, batchSize);
+        this.minInterval = minInterval;
+        this.maxInterval = Math.max(minInterval, maxInterval);
+        this.compress = compress;
+        this.reportedDropped = queue.getDropped();
     }
 
     @Override
     public void run() {
-        try {
-            LinkedList<ILoggingEvent> loggingEvents = new LinkedList<ILoggingEvent>();
-            int count = queue.drainTo(loggingEvents);
-            if (count == 0)
-                return;
+        List<ILoggingEvent> loggingEvents = new ArrayList<ILoggingEvent>(batchSize);
+        long interval = maxInterval;
+        while (running) {
+            try {
+                queue.await(batchSize, interval, TimeUnit.MILLISECONDS);
+                if (queue.drainTo(loggingEvents, batchSize) > 0)
+                    publish(loggingEvents);
+                interval = getInterval(queue.size());
+                reportDropped();
+            } catch (InterruptedException e) {
+                break;
+            } catch (Throwable t) {
+                log.error("Problem: ", t);
+            } finally {
+                loggingEvents.clear();
+            }
+        }
+        // send what is left, once
+        while (queue.drainTo(loggingEvents, batchSize) > 0) {
             publish(loggingEvents);
-        } catch (Throwable t) {
-            log.error("Problem: ", t);
+            loggingEvents.clear();
+        }
+    }
+
+    /**
+     * Stop after the current batch, sending the queued events
+     */
+    public void stop() {
+        running = false;
+    }
+
+    long getInterval(int depth) {
+        if (depth >= batchSize)
+            return 0;
+        return maxInterval - (maxInterval - minInterval) * depth / batchSize;
+    }
+
+    private void reportDropped() {
+        long[] dropped = queue.getDropped();
+        if (!Arrays.equals(dropped, reportedDropped)) {
+            // not forwarded to the remote logger, there is no remote call context in this thread
+            log.warn("Remote logger queue full, dropped TRACE, DEBUG, INFO, WARN, ERROR events so far: {}",
+                    Arrays.toString(dropped));
+            reportedDropped = dropped;
         }
     }
 
     private void publish(List<ILoggingEvent> loggingEvents) {
         if (remoteLogger != null) {
             publishRetry(vo(loggingEvents));
-        } else {
-            publishNoRetry1(loggingEvents);
+        } else if (System.currentTimeMillis() >= nextLookup) {
+            publishNoRetry(vo(loggingEvents));
         }
     }
 
@@ -74,17 +131,13 @@ public class RemoteLoggerClient implements Runnable {
      */
     private void publishRetry(List<LoggingEventVO> vos) {
         try {
-            remoteLogger.publish(vos);
+            send(vos);
         } catch (RemoteException e) {
             log.debug("Could not publish logging event, retrying", e);
             publishNoRetry(vos);
         }
     }
 
-    private void publishNoRetry1(List<ILoggingEvent> loggingEvents) {
-        publishNoRetry(vo(loggingEvents));
-    }
-
     /**
      * Gets a new RemoteLogger proxy and if it's available, publishes the logging event to it.
      *
@@ -95,15 +148,33 @@ public class RemoteLoggerClient implements Runnable {
         remoteLogger = (RemoteLogger)o;
         if (remoteLogger != null)
             try {
-                remoteLogger.publish(vos);
+                send(vos);
             } catch (RemoteException e) {
                 log.debug("Could not publish logging event", e);
                 remoteLogger = null;
             }
+        if (remoteLogger == null)
+            nextLookup = System.currentTimeMillis() + LOOKUP_DELAY;
+    }
+
+    private void send(List<LoggingEventVO> vos) throws RemoteException {
+        if (!compress) {
+            remoteLogger.publish(vos);
+            return;
+        }
+        byte[] batch;
+        try {
+            batch = LogBatch.compress(vos);
+        } catch (IOException e) {
+            log.debug("Could not compress logging events", e);
+            remoteLogger.publish(vos);
+            return;
+        }
+        remoteLogger.publish(batch);
     }
 
     private static List<LoggingEventVO> vo(List<ILoggingEvent> loggingEvents) {
-        List<LoggingEventVO> result = new ArrayList<LoggingEventVO>();
+        List<LoggingEventVO> result = new ArrayList<LoggingEventVO>(loggingEvents.size());
         for (ILoggingEvent event : loggingEvents)
             if (event instanceof LoggingEventVO)
                 result.add((LoggingEventVO) event);
@@ -31,10 +31,10 @@ import sorcer.config.ConfigEntry;
 import sorcer.core.SorcerEnv;
 import sorcer.util.ConfigurableThreadFactory;
 
+import javax.annotation.PostConstruct;
 import java.io.File;
 import java.net.UnknownHostException;
 import java.rmi.RemoteException;
-import java.util.concurrent.*;
 
 /**
  * Install RemoteLoggerAppender in Logback
@@ -45,13 +45,50 @@ import java.util.concurrent.*;
 public class RemoteLoggerInstaller implements DestroyAdmin {
     private static final Logger log = LoggerFactory.getLogger(RemoteLoggerInstaller.class);
 
+    /**
+     * Longest interval in ms between flushes of a quiet queue
+     */
     @ConfigEntry(required = false)
     public long rate = 200;
 
+    /**
+     * Shortest interval in ms between flushes of a queue filling up
+     */
+    @ConfigEntry(required = false)
+    public long minRate = 10;
+
+    @ConfigEntry(required = false)
+    public int queueSize = 10000;
+
+    @ConfigEntry(required = false)
+    public int batchSize = 500;
+
+    /**
+     * What to do with events that find the queue full: DROP_LOWEST_LEVEL, SAMPLE or BLOCK
+     */
+    @ConfigEntry(required = false)
+    public String overflowPolicy = LogEventQueue.OverflowPolicy.DROP_LOWEST_LEVEL.name();
+
+    /**
+     * One in sampleRate events below WARN is queued by the SAMPLE policy when the queue is half full
+     */
+    @ConfigEntry(required = false)
+    public int sampleRate = 10;
+
+    /**
+     * Time in ms a logging thread waits for room in the queue with the BLOCK policy
+     */
+    @ConfigEntry(required = false)
+    public long blockTimeout = 1000;
+
+    @ConfigEntry(required = false)
+    public boolean compress = true;
+
     @ConfigEntry(required = false)
     public String hostname;
 
-    private ScheduledFuture<?> scheduledFuture;
+    private RemoteLoggerClient client;
+    private Thread clientThread;
 
     {
         try {
@@ -62,13 +99,15 @@ public class RemoteLoggerInstaller implements DestroyAdmin {
         }
     }
 
-    public RemoteLoggerInstaller() {
-        init();
+    @PostConstruct
+    public void init() {
+        installAppender();
         localInit();
     }
 
-    private void init() {
-        BlockingQueue<ILoggingEvent> queue = new LinkedBlockingDeque<ILoggingEvent>();
+    private void installAppender() {
+        LogEventQueue queue = new LogEventQueue(queueSize,
+                LogEventQueue.OverflowPolicy.valueOf(overflowPolicy.toUpperCase()), sampleRate, blockTimeout);
 
         installClient(queue);
 
@@ -90,19 +129,25 @@ public class RemoteLoggerInstaller implements DestroyAdmin {
         root.addAppender(remoteAppender);
     }
 
-    private void installClient(BlockingQueue<ILoggingEvent> queue) {
+    private void installClient(LogEventQueue queue) {
         ConfigurableThreadFactory threadFactory = new ConfigurableThreadFactory();
         threadFactory.setNameFormat("Logger");
 
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
-        scheduledFuture = scheduler.scheduleAtFixedRate(new RemoteLoggerClient(queue), 0, rate, TimeUnit.MILLISECONDS);
+        client = new RemoteLoggerClient(queue, batchSize, minRate, rate, compress);
+        clientThread = threadFactory.newThread(client);
+        clientThread.start();
     }
 
     @Override
     public void destroy() throws RemoteException {
-        if (scheduledFuture != null)
-            scheduledFuture.cancel(false);
-        else
+        if (client != null) {
+            client.stop();
+            try {
+                clientThread.join(rate + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else
             log.debug("No RemoteLoggerClient started");
     }
 
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.platform.logger;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LogEventQueueTest {
+    private static ILoggingEvent event(Level level, String message) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLevel(level);
+        event.setMessage(message);
+        return event;
+    }
+
+    private static List<String> drain(LogEventQueue queue) {
+        List<ILoggingEvent> events = new ArrayList<ILoggingEvent>();
+        queue.drainTo(events, Integer.MAX_VALUE);
+        List<String> messages = new ArrayList<String>();
+        for (ILoggingEvent e : events)
+            messages.add(e.getMessage());
+        return messages;
+    }
+
+    @Test
+    public void testDropLowestLevel() {
+        LogEventQueue queue = new LogEventQueue(3, LogEventQueue.OverflowPolicy.DROP_LOWEST_LEVEL, 1, 0);
+        assertTrue(queue.offer(event(Level.INFO, "i1")));
+        assertTrue(queue.offer(event(Level.DEBUG, "d1")));
+        assertTrue(queue.offer(event(Level.WARN, "w1")));
+        // replaces d1
+        assertTrue(queue.offer(event(Level.ERROR, "e1")));
+        // nothing lower to replace
+        assertFalse(queue.offer(event(Level.DEBUG, "d2")));
+        assertEquals(Arrays.asList("i1", "w1", "e1"), drain(queue));
+        assertEquals(2, queue.getDropped()[1]);
+    }
+
+    @Test
+    public void testSample() {
+        LogEventQueue queue = new LogEventQueue(10, LogEventQueue.OverflowPolicy.SAMPLE, 5, 0);
+        int queued = 0;
+        for (int i = 0; i < 25; i++)
+            if (queue.offer(event(Level.INFO, "i" + i)))
+                queued++;
+        // 5 before the queue is half full, then one in five
+        assertEquals(9, queued);
+        assertTrue(queue.offer(event(Level.WARN, "w")));
+    }
+
+    @Test(timeout = 5000)
+    public void testBlock() throws Exception {
+        final LogEventQueue queue = new LogEventQueue(1, LogEventQueue.OverflowPolicy.BLOCK, 1, 100);
+        assertTrue(queue.offer(event(Level.INFO, "1")));
+        assertFalse(queue.offer(event(Level.INFO, "2")));
+
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) {
+                }
+                drain(queue);
+            }
+        };
+        consumer.start();
+        assertTrue(queue.offer(event(Level.INFO, "3")));
+        consumer.join();
+    }
+}
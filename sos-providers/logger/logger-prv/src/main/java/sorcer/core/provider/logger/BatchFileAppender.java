@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.logger;
+
+import ch.qos.logback.core.FileAppender;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * File appender that leaves its stream buffered between writes. The events of
+ * a batch are written to the buffer and reach the file with a single
+ * {@link #flush()} at the end of the batch. The encoder must not flush
+ * immediately.
+ */
+class BatchFileAppender<E> extends FileAppender<E> {
+    private final Object streamLock = new Object();
+    private volatile OutputStream stream;
+
+    @Override
+    public void setOutputStream(OutputStream outputStream) {
+        super.setOutputStream(outputStream);
+        stream = outputStream;
+    }
+
+    @Override
+    protected void subAppend(E event) {
+        synchronized (streamLock) {
+            super.subAppend(event);
+        }
+    }
+
+    void flush() {
+        OutputStream out = stream;
+        if (out == null || !isStarted())
+            return;
+        synchronized (streamLock) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                addError("Could not flush " + getFile(), e);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        flush();
+        super.stop();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.logger;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.*;
+
+import static sorcer.core.RemoteLogger.KEY_EXERTION_ID;
+import static sorcer.core.RemoteLogger.KEY_LOGGER_NAME;
+
+/**
+ * Listener filters indexed by exertion id and logger name, so finding the
+ * listeners of an event is a lookup rather than a scan of all filters. Filters
+ * with neither key are checked one by one.
+ * <p>
+ * Registrations are rare compared to events, so the index is rebuilt on each
+ * change and read without locking.
+ */
+class ListenerIndex {
+    private final Map<Long, Registration> registrations = new LinkedHashMap<Long, Registration>();
+
+    private volatile Index index = new Index(Collections.<Registration>emptyList());
+
+    synchronized void add(long id, LogListener listener, List<Map<String, String>> filters) {
+        registrations.put(id, new Registration(listener, filters));
+        index = new Index(registrations.values());
+    }
+
+    synchronized LogListener remove(long id) {
+        Registration r = registrations.remove(id);
+        index = new Index(registrations.values());
+        return r != null ? r.listener : null;
+    }
+
+    /**
+     * @return listeners with at least one filter matching the event, each once
+     */
+    Collection<LogListener> match(ILoggingEvent event) {
+        Index idx = index;
+        if (idx.empty)
+            return Collections.emptyList();
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        String loggerName = event.getLoggerName();
+        Set<LogListener> result = null;
+        String exertionId = mdc.get(KEY_EXERTION_ID);
+        if (exertionId != null)
+            result = match(idx.byExertion.get(exertionId), mdc, loggerName, result);
+        if (loggerName != null)
+            result = match(idx.byLogger.get(loggerName), mdc, loggerName, result);
+        result = match(idx.others, mdc, loggerName, result);
+        return result != null ? result : Collections.<LogListener>emptySet();
+    }
+
+    private static Set<LogListener> match(List<Filter> filters, Map<String, String> mdc, String loggerName,
+                                          Set<LogListener> result) {
+        if (filters == null)
+            return result;
+        for (Filter f : filters) {
+            if ((result == null || !result.contains(f.listener)) && f.matches(mdc, loggerName)) {
+                if (result == null)
+                    result = new LinkedHashSet<LogListener>();
+                result.add(f.listener);
+            }
+        }
+        return result;
+    }
+
+    private static class Registration {
+        final LogListener listener;
+        final List<Map<String, String>> filters;
+
+        Registration(LogListener listener, List<Map<String, String>> filters) {
+            this.listener = listener;
+            this.filters = filters;
+        }
+    }
+
+    private static class Filter {
+        final LogListener listener;
+        final Map<String, String> entries;
+
+        Filter(LogListener listener, Map<String, String> entries) {
+            this.listener = listener;
+            this.entries = entries;
+        }
+
+        /*
+         * All the entries of the filter are in the MDC of the event, the logger name is compared to the event's one
+         */
+        boolean matches(Map<String, String> mdc, String loggerName) {
+            for (Map.Entry<String, String> e : entries.entrySet()) {
+                String actual = KEY_LOGGER_NAME.equals(e.getKey()) ? loggerName : mdc.get(e.getKey());
+                if (actual == null ? e.getValue() != null : !actual.equals(e.getValue()))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static class Index {
+        final Map<String, List<Filter>> byExertion = new HashMap<String, List<Filter>>();
+        final Map<String, List<Filter>> byLogger = new HashMap<String, List<Filter>>();
+        final List<Filter> others = new ArrayList<Filter>();
+        final boolean empty;
+
+        Index(Collection<Registration> registrations) {
+            for (Registration r : registrations) {
+                if (r.filters == null)
+                    continue;
+                for (Map<String, String> entries : r.filters) {
+                    Filter f = new Filter(r.listener, new HashMap<String, String>(entries));
+                    String exertionId = entries.get(KEY_EXERTION_ID);
+                    String loggerName = entries.get(KEY_LOGGER_NAME);
+                    if (exertionId != null)
+                        add(byExertion, exertionId, f);
+                    else if (loggerName != null)
+                        add(byLogger, loggerName, f);
+                    else
+                        others.add(f);
+                }
+            }
+            empty = byExertion.isEmpty() && byLogger.isEmpty() && others.isEmpty();
+        }
+
+        private static void add(Map<String, List<Filter>> map, String key, Filter f) {
+            List<Filter> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<Filter>(1);
+                map.put(key, list);
+            }
+            list.add(f);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.logger;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import org.rioproject.event.EventHandler;
+import org.rioproject.event.NoEventConsumerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.core.provider.Provider;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivery of log events to one registered listener. Events are queued and
+ * sent, in order, by a task on the shared delivery pool, so a slow or
+ * unreachable listener only delays its own events. When the queue is full the
+ * oldest event is dropped.
+ */
+class LogListener implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(LogListener.class);
+
+    // events sent by a task before it yields its pool thread to other listeners
+    private static final int EVENTS_PER_TASK = 256;
+
+    private final EventHandler handler;
+    private final Provider provider;
+    private final Executor executor;
+    private final BlockingQueue<ILoggingEvent> queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+
+    LogListener(EventHandler handler, Provider provider, Executor executor, int queueSize) {
+        this.handler = handler;
+        this.provider = provider;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<ILoggingEvent>(queueSize);
+    }
+
+    void offer(ILoggingEvent event) {
+        while (!queue.offer(event)) {
+            if (queue.poll() != null && dropped.incrementAndGet() % 1000 == 1)
+                log.warn("Listener {} is too slow, {} log events dropped so far", handler, dropped.get());
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                scheduled.set(false);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            ILoggingEvent event;
+            for (int i = 0; i < EVENTS_PER_TASK && (event = queue.poll()) != null; i++) {
+                try {
+                    handler.fire(new LoggerRemoteEvent(provider.getProxy(), event));
+                } catch (NoEventConsumerException e) {
+                    log.error("Problem sending remote log event, no event consumer available");
+                } catch (RemoteException e) {
+                    log.error("Problem getting proxy from provider - should never happen as provider is local!!!");
+                }
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        if (!queue.isEmpty())
+            schedule();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.logger;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import org.slf4j.LoggerFactory;
+import sorcer.util.ConfigurableThreadFactory;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static sorcer.core.RemoteLogger.KEY_HOSTNAME;
+
+/**
+ * Publishes remote log events off the callers' threads. Events are queued in
+ * a bounded queue and handled in batches by a single dispatcher thread, which
+ * hands them to the matching listeners and writes them to the per logger
+ * files, flushing each file once per batch. When the queue stays full for
+ * longer than the offer timeout, events are dropped and counted.
+ */
+class LogPublisher implements Runnable {
+    private static final org.slf4j.Logger log = LoggerFactory.getLogger(LogPublisher.class);
+
+    private final LoggerContext loggerFactory;
+    private final File logDir;
+    private final ListenerIndex listeners;
+    private final ConcurrentMap<String, LoggingConfig> knownLoggers;
+
+    private final BlockingQueue<ILoggingEvent> queue;
+    private final int batchSize;
+    private final long offerTimeout;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    LogPublisher(LoggerContext loggerFactory, File logDir, ListenerIndex listeners,
+                 ConcurrentMap<String, LoggingConfig> knownLoggers, int queueSize, int batchSize, long offerTimeout) {
+        this.loggerFactory = loggerFactory;
+        this.logDir = logDir;
+        this.listeners = listeners;
+        this.knownLoggers = knownLoggers;
+        this.queue = new ArrayBlockingQueue<ILoggingEvent>(queueSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.offerTimeout = offerTimeout;
+
+        ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+        tf.setDaemon(true);
+        tf.setNameFormat("RemoteLogPublisher-%2$d");
+        dispatcher = tf.newThread(this);
+        dispatcher.start();
+    }
+
+    /**
+     * Queue the events, waiting at most the offer timeout, in total, for room in the queue
+     *
+     * @return number of events dropped
+     */
+    int publish(List<? extends ILoggingEvent> events) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeout);
+        int i = 0;
+        for (int size = events.size(); i < size && running; i++) {
+            ILoggingEvent event = events.get(i);
+            if (!queue.offer(event)) {
+                long wait = deadline - System.nanoTime();
+                if (wait <= 0 || !queue.offer(event, wait, TimeUnit.NANOSECONDS))
+                    break;
+            }
+        }
+        int lost = events.size() - i;
+        if (lost > 0) {
+            long total = dropped.addAndGet(lost);
+            if (total == lost || (total - lost) / 1000 != total / 1000)
+                log.warn("Remote log queue is full, {} events dropped so far", total);
+        }
+        return lost;
+    }
+
+    @Override
+    public void run() {
+        List<ILoggingEvent> batch = new ArrayList<ILoggingEvent>(batchSize);
+        Set<BatchFileAppender<ILoggingEvent>> touched = new HashSet<BatchFileAppender<ILoggingEvent>>();
+        while (running || !queue.isEmpty()) {
+            try {
+                ILoggingEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (ILoggingEvent event : batch)
+                    publish(event, touched);
+            } catch (InterruptedException e) {
+                // stop() timed out, give up the events still queued
+                running = false;
+                List<ILoggingEvent> rest = new ArrayList<ILoggingEvent>();
+                queue.drainTo(rest);
+                dropped.addAndGet(rest.size());
+            } catch (RuntimeException e) {
+                log.error("Error publishing remote log events", e);
+            } finally {
+                for (BatchFileAppender<ILoggingEvent> appender : touched)
+                    appender.flush();
+                published.addAndGet(batch.size());
+                touched.clear();
+                batch.clear();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publish(ILoggingEvent event, Set<BatchFileAppender<ILoggingEvent>> touched) {
+        for (LogListener listener : listeners.match(event))
+            listener.offer(event);
+
+        String loggerName = event.getLoggerName();
+        Logger logger = loggerFactory.getLogger(loggerName);
+        Appender<ILoggingEvent> appender = logger.getAppender(loggerName);
+        if (appender == null) {
+            String hostname = event.getMDCPropertyMap().get(KEY_HOSTNAME);
+            appender = createAppender(loggerName, hostname != null ? hostname : "remote");
+            logger.addAppender(appender);
+        }
+        if (appender instanceof BatchFileAppender)
+            touched.add((BatchFileAppender<ILoggingEvent>) appender);
+        logger.callAppenders(event);
+
+        if (!knownLoggers.containsKey(loggerName)) {
+            LoggingConfig lc = new LoggingConfig(loggerName, null);
+            lc.setLevel(Level.ALL);
+            knownLoggers.putIfAbsent(loggerName, lc);
+        }
+    }
+
+    private Appender<ILoggingEvent> createAppender(String loggerName, String prefix) {
+        BatchFileAppender<ILoggingEvent> fileAppender = new BatchFileAppender<ILoggingEvent>();
+        fileAppender.setName(loggerName);
+        File file = new File(logDir, prefix + "-" + loggerName + ".log");
+        fileAppender.setFile(file.getPath());
+        fileAppender.setContext(loggerFactory);
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerFactory);
+        encoder.setPattern("%-5level %d{HH:mm:ss.SSS} [%t] %logger{36} - %msg%n%rEx");
+        // flushed by the dispatcher at the end of each batch
+        encoder.setImmediateFlush(false);
+        fileAppender.setEncoder(encoder);
+        encoder.start();
+        fileAppender.start();
+        return fileAppender;
+    }
+
+    /**
+     * Stop accepting events and wait for the queued ones to be written
+     */
+    void stop(long timeout, TimeUnit unit) throws InterruptedException {
+        running = false;
+        dispatcher.join(unit.toMillis(timeout));
+        if (dispatcher.isAlive())
+            dispatcher.interrupt();
+        log.info("Published {} remote log events, dropped {}", published.get(), dropped.get());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads pages of lines from a log file by byte offset, without reading more
+ * of the file than the page. Only whole lines are returned, the last line of a
+ * file that is still being written is returned when it's complete.
+ */
+class LogReader {
+    private static final int BLOCK_SIZE = 8 * 1024;
+
+    // the files are written by logback in the platform encoding
+    private final Charset charset = Charset.defaultCharset();
+    private final int maxBytes;
+
+    /**
+     * @param maxBytes bytes read per page at most, unless a single line is longer
+     */
+    LogReader(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Read at most limit lines starting at offset. An offset past the end of
+     * the file, which was truncated or replaced, starts over at its beginning.
+     */
+    LogPage read(File file, long offset, int limit) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (offset < 0 || offset > length)
+                offset = 0;
+            return read(channel, offset, limit, length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Read the last limit lines of the file, as many as fit in a page
+     */
+    LogPage tail(File file, int limit) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            long start = startOfLastLines(channel, length, limit);
+            if (length - start > maxBytes) {
+                long next = startOfNextLine(channel, length - maxBytes, length);
+                if (next >= 0)
+                    start = next;
+            }
+            return read(channel, start, limit, length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private LogPage read(FileChannel channel, long offset, int limit, long length) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        long position = offset;
+        long next = offset;
+        while (lines.size() < limit && position < length && (next - offset < maxBytes || lines.isEmpty())) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0)
+                break;
+            byte[] bytes = block.array();
+            int start = 0;
+            for (int i = 0; i < read && lines.size() < limit; i++) {
+                if (bytes[i] != '\n')
+                    continue;
+                line.write(bytes, start, i - start);
+                lines.add(toLine(line));
+                line.reset();
+                start = i + 1;
+                next = position + start;
+                if (next - offset >= maxBytes)
+                    break;
+            }
+            if (lines.size() >= limit || next - offset >= maxBytes)
+                break;
+            line.write(bytes, start, read - start);
+            position += read;
+        }
+        return new LogPage(lines, offset, next, length);
+    }
+
+    private String toLine(ByteArrayOutputStream line) throws IOException {
+        String s = line.toString(charset.name());
+        return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+    }
+
+    /*
+     * Offset of the start of the limit-th complete line from the end
+     */
+    private static long startOfLastLines(FileChannel channel, long length, int limit) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        long end = length;
+        // newlines seen, the one ending the last complete line included
+        int newlines = 0;
+        while (end > 0) {
+            int size = (int) Math.min(BLOCK_SIZE, end);
+            long position = end - size;
+            block.clear().limit(size);
+            while (block.hasRemaining())
+                if (channel.read(block, position + block.position()) < 0)
+                    return 0;
+            byte[] bytes = block.array();
+            for (int i = size - 1; i >= 0; i--) {
+                if (bytes[i] == '\n' && ++newlines > limit)
+                    return position + i + 1;
+            }
+            end = position;
+        }
+        return 0;
+    }
+
+    /*
+     * Offset following the first newline at or after position, -1 if there is none before end
+     */
+    private static long startOfNextLine(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        while (position < end) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0)
+                break;
+            byte[] bytes = block.array();
+            for (int i = 0; i < read && position + i < end; i++)
+                if (bytes[i] == '\n')
+                    return position + i + 1 < end ? position + i + 1 : -1;
+            position += read;
+        }
+        return -1;
+    }
+}
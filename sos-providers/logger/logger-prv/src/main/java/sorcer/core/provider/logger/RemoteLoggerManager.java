@@ -15,26 +15,25 @@
  */
 package sorcer.core.provider.logger;
 
-import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
-import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEventVO;
-import ch.qos.logback.core.Appender;
-import ch.qos.logback.core.FileAppender;
+import com.sun.jini.admin.DestroyAdmin;
 import net.jini.core.event.EventRegistration;
 import net.jini.core.event.RemoteEventListener;
 import net.jini.core.lease.LeaseDeniedException;
 import org.apache.commons.io.FileUtils;
 import org.rioproject.event.EventDescriptor;
 import org.rioproject.event.EventHandler;
-import org.rioproject.event.NoEventConsumerException;
 import org.slf4j.ILoggerFactory;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.MessageFormatter;
+import sorcer.config.Component;
+import sorcer.config.ConfigEntry;
 import sorcer.core.RemoteLogger;
 import sorcer.core.SorcerEnv;
 import sorcer.core.provider.Provider;
+import sorcer.util.ConfigurableThreadFactory;
 import sorcer.util.SenderEventHandler;
 
 import java.io.File;
@@ -43,23 +42,74 @@ import java.rmi.MarshalledObject;
 import java.rmi.RemoteException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-public class RemoteLoggerManager implements RemoteLogger {
+@Component
+public class RemoteLoggerManager implements RemoteLogger, DestroyAdmin {
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(RemoteLoggerManager.class);
 
-    // The list of all known loggers.
-    private List<LoggingConfig> knownLoggers = new LinkedList<LoggingConfig>();
+    // All known loggers by name.
+    private ConcurrentMap<String, LoggingConfig> knownLoggers = new ConcurrentHashMap<String, LoggingConfig>();
 
     private LoggerContext loggerFactory;
 
     private File logDir = new File(SorcerEnv.getHomeDir(), "logs/remote");
 
-    private Map<Map<String,String>, EventHandler> remoteLogListeners = new ConcurrentHashMap<Map<String,String>, EventHandler>();
-
-    private Map<Long, EventHandler> remoteLogHandlers = new ConcurrentHashMap<Long, EventHandler>();
+    private ListenerIndex remoteLogListeners = new ListenerIndex();
 
     private Provider provider;
 
+    private LogPublisher publisher;
+
+    private ExecutorService listenerExecutor;
+
+    /**
+     * Events waiting to be written and sent to listeners.
+     */
+    @ConfigEntry("publishQueueSize")
+    private int publishQueueSize = 10000;
+
+    /**
+     * Events written per batch, each log file is flushed once per batch.
+     */
+    @ConfigEntry("publishBatchSize")
+    private int publishBatchSize = 500;
+
+    /**
+     * Time in ms a publish call waits for room in a full queue before its events are dropped.
+     */
+    @ConfigEntry("publishTimeout")
+    private long publishTimeout = 1000;
+
+    /**
+     * Events waiting to be sent to a single listener, the oldest are dropped first.
+     */
+    @ConfigEntry("listenerQueueSize")
+    private int listenerQueueSize = 1000;
+
+    /**
+     * Threads sending events to listeners.
+     */
+    @ConfigEntry("listenerThreads")
+    private int listenerThreads = 4;
+
+    /**
+     * Bytes of a log file returned by a single getLog or tailLog call, unless a single line is longer.
+     */
+    @ConfigEntry("maxPageSize")
+    private int maxPageSize = 1024 * 1024;
+
+    /**
+     * Lines returned by a single getLog or tailLog call.
+     */
+    @ConfigEntry("maxPageLines")
+    private int maxPageLines = 10000;
+
+    private LogReader logReader;
+
     public RemoteLoggerManager() {
         ILoggerFactory loggerFactory;
         loggerFactory = LoggerFactory.getILoggerFactory();
@@ -70,6 +120,13 @@ public class RemoteLoggerManager implements RemoteLogger {
 
     public void init(Provider provider) throws RemoteException {
         this.provider = provider;
+        ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+        tf.setDaemon(true);
+        tf.setNameFormat("RemoteLogListener-%2$d");
+        listenerExecutor = Executors.newFixedThreadPool(listenerThreads, tf);
+        logReader = new LogReader(maxPageSize);
+        publisher = new LogPublisher(loggerFactory, logDir, remoteLogListeners, knownLoggers,
+                publishQueueSize, publishBatchSize, publishTimeout);
     }
 
     public String[] getLogNames() throws RemoteException {
@@ -85,88 +142,75 @@ public class RemoteLoggerManager implements RemoteLogger {
         return list.toArray(new String[list.size()]);
     }
 
-    public void publish(List<LoggingEventVO> loggingEvents) {
-        for (LoggingEventVO vo : loggingEvents)
-            publish(vo);
+    /**
+     * Queue the events for writing and for the registered listeners. Events
+     * that find no room in the queue within the publish timeout are dropped.
+     */
+    public void publish(List<LoggingEventVO> loggingEvents) throws RemoteException {
+        try {
+            publisher.publish(loggingEvents);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    protected void publish(ILoggingEvent loggingEvent) {
-        String loggerName;
-        Logger logger;
-        synchronized (this) {
-            //log.info("Publishing remote log: " + loggingEvent.getMessage().substring(0,Math.min(loggingEvent.getMessage().length(),50)));
-            Map<String, String> mdc = loggingEvent.getMDCPropertyMap();
-            String exertionId = null;
-            if (!remoteLogListeners.isEmpty()) {
-                exertionId = mdc.get(KEY_EXERTION_ID);
-                Map<String, String> keyMap = new HashMap<String, String>();
-                keyMap.put(KEY_EXERTION_ID, exertionId);
-
-                for (Map.Entry<Map<String, String>, EventHandler> entry : remoteLogListeners.entrySet()) {
-                    if (mdc.entrySet().containsAll(entry.getKey().entrySet())) {
-                        try {
-                            LoggerRemoteEvent rse = new LoggerRemoteEvent(provider.getProxy(), loggingEvent);
-                            entry.getValue().fire(rse);
-                            //System.out.println("!!!!!!!!!!!!!!!!!!!!!!!!!!! Sending log to remote listener exID: " + exertionId + ": " + loggingEvent.getMessage().substring(0, Math.min(loggingEvent.getMessage().length(), 50)));
-                        } catch (NoEventConsumerException e) {
-                            log.error("Problem sending remote log event, no event consumer available");
-                        } catch (RemoteException e) {
-                            log.error("Problem getting proxy from provider - should never happen as provider is local!!!");
-                        }
-                    }
-                }
-            }
-            loggerName = loggingEvent.getLoggerName();
-            logger = loggerFactory.getLogger(loggerName);
-            Appender<ILoggingEvent> appender = logger.getAppender(loggerName);
-            if (appender == null) {
-                String hostname;
-                if (mdc.containsKey(KEY_HOSTNAME))
-                    hostname = mdc.get(KEY_HOSTNAME);
-                else
-                    hostname = "remote";
-                //logger.setAdditive(false);
-                logger.addAppender(createAppender(loggerName, hostname));
-            }
+    public void publish(byte[] batch) throws RemoteException {
+        List<LoggingEventVO> loggingEvents;
+        try {
+            loggingEvents = LogBatch.decompress(batch);
+        } catch (IOException e) {
+            throw new RemoteException("Could not read a batch of logging events", e);
         }
+        publish(loggingEvents);
+    }
 
-        logger.callAppenders(loggingEvent);
-        LoggingConfig lc = new LoggingConfig(loggerName, null);
-        if (!knownLoggers.contains(lc)) {
-            lc.setLevel(Level.ALL);
-            knownLoggers.add(lc);
+    @Deprecated
+    public List<String> getLog(String fileName) throws RemoteException {
+        try {
+            return FileUtils.readLines(new File(logDir, fileName));
+        } catch (IOException e) {
+            String msg = MessageFormatter.format("Error reading file {}", fileName).getMessage();
+            log.warn(msg, e);
+            return Arrays.asList(msg);
         }
     }
 
-    private Appender<ILoggingEvent> createAppender(String loggerName, String prefix) {
-        Appender<ILoggingEvent> appender;
-        FileAppender<ILoggingEvent> fileAppender = new FileAppender<ILoggingEvent>();
-        fileAppender.setName(loggerName);
-        File file = new File(logDir, prefix + "-" + loggerName + ".log");
-        fileAppender.setFile(file.getPath());
-        fileAppender.setContext(loggerFactory);
-        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
-        encoder.setContext(loggerFactory);
-        encoder.setPattern("%-5level %d{HH:mm:ss.SSS} [%t] %logger{36} - %msg%n%rEx");
-        fileAppender.setEncoder(encoder);
-        appender = fileAppender;
-        encoder.start();
-        appender.start();
-        return appender;
+    public LogPage getLog(String fileName, long offset, int limit) throws RemoteException {
+        File file = getLogFile(fileName);
+        try {
+            return logReader.read(file, offset, Math.min(limit, maxPageLines));
+        } catch (IOException e) {
+            String msg = MessageFormatter.format("Error reading file {}", fileName).getMessage();
+            log.warn(msg, e);
+            throw new RemoteException(msg, e);
+        }
     }
 
-    public List<String> getLog(String fileName) throws RemoteException {
+    public LogPage tailLog(String fileName, long offset, int limit) throws RemoteException {
+        if (offset >= 0)
+            return getLog(fileName, offset, limit);
+        File file = getLogFile(fileName);
         try {
-            return FileUtils.readLines(new File(logDir, fileName));
+            return logReader.tail(file, Math.min(limit, maxPageLines));
         } catch (IOException e) {
             String msg = MessageFormatter.format("Error reading file {}", fileName).getMessage();
             log.warn(msg, e);
-            return Arrays.asList(msg);
+            throw new RemoteException(msg, e);
         }
     }
 
+    /*
+     * Log files only, no paths out of the log directory
+     */
+    private File getLogFile(String fileName) throws RemoteException {
+        if (fileName == null || fileName.indexOf('/') >= 0 || fileName.indexOf(File.separatorChar) >= 0
+                || fileName.startsWith(".") || !fileName.endsWith(".log"))
+            throw new RemoteException("Not a log file name: " + fileName);
+        return new File(logDir, fileName);
+    }
+
     public List<LoggingConfig> getLoggers() throws IOException {
-        return knownLoggers;
+        return new ArrayList<LoggingConfig>(knownLoggers.values());
     }
 
     public void deleteLog(String loggerName) throws RemoteException {
@@ -182,9 +226,7 @@ public class RemoteLoggerManager implements RemoteLogger {
             eventHandler = new SenderEventHandler(eventDescriptor);
             EventRegistration evReg = eventHandler.register(provider.getProxy(), listener, handback, duration);
             log.debug("Got evRegID: " + evReg.getID() + " filters: " + filterMap);
-            remoteLogHandlers.put(evReg.getID(), eventHandler);
-            for (Map<String, String>  fMap : filterMap)
-                remoteLogListeners.put(fMap, eventHandler);
+            remoteLogListeners.add(evReg.getID(), new LogListener(eventHandler, provider, listenerExecutor, listenerQueueSize), filterMap);
             return evReg;
         } catch (Exception e1) {
             log.error("Problem registering to Log listener: " + e1.getMessage());
@@ -195,23 +237,21 @@ public class RemoteLoggerManager implements RemoteLogger {
     //@Override
     public void unregisterLogListener(EventRegistration evReg) throws RemoteException {
         log.debug("Unregistering listener for remote logs: " + evReg.getID());
+        if (remoteLogListeners.remove(evReg.getID()) == null)
+            log.error("Problem unregistering, listener for: " + evReg.getID() + " doesn't exist");
+    }
+
+    /**
+     * Write out the queued events and stop the publishing threads.
+     */
+    public void destroy() throws RemoteException {
         try {
-            EventHandler evHandler = remoteLogHandlers.get(evReg.getID());
-            if (evHandler!=null) {
-                List<Map<String,String>> toRemove = new ArrayList<Map<String, String>>();
-                for (Map.Entry<Map<String, String>, EventHandler> entry : remoteLogListeners.entrySet()) {
-                    if (entry.getValue().equals(evHandler)) {
-                        toRemove.add(entry.getKey());
-                    }
-                }
-                for (Map<String, String> key : toRemove)
-                    remoteLogListeners.remove(key);
-                remoteLogHandlers.remove(evReg.getID());
-            } else {
-                log.error("Problem unregistering, listener for: " + evReg.getID() + " doesn't exist");
-            }
-        } catch (Exception e1) {
-            log.error("Problem unregistering Log listener: " + e1.getMessage());
+            if (publisher != null)
+                publisher.stop(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        if (listenerExecutor != null)
+            listenerExecutor.shutdownNow();
     }
 }
@@ -25,6 +25,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.ExecutionException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,9 +45,13 @@ import javax.swing.JSplitPane;
 import javax.swing.JTextArea;
 import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
 
 import net.jini.core.lookup.ServiceItem;
 import sorcer.core.provider.logger.LogFilter;
+import sorcer.core.provider.logger.LogPage;
 import sorcer.core.RemoteLogger;
 
 /**
@@ -73,6 +79,18 @@ public class LoggerUI extends JPanel implements Observer {
 	private List<String> lines = new ArrayList<String>();
 	private List<String> filteredResults = new ArrayList<String>();
 
+	// lines shown when a log is selected, and read per refresh when following it
+	private static final int TAIL_LINES = 5000;
+	// lines kept in the viewer, older ones are dropped
+	private static final int MAX_LINES = 20000;
+	private static final int FOLLOW_INTERVAL = 2000;
+	private long logOffset;
+	private Timer followTimer = new Timer(FOLLOW_INTERVAL, new FollowLogAction());
+	// the read in progress and the number of the selected log, a read of a
+	// previously selected log is dropped; used on the event dispatch thread
+	private LogFetch fetch;
+	private int selection;
+
 	public LoggerUI(Object obj) {
 		this.getAccessibleContext().setAccessibleName("Log Viewer");
 
@@ -226,6 +244,99 @@ public class LoggerUI extends JPanel implements Observer {
 		filteredResults.clear();
 	}
 
+	private void appendLines(LogPage page) {
+		StringBuilder sb = new StringBuilder();
+		for (String line : page.getLines()) {
+			sb.append(line).append("\n");
+		}
+		lines.addAll(page.getLines());
+		if (lines.size() > MAX_LINES)
+			lines.subList(0, lines.size() - MAX_LINES).clear();
+		logOffset = page.getNextOffset();
+		// while search results are shown new lines only go to the next search
+		if (filteredResults.isEmpty()) {
+			logText.append(sb.toString());
+			trimLogText();
+		}
+	}
+
+	private void trimLogText() {
+		// the text ends with a line separator, its last line is empty
+		int excess = logText.getLineCount() - 1 - MAX_LINES;
+		if (excess <= 0)
+			return;
+		try {
+			logText.replaceRange("", 0, logText.getLineEndOffset(excess - 1));
+		} catch (BadLocationException e) {
+			logger.warn("Error trimming log text: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Start reading the selected log from the offset, or its tail if the
+	 * offset is negative, unless a read is already in progress
+	 */
+	private void fetchLog(long offset) {
+		if (fetch != null || fileName == null)
+			return;
+		fetch = new LogFetch(fileName, offset, selection);
+		fetch.execute();
+	}
+
+	/**
+	 * Reads the log away from the event dispatch thread and appends the
+	 * lines on it
+	 */
+	private class LogFetch extends SwingWorker<LogPage, Void> {
+		private final String name;
+		private final long offset;
+		private final int selection;
+
+		LogFetch(String name, long offset, int selection) {
+			this.name = name;
+			this.offset = offset;
+			this.selection = selection;
+		}
+
+		@Override
+		protected LogPage doInBackground() throws RemoteException {
+			return remoteLogger.tailLog(name, offset, TAIL_LINES);
+		}
+
+		@Override
+		protected void done() {
+			if (fetch == this)
+				fetch = null;
+			if (selection != LoggerUI.this.selection)
+				return;
+			try {
+				LogPage page = get();
+				if (page.getOffset() < offset) {
+					// the file was truncated or replaced
+					lines.clear();
+					logText.setText("");
+				}
+				appendLines(page);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				logger.warn("Error reading log {}: {}", name, e.getCause().toString());
+				followTimer.stop();
+			}
+		}
+	}
+
+	/**
+	 * Appends the lines written to the selected log since the last read
+	 */
+	private class FollowLogAction extends AbstractAction {
+		private static final long serialVersionUID = 1L;
+
+		public void actionPerformed(ActionEvent ae) {
+			fetchLog(logOffset);
+		}
+	}
+
 	/**
 	 * Refreshes the list of loggers
 	 */
@@ -271,6 +382,7 @@ public class LoggerUI extends JPanel implements Observer {
 		private static final long serialVersionUID = 1L;
 
 		public void actionPerformed(ActionEvent ae) {
+			followTimer.stop();
 			logText.setText("");
 			if (filterComponent != null) {
 				filterComponent.resetLevel();
@@ -318,16 +430,14 @@ public class LoggerUI extends JPanel implements Observer {
 				filterComponent.resetLevel();
 			fileName = (String) newValue;
 			logText.setText("");
-			try {
-				lines = remoteLogger.getLog(fileName);
-				StringBuffer sb = new StringBuffer();
-				for (String line : lines) {
-					sb.append(line).append("\n");
-				}
-				logText.setText(sb.toString());
-			} catch (RemoteException e) {
-				e.printStackTrace();
-			}
+			lines = new ArrayList<String>();
+			followTimer.stop();
+			selection++;
+			fetch = null;
+			if (newIndex == -1)
+				return;
+			fetchLog(-1);
+			followTimer.start();
 		}
 	}
 }
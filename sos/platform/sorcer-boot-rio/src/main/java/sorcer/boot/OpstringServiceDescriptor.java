@@ -96,6 +96,11 @@ public class OpstringServiceDescriptor extends ResolvingServiceDescriptor {
         return result;
     }
 
+    @Override
+    public String getName() {
+        return serviceElement.getName();
+    }
+
     @Override
     public String toString() {
         return "OpstringServiceDescriptor " + name;
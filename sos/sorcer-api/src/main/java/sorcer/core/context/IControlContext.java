@@ -40,4 +40,18 @@ public interface IControlContext extends Context<Object>, Strategy {
     void addException(Throwable t);
 
     void addException(String message, Throwable t);
+
+    /**
+     * Id of the trace this exertion's spans belong to, null if it's not traced
+     */
+    String getTraceId();
+
+    void setTraceId(String traceId);
+
+    /**
+     * Id of the span the next span started for this exertion is a child of
+     */
+    String getSpanId();
+
+    void setSpanId(String spanId);
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.monitor;
+
+import sorcer.service.ExertionInfo;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A page of the monitored exertion infos returned for an
+ * {@link ExertionInfoQuery}.
+ */
+public class ExertionInfoPage implements Serializable {
+
+	static final long serialVersionUID = -1650723316093582457L;
+
+	private final List<ExertionInfo> infos;
+
+	private final String continuation;
+
+	public ExertionInfoPage(List<ExertionInfo> infos, String continuation) {
+		this.infos = infos;
+		this.continuation = continuation;
+	}
+
+	public List<ExertionInfo> getInfos() {
+		return infos;
+	}
+
+	/**
+	 * @return token to set in the query to get the next page, or null if
+	 *         this is the last page
+	 */
+	public String getContinuation() {
+		return continuation;
+	}
+
+	public boolean hasMore() {
+		return continuation != null;
+	}
+}
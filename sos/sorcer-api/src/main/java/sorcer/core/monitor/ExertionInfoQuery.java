@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.monitor;
+
+import sorcer.service.Exec;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Filter and paging parameters of a monitored exertion info query. All
+ * filters are optional; the results are ordered by exertion creation date.
+ *
+ * @see MonitorUIManagement#getMonitorableExertionInfo(ExertionInfoQuery, java.security.Principal)
+ */
+public class ExertionInfoQuery implements Serializable {
+
+	static final long serialVersionUID = 4829410283157730932L;
+
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	private Exec.State state;
+
+	// creation date window, from inclusive, to exclusive
+	private Date from;
+
+	private Date to;
+
+	private int pageSize = DEFAULT_PAGE_SIZE;
+
+	private String continuation;
+
+	public ExertionInfoQuery() {
+	}
+
+	public ExertionInfoQuery(Exec.State state) {
+		this.state = state;
+	}
+
+	public Exec.State getState() {
+		return state;
+	}
+
+	public ExertionInfoQuery setState(Exec.State state) {
+		this.state = state;
+		return this;
+	}
+
+	public Date getFrom() {
+		return from;
+	}
+
+	public Date getTo() {
+		return to;
+	}
+
+	public ExertionInfoQuery setWindow(Date from, Date to) {
+		this.from = from;
+		this.to = to;
+		return this;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public ExertionInfoQuery setPageSize(int pageSize) {
+		if (pageSize < 1)
+			throw new IllegalArgumentException("Page size must be positive");
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	/**
+	 * @return the token of the page to return, null for the first page
+	 */
+	public String getContinuation() {
+		return continuation;
+	}
+
+	public ExertionInfoQuery setContinuation(String continuation) {
+		this.continuation = continuation;
+		return this;
+	}
+
+	public boolean matches(int status, Date creationDate) {
+		if (state != null && state != Exec.State.NULL && status != state.ordinal())
+			return false;
+		if (from != null && (creationDate == null || creationDate.before(from)))
+			return false;
+		if (to != null && (creationDate == null || !creationDate.before(to)))
+			return false;
+		return true;
+	}
+
+	public String toString() {
+		return "ExertionInfoQuery[state=" + state + ", from=" + from + ", to=" + to
+				+ ", pageSize=" + pageSize + ", continuation=" + continuation + "]";
+	}
+}
@@ -20,6 +20,7 @@ package sorcer.core.monitor;
 
 import java.io.IOException;
 import java.rmi.RemoteException;
+import java.util.Map;
 
 import net.jini.core.event.RemoteEventListener;
 import sorcer.core.provider.MonitorManagementSession;
@@ -47,4 +48,11 @@ public interface MonitorManagement extends Monitorable {
 
 	public boolean persist(MonitorManagementSession session) throws IOException;
 
+	/**
+	 * @return counters of the session expirer: retention, sessions expired,
+	 *         expiry runs, log files cleaned, bytes reclaimed and the current
+	 *         log size; empty if sessions are kept forever
+	 */
+	public Map<String, Long> getRetentionStatistics() throws RemoteException;
+
 }
@@ -60,6 +60,19 @@ public interface MonitorUIManagement {
 			Exec.State aspect, Principal principal)
 			throws RemoteException, MonitorException;
 
+	/**
+	 * Get a page of the infos of exertions monitored for the principal that
+	 * match the query. The infos are built from summary records and do not
+	 * carry the exertions, use {@link #getMonitorableExertion(Uuid, Principal)}
+	 * with {@link ExertionInfo#getStoreId()} to get one.
+	 * 
+	 * @throws RemoteException
+	 *             if there is a communication error
+	 * 
+	 */
+	public ExertionInfoPage getMonitorableExertionInfo(ExertionInfoQuery query,
+			Principal principal) throws RemoteException, MonitorException;
+
 	/**
 	 * For this reference ID, which references a exertion in a monitor, get the
 	 * exertion if the principal has enough credentials.
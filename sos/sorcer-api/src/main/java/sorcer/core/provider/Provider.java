@@ -74,6 +74,13 @@ public interface Provider extends Service, Monitorable, Administrable, Remote {
 	public String getDescription() throws RemoteException;
 
     public boolean isBusy() throws RemoteException;
+
+	/**
+	 * Call counts, latency percentiles and failures by interface and selector,
+	 * and the queues of the space worker pools, as a text table.
+	 */
+	public String getMetrics() throws RemoteException;
+
 	/**
 	 * Destroy the service, if possible, including its persistent storage.
 	 * 
@@ -71,6 +71,16 @@ public class ExertionInfo implements Comparable, Serializable {
 		this.storeId = storeId;
 	}
 
+	public ExertionInfo(Uuid id, String name, int status, Date creationDate,
+			String lastUpdateDate, Uuid storeId) {
+		this.id = id;
+		this.name = name;
+		this.status = status;
+		this.creationDate = creationDate;
+		this.lastUpdateDate = lastUpdateDate;
+		this.storeId = storeId;
+	}
+
     public Date getCreationDate() {
         return creationDate;
     }
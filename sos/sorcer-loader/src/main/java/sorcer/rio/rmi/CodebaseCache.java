@@ -0,0 +1,252 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.rio.rmi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Local disk cache of codebase jars served over HTTP. A jar is downloaded
+ * once; afterwards every JVM revalidates its copy with a conditional GET
+ * (If-None-Match and If-Modified-Since) the first time it needs it, and only
+ * downloads it again if the server answers with a new version. If the server
+ * can't be reached, the cached copy is used.
+ * <p>
+ * The cache directory is set with the sorcer.codebase.cache.dir system
+ * property (default ~/.sorcer/codebase), the cache is disabled with
+ * -Dsorcer.codebase.cache=false.
+ */
+public class CodebaseCache {
+    private static final Logger logger = LoggerFactory.getLogger(CodebaseCache.class);
+
+    public static final String CACHE_ENABLED = "sorcer.codebase.cache";
+    public static final String CACHE_DIR = "sorcer.codebase.cache.dir";
+
+    private static final CodebaseCache instance = new CodebaseCache(
+            Boolean.parseBoolean(System.getProperty(CACHE_ENABLED, "true")),
+            new File(System.getProperty(CACHE_DIR,
+                    System.getProperty("user.home") + File.separator + ".sorcer" + File.separator + "codebase")));
+
+    private final boolean enabled;
+    private final File dir;
+
+    // remote URL -> local URL of the copy validated by this JVM
+    private final ConcurrentMap<String, String> validated = new ConcurrentHashMap<String, String>();
+    // local URL -> remote URL
+    private final ConcurrentMap<String, String> remotes = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+    CodebaseCache(boolean enabled, File dir) {
+        this.enabled = enabled;
+        this.dir = dir;
+    }
+
+    public static CodebaseCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Return the URL of the up to date local copy of a codebase jar
+     *
+     * @return URL of the cached copy, or the URL itself if it is not an HTTP
+     * jar URL or can neither be downloaded nor found in the cache
+     */
+    public String localize(String url) {
+        if (!enabled || url == null || !url.startsWith("http://") || !url.endsWith(".jar"))
+            return url;
+        String local = validated.get(url);
+        if (local != null)
+            return local;
+        Object lock = locks.get(url);
+        if (lock == null) {
+            Object existing = locks.putIfAbsent(url, lock = new Object());
+            if (existing != null)
+                lock = existing;
+        }
+        synchronized (lock) {
+            local = validated.get(url);
+            if (local != null)
+                return local;
+            try {
+                File file = revalidate(new URL(url));
+                if (file == null)
+                    return url;
+                local = file.toURI().toURL().toExternalForm();
+                remotes.put(local, url);
+                validated.put(url, local);
+                return local;
+            } catch (MalformedURLException e) {
+                logger.warn("Malformed codebase URL {}", url);
+                return url;
+            }
+        }
+    }
+
+    /**
+     * Map a codebase annotation with cached copies back to the remote URLs
+     */
+    public String toRemote(String annotation) {
+        if (annotation == null || remotes.isEmpty())
+            return annotation;
+        StringBuilder result = new StringBuilder(annotation.length());
+        for (String url : annotation.split(SorcerResolvingLoader.CODEBASE_SEPARATOR)) {
+            if (result.length() > 0)
+                result.append(SorcerResolvingLoader.CODEBASE_SEPARATOR);
+            String remote = remotes.get(url);
+            result.append(remote != null ? remote : url);
+        }
+        return result.toString();
+    }
+
+    private File revalidate(URL url) {
+        String key = hash(url.toExternalForm());
+        File file = new File(dir, key + ".jar");
+        File metaFile = new File(dir, key + ".properties");
+        Properties meta = new Properties();
+        if (file.exists() && metaFile.exists())
+            load(meta, metaFile);
+
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setUseCaches(false);
+            String etag = meta.getProperty("ETag");
+            if (etag != null)
+                conn.setRequestProperty("If-None-Match", etag);
+            String lastModified = meta.getProperty("Last-Modified");
+            if (lastModified != null)
+                conn.setRequestProperty("If-Modified-Since", lastModified);
+            int status = conn.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && file.exists()) {
+                drain(conn);
+                logger.debug("Codebase {} not modified", url);
+                return file;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                drain(conn);
+                logger.warn("Got {} for codebase {}", status, url);
+                return file.exists() ? file : null;
+            }
+            download(conn, file);
+            meta.clear();
+            if (conn.getHeaderField("ETag") != null)
+                meta.setProperty("ETag", conn.getHeaderField("ETag"));
+            if (conn.getHeaderField("Last-Modified") != null)
+                meta.setProperty("Last-Modified", conn.getHeaderField("Last-Modified"));
+            meta.setProperty("url", url.toExternalForm());
+            store(meta, metaFile);
+            logger.debug("Downloaded codebase {} to {}", url, file);
+            return file;
+        } catch (IOException e) {
+            logger.warn("Could not revalidate codebase {}: {}", url, e.getMessage());
+            return file.exists() ? file : null;
+        }
+    }
+
+    /*
+     * Download to a temporary file and move it in place, so neither this nor
+     * another JVM ever sees a partial jar
+     */
+    private void download(HttpURLConnection conn, File file) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory())
+            throw new IOException("Could not create codebase cache " + dir);
+        File tmp = File.createTempFile(file.getName(), ".part", dir);
+        try {
+            InputStream in = conn.getInputStream();
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) > 0)
+                    out.write(buffer, 0, n);
+            } finally {
+                out.close();
+                in.close();
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file))
+                    throw new IOException("Could not move " + tmp + " to " + file);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static void drain(HttpURLConnection conn) throws IOException {
+        InputStream in = conn.getResponseCode() >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (in == null)
+            return;
+        byte[] buffer = new byte[4096];
+        while (in.read(buffer) > 0) ;
+        in.close();
+    }
+
+    private static void load(Properties meta, File file) {
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                meta.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Could not read {}", file, e);
+        }
+    }
+
+    private static void store(Properties meta, File file) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".part", file.getParentFile());
+        try {
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                meta.store(out, null);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                tmp.renameTo(file);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static String hash(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -80,6 +80,11 @@ public class SorcerResolvingLoader extends RMIClassLoaderSpi {
 
     private static final RMIClassLoaderSpi loader = RMIClassLoader.getDefaultProviderInstance();
 
+    /**
+     * Local copies of HTTP codebase jars, annotated with their remote URLs
+     */
+    private static final CodebaseCache codebaseCache = CodebaseCache.getInstance();
+
     @Override
     public Class<?> loadClass(final String codebase,
                               final String name,
@@ -131,7 +136,7 @@ public class SorcerResolvingLoader extends RMIClassLoaderSpi {
     public String getClassAnnotation(final Class<?> aClass) {
         String annotation = classAnnotationMap.get(aClass.getName());
         if (annotation == null)
-            annotation = loader.getClassAnnotation(aClass);
+            annotation = codebaseCache.toRemote(loader.getClassAnnotation(aClass));
         return annotation;
     }
 
@@ -166,7 +171,7 @@ public class SorcerResolvingLoader extends RMIClassLoaderSpi {
                     logger.info("This should never occur codebase should not be published as mvn:// url: " + artf);
                     jarsSet.add(artf);
                 } else
-                    jarsSet.add(artf);
+                    jarsSet.add(codebaseCache.localize(artf));
 
             }
             return StringUtils.join(jarsSet, CODEBASE_SEPARATOR);
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.file;
+
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.core.SorcerEnv;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per host store of files keyed by their SHA-1 checksum, shared by all the
+ * tasks and JVMs of the host that use the same scratch directory. Stored files
+ * are read only and handed out as they are, so a file is downloaded once per
+ * host, not once per task. A task fetching a file holds the {@link #lock(String)}
+ * of its checksum, so concurrent tasks wait for it instead of fetching the
+ * file again.
+ * <p>
+ * When the store grows over its maximum size the least recently used files
+ * are removed, except those used in the last minIdle milliseconds, which may
+ * still be open by a task.
+ */
+public class ContentStore {
+    final private static Logger log = LoggerFactory.getLogger(ContentStore.class);
+
+    final public static String P_STORE_SIZE = "sorcer.file.store.size";
+    final public static String P_STORE_MIN_IDLE = "sorcer.file.store.minIdle";
+
+    final public static long STORE_SIZE_DEFAULT = 10L * 1024 * 1024 * 1024;
+    final public static long STORE_MIN_IDLE_DEFAULT = TimeUnit.HOURS.toMillis(1);
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static ContentStore instance;
+
+    private final File root;
+    private final long maxSize;
+    private final long minIdle;
+
+    public ContentStore(File root, long maxSize, long minIdle) {
+        this.root = root;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+    }
+
+    /**
+     * @return the store of this host, in the remote-file/store directory under the scratch root
+     */
+    public static synchronized ContentStore getInstance() {
+        if (instance == null)
+            instance = new ContentStore(new ScratchDirManager().getServiceDir("remote-file/store"),
+                    getLong(P_STORE_SIZE, STORE_SIZE_DEFAULT), getLong(P_STORE_MIN_IDLE, STORE_MIN_IDLE_DEFAULT));
+        return instance;
+    }
+
+    /**
+     * @return the stored file with the checksum or null if there is none
+     */
+    public File get(String checksum) {
+        File file = getPath(checksum);
+        if (!file.isFile())
+            return null;
+        // the modification time is the time of last use
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Lock the checksum, across the tasks and JVMs of the host. A task that
+     * doesn't find a file should take the lock, look for the file again, and
+     * fetch and {@link #put(String, java.io.File)} it only if it's still missing.
+     */
+    public FileMutex lock(String checksum) throws IOException {
+        File file = getPath(checksum);
+        return FileMutex.lock(new File(file.getParentFile(), file.getName() + LOCK_SUFFIX));
+    }
+
+    /**
+     * Move a file with a verified checksum to the store
+     *
+     * @return the stored, read only file
+     */
+    public File put(String checksum, File source) throws IOException {
+        File file = getPath(checksum);
+        if (file.isFile()) {
+            // stored meanwhile by another task
+            if (!source.delete())
+                log.debug("Could not delete {}", source);
+            return get(checksum);
+        }
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory())
+            throw new IOException("Could not create " + dir);
+        // move under a temporary name in the store first, so other tasks never see a partial file
+        File tmp = File.createTempFile(checksum, ".tmp", dir);
+        try {
+            if (!source.renameTo(tmp)) {
+                Files.copy(source, tmp);
+                if (!source.delete())
+                    log.debug("Could not delete {}", source);
+            }
+            tmp.setReadOnly();
+            if (!tmp.renameTo(file) && !file.isFile())
+                throw new IOException("Could not move " + tmp + " to " + file);
+        } finally {
+            tmp.delete();
+        }
+        file.setLastModified(System.currentTimeMillis());
+        evict(file);
+        return file;
+    }
+
+    /**
+     * @return size of all the stored files
+     */
+    public long getSize() {
+        long size = 0;
+        for (File file : listFiles())
+            size += file.length();
+        return size;
+    }
+
+    protected File getPath(String checksum) {
+        return new File(new File(root, checksum.substring(0, 2)), checksum);
+    }
+
+    /*
+     * Remove the least recently used files until the store fits its maximum size
+     */
+    protected synchronized void evict(File keep) {
+        List<File> files = listFiles();
+        long size = 0;
+        for (File file : files)
+            size += file.length();
+        if (size <= maxSize)
+            return;
+        final long[] used = new long[files.size()];
+        for (int i = 0; i < used.length; i++)
+            used[i] = files.get(i).lastModified();
+        Integer[] order = new Integer[used.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return used[a] < used[b] ? -1 : used[a] == used[b] ? 0 : 1;
+            }
+        });
+        long idleSince = System.currentTimeMillis() - minIdle;
+        for (int i = 0; i < order.length && size > maxSize; i++) {
+            File file = files.get(order[i]);
+            if (used[order[i]] > idleSince)
+                break;
+            if (file.equals(keep))
+                continue;
+            long length = file.length();
+            if (file.delete()) {
+                log.info("Removed {} from the content store", file.getName());
+                size -= length;
+            }
+        }
+        if (size > maxSize)
+            log.warn("Content store {} holds {} bytes, over its limit of {}, all in recent use", root, size, maxSize);
+    }
+
+    private List<File> listFiles() {
+        File[] dirs = root.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory() && file.getName().length() == 2;
+            }
+        });
+        if (dirs == null)
+            return Collections.emptyList();
+        List<File> result = new ArrayList<File>();
+        for (File dir : dirs) {
+            File[] files = dir.listFiles(new FileFilter() {
+                @Override
+                public boolean accept(File file) {
+                    return file.isFile() && !file.getName().endsWith(".tmp") && !file.getName().endsWith(LOCK_SUFFIX);
+                }
+            });
+            if (files != null)
+                result.addAll(Arrays.asList(files));
+        }
+        return result;
+    }
+
+    private static long getLong(String key, long defaultValue) {
+        String value = SorcerEnv.getProperty(key);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exclusive lock on a lock file, held by one thread of the host at a time.
+ * A {@link FileLock} keeps out other JVMs, but it is held on behalf of the
+ * whole JVM, so threads of this JVM first wait for each other on a holder
+ * kept per path. The lock is not reentrant, a thread asking again for a lock
+ * it holds gets an exception. The mutex may be closed by any thread.
+ * <p/>
+ * The lock file is created if needed and never deleted, deleting it would
+ * let another process lock a new file of the same name.
+ */
+public class FileMutex implements Closeable {
+    private static final Map<String, Holder> holders = new HashMap<String, Holder>();
+
+    private final String path;
+    private final Holder holder;
+    private final RandomAccessFile file;
+    private final FileLock fileLock;
+    private boolean closed;
+
+    private FileMutex(String path, Holder holder, RandomAccessFile file, FileLock fileLock) {
+        this.path = path;
+        this.holder = holder;
+        this.file = file;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Wait for the lock on the file
+     */
+    public static FileMutex lock(File lockFile) throws IOException {
+        String path = lockFile.getCanonicalPath();
+        Holder holder;
+        synchronized (holders) {
+            holder = holders.get(path);
+            if (holder == null) {
+                holder = new Holder();
+                holders.put(path, holder);
+            } else if (holder.owner == Thread.currentThread()) {
+                throw new IOException("Lock on " + path + " already held by this thread");
+            }
+            holder.users++;
+        }
+        boolean acquired = false;
+        boolean locked = false;
+        try {
+            holder.acquire();
+            acquired = true;
+            File dir = lockFile.getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory())
+                throw new IOException("Could not create " + dir);
+            RandomAccessFile file = new RandomAccessFile(lockFile, "rw");
+            try {
+                FileMutex result = new FileMutex(path, holder, file, file.getChannel().lock());
+                locked = true;
+                return result;
+            } finally {
+                if (!locked)
+                    file.close();
+            }
+        } finally {
+            if (!locked)
+                release(path, holder, acquired);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            fileLock.release();
+        } finally {
+            try {
+                file.close();
+            } finally {
+                release(path, holder, true);
+            }
+        }
+    }
+
+    private static void release(String path, Holder holder, boolean acquired) {
+        if (acquired)
+            holder.release();
+        synchronized (holders) {
+            if (--holder.users == 0)
+                holders.remove(path);
+        }
+    }
+
+    private static class Holder {
+        // thread that acquired the lock, null when it is free
+        volatile Thread owner;
+        // threads holding or waiting for the lock, guarded by holders
+        int users;
+
+        synchronized void acquire() {
+            boolean interrupted = false;
+            while (owner != null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            owner = Thread.currentThread();
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        synchronized void release() {
+            owner = null;
+            notifyAll();
+        }
+    }
+}
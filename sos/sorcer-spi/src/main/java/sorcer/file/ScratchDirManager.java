@@ -41,6 +41,8 @@ public class ScratchDirManager {
     final protected static String FORMAT = "%1$td-%1$tH%1$tM%1$tS-%2$s";
     final protected static Pattern FORMAT_RE = Pattern.compile("^\\d{2}-\\d{6}-[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
 
+    final protected static Pattern PART_RE = Pattern.compile("^.+\\.(part\\d+|etag)$");
+
     final private static long CLEANUP_INTERVAL = TimeUnit.DAYS.toMillis(1);
 
     final public static ScratchDirManager SCRATCH_DIR_FACTORY = new ScratchDirManager();
@@ -68,6 +70,16 @@ public class ScratchDirManager {
         return getNewScratchDir0(servicePrefix);
     }
 
+    /**
+     * Directory of the service under the scratch root, for files that must
+     * outlive a single scratch directory. Only the scratch directories are
+     * removed by the cleanup, and the *.part files of unfinished downloads.
+     */
+    public File getServiceDir(String servicePrefix) {
+        cleanup();
+        return servicePrefix == null || servicePrefix.isEmpty() ? root : new File(root, servicePrefix);
+    }
+
     protected File getNewScratchDir0(String servicePrefix) {
         File serviceRoot = servicePrefix == null || servicePrefix.isEmpty() ? root : new File(root, servicePrefix);
         String name = String.format(FORMAT, new Date(), UUID.randomUUID());
@@ -116,6 +128,9 @@ public class ScratchDirManager {
                     } catch (IOException e) {
                         log.warn("Could not remove directory {}", file, e);
                     }
+                else if (file.isFile() && PART_RE.matcher(file.getName()).matches()
+                        && file.lastModified() < cutOffTime && !file.delete())
+                    log.warn("Could not remove partial download {}", file);
             }
         }
     }
@@ -20,6 +20,8 @@ package sorcer.file.remote;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
+import sorcer.file.ContentStore;
+import sorcer.file.FileMutex;
 import sorcer.service.EvaluationException;
 
 import java.io.File;
@@ -44,16 +46,45 @@ abstract public class AbstractRemoteFile implements RemoteFile {
         return Files.hash(localFile, hf).toString();
     }
 
+    /**
+     * @return the store the file is kept in once fetched, null if it's not copied to this host
+     */
+    protected ContentStore getContentStore() {
+        return null;
+    }
+
     @Override
     public File getValue() throws EvaluationException {
         try {
-            File result = doGetFile();
-            String myChecksum = checksum(result);
-            if (!checksum.equals(myChecksum))
-                throw new IllegalStateException("File exists but has invalid checksum");
-            return result;
+            ContentStore store = getContentStore();
+            if (store == null)
+                return fetch(null);
+            File stored = store.get(checksum);
+            if (stored != null)
+                return stored;
+            FileMutex lock = store.lock(checksum);
+            try {
+                // fetched by another task while this one waited for the lock
+                stored = store.get(checksum);
+                if (stored != null)
+                    return stored;
+                return store.put(checksum, fetch(store));
+            } finally {
+                lock.close();
+            }
         } catch (IOException e) {
             throw new EvaluationException("Error getting file", e);
         }
     }
+
+    private File fetch(ContentStore store) throws IOException {
+        File result = doGetFile();
+        String myChecksum = checksum(result);
+        if (!checksum.equals(myChecksum)) {
+            if (store != null)
+                result.delete();
+            throw new IllegalStateException("File exists but has invalid checksum");
+        }
+        return result;
+    }
 }
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.file.remote;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closer;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.file.FileMutex;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Resumable HTTP download of a file. The file is downloaded in byte ranges to
+ * part files that survive a failed download, so the next attempt, in this or
+ * a later call, continues where the previous one stopped. Files of at least
+ * {@link #PARALLEL_THRESHOLD} bytes are fetched in several ranges at once.
+ * The parts are kept only while the server reports the same entity tag, and
+ * every range request is conditional on it (If-Range).
+ * <p>
+ * Servers that don't support ranges get a plain, non resumable download.
+ * <p>
+ * The part files are locked while they are used, so concurrent downloads of
+ * the same file on the host, with the same part prefix, take turns.
+ */
+class RangeDownload {
+    private static final Logger log = LoggerFactory.getLogger(RangeDownload.class);
+
+    public static final String P_PARALLEL_THRESHOLD = "sorcer.file.remote.parallel.threshold";
+    public static final String P_PARALLEL_PARTS = "sorcer.file.remote.parallel.parts";
+    public static final String P_RETRIES = "sorcer.file.remote.retries";
+
+    static final long PARALLEL_THRESHOLD = Long.getLong(P_PARALLEL_THRESHOLD, 64L * 1024 * 1024);
+    static final int PARALLEL_PARTS = Integer.getInteger(P_PARALLEL_PARTS, 4);
+    static final int RETRIES = Integer.getInteger(P_RETRIES, 3);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String LOCK_SUFFIX = ".lock";
+
+    // shared by all downloads and uploads, so parallel transfers don't multiply the connections
+    static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            PARALLEL_PARTS, PARALLEL_PARTS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("RangeDownload-%d").build());
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final URL url;
+    private final File partPrefix;
+
+    /**
+     * @param partPrefix path prefix of the part files, stable across attempts to download the same file
+     */
+    RangeDownload(URL url, File partPrefix) {
+        this.url = url;
+        this.partPrefix = partPrefix;
+    }
+
+    /**
+     * Download the file to the target, resuming the parts left by a previous attempt
+     */
+    public void downloadTo(File target) throws IOException {
+        FileMutex lock = FileMutex.lock(new File(partPrefix.getPath() + LOCK_SUFFIX));
+        try {
+            download(target);
+        } finally {
+            lock.close();
+        }
+    }
+
+    private void download(File target) throws IOException {
+        HttpURLConnection head = (HttpURLConnection) url.openConnection();
+        head.setRequestMethod("HEAD");
+        int status = head.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK)
+            throw new IOException("Got " + status + " for " + url);
+        long length = getContentLength(head);
+        String etag = head.getHeaderField("ETag");
+        boolean ranges = "bytes".equals(head.getHeaderField("Accept-Ranges"));
+
+        if (!ranges || etag == null || etag.startsWith("W/") || length < 0) {
+            log.debug("Plain download of {}", url);
+            deleteParts();
+            downloadPlain(target);
+            return;
+        }
+
+        File etagFile = new File(partPrefix.getPath() + ".etag");
+        if (!etagFile.exists() || !etag.equals(Files.toString(etagFile, Charsets.UTF_8))) {
+            deleteParts();
+            Files.write(etag, etagFile, Charsets.UTF_8);
+        }
+
+        int parts = length >= PARALLEL_THRESHOLD ? Math.max(1, PARALLEL_PARTS) : 1;
+        long partSize = (length + parts - 1) / parts;
+        List<Part> partList = new ArrayList<Part>(parts);
+        for (int i = 0; i < parts; i++) {
+            long first = i * partSize;
+            long end = Math.min(length, first + partSize);
+            if (first < end || i == 0)
+                partList.add(new Part(new File(partPrefix.getPath() + ".part" + i), first, end, etag));
+        }
+
+        if (partList.size() == 1) {
+            partList.get(0).call();
+        } else {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(partList.size());
+            for (Part part : partList)
+                futures.add(executor.submit(part));
+            try {
+                for (Future<Void> future : futures)
+                    future.get();
+            } catch (InterruptedException e) {
+                for (Future<Void> future : futures)
+                    future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download of " + url + " interrupted");
+            } catch (ExecutionException e) {
+                for (Future<Void> future : futures)
+                    future.cancel(true);
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                throw new IOException("Download of " + url + " failed", cause);
+            }
+        }
+        join(partList, target);
+        deleteParts();
+        log.debug("Downloaded {} bytes of {} in {} parts", length, url, partList.size());
+    }
+
+    /*
+     * HttpURLConnection.getContentLength() is an int, -1 for files of 2 GB or more
+     */
+    private static long getContentLength(HttpURLConnection conn) {
+        String value = conn.getHeaderField("Content-Length");
+        if (value == null)
+            return -1;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /*
+     * Append the other parts to the first one and move it to the target
+     */
+    private void join(List<Part> parts, File target) throws IOException {
+        File first = parts.get(0).file;
+        if (!first.exists())
+            Files.touch(first);
+        if (parts.size() > 1) {
+            Closer closer = Closer.create();
+            try {
+                FileChannel out = closer.register(new FileOutputStream(first, true)).getChannel();
+                for (Part part : parts.subList(1, parts.size())) {
+                    FileChannel in = closer.register(new FileInputStream(part.file)).getChannel();
+                    long size = in.size();
+                    for (long position = 0; position < size; )
+                        position += in.transferTo(position, size - position, out);
+                }
+            } catch (Throwable t) {
+                throw closer.rethrow(t);
+            } finally {
+                closer.close();
+            }
+        }
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory())
+            throw new IOException("Could not create " + parent);
+        if (!first.renameTo(target))
+            Files.move(first, target);
+    }
+
+    private void downloadPlain(File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory())
+            throw new IOException("Could not create " + parent);
+        IOException last = null;
+        for (int attempt = 0; attempt <= RETRIES; attempt++) {
+            Closer closer = Closer.create();
+            try {
+                InputStream in = closer.register(url.openStream());
+                OutputStream out = closer.register(new FileOutputStream(target));
+                ByteStreams.copy(in, out);
+                return;
+            } catch (IOException e) {
+                last = e;
+                log.debug("Download of {} failed, attempt {}", url, attempt, e);
+            } finally {
+                closer.close();
+            }
+        }
+        throw last;
+    }
+
+    private void deleteParts() {
+        File dir = partPrefix.getParentFile();
+        final String name = partPrefix.getName();
+        File[] files = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String fileName) {
+                return fileName.startsWith(name + ".") && !fileName.endsWith(LOCK_SUFFIX);
+            }
+        });
+        if (files != null)
+            for (File file : files)
+                if (!file.delete())
+                    log.debug("Could not delete {}", file);
+    }
+
+    /**
+     * Bytes [start, end) of the file, appended to the part file which already
+     * holds the bytes from start up to its length
+     */
+    private class Part implements Callable<Void> {
+        final File file;
+        final long start;
+        final long end;
+        final String etag;
+
+        Part(File file, long start, long end, String etag) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+            this.etag = etag;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            IOException last = null;
+            for (int attempt = 0; attempt <= RETRIES; attempt++) {
+                try {
+                    fetch();
+                    return null;
+                } catch (FileChangedException e) {
+                    throw e;
+                } catch (IOException e) {
+                    last = e;
+                    log.debug("Range {}-{} of {} failed at {}, attempt {}", start, end, url, file.length(), attempt, e);
+                }
+                if (Thread.currentThread().isInterrupted())
+                    break;
+            }
+            throw last;
+        }
+
+        private void fetch() throws IOException {
+            long done = file.length();
+            if (done > end - start) {
+                file.delete();
+                done = 0;
+            }
+            if (done == end - start)
+                return;
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestProperty("Range", "bytes=" + (start + done) + "-" + (end - 1));
+            conn.setRequestProperty("If-Range", etag);
+            int status = conn.getResponseCode();
+            if (status != HttpURLConnection.HTTP_PARTIAL) {
+                conn.disconnect();
+                if (status == HttpURLConnection.HTTP_OK) {
+                    // the If-Range did not match, the file was replaced
+                    deleteParts();
+                    throw new FileChangedException(url + " changed during the download");
+                }
+                throw new IOException("Got " + status + " for a range of " + url);
+            }
+            Closer closer = Closer.create();
+            try {
+                InputStream in = closer.register(conn.getInputStream());
+                OutputStream out = closer.register(new FileOutputStream(file, true));
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long remaining = end - start - done;
+                int read;
+                while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                    if (Thread.currentThread().isInterrupted())
+                        throw new InterruptedIOException();
+                }
+                if (remaining > 0)
+                    throw new EOFException("Range of " + url + " ended " + remaining + " bytes short");
+            } catch (Throwable t) {
+                throw closer.rethrow(t, IOException.class);
+            } finally {
+                closer.close();
+            }
+        }
+    }
+
+    private static class FileChangedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        FileChangedException(String message) {
+            super(message);
+        }
+    }
+}
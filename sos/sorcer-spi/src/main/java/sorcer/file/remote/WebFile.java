@@ -16,9 +16,8 @@
 
 package sorcer.file.remote;
 
-import com.google.common.io.Closer;
-import com.google.common.io.Resources;
 import sorcer.core.SorcerEnv;
+import sorcer.file.ContentStore;
 import sorcer.file.ScratchDirManager;
 import sorcer.util.IOUtils;
 
@@ -41,30 +40,44 @@ public class WebFile extends AbstractRemoteFile implements Serializable {
         setLocalFile(localFile);
     }
 
+    /**
+     * Download the file, resuming a download of the same file that failed
+     * before, in parallel ranges if the file is large
+     */
     @Override
     protected File doGetFile() throws IOException {
         File localFile = getLocalPath();
-        Closer closer = Closer.create();
-        try {
-            FileOutputStream local = closer.register(new FileOutputStream(localFile));
-            Resources.copy(remoteUrl, local);
-        } finally {
-            closer.close();
-        }
+        File partial = new File(new ScratchDirManager().getServiceDir("remote-file/partial"), checksum);
+        new RangeDownload(remoteUrl, partial).downloadTo(localFile);
         return localFile;
     }
 
+    /**
+     * Downloaded files are shared by all tasks of the host
+     */
+    @Override
+    protected ContentStore getContentStore() {
+        return ContentStore.getInstance();
+    }
+
     @Override
     protected File getLocalPath() {
         File parent = new ScratchDirManager().getNewScratchDir("remote-file");
         return new File(parent, checksum);
     }
 
+    /**
+     * Publish the file in the webster data directory: copy it there if the
+     * directory is on this host, upload it otherwise
+     */
     protected void setLocalFile(File localFile) throws IOException {
         if (!IOUtils.isChild(dataDir, localFile)) {
             File my = new File(dataDir, localFile.getName());
-            IOUtils.copyLarge(new FileInputStream(localFile), new FileOutputStream(my));
             remoteUrl = SorcerEnv.getDataURL(my);
+            if (dataDir.isDirectory())
+                IOUtils.copyLarge(new FileInputStream(localFile), new FileOutputStream(my));
+            else
+                new WebUpload(localFile, remoteUrl, checksum).upload();
         }
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.file.remote;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closer;
+import com.google.common.io.Files;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming HTTP upload of a file to webster. The file is sent through a
+ * bounded buffer, in the chunked transfer coding, with its SHA-1 in the
+ * X-Content-SHA1 header; webster checks the checksum before it moves the file
+ * in place. Files of at least {@link RangeDownload#PARALLEL_THRESHOLD} bytes
+ * are sent in several parts at once, each with a Content-Range header, and
+ * assembled by webster.
+ */
+public class WebUpload {
+    private static final Logger log = LoggerFactory.getLogger(WebUpload.class);
+
+    static final String CONTENT_SHA1 = "X-Content-SHA1";
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final File file;
+    private final URL url;
+    private final String sha1;
+
+    /**
+     * @param sha1 hex SHA-1 of the file, as computed by {@link AbstractRemoteFile}
+     */
+    public WebUpload(File file, URL url, String sha1) {
+        this.file = file;
+        this.url = url;
+        this.sha1 = sha1;
+    }
+
+    public WebUpload(File file, URL url) throws IOException {
+        this(file, url, Files.hash(file, Hashing.sha1()).toString());
+    }
+
+    public void upload() throws IOException {
+        long length = file.length();
+        int parts = length >= RangeDownload.PARALLEL_THRESHOLD ? Math.max(1, RangeDownload.PARALLEL_PARTS) : 1;
+        if (parts == 1) {
+            put(-1, length);
+            return;
+        }
+        long partSize = (length + parts - 1) / parts;
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(parts);
+        for (int i = 0; i < parts; i++) {
+            final long first = i * partSize;
+            final long end = Math.min(length, first + partSize);
+            if (first < end)
+                futures.add(RangeDownload.executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        put(first, end);
+                        return null;
+                    }
+                }));
+        }
+        try {
+            for (Future<Void> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            for (Future<Void> future : futures)
+                future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload of " + file + " interrupted");
+        } catch (ExecutionException e) {
+            for (Future<Void> future : futures)
+                future.cancel(true);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException("Upload of " + file + " failed", cause);
+        }
+        log.debug("Uploaded {} to {} in {} parts", file, url, futures.size());
+    }
+
+    /*
+     * Send the whole file if first is negative, the bytes [first, end) otherwise
+     */
+    private void put(long first, long end) throws IOException {
+        IOException last = null;
+        for (int attempt = 0; attempt <= RangeDownload.RETRIES; attempt++) {
+            try {
+                put0(first, end);
+                return;
+            } catch (BadStatusException e) {
+                // rejected, sending it again won't help
+                throw e;
+            } catch (IOException e) {
+                last = e;
+                log.debug("Upload of {} to {} failed, attempt {}", file, url, attempt, e);
+            }
+        }
+        throw last;
+    }
+
+    private void put0(long first, long end) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setDoOutput(true);
+        conn.setRequestMethod("PUT");
+        conn.setRequestProperty("Content-Type", "application/octet-stream");
+        conn.setRequestProperty(CONTENT_SHA1, sha1);
+        if (first < 0) {
+            conn.setChunkedStreamingMode(CHUNK_SIZE);
+        } else {
+            // the long overload is Java 7, larger parts are sent chunked
+            if (end - first <= Integer.MAX_VALUE)
+                conn.setFixedLengthStreamingMode((int) (end - first));
+            else
+                conn.setChunkedStreamingMode(CHUNK_SIZE);
+            conn.setRequestProperty("Content-Range", "bytes " + first + "-" + (end - 1) + "/" + file.length());
+        }
+        Closer closer = Closer.create();
+        try {
+            InputStream in = closer.register(new FileInputStream(file));
+            OutputStream out = closer.register(conn.getOutputStream());
+            if (first < 0) {
+                ByteStreams.copy(in, out);
+            } else {
+                ByteStreams.skipFully(in, first);
+                ByteStreams.copy(ByteStreams.limit(in, end - first), out);
+            }
+        } catch (Throwable t) {
+            throw closer.rethrow(t);
+        } finally {
+            closer.close();
+        }
+        int status = conn.getResponseCode();
+        InputStream response = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        if (response != null) {
+            ByteStreams.copy(response, ByteStreams.nullOutputStream());
+            response.close();
+        }
+        if (status >= 400 && status < 500)
+            throw new BadStatusException("Got " + status + " for the upload of " + file + " to " + url);
+        if (status >= 500)
+            throw new IOException("Got " + status + " for the upload of " + file + " to " + url);
+    }
+
+    private static class BadStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BadStatusException(String message) {
+            super(message);
+        }
+    }
+}
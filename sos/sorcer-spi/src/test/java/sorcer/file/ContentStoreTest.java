@@ -0,0 +1,66 @@
+package sorcer.file;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ContentStoreTest {
+    private File root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = new File(FileUtils.getTempDirectory(), "content-store-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(root);
+    }
+
+    @Test
+    public void testPutGet() throws Exception {
+        ContentStore store = new ContentStore(root, 1024, 0);
+        assertNull(store.get("0123456789abcdef"));
+
+        File stored = store.put("0123456789abcdef", newFile("data", 100));
+        assertTrue(stored.isFile());
+        assertEquals(stored, store.get("0123456789abcdef"));
+        assertEquals(100, store.getSize());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        ContentStore store = new ContentStore(root, 250, 0);
+        File a = store.put("aa00", newFile("a", 100));
+        File b = store.put("bb00", newFile("b", 100));
+        a.setLastModified(System.currentTimeMillis() - 20000);
+        b.setLastModified(System.currentTimeMillis() - 10000);
+        File c = store.put("cc00", newFile("c", 100));
+
+        assertFalse(a.exists());
+        assertTrue(b.exists());
+        assertTrue(c.exists());
+    }
+
+    @Test
+    public void testKeepRecentlyUsed() throws Exception {
+        ContentStore store = new ContentStore(root, 150, 60000);
+        File a = store.put("aa00", newFile("a", 100));
+        File b = store.put("bb00", newFile("b", 100));
+
+        assertTrue(a.exists());
+        assertTrue(b.exists());
+    }
+
+    private File newFile(String name, int size) throws Exception {
+        File file = new File(FileUtils.getTempDirectory(), name + System.nanoTime());
+        Files.write(new byte[size], file);
+        return file;
+    }
+}
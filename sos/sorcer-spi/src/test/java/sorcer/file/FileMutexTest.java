@@ -0,0 +1,138 @@
+package sorcer.file;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FileMutexTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(FileUtils.getTempDirectory(), "file-mutex-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test(timeout = 10000)
+    public void testExclusive() throws Exception {
+        final File lockFile = new File(dir, "a.lock");
+        final AtomicInteger holders = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 20; j++) {
+                            FileMutex lock = FileMutex.lock(lockFile);
+                            try {
+                                if (holders.incrementAndGet() > 1)
+                                    overlaps.incrementAndGet();
+                                Thread.sleep(1);
+                                holders.decrementAndGet();
+                            } finally {
+                                lock.close();
+                            }
+                        }
+                    } catch (Exception e) {
+                        overlaps.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(0, overlaps.get());
+        assertTrue(lockFile.isFile());
+    }
+
+    @Test
+    public void testIndependentFiles() throws Exception {
+        FileMutex a = FileMutex.lock(new File(dir, "a.lock"));
+        FileMutex b = FileMutex.lock(new File(dir, "b.lock"));
+        b.close();
+        a.close();
+        // closing twice is harmless, the lock can be taken again
+        a.close();
+        FileMutex.lock(new File(dir, "a.lock")).close();
+    }
+
+    @Test(timeout = 10000)
+    public void testReentryFailsWithoutReleasing() throws Exception {
+        final File lockFile = new File(dir, "a.lock");
+        FileMutex lock = FileMutex.lock(lockFile);
+        try {
+            FileMutex.lock(lockFile);
+            fail("Lock taken twice by one thread");
+        } catch (IOException expected) {
+        }
+        // the failed attempt must leave the lock held
+        final AtomicBoolean entered = new AtomicBoolean();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    FileMutex.lock(lockFile).close();
+                    entered.set(true);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        other.start();
+        other.join(200);
+        assertFalse(entered.get());
+        lock.close();
+        other.join();
+        assertTrue(entered.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseOnOtherThread() throws Exception {
+        final File lockFile = new File(dir, "a.lock");
+        final FileMutex lock = FileMutex.lock(lockFile);
+        final AtomicBoolean entered = new AtomicBoolean();
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    FileMutex.lock(lockFile).close();
+                    entered.set(true);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        waiter.start();
+        Thread closer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    lock.close();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        closer.start();
+        closer.join();
+        // the waiting thread gets the lock released by another thread
+        waiter.join();
+        assertTrue(entered.get());
+        FileMutex.lock(lockFile).close();
+    }
+}
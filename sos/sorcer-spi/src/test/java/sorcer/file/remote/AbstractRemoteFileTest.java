@@ -0,0 +1,97 @@
+package sorcer.file.remote;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sorcer.file.ContentStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AbstractRemoteFileTest {
+    private File dir;
+    private File source;
+    private ContentStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File(FileUtils.getTempDirectory(), "remote-file-" + System.nanoTime());
+        source = new File(dir, "source");
+        Files.createParentDirs(source);
+        Files.write(new byte[1000], source);
+        store = new ContentStore(new File(dir, "store"), 1024 * 1024, 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test(timeout = 10000)
+    public void testFetchedOncePerHost() throws Exception {
+        final AtomicInteger fetched = new AtomicInteger();
+        final File[] results = new File[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        results[n] = new CopiedFile(fetched, "copy" + n).getValue();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(1, fetched.get());
+        for (File result : results)
+            assertEquals(results[0], result);
+    }
+
+    /**
+     * Fetches the file by copying it, slowly
+     */
+    private class CopiedFile extends AbstractRemoteFile {
+        private final AtomicInteger fetched;
+        private final String name;
+
+        CopiedFile(AtomicInteger fetched, String name) throws IOException {
+            super(source);
+            this.fetched = fetched;
+            this.name = name;
+        }
+
+        @Override
+        protected File doGetFile() throws IOException {
+            fetched.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            File result = getLocalPath();
+            Files.copy(source, result);
+            return result;
+        }
+
+        @Override
+        protected File getLocalPath() {
+            return new File(dir, name);
+        }
+
+        @Override
+        protected ContentStore getContentStore() {
+            return store;
+        }
+    }
+}
@@ -2073,6 +2073,15 @@ public class operator {
 		return new LoopExertion(name, condition, target);
 	}
 
+	public static LoopExertion loop(int min, int max, Exertion target) {
+		return new LoopExertion(null, min, max, target);
+	}
+
+	public static LoopExertion loop(String name, int min, int max,
+			Exertion target) {
+		return new LoopExertion(name, min, max, target);
+	}
+
 	public static Exertion exertion(Mappable mappable, String path)
 			throws ContextException {
 		Object obj = mappable.asis(path);
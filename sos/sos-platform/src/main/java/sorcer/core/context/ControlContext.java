@@ -161,6 +161,11 @@ public class ControlContext extends ServiceContext<Object> implements Strategy,
 
 	private Object mutexId;
 
+	// span ids, see sorcer.core.trace.Tracer
+	private String traceId;
+
+	private String spanId;
+
 	// for getting execution time
 	private Stopwatch stopwatch;
 
@@ -710,6 +715,22 @@ public class ControlContext extends ServiceContext<Object> implements Strategy,
 		this.mutexId = mutexId;
 	}
 
+	public String getTraceId() {
+		return traceId;
+	}
+
+	public void setTraceId(String traceId) {
+		this.traceId = traceId;
+	}
+
+	public String getSpanId() {
+		return spanId;
+	}
+
+	public void setSpanId(String spanId) {
+		this.spanId = spanId;
+	}
+
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append(super.toString());
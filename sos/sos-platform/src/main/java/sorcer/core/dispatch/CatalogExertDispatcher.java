@@ -33,6 +33,8 @@ import sorcer.core.exertion.NetTask;
 import sorcer.core.provider.ServiceProvider;
 import sorcer.core.provider.exertmonitor.MonitorSession;
 import sorcer.core.signature.NetSignature;
+import sorcer.core.trace.Span;
+import sorcer.core.trace.Tracer;
 import sorcer.ext.Provisioner;
 import sorcer.ext.ProvisioningException;
 import sorcer.service.*;
@@ -55,6 +57,7 @@ abstract public class CatalogExertDispatcher extends ExertDispatcher {
         // set subject before task goes out.
         // ex.setSubject(subject);
         ServiceExertion result = null;
+        Span span = startSpan("dispatch", ex);
         try {
 			if (ex.isTask()) {
 				result = execTask((Task) ex);
@@ -74,6 +77,8 @@ abstract public class CatalogExertDispatcher extends ExertDispatcher {
 			result.setStatus(FAILED);
 			setState(Exec.FAILED);
 			return result;
+		} finally {
+			span.end(result);
 		}
 		// set subject after result is received
 		// result.setSubject(subject);
@@ -145,7 +150,13 @@ abstract public class CatalogExertDispatcher extends ExertDispatcher {
             NetSignature sig = (NetSignature) task.getProcessSignature();
             // Catalog lookup or use Lookup Service for the particular
             // service
-            Service service = (Service) Accessor.getService(sig);
+            Span lookup = Tracer.start("lookup", task).attribute("signature", sig);
+            Service service = null;
+            try {
+                service = (Service) Accessor.getService(sig);
+            } finally {
+                lookup.end(task, service == null);
+            }
             if (service == null && task.isProvisionable()) {
                 MonitoringSession monSession = MonitorUtil.getMonitoringSession(task);
                 if (task.isMonitorable() && monSession!=null) {
@@ -208,7 +219,15 @@ abstract public class CatalogExertDispatcher extends ExertDispatcher {
                          * (RemoteServiceTask)provider.service(task); }
                          */
                         logger.debug("getting result from provider...");
-                        result = (Task) service.service(task, null);
+                        Span call = Tracer.start("call", task).attribute("try", tried);
+                        try {
+                            result = (Task) service.service(task, null);
+                        } finally {
+                            if (result != null)
+                                call.end(result);
+                            else
+                                call.end(task, true);
+                        }
 
                     } catch (Exception re) {
                         if (tried >= maxTries) {
@@ -37,6 +37,8 @@ import sorcer.core.provider.Provider;
 import sorcer.core.context.Contexts;
 import sorcer.core.context.ServiceContext;
 import sorcer.core.exertion.Jobs;
+import sorcer.core.trace.Span;
+import sorcer.core.trace.Tracer;
 import sorcer.service.*;
 import sorcer.service.monitor.MonitorUtil;
 
@@ -74,6 +76,13 @@ abstract public class ExertDispatcher implements Dispatcher {
 	protected ThreadGroup disatchGroup;
     protected ProvisionManager provisionManager;
 
+    // span of the dispatched exertion, the spans of its components are its steps;
+    // set before any component is dispatched or a collecting thread is started
+    private Span span;
+
+    // set while a CollectResultThread is collecting the results
+    private volatile boolean collecting;
+
     public static Map<Uuid, Dispatcher> getDispatchers() {
 		return dispatchers;
 	}
@@ -110,6 +119,8 @@ abstract public class ExertDispatcher implements Dispatcher {
         if (xrt instanceof Job) {
             masterXrt = (ServiceExertion) ((Job) xrt).getMasterExertion();
         }
+        // started before any component is dispatched, so all of them are in one trace
+        span = Tracer.start("dispatcher", xrt).attribute("dispatcher", getClass().getSimpleName());
         try {
             beforeParent(xrt);
             doExec();
@@ -127,9 +138,28 @@ abstract public class ExertDispatcher implements Dispatcher {
                 logger.warn("Problem removing lease for : " + xrt.getName() + " " + Exec.State.name(xrt.getStatus()) , ce);
             }
             dispatchers.remove(xrt.getId());
+            if (!collecting)
+                endSpans();
         }
     }
 
+    /**
+     * Called when the dispatcher is finished with the exertion, after the
+     * results are collected if that is done in the background.
+     */
+    protected synchronized void endSpans() {
+        if (span != null)
+            span.end(xrt);
+    }
+
+    /**
+     * Start a span of a component exertion as a step of the dispatcher span,
+     * whatever the current span of the dispatched exertion is at the time
+     */
+    protected Span startSpan(String name, Exertion component) {
+        return Tracer.start(name, component, span);
+    }
+
     abstract protected void doExec() throws SignatureException, ExertionException;
     abstract protected List<Exertion> getInputExertions() throws ContextException;
 
@@ -220,6 +250,10 @@ abstract public class ExertDispatcher implements Dispatcher {
     }
 
     protected class CollectResultThread implements Runnable {
+        public CollectResultThread() {
+            collecting = true;
+        }
+
         public void run() {
             xrt.startExecTime();
             try {
@@ -229,6 +263,9 @@ abstract public class ExertDispatcher implements Dispatcher {
                 xrt.setStatus(FAILED);
                 xrt.reportException(ex);
                 ex.printStackTrace();
+            } finally {
+                collecting = false;
+                endSpans();
             }
             if (xrt.isExecTimeRequested())
                 xrt.stopExecTime();
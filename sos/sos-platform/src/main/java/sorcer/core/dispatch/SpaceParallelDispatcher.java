@@ -20,8 +20,11 @@ package sorcer.core.dispatch;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.jini.core.entry.Entry;
 import net.jini.core.entry.UnusableEntryException;
@@ -36,6 +39,7 @@ import sorcer.core.exertion.ExertionEnvelop;
 import sorcer.core.exertion.NetJob;
 import sorcer.core.loki.member.LokiMemberUtil;
 import sorcer.core.provider.SpaceTaker;
+import sorcer.core.trace.Span;
 import sorcer.service.*;
 import sorcer.service.monitor.MonitorUtil;
 import sorcer.service.space.SpaceAccessor;
@@ -50,6 +54,9 @@ public class SpaceParallelDispatcher extends ExertDispatcher {
     protected JavaSpace05 space;
     private int doneExertionIndex = 0;
     protected LokiMemberUtil loki;
+    // spans of the exertions written to the space, by exertion id, ended when the result is
+    // taken, or as failed when the dispatcher is finished without it
+    private final ConcurrentMap<Uuid, Span> spaceSpans = new ConcurrentHashMap<Uuid, Span>();
 
     public SpaceParallelDispatcher(Exertion exertion,
            Set<Context> sharedContexts,
@@ -148,6 +155,8 @@ public class SpaceParallelDispatcher extends ExertDispatcher {
                 if (results.isEmpty())
                     continue;
                 count += results.size();
+                for (ExertionEnvelop result : results)
+                    endSpaceSpan(result.exertion);
             } catch (UnusableEntriesException e) {
                 xrt.setStatus(FAILED);
                 state = FAILED;
@@ -167,7 +176,12 @@ public class SpaceParallelDispatcher extends ExertDispatcher {
                     notify();
                 }
             }
-            handleResult(results);
+            Span collect = startSpan("collect", xrt);
+            try {
+                handleResult(results);
+            } finally {
+                collect.end(xrt);
+            }
         }
 
         if(xrt.getStatus()!=FAILED) {
@@ -279,8 +293,12 @@ public class SpaceParallelDispatcher extends ExertDispatcher {
 
         ((ServiceExertion) exertion).setSubject(subject);
         preExecExertion(exertion);
+        // the exertion carries the span to the provider, start it before the envelope is made
+        Span span = startSpan("space", exertion);
         ExertionEnvelop ee = ExertionEnvelop.getTemplate(exertion);
         ee.state = INITIAL;
+        // registered first, the result may be taken before the write returns
+        spaceSpans.put(exertion.getId(), span);
         try {
             space.write(ee, null, Lease.FOREVER);
             logger.debug("written envelop: "
@@ -288,7 +306,30 @@ public class SpaceParallelDispatcher extends ExertDispatcher {
         } catch (Exception e) {
             logger.warn("writeEnvelop", e);
             state = Exec.FAILED;
+            spaceSpans.remove(exertion.getId());
+            span.end(true);
+        }
+    }
+
+    /*
+     * End the span of an exertion whose result was taken from the space
+     */
+    private void endSpaceSpan(Exertion result) {
+        if (result == null)
+            return;
+        Span span = spaceSpans.remove(result.getId());
+        if (span != null)
+            span.end(result);
+    }
+
+    @Override
+    protected synchronized void endSpans() {
+        // exertions whose results were never taken: failed, timed out or abandoned
+        for (Iterator<Span> it = spaceSpans.values().iterator(); it.hasNext(); ) {
+            it.next().end(true);
+            it.remove();
         }
+        super.endSpans();
     }
 
     protected ExertionEnvelop takeEnvelop(Entry template)
@@ -390,6 +431,8 @@ public class SpaceParallelDispatcher extends ExertDispatcher {
                 masterXrt.getParentId(), masterXrt.getId());
 
         ExertionEnvelop result = takeEnvelop(template);
+        if (result != null)
+            endSpaceSpan(result.exertion);
         logger.debug("executeMasterExertion MASTER EXERTION RESULT RECEIVED");
         if (result != null && result.exertion != null) {
             postExecExertion(masterXrt, result.exertion);
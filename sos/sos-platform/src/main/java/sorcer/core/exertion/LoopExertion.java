@@ -17,18 +17,37 @@
  */
 package sorcer.core.exertion;
 
+import java.io.Serializable;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import net.jini.core.transaction.Transaction;
 import sorcer.core.context.ThrowableTrace;
 import sorcer.service.*;
+import sorcer.util.ConfigurableThreadFactory;
+import sorcer.util.ObjectCloner;
 
 /**
  * The loop Exertion executes its target exertion while its condition is true.
  * Other types of looping types depend on parameters provided as described for
  * each LoopExertion constructor.
+ * <p>
+ * If the iterations are declared independent with {@link #pipeline(int)},
+ * fixed-count loops exert their own copy of the target in each iteration
+ * and keep up to <code>depth</code> iterations in flight at once.
+ * Conditional loops still exert each iteration on the result of the previous
+ * one and update the condition from it, but they start the next iteration
+ * speculatively while the condition for it is evaluated; a speculative
+ * iteration is discarded when the condition turns out false, so it must be
+ * free of side effects. Results can be collected with a {@link Reducer}.
  * 
  * @author Mike Sobolewski
  */
@@ -44,6 +63,19 @@ public class LoopExertion extends Task implements ConditionalExertion {
 
 	protected Exertion target;
 
+	// number of independent iterations in flight, 1 means serial execution
+	private int depth = 1;
+
+	protected Reducer reducer;
+
+	/**
+	 * Collects the results of the loop iterations. It is called on the
+	 * thread executing the loop, in the order the iterations complete.
+	 */
+	public interface Reducer extends Serializable {
+		void reduce(int iteration, Exertion result) throws ContextException;
+	}
+
 	/**
 	 * Loop: while(true) { operand }
 	 * 
@@ -103,16 +135,52 @@ public class LoopExertion extends Task implements ConditionalExertion {
 		target = invoker;
 	}
 
+	/**
+	 * Declare the iterations of this loop independent of each other and
+	 * execute up to <code>depth</code> of them at once. Conditional loops
+	 * keep their iterations in sequence and only start the next one before
+	 * the condition for it is evaluated.
+	 */
+	public LoopExertion pipeline(int depth) {
+		if (depth < 1)
+			throw new IllegalArgumentException("Pipeline depth must be positive");
+		this.depth = depth;
+		return this;
+	}
+
+	public int getPipelineDepth() {
+		return depth;
+	}
+
+	public LoopExertion setReducer(Reducer reducer) {
+		this.reducer = reducer;
+		return this;
+	}
+
+	public Reducer getReducer() {
+		return reducer;
+	}
+
     @Override
     public Task doTask(Transaction txn) throws ExertionException,
             SignatureException, RemoteException {
         try {
             if (condition == null) {
+                if (depth > 1) {
+                    target = exertPipelined(max - min, txn);
+                    return this;
+                }
                 for (int i = 0; i < max - min; i++) {
                     target = target.exert(txn);
+                    reduce(i, target);
                 }
                 return this;
             } else if (condition != null && max - min == 0) {
+                if (depth > 1) {
+                    target = exertSpeculative(txn);
+                    return this;
+                }
+                int i = 0;
                 while (condition.isTrue()) {
                     Signature sig = target.getProcessSignature();
                     if (sig != null && sig.getVariability() != null) {
@@ -122,17 +190,27 @@ public class LoopExertion extends Task implements ConditionalExertion {
                     if (sig != null && sig.getVariability() != null) {
                         ((Task)target).updateConditionalContext(condition);
                     }
+                    reduce(i++, target);
                 }
             } else if (condition != null && max - min > 0) {
                 // execute min times
-                for (int i = 0; i < min; i++) {
-                    target = target.exert(txn);
+                int n = 0;
+                if (depth > 1) {
+                    target = exertPipelined(min, txn);
+                    n = min;
+                } else {
+                    for (; n < min; n++) {
+                        target = target.exert(txn);
+                        reduce(n, target);
+                    }
                 }
                 for (int i = 0; i < max - min; i++) {
                     target = target.exert(txn);
-                    if (condition.isTrue())
+                    reduce(n++, target);
+                    if (condition.isTrue()) {
                         target = target.exert(txn);
-                    else
+                        reduce(n++, target);
+                    } else
                         return this;
                 }
             }
@@ -142,6 +220,141 @@ public class LoopExertion extends Task implements ConditionalExertion {
         return this;
     }
 	
+	/**
+	 * Exert <code>count</code> copies of the target keeping up to
+	 * <code>depth</code> of them in flight.
+	 *
+	 * @return the result of the last iteration
+	 */
+	private Exertion exertPipelined(int count, final Transaction txn)
+			throws ExertionException, ContextException, InterruptedException {
+		if (count <= 0)
+			return target;
+		ExecutorService pool = newIterationPool(Math.min(depth, count));
+		CompletionService<Iteration> ecs = new ExecutorCompletionService<Iteration>(pool);
+		List<Future<Iteration>> futures = new ArrayList<Future<Iteration>>();
+		Exertion last = target;
+		int lastIndex = -1;
+		try {
+			int submitted = 0;
+			for (; submitted < Math.min(depth, count); submitted++)
+				futures.add(ecs.submit(iteration(submitted, copy(target), txn)));
+			for (int done = 0; done < count; done++) {
+				Iteration result = get(ecs.take());
+				if (submitted < count)
+					futures.add(ecs.submit(iteration(submitted++, copy(target), txn)));
+				reduce(result.index, result.exertion);
+				if (result.index > lastIndex) {
+					lastIndex = result.index;
+					last = result.exertion;
+				}
+			}
+			return last;
+		} finally {
+			for (Future<Iteration> future : futures)
+				future.cancel(true);
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Exert the target while the condition is true, each iteration on a copy
+	 * of the result of the previous one as the sequential loop does, starting
+	 * the next iteration before the condition for it is evaluated.
+	 *
+	 * @return the result of the last accepted iteration
+	 */
+	private Exertion exertSpeculative(Transaction txn)
+			throws ExertionException, ContextException, InterruptedException {
+		if (!condition.isTrue())
+			return target;
+		// the condition watches the context of the target, it has to follow the results
+		boolean watched = condition.getConditionalContext() != null
+				&& condition.getConditionalContext() == target.getContext();
+		ExecutorService pool = newIterationPool(1);
+		Future<Iteration> current = pool.submit(iteration(0, next(target), txn));
+		try {
+			for (int i = 1; ; i++) {
+				Iteration result = get(current);
+				Exertion last = result.exertion;
+				if (isVariable(last))
+					((Task) last).updateConditionalContext(condition);
+				else if (watched)
+					condition.setConditionalContext(last.getContext());
+				reduce(result.index, last);
+				current = pool.submit(iteration(i, next(last), txn));
+				if (!condition.isTrue())
+					return last;
+			}
+		} finally {
+			current.cancel(true);
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * Copy of the exertion for the next conditional iteration, with the
+	 * conditional context appended if the exertion has a variability
+	 */
+	private Exertion next(Exertion exertion) throws ContextException {
+		Exertion copy = copy(exertion);
+		if (isVariable(copy))
+			copy.getContext().append(condition.getConditionalContext());
+		return copy;
+	}
+
+	private static Exertion copy(Exertion exertion) {
+		return (Exertion) ObjectCloner.cloneAnnotatedWithNewIDs(exertion);
+	}
+
+	private static boolean isVariable(Exertion exertion) {
+		Signature sig = exertion.getProcessSignature();
+		return sig != null && sig.getVariability() != null;
+	}
+
+	private Callable<Iteration> iteration(final int index, final Exertion exertion, final Transaction txn) {
+		return new Callable<Iteration>() {
+			@Override
+			public Iteration call() throws Exception {
+				return new Iteration(index, exertion.exert(txn));
+			}
+		};
+	}
+
+	private Iteration get(Future<Iteration> future) throws ExertionException,
+			InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ExertionException)
+				throw (ExertionException) cause;
+			throw new ExertionException("Loop iteration failed in: " + getName(), cause);
+		}
+	}
+
+	private ExecutorService newIterationPool(int size) {
+		ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+		tf.setDaemon(true);
+		tf.setNameFormat("Loop-" + getName() + "-%2$d");
+		return Executors.newFixedThreadPool(size, tf);
+	}
+
+	private void reduce(int iteration, Exertion result) throws ContextException {
+		if (reducer != null)
+			reducer.reduce(iteration, result);
+	}
+
+	private static class Iteration {
+		final int index;
+		final Exertion exertion;
+
+		Iteration(int index, Exertion exertion) {
+			this.index = index;
+			this.exertion = exertion;
+		}
+	}
+
 	public Exertion getTarget() {
 		return target;
 	}
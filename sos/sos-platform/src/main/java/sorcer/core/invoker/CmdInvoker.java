@@ -20,9 +20,11 @@ package sorcer.core.invoker;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.rmi.RemoteException;
 import java.util.Arrays;
@@ -33,7 +35,10 @@ import sorcer.service.ArgSet;
 import sorcer.service.EvaluationException;
 import sorcer.util.exec.ExecUtils;
 import sorcer.util.exec.ExecUtils.CmdResult;
+import sorcer.util.exec.LineOutputStream;
 import sorcer.util.exec.NullInputStream;
+import sorcer.util.exec.TeeOutputStream;
+import sorcer.util.exec.WorkerProcessPool;
 
 import static sorcer.util.StringUtils.tName;
 
@@ -45,6 +50,8 @@ import static sorcer.util.StringUtils.tName;
 public class CmdInvoker extends ServiceInvoker implements CmdInvoking {
 
 	private static final long serialVersionUID = -4035189000192693692L;
+
+	public static final int DEFAULT_TAIL_SIZE = 64 * 1024;
 	
 	private String cmd;
 	private String[] cmdarray;
@@ -53,6 +60,17 @@ public class CmdInvoker extends ServiceInvoker implements CmdInvoking {
 	private InputStream stdin;
 	private boolean background = false;
 
+	// streaming mode: stdout and stderr are passed to the sinks below and only
+	// their last tailSize bytes are kept in the CmdResult
+	private int tailSize = -1;
+	private File outFile;
+	private transient ExecUtils.LineHandler lineHandler;
+
+	// persistent worker mode: the request is sent to a pooled process over stdin
+	private int poolSize;
+	private String endMarker;
+	private String request;
+
 	{
 		defaultName = "cmdInvoker-";
 	}
@@ -147,6 +165,50 @@ public class CmdInvoker extends ServiceInvoker implements CmdInvoking {
 	}
 
 
+	/**
+	 * Stream the standard output of the command to the file
+	 * <code>outFile</code> (if not null) instead of collecting it in memory.
+	 * Only the last <code>tailSize</code> bytes of stdout and stderr are
+	 * returned in the {@link CmdResult}.
+	 */
+	public CmdInvoker streamOutput(File outFile, int tailSize) {
+		this.outFile = outFile;
+		this.tailSize = tailSize;
+		return this;
+	}
+
+	/**
+	 * Pass the standard output of the command line by line to the handler
+	 * instead of collecting it in memory. Only the last <code>tailSize</code>
+	 * bytes of stdout and stderr are returned in the {@link CmdResult}.
+	 */
+	public CmdInvoker streamOutput(ExecUtils.LineHandler lineHandler, int tailSize) {
+		this.lineHandler = lineHandler;
+		this.tailSize = tailSize;
+		return this;
+	}
+
+	/**
+	 * Run the command as a pool of at most <code>poolSize</code> persistent
+	 * worker processes. On every evaluation the <code>request</code> is written
+	 * to the standard input of an idle worker and its standard output up to a
+	 * line equal to <code>endMarker</code> is the result.
+	 *
+	 * @see WorkerProcessPool
+	 */
+	public CmdInvoker usePersistentWorkers(int poolSize, String endMarker, String request) {
+		if (cmd == null && cmdarray == null)
+			throw new IllegalStateException("No command for persistent workers");
+		this.poolSize = poolSize;
+		this.endMarker = endMarker;
+		this.request = request;
+		return this;
+	}
+
+	public void setRequest(String request) {
+		this.request = request;
+	}
+
 	/* (non-Javadoc)
 	 * @see sorcer.service.Evaluation#getValue(sorcer.service.Arg[])
 	 */
@@ -154,7 +216,14 @@ public class CmdInvoker extends ServiceInvoker implements CmdInvoking {
 	public CmdResult getValue(Arg... entries) throws EvaluationException,
 			RemoteException {
 		CmdResult out = null;
-		if (scriptFile != null) {
+		if (poolSize > 0) {
+			try {
+				return execPooled();
+			} catch (Exception e) {
+				throw new EvaluationException("Persistent worker invocation failed: "
+						+ (cmd != null ? cmd : Arrays.toString(cmdarray)), e);
+			}
+		} else if (scriptFile != null) {
 			try {
 				return execScript();
 			} catch (Exception se) {
@@ -166,7 +235,11 @@ public class CmdInvoker extends ServiceInvoker implements CmdInvoking {
 				if (cmd == null && cmdarray == null)
 					throw new EvaluationException("No args for CmdEvaluator!");
 
-				if (cmd != null) {
+				if (tailSize >= 0) {
+					Process process = cmd != null ? Runtime.getRuntime().exec(cmd)
+							: Runtime.getRuntime().exec(cmdarray);
+					out = ExecUtils.execCommand(process, stdin, openSink(), null, tailSize);
+				} else if (cmd != null) {
 					if (stdin != null) {
 						out = ExecUtils.execCommand(Runtime.getRuntime().exec(
 								cmd), stdin);
@@ -190,6 +263,25 @@ public class CmdInvoker extends ServiceInvoker implements CmdInvoking {
 		return out;
 	}
 
+	private OutputStream openSink() throws IOException {
+		OutputStream file = outFile != null ? new FileOutputStream(outFile) : null;
+		OutputStream lines = lineHandler != null ? new LineOutputStream(lineHandler) : null;
+		return new TeeOutputStream(file, lines);
+	}
+
+	private CmdResult execPooled() throws IOException, InterruptedException {
+		String[] command = cmdarray != null ? cmdarray : cmd.split("\\s+");
+		int tail = tailSize >= 0 ? tailSize : DEFAULT_TAIL_SIZE;
+		WorkerProcessPool pool = WorkerProcessPool.getPool(command, null,
+				endMarker, poolSize, tail);
+		OutputStream sink = openSink();
+		try {
+			return pool.call(request != null ? request : "", sink);
+		} finally {
+			sink.close();
+		}
+	}
+
 	public CmdResult execScript() throws IOException, InterruptedException {
 		if (cmdarray != null) {
 			StringBuilder sb = new StringBuilder(cmdarray[0]);
@@ -41,8 +41,10 @@ import java.util.*;
 import java.util.Collections;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.security.auth.Subject;
 
@@ -80,6 +82,11 @@ import sorcer.core.loki.member.LokiMemberUtil;
 import sorcer.core.misc.MsgRef;
 import sorcer.core.provider.ServiceProvider.ProxyVerifier;
 import sorcer.core.provider.exerter.ExertionDispatcher;
+import sorcer.core.provider.metrics.MetricsEndpoint;
+import sorcer.core.provider.metrics.OperationStats;
+import sorcer.core.provider.metrics.ProviderMetrics;
+import sorcer.core.trace.Span;
+import sorcer.core.trace.Tracer;
 import sorcer.core.proxy.Partnership;
 import sorcer.core.proxy.ProviderProxy;
 import sorcer.core.provider.container.IProviderServiceBuilder;
@@ -209,7 +216,10 @@ public class ProviderDelegate {
 
 	private List<Entry> extraLookupAttributes = new Vector<Entry>();
 
-    public int processedExertionsCount=0;
+    private final AtomicLong processedExertionsCount = new AtomicLong();
+
+	/** Call counts and latencies of the operations and state of the space worker pools */
+	private ProviderMetrics metrics;
 
 	/** Map of exertion ID's and state of execution */
 	static final Map exertionStateTable = Collections
@@ -382,6 +392,8 @@ public class ProviderDelegate {
 	protected void configure(Configuration jconfig) throws Exception {
 		final Thread currentThread = Thread.currentThread();
 		implClassLoader = currentThread.getContextClassLoader();
+		metrics = new ProviderMetrics(getProviderName());
+		MetricsEndpoint.register(metrics);
 		Class partnerType = null;
 		String partnerName = null;
 		boolean remoteContextLogging = false;
@@ -652,11 +664,7 @@ public class ProviderDelegate {
 
 		for (int i = 0; i < publishedServiceTypes.length; i++) {
 			// spaceWorkerPool = Executors.newFixedThreadPool(workerCount);
-            spaceWorkerPool = new ThreadPoolExecutor(workerCount,
-					maximumPoolSize > workerCount ? maximumPoolSize
-							: workerCount, 0L, TimeUnit.MILLISECONDS,
-					new LinkedBlockingQueue<Runnable>(
-							(queueSize == 0 ? workerCount : queueSize)), factory);
+            spaceWorkerPool = newSpaceWorkerPool(publishedServiceTypes[i].getName(), factory);
 			spaceHandlingPools.add(spaceWorkerPool);
 			// SORCER.ANY is required for a ProviderWorker
 			// to avoid matching to any provider name
@@ -688,11 +696,7 @@ public class ProviderDelegate {
 
 			if (!matchInterfaceOnly) {
 				// spaceWorkerPool = Executors.newFixedThreadPool(workerCount);
-				spaceWorkerPool = new ThreadPoolExecutor(workerCount,
-						maximumPoolSize > workerCount ? maximumPoolSize
-								: workerCount, 0L, TimeUnit.MILLISECONDS,
-						new LinkedBlockingQueue<Runnable>(
-								(queueSize == 0 ? workerCount : queueSize)), factory);
+				spaceWorkerPool = newSpaceWorkerPool(publishedServiceTypes[i].getName() + ":" + getProviderName(), factory);
 				spaceHandlingPools.add(spaceWorkerPool);
 				envelop = ExertionEnvelop.getTemplate(publishedServiceTypes[i],
 						getProviderName());
@@ -722,9 +726,40 @@ public class ProviderDelegate {
 		// namedGroup.list();
 	}
 
+	private ExecutorService newSpaceWorkerPool(String name, ThreadFactory factory) {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(workerCount,
+				maximumPoolSize > workerCount ? maximumPoolSize
+						: workerCount, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(
+						(queueSize == 0 ? workerCount : queueSize)), factory);
+		pool.setRejectedExecutionHandler(metrics.addPool(name, pool));
+		return pool;
+	}
+
 	public Task doTask(Task task, Transaction transaction)
 			throws ExertionException, SignatureException, RemoteException,
 			ContextException {
+		OperationStats stats = metrics.get(ProviderMetrics.TASK, task);
+		long start = stats.begin();
+		Signature signature = task.getProcessSignature();
+		Span span = Tracer.start("provider.invoke", task).attribute("provider", getProviderName())
+				.attribute("selector", signature != null ? signature.getSelector() : null);
+		Task result = null;
+		try {
+			result = processTask(task, transaction);
+			return result;
+		} finally {
+			stats.end(start, ProviderMetrics.isFailed(result));
+			if (result != null)
+				span.end(result);
+			else
+				span.end(task, true);
+		}
+	}
+
+	private Task processTask(Task task, Transaction transaction)
+			throws ExertionException, SignatureException, RemoteException,
+			ContextException {
 		// prepare a default net batch task (has all sigs of SRV type) 
 		// and make the last signature as master SRV type only.
 		List<Signature> alls = task.getFidelity();
@@ -825,8 +860,7 @@ public class ProviderDelegate {
 					return (Task) forwardTask(task, provider);
 				}
 			} finally {
-                processedExertionsCount++;
-                logger.warn("EXERTIONS PROCESSED: " + processedExertionsCount);
+                logger.debug("Exertions processed: {}", processedExertionsCount.incrementAndGet());
                 exertionStateTable.remove(exertionStateTable.remove(task
 						.getId()));
 			}
@@ -1714,6 +1748,10 @@ public class ProviderDelegate {
 	}
 
 	public void destroy() throws RemoteException {
+		if (metrics != null) {
+			MetricsEndpoint.unregister(metrics);
+			metrics.removePools();
+		}
 		if (spaceEnabled && spaceHandlingPools != null) {
             for (SpaceTaker st : spaceTakers) {
                 st.destroy();
@@ -2992,6 +3030,10 @@ public class ProviderDelegate {
 		return spaceHandlingPools;
 	}
 
+	public ProviderMetrics getMetrics() {
+		return metrics;
+	}
+
 	void shutdownAndAwaitTermination(ExecutorService pool) {
 		pool.shutdown(); // Disable new tasks from being submitted
 		try {
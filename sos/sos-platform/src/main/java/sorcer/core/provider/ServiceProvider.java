@@ -36,6 +36,7 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.security.auth.Subject;
@@ -69,6 +70,11 @@ import sorcer.core.context.ControlContext;
 import sorcer.core.context.ServiceContext;
 import sorcer.core.provider.container.ProviderServiceBuilder;
 import sorcer.core.provider.container.ServiceProviderBeanListener;
+import sorcer.core.provider.metrics.LatencyHistogram;
+import sorcer.core.provider.metrics.OperationStats;
+import sorcer.core.provider.metrics.ProviderMetrics;
+import sorcer.core.trace.Span;
+import sorcer.core.trace.Tracer;
 import sorcer.core.proxy.Outer;
 import sorcer.core.proxy.Partner;
 import sorcer.core.proxy.Partnership;
@@ -1192,43 +1198,45 @@ public class ServiceProvider implements Identifiable, Provider, ServiceIDListene
 		return delegate.mutualExclusion;
 	}
 
-	protected synchronized void doTimeKeeping(double callTimeSec) {
-		totalCallTime += callTimeSec;
-		avgExecTime = totalCallTime / numCalls;
-		logger.info("execution time = " + (callTimeSec) + " [s]");
-		logger.info("average execution time = " + (avgExecTime) + " [s]");
+	protected void doTimeKeeping(double callTimeSec) {
+		callTimes.record((long) (callTimeSec * 1000000));
+		logger.debug("execution time = {} [s], average execution time = {} [s]",
+				callTimeSec, callTimes.getMean() / 1000000);
 	}
 
 	// fields for thread metrics
 	//
-	private int numThreads = 0;
-	private ArrayList<String> threadIds = new ArrayList<String>();
-	private int numCalls = 0;
-	private double avgExecTime = 0;
-	private double totalCallTime = 0;
+	private final AtomicInteger numThreads = new AtomicInteger();
+	private final Set<String> threadIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicInteger numCalls = new AtomicInteger();
+	private final LatencyHistogram callTimes = new LatencyHistogram();
 
-	protected synchronized String doThreadMonitor(String serviceIdString) {
+	protected String doThreadMonitor(String serviceIdString) {
 		String prefix;
+		int threads;
 		if (serviceIdString == null) {
-			numCalls++;
-			numThreads++;
+			serviceIdString = Integer.toString(numCalls.incrementAndGet());
+			threads = numThreads.incrementAndGet();
 			prefix = "adding thread";
-			serviceIdString = Integer.toString(numCalls);
 			threadIds.add(serviceIdString);
 		} else {
-			numThreads--;
+			threads = numThreads.decrementAndGet();
 			prefix = "subtracting thread";
 			threadIds.remove(serviceIdString);
 		}
-		logger.info("\n\n***provider class = " + this.getClass()
-				+ "\n***" + prefix + ": total calls = " + numCalls
-				+ "\n***" + prefix + ": number of threads running = "
-				+ numThreads + "\n***" + prefix + ": thread ids running = "
-				+ threadIds);
+		if (logger.isDebugEnabled())
+			logger.debug("provider class = " + this.getClass() + ", " + prefix
+					+ ": total calls = " + numCalls.get()
+					+ ", number of threads running = " + threads
+					+ ", thread ids running = " + threadIds);
 
 		return serviceIdString;
 	}
 
+	public String getMetrics() throws RemoteException {
+		return delegate.getMetrics().toText();
+	}
+
 	public void init() throws RemoteException, ConfigurationException {
 		delegate.init(this);
 	}
@@ -1414,12 +1422,20 @@ public class ServiceProvider implements Identifiable, Provider, ServiceIDListene
 		// : "in: " + getProviderName() + ":"
 		// + getProviderID());
 		Exertion out = exertion;
+		OperationStats stats = delegate.getMetrics().get(ProviderMetrics.SERVICE, exertion);
+		long start = stats.begin();
+		Span span = Tracer.start("provider.service", exertion).attribute("provider", delegate.getProviderName());
+		boolean failed = true;
 		try {
 			out = doExertion(exertion, txn);
+			failed = ProviderMetrics.isFailed(out);
 		} catch (ExertionException e) {
 			e.printStackTrace();
 			((ServiceExertion) out).reportException(new ExertionException(
 					getProviderName() + " failed", e));
+		} finally {
+			stats.end(start, failed);
+			span.end(out, failed);
 		}
 		return out;
 	}
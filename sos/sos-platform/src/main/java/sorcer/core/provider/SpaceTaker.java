@@ -18,9 +18,10 @@
 package sorcer.core.provider;
 
 import java.rmi.RemoteException;
-import java.util.ArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.jini.config.Configuration;
 import net.jini.core.entry.Entry;
@@ -38,6 +39,10 @@ import sorcer.core.exertion.ExertionEnvelop;
 import sorcer.core.loki.exertion.KPEntry;
 import sorcer.core.loki.member.LokiMemberUtil;
 import sorcer.core.monitor.MonitoringSession;
+import sorcer.core.provider.metrics.OperationStats;
+import sorcer.core.provider.metrics.ProviderMetrics;
+import sorcer.core.trace.Span;
+import sorcer.core.trace.Tracer;
 import sorcer.river.TX;
 import sorcer.service.*;
 import sorcer.service.monitor.MonitorUtil;
@@ -179,65 +184,42 @@ public class SpaceTaker implements Runnable {
 	}
 
 	
-	// fields for taker thread metrics
+	// fields for taker and worker thread metrics
 	//
-	private int numThreadsTaker = 0;
-	private ArrayList<String> threadIdsTaker = new ArrayList<String>();
-	private int numCallsTaker = 0;
-
-	protected synchronized String doThreadMonitorTaker(String threadIdString) {
-		
-		String prefix;
-		if (threadIdString == null) {
-			numCallsTaker++;
-			numThreadsTaker++;
-			prefix = "adding taker thread";
-			threadIdString = this.toString();
-			threadIdsTaker.add(threadIdString);
-		} else {
-			numThreadsTaker--;
-			prefix = "subtracting taker thread";
-			threadIdsTaker.remove(threadIdString);
-		}
-		
-		logger.info("***TAKER THREAD: " + prefix + ": total calls = " + numCallsTaker
-				+ " number of threads running = "
-				+ numThreadsTaker + " thread ids running = "
-				+ threadIdsTaker 
-				+ " this = " + this);
+	private final AtomicInteger numThreadsTaker = new AtomicInteger();
+	private final AtomicLong numCallsTaker = new AtomicLong();
+	private final AtomicInteger numThreadsWorker = new AtomicInteger();
+	private final AtomicLong numCallsWorker = new AtomicLong();
+
+	protected String doThreadMonitorTaker(String threadIdString) {
+		doThreadMonitor("taker", threadIdString == null, numThreadsTaker, numCallsTaker);
+		return threadIdString == null ? toString() : threadIdString;
+	}
 
-		return threadIdString;
+	protected String doThreadMonitorWorker(String threadIdString) {
+		doThreadMonitor("worker", threadIdString == null, numThreadsWorker, numCallsWorker);
+		return threadIdString == null ? toString() : threadIdString;
 	}
 
-	// fields for worker thread metrics
-	//
-	private int numThreadsWorker = 0;
-	private ArrayList<String> threadIdsWorker = new ArrayList<String>();
-	private int numCallsWorker = 0;	
-	
-	protected synchronized String doThreadMonitorWorker(String threadIdString) {
-		String prefix;
-		if (threadIdString == null) {
-			numCallsWorker++;
-			numThreadsWorker++;
-			prefix = "adding worker thread";
-			//threadIdString = new Integer(numCallsWorker).toString();
-			threadIdString = this.toString();
-			threadIdsWorker.add(threadIdString);
+	private void doThreadMonitor(String kind, boolean adding, AtomicInteger threads, AtomicLong calls) {
+		int running;
+		if (adding) {
+			calls.incrementAndGet();
+			running = threads.incrementAndGet();
 		} else {
-			numThreadsWorker--;
-			prefix = "subtracting worker thread";
-			threadIdsWorker.remove(threadIdString);
+			running = threads.decrementAndGet();
 		}
-		logger.info(prefix + ": total calls = " + numCallsWorker
-				+ " number of threads running = "
-				+ numThreadsWorker + " thread ids running = "
-				+ threadIdsWorker
-				+ " this = " + this);
+		if (logger.isDebugEnabled())
+			logger.debug((adding ? "adding " : "subtracting ") + kind + " thread: total calls = "
+					+ calls.get() + " number of threads running = " + running + " this = " + this);
+	}
 
-		return threadIdString;
+	private ProviderMetrics getMetrics() {
+		if (data.provider instanceof ServiceProvider)
+			return ((ServiceProvider) data.provider).getDelegate().getMetrics();
+		return null;
 	}
-	
+
 	public void run() {
 		String threadId = doThreadMonitorTaker(null);
 
@@ -361,6 +343,8 @@ public class SpaceTaker implements Runnable {
         private Provider provider;
 		private Transaction.Created txnCreated;
 		private boolean remoteLogging;
+		// when the envelope was taken from the space
+		private final long taken = System.nanoTime();
 
 
 		SpaceWorker(ExertionEnvelop envelope,
@@ -389,7 +373,33 @@ public class SpaceTaker implements Runnable {
             }
             //
 			String threadId = doThreadMonitorWorker(null);
+			ProviderMetrics metrics = getMetrics();
+			OperationStats stats = null;
+			if (metrics != null && ee.exertion != null) {
+				metrics.get(ProviderMetrics.SPACE_WAIT, ee.exertion).record(System.nanoTime() - taken, false);
+				stats = metrics.get(ProviderMetrics.SPACE, ee.exertion);
+				stats.begin();
+			}
+			Span span = Tracer.start("space.take", ee.exertion, taken);
+			boolean done = false;
+			try {
+				done = process(threadId);
+			} finally {
+				// from take to the result written back
+				if (stats != null)
+					stats.end(taken, !done);
+				span.end(!done);
+				doThreadMonitorWorker(threadId);
+				MDC.remove(MDC_SORCER_REMOTE_CALL);
+				MDC.remove(MDC_EXERTION_ID);
+				MDC.remove(MDC_PROVIDER_ID);
+			}
+		}
 
+		/*
+		 * @return whether the exertion was done and its result written back
+		 */
+		private boolean process(String threadId) {
 			Entry result = doEnvelope(ee, (txnCreated == null) ? null
 					: txnCreated.transaction, threadId, txnCreated);
 
@@ -402,11 +412,8 @@ public class SpaceTaker implements Runnable {
 						TX.abortTransaction(txnCreated);
 					} catch (Exception e1) {
                         logger.warn("Error while aborting transaction", e1);
-						doThreadMonitorWorker(threadId);
-						return;
 					}
-					doThreadMonitorWorker(threadId);
-					return;
+					return false;
 				}
 				
 				if (txnCreated != null) {
@@ -414,26 +421,20 @@ public class SpaceTaker implements Runnable {
 						TX.commitTransaction(txnCreated);
 					} catch (Exception e) {
                         logger.warn("Error while committing transaction", e);
-						doThreadMonitorWorker(threadId);
-						return;
+						return false;
 					}
 				}
-
+				return ee.state != null && ee.state == Exec.DONE;
 			} else {
 				if (txnCreated != null) {
 					try {
 						TX.abortTransaction(txnCreated);
 					} catch (Exception e) {
                         logger.warn("Error while aborting transaction", e);
-						doThreadMonitorWorker(threadId);
-						return;
 					}
 				}
+				return false;
 			}
-			doThreadMonitorWorker(threadId);
-            MDC.remove(MDC_SORCER_REMOTE_CALL);
-            MDC.remove(MDC_EXERTION_ID);
-            MDC.remove(MDC_PROVIDER_ID);
 		}
 
 		public Entry doEnvelope(ExertionEnvelop ee, Transaction transaction, String threadId, Transaction.Created txn) {
@@ -39,6 +39,8 @@ import sorcer.core.SorcerConstants;
 import sorcer.core.context.model.par.Par;
 import sorcer.core.signature.NetSignature;
 import sorcer.core.signature.ServiceSignature;
+import sorcer.core.trace.Span;
+import sorcer.core.trace.Tracer;
 import sorcer.ext.Provisioner;
 import sorcer.ext.ProvisioningException;
 import sorcer.jini.lookup.ProviderID;
@@ -121,9 +123,11 @@ public class ExertionDispatcher implements Exerter, Callable {
 
     public Exertion exert(Transaction txn, String providerName, Arg... entries)
             throws TransactionException, ExertionException, RemoteException {
+        Span span = Tracer.start("exert", exertion);
+        Exertion xrt = null;
         try {
             exertion.selectFidelity(entries);
-            Exertion xrt = postProcessExertion(exert0(txn, providerName,
+            xrt = postProcessExertion(exert0(txn, providerName,
                     entries));
             if (exertion.isProxy()) {
                 exertion.setContext(xrt.getDataContext());
@@ -139,6 +143,22 @@ public class ExertionDispatcher implements Exerter, Callable {
             }
         } catch (ContextException e) {
             throw new ExertionException(e);
+        } finally {
+            if (xrt != null)
+                span.end(xrt);
+            else
+                span.end(exertion, true);
+        }
+    }
+
+    private Service lookup(Signature signature) {
+        Span span = Tracer.start("lookup", exertion).attribute("signature", signature);
+        Service service = null;
+        try {
+            service = (Service) Accessor.getService(signature);
+            return service;
+        } finally {
+            span.end(exertion, service == null);
         }
     }
 
@@ -276,9 +296,9 @@ public class ExertionDispatcher implements Exerter, Callable {
             if (!exertion.isJob()
                     && exertion.getControlContext().getAccessType() == Access.PULL) {
                 signature = new NetSignature("service", Spacer.class, Sorcer.getActualSpacerName());
-                provider = (Service) Accessor.getService(signature);
+                provider = lookup(signature);
             } else {
-                provider = (Service) Accessor.getService(signature);
+                provider = lookup(signature);
                 if (provider == null && exertion.isProvisionable() && signature instanceof NetSignature) {
                     try {
                         logger.debug("Provisioning {}", signature);
@@ -64,6 +64,9 @@ public class MonitorSession extends ArrayList<MonitorSession> implements
 
 	public transient static MonitoringManagement sessionManager;
 
+	// if set, used instead of sessionManager to persist changes locally
+	public transient static MonitorSessionStore sessionStore;
+
 	public transient static ExecutorService eventPool;
 
 	static transient final String LOGGER = "sorcer.core.provider.monitor.SessionResource";
@@ -196,131 +199,142 @@ public class MonitorSession extends ArrayList<MonitorSession> implements
 
 	public Lease init(Monitorable executor, long duration, long timeout)
 			throws MonitorException {
-        logger.info("Initializing session for: " + runtimeExertion.getName());
+		synchronized (getRoot()) {
+	        logger.info("Initializing session for: " + runtimeExertion.getName());
+
+			if (executor == null)
+				throw new NullPointerException(
+						"Assertion Failed: executor cannot be NULL");
+
+			if (isRunning() || isInSpace()) {
+				logger.error(
+						"Trying to initialize a exertion already in space or is running"
+								+ this);
+				throw new MonitorException(
+						"Session already active for " + runtimeExertion.getName() + " and is in state =" + getState());
+			}
 
-		if (executor == null)
-			throw new NullPointerException(
-					"Assertion Failed: executor cannot be NULL");
-
-		if (isRunning() || isInSpace()) {
-			logger.error(
-					"Trying to initialize a exertion already in space or is running"
-							+ this);
-			throw new MonitorException(
-					"Session already active for " + runtimeExertion.getName() + " and is in state =" + getState());
+			runtimeExertion.setStatus(Exec.RUNNING);
+	        if (runtimeExertion.getControlContext().getStopwatch()==null)
+	            runtimeExertion.startExecTime();
+			this.provider = executor;
+			setExpiration(mLandlord.getExpiration(duration));
+			setTimeout(System.currentTimeMillis() + timeout);
+			persist();
+			return mLandlord.newLease(this);
 		}
-
-		runtimeExertion.setStatus(Exec.RUNNING);
-        if (runtimeExertion.getControlContext().getStopwatch()==null)
-            runtimeExertion.startExecTime();
-		this.provider = executor;
-		setExpiration(mLandlord.getExpiration(duration));
-		setTimeout(System.currentTimeMillis() + timeout);
-		persist();
-		return mLandlord.newLease(this);
 	}
 
 	public void init(long duration, long timeout) throws MonitorException {
+		synchronized (getRoot()) {
+			if (isRunning() || isInSpace()) {
+				logger.error(
+						"Trying to initialize a exertion already in space or is running"
+								+ this);
+				throw new MonitorException("Session already active state="
+						+ getState());
+			}
 
-		if (isRunning() || isInSpace()) {
-			logger.error(
-					"Trying to initialize a exertion already in space or is running"
-							+ this);
-			throw new MonitorException("Session already active state="
-					+ getState());
-		}
-
-		setExpiration(mLandlord.getExpiration(duration));
-		setTimeout(System.currentTimeMillis() + timeout);
+			setExpiration(mLandlord.getExpiration(duration));
+			setTimeout(System.currentTimeMillis() + timeout);
 
-		runtimeExertion.setStatus(Exec.INSPACE);
-		persist();
-		lease = mLandlord.newLease(this);
+			runtimeExertion.setStatus(Exec.INSPACE);
+			persist();
+			lease = mLandlord.newLease(this);
+		}
 	}
 
 	public Lease init(Monitorable executor) throws MonitorException {
-		if (executor == null)
-			throw new NullPointerException(
-					"Assertion Failed: executor cannot be NULL");
-
-		if (!isInSpace()) {
-			logger.error(
-					"Trying to initialize a exertion not in space" + this);
-			throw new MonitorException(
-					"This session can be only activated without being picked from space current state="
-							+ getState());
-		}
+		synchronized (getRoot()) {
+			if (executor == null)
+				throw new NullPointerException(
+						"Assertion Failed: executor cannot be NULL");
+
+			if (!isInSpace()) {
+				logger.error(
+						"Trying to initialize a exertion not in space" + this);
+				throw new MonitorException(
+						"This session can be only activated without being picked from space current state="
+								+ getState());
+			}
 
-		runtimeExertion.setStatus(Exec.RUNNING);
-        if (runtimeExertion.getControlContext().getStopwatch()==null)
-            runtimeExertion.startExecTime();
-        this.provider = executor;
-		persist();
-		return lease;
+			runtimeExertion.setStatus(Exec.RUNNING);
+	        if (runtimeExertion.getControlContext().getStopwatch()==null)
+	            runtimeExertion.startExecTime();
+	        this.provider = executor;
+			persist();
+			return lease;
+		}
 	}
 
 	public void update(Context<?> ctx, IControlContext controlContext, int aspect) {
-		if (ctx == null)
-			throw new NullPointerException(
-					"Assertion Failed: ctx cannot be NULL");
-		logger.info("Updating state of exertion: " + runtimeExertion.getName() + ": " + Exec.State.name(aspect));
-        if (runtimeExertion instanceof ServiceExertion) {
-			if (aspect!=runtimeExertion.getStatus())
-				runtimeExertion.setStatus(aspect);
-            runtimeExertion.setContext(ctx);
-            runtimeExertion.setControlContext((ControlContext)controlContext);
+		synchronized (getRoot()) {
+			if (ctx == null)
+				throw new NullPointerException(
+						"Assertion Failed: ctx cannot be NULL");
+			logger.info("Updating state of exertion: " + runtimeExertion.getName() + ": " + Exec.State.name(aspect));
+	        if (runtimeExertion instanceof ServiceExertion) {
+				if (aspect!=runtimeExertion.getStatus())
+					runtimeExertion.setStatus(aspect);
+	            runtimeExertion.setContext(ctx);
+	            runtimeExertion.setControlContext((ControlContext)controlContext);
+			}
+			persist();
 		}
-		persist();
 	}
 
 	public void done(Context<?> ctx, IControlContext controlContext) throws MonitorException {
-        logger.info("Done exertion: " + runtimeExertion.getName());
-		if (ctx == null)
-			throw new NullPointerException("Assertion Failed: ctx cannot be null");
-
-		if (!isRunning() && !isUpdated()) {
-		//if (!isRunning()) {
-			logger.error(
-					"Trying to call done on a non running resource" + this + " state: " + Exec.State.name(getState()));
-			throw new MonitorException("Exertion " + runtimeExertion.getName() + " not running, state="
-					+ Exec.State.name(getState()));
-		}
+		synchronized (getRoot()) {
+	        logger.info("Done exertion: " + runtimeExertion.getName());
+			if (ctx == null)
+				throw new NullPointerException("Assertion Failed: ctx cannot be null");
+
+			if (!isRunning() && !isUpdated()) {
+			//if (!isRunning()) {
+				logger.error(
+						"Trying to call done on a non running resource" + this + " state: " + Exec.State.name(getState()));
+				throw new MonitorException("Exertion " + runtimeExertion.getName() + " not running, state="
+						+ Exec.State.name(getState()));
+			}
 
-		logger.info(
-				" This exertion is completed " + runtimeExertion.getName());
+			logger.info(
+					" This exertion is completed " + runtimeExertion.getName());
 
-		runtimeExertion.setStatus(Exec.DONE);
-        if (runtimeExertion instanceof ServiceExertion) {
-            runtimeExertion.setContext(ctx);
-            runtimeExertion.setControlContext((ControlContext)controlContext);
-        }
+			runtimeExertion.setStatus(Exec.DONE);
+	        if (runtimeExertion instanceof ServiceExertion) {
+	            runtimeExertion.setContext(ctx);
+	            runtimeExertion.setControlContext((ControlContext)controlContext);
+	        }
 
-		fireRemoteEvent();
-		notifyParent();
-		persist();
-		mLandlord.remove(this);
+			fireRemoteEvent();
+			notifyParent();
+			persist();
+			mLandlord.remove(this);
+		}
 	}
 
 	public void failed(Context<?> ctx, IControlContext controlContext) throws MonitorException {
-		if (ctx == null)
-			throw new NullPointerException(
-					"Assertion Failed: ctx cannot be NULL");
-
-		if (!isRunning() && !isInSpace()  && !isProvision()) {
-			logger.error(
-					"Trying to call failed on a non running resource" + this);
-			throw new MonitorException("Exertion " + runtimeExertion.getName() + " not running . state="
-					+ Exec.State.name(getState()));
-		}
+		synchronized (getRoot()) {
+			if (ctx == null)
+				throw new NullPointerException(
+						"Assertion Failed: ctx cannot be NULL");
+
+			if (!isRunning() && !isInSpace()  && !isProvision()) {
+				logger.error(
+						"Trying to call failed on a non running resource" + this);
+				throw new MonitorException("Exertion " + runtimeExertion.getName() + " not running . state="
+						+ Exec.State.name(getState()));
+			}
 
-		runtimeExertion.setStatus(Exec.FAILED);
-		runtimeExertion.setContext(ctx);
-        runtimeExertion.setControlContext((ControlContext)controlContext);
+			runtimeExertion.setStatus(Exec.FAILED);
+			runtimeExertion.setContext(ctx);
+	        runtimeExertion.setControlContext((ControlContext)controlContext);
 
-		fireRemoteEvent();
-		notifyParent();
-		persist();
-		mLandlord.remove(this);
+			fireRemoteEvent();
+			notifyParent();
+			persist();
+			mLandlord.remove(this);
+		}
 	}
 
 	private void notifyParent() {
@@ -348,16 +362,26 @@ public class MonitorSession extends ArrayList<MonitorSession> implements
 		}
 	}
 
+	/*
+	 * Changes of a session tree are made under the lock of its root session,
+	 * so that the session store can take a consistent snapshot of the tree
+	 */
+	private MonitorSession getRoot() {
+		MonitorSession root = this;
+		while (root.parentResource != null)
+			root = root.parentResource;
+		return root;
+	}
+
 	// Persist only the root session
 	private void persist() {
-	    MonitorSession tempSession = this;
-        do {
-            if (tempSession.parentResource!=null)
-                tempSession = tempSession.parentResource;
-        } while (tempSession.parentResource!=null);
+	    MonitorSession tempSession = getRoot();
         logger.info("Persisting resource for exertion: " + tempSession.runtimeExertion.getName());
 		try {
-            sessionManager.persist(tempSession);
+            if (sessionStore != null)
+                sessionStore.persist(tempSession, this);
+            else
+                sessionManager.persist(tempSession);
 		} catch (Exception e) {
 			logger.error("Problem persisting monitorSession: " + e.getMessage());
 			try {
@@ -424,6 +448,18 @@ public class MonitorSession extends ArrayList<MonitorSession> implements
 		return runtimeExertion.getStatus();
 	}
 
+	/**
+	 * Apply a change recorded by a {@link MonitorSessionStore}, used to
+	 * recover the session state.
+	 */
+	public void restore(int state, Context<?> ctx, IControlContext controlContext) {
+		runtimeExertion.setStatus(state);
+		if (ctx != null)
+			runtimeExertion.setContext(ctx);
+		if (controlContext != null)
+			runtimeExertion.setControlContext((ControlContext) controlContext);
+	}
+
 	public boolean isInitial() {
 		return (runtimeExertion.getStatus() == Exec.INITIAL);
 	}
@@ -513,35 +549,38 @@ public class MonitorSession extends ArrayList<MonitorSession> implements
 	}
 
 	public void leaseCancelled() {
-		try {
-			runtimeExertion
-					.reportException(new Exception(
-							"Lease was cancelled..The provider did not renew the lease"));
-			runtimeExertion.setStatus(Exec.FAILED);
+		synchronized (getRoot()) {
+			try {
+				runtimeExertion
+						.reportException(new Exception(
+								"Lease was cancelled..The provider did not renew the lease"));
+				runtimeExertion.setStatus(Exec.FAILED);
 
-			fireRemoteEvent();
-			notifyParent();
-			persist();
+				fireRemoteEvent();
+				notifyParent();
+				persist();
 
-		} catch (Exception e) {
-			logger.error(
-					"Exception occured which calling leaseCancelled");
+			} catch (Exception e) {
+				logger.error(
+						"Exception occured which calling leaseCancelled");
+			}
 		}
-
 	}
 
 	public void timedOut() {
-		try {
-			runtimeExertion.reportException(new Exception(
-					"This exertion was timedout."));
-			runtimeExertion.setStatus(Exec.FAILED);
+		synchronized (getRoot()) {
+			try {
+				runtimeExertion.reportException(new Exception(
+						"This exertion was timedout."));
+				runtimeExertion.setStatus(Exec.FAILED);
 
-			fireRemoteEvent();
-			notifyParent();
-			persist();
+				fireRemoteEvent();
+				notifyParent();
+				persist();
 
-		} catch (Exception e) {
-			logger.error( "Exception occured which calling timedOut");
+			} catch (Exception e) {
+				logger.error( "Exception occured which calling timedOut");
+			}
 		}
 	}
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.exertmonitor;
+
+import java.io.IOException;
+
+/**
+ * Local persistence of monitor sessions used by {@link MonitorSession} in
+ * the monitor JVM. Unlike {@link sorcer.core.monitor.MonitorManagement#persist}
+ * it is told which session in the tree has changed, so it may record only the
+ * change instead of the whole tree.
+ */
+public interface MonitorSessionStore {
+
+	/**
+	 * Called with the root session locked, the tree does not change until
+	 * the call returns.
+	 *
+	 * @param root    the root session of the tree
+	 * @param changed the session whose state, data or control context changed
+	 */
+	void persist(MonitorSession root, MonitorSession changed) throws IOException;
+}
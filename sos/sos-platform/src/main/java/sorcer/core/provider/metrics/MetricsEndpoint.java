@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.core.SorcerEnv;
+import sorcer.util.ConfigurableThreadFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the metrics of all providers of this JVM as plain text on
+ * http://127.0.0.1:port/metrics, the port being the value of the
+ * {@value #PORT_PROPERTY} property. Nothing is served unless the property is set.
+ */
+public class MetricsEndpoint {
+    public static final String PORT_PROPERTY = "sorcer.metrics.port";
+    private static final Logger log = LoggerFactory.getLogger(MetricsEndpoint.class);
+
+    private static final ConcurrentMap<String, ProviderMetrics> metrics = new ConcurrentHashMap<String, ProviderMetrics>();
+    private static HttpServer server;
+    private static boolean started;
+
+    private MetricsEndpoint() {
+    }
+
+    public static void register(ProviderMetrics providerMetrics) {
+        metrics.put(providerMetrics.getName(), providerMetrics);
+        start();
+    }
+
+    public static void unregister(ProviderMetrics providerMetrics) {
+        metrics.remove(providerMetrics.getName(), providerMetrics);
+        if (metrics.isEmpty())
+            stop();
+    }
+
+    // the server's dispatcher thread would keep the JVM alive
+    private static synchronized void stop() {
+        if (!metrics.isEmpty())
+            return;
+        if (server != null) {
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdown();
+            server = null;
+        }
+        started = false;
+    }
+
+    private static synchronized void start() {
+        if (started)
+            return;
+        started = true;
+        String port = SorcerEnv.getProperty(PORT_PROPERTY, System.getProperty(PORT_PROPERTY));
+        if (port == null)
+            return;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), Integer.parseInt(port)), 0);
+            server.createContext("/metrics", new MetricsHandler());
+            ConfigurableThreadFactory factory = new ConfigurableThreadFactory();
+            factory.setDaemon(true);
+            factory.setNameFormat("Metrics-%2$d");
+            server.setExecutor(Executors.newSingleThreadExecutor(factory));
+            server.start();
+            log.info("Serving provider metrics on http://127.0.0.1:{}/metrics", port);
+        } catch (Exception e) {
+            log.warn("Could not serve provider metrics on port {}", port, e);
+        }
+    }
+
+    private static class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                StringBuilder text = new StringBuilder();
+                for (ProviderMetrics providerMetrics : new TreeMap<String, ProviderMetrics>(metrics).values())
+                    text.append(providerMetrics.toText()).append('\n');
+                byte[] body = text.toString().getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calls, failures, calls in progress and latencies of one operation.
+ */
+public class OperationStats {
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * @return start time to pass to {@link #end(long, boolean)}
+     */
+    public long begin() {
+        inProgress.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void end(long start, boolean failed) {
+        inProgress.decrementAndGet();
+        record(System.nanoTime() - start, failed);
+    }
+
+    public void record(long nanos, boolean failed) {
+        calls.incrementAndGet();
+        if (failed)
+            failures.incrementAndGet();
+        latency.recordNanos(nanos);
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public int getInProgress() {
+        return inProgress.get();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
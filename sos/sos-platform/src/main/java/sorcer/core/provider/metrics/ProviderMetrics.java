@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.metrics;
+
+import sorcer.service.Exec;
+import sorcer.service.Exertion;
+import sorcer.service.Signature;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Operation statistics of a provider, by path and by interface and selector,
+ * and the state of its worker pools. Paths are {@link #SERVICE} for exertions
+ * passed to {@link sorcer.core.provider.Provider#service}, by requestors that
+ * found the provider in the catalog or by space workers for exertions other
+ * than tasks, {@link #SPACE} for exertions taken from the space, from take to
+ * the result written back, {@link #SPACE_WAIT} for the time those waited for a
+ * pool thread and {@link #TASK} for the execution of tasks by the provider,
+ * whatever the path.
+ */
+public class ProviderMetrics {
+    public static final String SERVICE = "service";
+    public static final String SPACE = "space";
+    public static final String SPACE_WAIT = "space-wait";
+    public static final String TASK = "task";
+
+    private final String name;
+    private final long started = System.currentTimeMillis();
+    private final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<String, OperationStats>();
+    private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+
+    public ProviderMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param type     service type, may be null
+     * @param selector selector or other name of the operation
+     */
+    public OperationStats get(String path, Class<?> type, String selector) {
+        String key = path + " " + (type != null ? type.getName() + "#" : "") + selector;
+        OperationStats stats = operations.get(key);
+        if (stats == null) {
+            OperationStats created = new OperationStats();
+            stats = operations.putIfAbsent(key, created);
+            if (stats == null)
+                stats = created;
+        }
+        return stats;
+    }
+
+    public OperationStats get(String path, Exertion exertion) {
+        Signature signature = exertion.getProcessSignature();
+        if (signature == null)
+            return get(path, null, exertion.getName());
+        return get(path, signature.getServiceType(), signature.getSelector());
+    }
+
+    /**
+     * @return whether the exertion came back failed, or is missing
+     */
+    public static boolean isFailed(Exertion exertion) {
+        return exertion == null || exertion.getStatus() <= Exec.FAILED;
+    }
+
+    /**
+     * Watch the queue and threads of a pool
+     *
+     * @return a rejection handler that counts rejected tasks and rejects them as {@link ThreadPoolExecutor.AbortPolicy} does
+     */
+    public RejectedExecutionHandler addPool(String poolName, ThreadPoolExecutor executor) {
+        final Pool pool = new Pool(executor);
+        pools.put(poolName, pool);
+        return new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                pool.rejected.incrementAndGet();
+                throw new RejectedExecutionException("Task " + r + " rejected from " + executor);
+            }
+        };
+    }
+
+    public void removePools() {
+        pools.clear();
+    }
+
+    /**
+     * @return a table of the operations, slowest 99th percentile first, and of the pools
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# provider ").append(name).append(", up ")
+                .append((System.currentTimeMillis() - started) / 1000).append(" s, latencies in us\n");
+        sb.append(String.format("%-12s %10s %8s %6s %10s %10s %10s %10s %10s %10s  %s%n", "path", "calls", "failed",
+                "active", "mean", "p50", "p90", "p99", "p99.9", "max", "operation"));
+        Map<String, OperationStats> sorted = new TreeMap<String, OperationStats>(operations);
+        for (Map.Entry<String, OperationStats> e : sorted.entrySet()) {
+            String key = e.getKey();
+            int space = key.indexOf(' ');
+            OperationStats s = e.getValue();
+            LatencyHistogram h = s.getLatency();
+            sb.append(String.format("%-12s %10d %8d %6d %10.0f %10d %10d %10d %10d %10d  %s%n",
+                    key.substring(0, space), s.getCalls(), s.getFailures(), s.getInProgress(), h.getMean(),
+                    h.getValueAtPercentile(50), h.getValueAtPercentile(90), h.getValueAtPercentile(99),
+                    h.getValueAtPercentile(99.9), h.getMax(), key.substring(space + 1)));
+        }
+        if (!pools.isEmpty()) {
+            sb.append(String.format("%-40s %8s %8s %8s %8s %12s %10s%n", "pool", "threads", "active", "largest",
+                    "queued", "completed", "rejected"));
+            for (Map.Entry<String, Pool> e : new TreeMap<String, Pool>(pools).entrySet()) {
+                ThreadPoolExecutor ex = e.getValue().executor;
+                sb.append(String.format("%-40s %8d %8d %8d %8d %12d %10d%n", e.getKey(), ex.getPoolSize(),
+                        ex.getActiveCount(), ex.getLargestPoolSize(), ex.getQueue().size(),
+                        ex.getCompletedTaskCount(), e.getValue().rejected.get()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class Pool {
+        final ThreadPoolExecutor executor;
+        final AtomicLong rejected = new AtomicLong();
+
+        Pool(ThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+    }
+}
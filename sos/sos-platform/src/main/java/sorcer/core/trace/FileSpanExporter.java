@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.util.ConfigurableThreadFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends spans to a file, one JSON object per line, from a background
+ * thread. Spans that find the queue full are dropped and counted.
+ */
+public class FileSpanExporter implements SpanExporter, Runnable {
+    private static final Logger log = LoggerFactory.getLogger(FileSpanExporter.class);
+    private static final int QUEUE_SIZE = 10000;
+
+    private final BlockingQueue<Span> queue = new ArrayBlockingQueue<Span>(QUEUE_SIZE);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Writer out;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public FileSpanExporter(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Could not create " + dir);
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+        ConfigurableThreadFactory factory = new ConfigurableThreadFactory();
+        factory.setDaemon(true);
+        factory.setNameFormat("SpanExporter-%2$d");
+        thread = factory.newThread(this);
+        thread.start();
+    }
+
+    @Override
+    public void export(Span span) {
+        if (!queue.offer(span) && dropped.incrementAndGet() % 1000 == 1)
+            log.warn("Span queue full, {} spans dropped so far", dropped.get());
+    }
+
+    @Override
+    public void run() {
+        List<Span> spans = new ArrayList<Span>();
+        StringBuilder line = new StringBuilder(256);
+        try {
+            while (running || !queue.isEmpty()) {
+                Span first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null)
+                    continue;
+                spans.add(first);
+                queue.drainTo(spans);
+                for (Span span : spans) {
+                    line.setLength(0);
+                    out.write(toJson(span, line).append('\n').toString());
+                }
+                spans.clear();
+                out.flush();
+            }
+        } catch (InterruptedException ignored) {
+            // closing
+        } catch (IOException e) {
+            log.warn("Could not write spans, tracing to the file stopped", e);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static StringBuilder toJson(Span span, StringBuilder sb) {
+        sb.append("{\"trace\":");
+        quote(span.getTraceId(), sb).append(",\"span\":");
+        quote(span.getSpanId(), sb).append(",\"parent\":");
+        quote(span.getParentId(), sb).append(",\"name\":");
+        quote(span.getName(), sb).append(",\"start\":").append(span.getStart())
+                .append(",\"duration\":").append(span.getDuration())
+                .append(",\"failed\":").append(span.isFailed());
+        for (Map.Entry<String, String> e : span.getAttributes().entrySet()) {
+            sb.append(',');
+            quote(e.getKey(), sb).append(':');
+            quote(e.getValue(), sb);
+        }
+        return sb.append('}');
+    }
+
+    private static StringBuilder quote(String s, StringBuilder sb) {
+        if (s == null)
+            return sb.append("null");
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+}
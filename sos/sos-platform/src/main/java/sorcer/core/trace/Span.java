@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.trace;
+
+import sorcer.core.context.IControlContext;
+import sorcer.service.Exec;
+import sorcer.service.Exertion;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timed step of the execution of an exertion: dispatch, lookup, a space write
+ * and take, a provider call. Spans of one exertion, its component exertions
+ * included, share a trace id; each span knows the span it is a step of.
+ * Started by {@link Tracer#start(String, Exertion)}.
+ */
+public class Span implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // epoch time of System.nanoTime() 0, start times of the spans of a JVM are in order
+    private static final long EPOCH_MICROS = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())
+            - TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+
+    /**
+     * Span of a disabled tracer, ignores everything
+     */
+    static final Span NOOP = new Span(null, null, null, null) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Span attribute(String key, Object value) {
+            return this;
+        }
+
+        @Override
+        public void end(Exertion exertion, boolean failed) {
+        }
+
+        @Override
+        public void end(boolean failed) {
+        }
+    };
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentId;
+    private final String name;
+    // epoch microseconds
+    private final long start;
+    private final transient long startNanos;
+    private long duration = -1;
+    private boolean failed;
+    private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+
+    Span(String traceId, String spanId, String parentId, String name) {
+        this(traceId, spanId, parentId, name, System.nanoTime());
+    }
+
+    Span(String traceId, String spanId, String parentId, String name, long startNanos) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.startNanos = startNanos;
+        this.start = EPOCH_MICROS + TimeUnit.NANOSECONDS.toMicros(startNanos);
+    }
+
+    public Span attribute(String key, Object value) {
+        if (value != null)
+            attributes.put(key, value.toString());
+        return this;
+    }
+
+    /**
+     * End the span, failed if the result is missing or failed. The result,
+     * which may be a copy of the exertion the span was started for, continues
+     * the trace as a step of this span's parent.
+     */
+    public void end(Exertion result) {
+        end(result, result == null || result.getStatus() <= Exec.FAILED);
+    }
+
+    /**
+     * End the span, the exertion continues the trace as a step of this span's parent
+     */
+    public void end(Exertion exertion, boolean failed) {
+        if (exertion != null) {
+            IControlContext cc = exertion.getControlContext();
+            if (cc != null) {
+                cc.setTraceId(traceId);
+                cc.setSpanId(parentId);
+            }
+        }
+        end(failed);
+    }
+
+    public void end(boolean failed) {
+        if (duration >= 0)
+            return;
+        this.failed = failed;
+        duration = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        Tracer.export(this);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return id of the span this span is a step of, null for the root span of a trace
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return start time in microseconds since the epoch
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return duration in microseconds, -1 until the span is ended
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public Map<String, String> getAttributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    public String toString() {
+        return "Span[" + name + " " + traceId + "/" + spanId + " < " + parentId + ", " + duration + " us"
+                + (failed ? ", failed" : "") + ", " + attributes + "]";
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.core.SorcerEnv;
+import sorcer.core.context.IControlContext;
+import sorcer.service.Exertion;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Starts spans and hands the ended ones to the {@link SpanExporter}. The
+ * trace and the current span of an exertion travel in its control context,
+ * so spans started in a provider for an exertion sent by a dispatcher are
+ * steps of the dispatcher's span.
+ * <p/>
+ * Tracing is off unless the {@value #EXPORTER_PROPERTY} property names an
+ * exporter: {@code file} for a {@link FileSpanExporter} writing to
+ * {@value #FILE_PROPERTY}, by default logs/spans-&lt;jvm name&gt;.log in the
+ * SORCER home, or the name of a class implementing {@link SpanExporter}.
+ */
+public class Tracer {
+    public static final String EXPORTER_PROPERTY = "sorcer.trace.exporter";
+    public static final String FILE_PROPERTY = "sorcer.trace.file";
+
+    private static final Logger log = LoggerFactory.getLogger(Tracer.class);
+    private static final Random random = new Random();
+    private static volatile SpanExporter exporter;
+    private static String host;
+
+    static {
+        try {
+            host = SorcerEnv.getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        setExporter(createExporter());
+        Runtime.getRuntime().addShutdownHook(new Thread("Tracer-shutdown") {
+            @Override
+            public void run() {
+                setExporter(null);
+            }
+        });
+    }
+
+    private Tracer() {
+    }
+
+    public static boolean isEnabled() {
+        return exporter != null;
+    }
+
+    /**
+     * Replace the exporter, null disables tracing. The previous exporter is closed.
+     */
+    public static synchronized void setExporter(SpanExporter spanExporter) {
+        SpanExporter previous = exporter;
+        exporter = spanExporter;
+        if (previous != null)
+            previous.close();
+    }
+
+    /**
+     * Start a span of the exertion, a step of the exertion's current span
+     */
+    public static Span start(String name, Exertion exertion) {
+        return start(name, exertion, exertion, System.nanoTime());
+    }
+
+    /**
+     * Start a span of a component exertion, a step of its parent's current span
+     */
+    public static Span start(String name, Exertion exertion, Exertion parent) {
+        return start(name, exertion, parent, System.nanoTime());
+    }
+
+    /**
+     * Start a span of a component exertion, a step of the given span. Unlike
+     * the parent exertion's current span, it does not change while the
+     * components are running.
+     */
+    public static Span start(String name, Exertion exertion, Span parent) {
+        if (exporter == null || exertion == null)
+            return Span.NOOP;
+        String traceId = parent != null ? parent.getTraceId() : null;
+        return start(name, exertion, traceId, traceId != null ? parent.getSpanId() : null, System.nanoTime());
+    }
+
+    /**
+     * Start a span of the exertion that began earlier, at the given {@link System#nanoTime()}
+     */
+    public static Span start(String name, Exertion exertion, long startNanos) {
+        return start(name, exertion, exertion, startNanos);
+    }
+
+    private static Span start(String name, Exertion exertion, Exertion parent, long startNanos) {
+        if (exporter == null || exertion == null)
+            return Span.NOOP;
+        IControlContext pc = parent != null ? parent.getControlContext() : null;
+        String traceId = pc != null ? pc.getTraceId() : null;
+        return start(name, exertion, traceId, traceId != null ? pc.getSpanId() : null, startNanos);
+    }
+
+    private static Span start(String name, Exertion exertion, String traceId, String parentId, long startNanos) {
+        IControlContext cc = exertion.getControlContext();
+        if (cc == null)
+            return Span.NOOP;
+        if (traceId == null)
+            traceId = newId() + newId();
+        Span span = new Span(traceId, newId(), parentId, name, startNanos);
+        cc.setTraceId(traceId);
+        cc.setSpanId(span.getSpanId());
+        span.attribute("exertion", exertion.getName());
+        span.attribute("id", exertion.getId());
+        span.attribute("host", host);
+        return span;
+    }
+
+    static void export(Span span) {
+        SpanExporter spanExporter = exporter;
+        if (spanExporter == null)
+            return;
+        try {
+            spanExporter.export(span);
+        } catch (RuntimeException e) {
+            log.warn("Could not export {}", span, e);
+        }
+    }
+
+    private static String newId() {
+        String hex = Long.toHexString(random.nextLong());
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    private static SpanExporter createExporter() {
+        String type = SorcerEnv.getProperty(EXPORTER_PROPERTY, System.getProperty(EXPORTER_PROPERTY));
+        if (type == null || type.isEmpty())
+            return null;
+        try {
+            if ("file".equals(type)) {
+                String file = SorcerEnv.getProperty(FILE_PROPERTY, System.getProperty(FILE_PROPERTY));
+                if (file == null)
+                    file = new File(SorcerEnv.getHomeDir(), "logs/spans-"
+                            + ManagementFactory.getRuntimeMXBean().getName().replace('@', '-') + ".log").getPath();
+                log.info("Writing exertion spans to {}", file);
+                return new FileSpanExporter(new File(file));
+            }
+            return (SpanExporter) Class.forName(type, true, Tracer.class.getClassLoader()).newInstance();
+        } catch (Exception e) {
+            log.warn("Tracing disabled, could not create span exporter {}", type, e);
+            return null;
+        }
+    }
+}
@@ -999,6 +999,8 @@ public class Table implements ModelTable {
 			con.setDoOutput(true);
 			con.setDoInput(true);
 			con.setRequestMethod("PUT");
+			// stream the table instead of buffering all of it to compute its length
+			con.setChunkedStreamingMode(64 * 1024);
 			con.setRequestProperty("Content-Type", "text/plain");
 
 			pw = new PrintWriter(con.getOutputStream());
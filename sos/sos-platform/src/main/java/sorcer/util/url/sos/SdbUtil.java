@@ -6,11 +6,13 @@ import sorcer.core.context.PositionalContext;
 import sorcer.core.context.ServiceContext;
 import sorcer.core.provider.DatabaseStorer;
 import sorcer.core.provider.StorageManagement;
+import sorcer.core.provider.dbp.StorePage;
 import sorcer.core.signature.NetSignature;
 import sorcer.service.*;
 import sorcer.util.url.sos.SosDbUtil;
 
 import java.net.URL;
+import java.util.Date;
 import java.util.List;
 
 import static sorcer.service.Signature.ReturnPath;
@@ -275,6 +277,62 @@ public class SdbUtil extends SosDbUtil {
     }
 
 
+    /**
+     * Returns a dataContext for
+     * {@link sorcer.core.provider.StorageManagement#contextQuery(sorcer.service.Context)}
+     * with the given conditions, null conditions are ignored. For example all
+     * failed exertions created since yesterday:
+     * <pre>
+     * getQueryContext(Store.exertion, null, null, Exec.FAILED, yesterday, null)
+     * </pre>
+     */
+    static public Context getQueryContext(DatabaseStorer.Store storeType, String name, String principal,
+                                          Integer status, Date createdFrom, Date createdTo) throws ContextException {
+        ServiceContext cxt = new ServiceContext("storage query context");
+        cxt.putInValue(StorageManagement.store_type, storeType);
+        if (name != null)
+            cxt.putInValue(StorageManagement.query_name, name);
+        if (principal != null)
+            cxt.putInValue(StorageManagement.query_principal, principal);
+        if (status != null)
+            cxt.putInValue(StorageManagement.query_status, status);
+        if (createdFrom != null)
+            cxt.putInValue(StorageManagement.query_created_from, createdFrom);
+        if (createdTo != null)
+            cxt.putInValue(StorageManagement.query_created_to, createdTo);
+        cxt.setReturnPath(StorageManagement.query_result);
+        return cxt;
+    }
+
+    @SuppressWarnings("unchecked")
+    static public List<URL> query(Context queryContext) throws ExertionException,
+            SignatureException, ContextException {
+        String storageName = SorcerEnv.getActualDatabaseStorerName();
+        Task queryTask = new Task("query",
+                new NetSignature("contextQuery", DatabaseStorer.class, null, storageName),
+                queryContext);
+        return (List<URL>) execDbTask(queryTask);
+    }
+
+    static public StorePage listPage(DatabaseStorer.Store storeType, int pageSize, String resumeToken)
+            throws ExertionException, SignatureException, ContextException {
+        return listPage(storeType, pageSize, resumeToken, false);
+    }
+
+    /**
+     * @param summaries if true, the entries carry the string forms of the
+     *                  stored objects, which are then read by the storage
+     */
+    static public StorePage listPage(DatabaseStorer.Store storeType, int pageSize, String resumeToken,
+                                     boolean summaries)
+            throws ExertionException, SignatureException, ContextException {
+        String storageName = SorcerEnv.getActualDatabaseStorerName();
+        Task listTask = new Task("listPage",
+                new NetSignature("contextList", DatabaseStorer.class, null, storageName),
+                getListContext(storeType, pageSize, resumeToken, summaries));
+        return (StorePage) execDbTask(listTask);
+    }
+
     public static Exertion execTask(Task task) throws ExertionException, ContextException {
         Exertion xrt;
         try {
@@ -373,4 +431,33 @@ public class SdbUtil extends SosDbUtil {
         cxt.setReturnPath(StorageManagement.store_content_list);
         return cxt;
     }
+
+    /**
+     * Returns a dataContext requesting one page of the store listing, to be used with
+     * {@link sorcer.core.provider.StorageManagement#contextList(sorcer.service.Context)}
+     *
+     * @param resumeToken
+     *            null for the first page, next token of the previous page otherwise
+     */
+    static public Context getListContext(DatabaseStorer.Store storeType, int pageSize, String resumeToken)
+            throws ContextException {
+        return getListContext(storeType, pageSize, resumeToken, false);
+    }
+
+    /**
+     * @param summaries if true, request the string forms of the stored objects
+     */
+    static public Context getListContext(DatabaseStorer.Store storeType, int pageSize, String resumeToken,
+                                         boolean summaries)
+            throws ContextException {
+        ServiceContext cxt = new ServiceContext("storage list page context");
+        cxt.putInValue(StorageManagement.store_type, storeType);
+        cxt.putInValue(StorageManagement.store_page_size, pageSize);
+        if (resumeToken != null)
+            cxt.putInValue(StorageManagement.store_page_token, resumeToken);
+        if (summaries)
+            cxt.putInValue(StorageManagement.store_page_summaries, true);
+        cxt.setReturnPath(StorageManagement.store_page);
+        return cxt;
+    }
 }
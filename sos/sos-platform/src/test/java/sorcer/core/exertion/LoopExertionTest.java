@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.exertion;
+
+import net.jini.core.transaction.Transaction;
+import org.junit.Test;
+import sorcer.service.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class LoopExertionTest {
+
+    @Test(timeout = 30000)
+    public void testPipelinedMatchesSequential() throws Exception {
+        Map<Integer, Object> sequential = new TreeMap<Integer, Object>();
+        LoopExertion loop = new LoopExertion("sequential", 0, 6, new Square());
+        loop.getTarget().getContext().putValue("x", 3);
+        loop.setReducer(new Collector(sequential)).doTask(null);
+
+        Map<Integer, Object> pipelined = new TreeMap<Integer, Object>();
+        LoopExertion pipe = new LoopExertion("pipelined", 0, 6, new Square()).pipeline(3);
+        pipe.getTarget().getContext().putValue("x", 3);
+        pipe.setReducer(new Collector(pipelined)).doTask(null);
+
+        assertEquals(6, sequential.size());
+        assertEquals(sequential, pipelined);
+        assertEquals(loop.getTarget().getContext().getValue("y"), pipe.getTarget().getContext().getValue("y"));
+    }
+
+    @Test(timeout = 30000)
+    public void testSpeculativeMatchesSequential() throws Exception {
+        Map<Integer, Object> sequential = new TreeMap<Integer, Object>();
+        LoopExertion loop = counter("sequential", 5);
+        loop.setReducer(new Collector(sequential)).doTask(null);
+
+        Map<Integer, Object> speculative = new TreeMap<Integer, Object>();
+        LoopExertion spec = counter("speculative", 5).pipeline(2);
+        spec.setReducer(new Collector(speculative)).doTask(null);
+
+        assertEquals(5, sequential.size());
+        assertEquals(25, sequential.get(4));
+        assertEquals(sequential, speculative);
+        assertEquals(5, spec.getTarget().getContext().getValue("x"));
+        assertEquals(5, spec.getCondition().getConditionalContext().getValue("x"));
+    }
+
+    @Test(timeout = 30000)
+    public void testSpeculativeFalseCondition() throws Exception {
+        Map<Integer, Object> speculative = new TreeMap<Integer, Object>();
+        LoopExertion spec = counter("speculative", 0).pipeline(2);
+        spec.setReducer(new Collector(speculative)).doTask(null);
+
+        assertTrue(speculative.isEmpty());
+        assertEquals(0, spec.getTarget().getContext().getValue("x"));
+    }
+
+    @Test(timeout = 30000)
+    public void testBoundedConditionalReducesEveryIteration() throws Exception {
+        Map<Integer, Object> results = new TreeMap<Integer, Object>();
+        LoopExertion loop = counter("bounded", 2, 5, 6);
+        loop.setReducer(new Collector(results)).doTask(null);
+
+        // 2 minimum iterations, then pairs until x reaches the limit
+        assertEquals(7, results.size());
+        assertEquals(1, results.get(0));
+        assertEquals(49, results.get(6));
+        assertEquals(7, loop.getTarget().getContext().getValue("x"));
+    }
+
+    // while (x < limit) { x++; y = x * x }
+    private static LoopExertion counter(String name, int limit) throws ContextException {
+        Square target = new Square();
+        target.getContext().putValue("x", 0);
+        target.getContext().putValue("step", 1);
+        return new LoopExertion(name, new Below(target.getContext(), limit), target);
+    }
+
+    private static LoopExertion counter(String name, int min, int max, int limit) throws ContextException {
+        Square target = new Square();
+        target.getContext().putValue("x", 0);
+        target.getContext().putValue("step", 1);
+        return new LoopExertion(name, min, max, new Below(target.getContext(), limit), target);
+    }
+
+    /**
+     * y = x * x, then x += step
+     */
+    private static class Square extends Task {
+        Square() {
+            super("square");
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends Exertion> T exert(Transaction txn, Arg... entries) throws ExertionException {
+            try {
+                Context cxt = getContext();
+                int x = (Integer) cxt.getValue("x");
+                Object step = cxt.getValue("step");
+                if (step instanceof Integer)
+                    x += (Integer) step;
+                cxt.putValue("x", x);
+                cxt.putValue("y", x * x);
+            } catch (ContextException e) {
+                throw new ExertionException(e);
+            }
+            return (T) this;
+        }
+    }
+
+    private static class Below extends Condition {
+        private final int limit;
+
+        Below(Context context, int limit) {
+            super(context);
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized boolean isTrue() throws ContextException {
+            return (Integer) conditionalContext.getValue("x") < limit;
+        }
+    }
+
+    private static class Collector implements LoopExertion.Reducer {
+        private final Map<Integer, Object> results;
+
+        Collector(Map<Integer, Object> results) {
+            this.results = results;
+        }
+
+        @Override
+        public void reduce(int iteration, Exertion result) throws ContextException {
+            synchronized (results) {
+                results.put(iteration, result.getContext().getValue("y"));
+            }
+        }
+    }
+}
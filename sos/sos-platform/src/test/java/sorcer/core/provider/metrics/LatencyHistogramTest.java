@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.provider.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBuckets() {
+        for (long v = 0; v < LatencyHistogram.MAX_VALUE; v = v * 2 + 1) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(v + " above its bucket", v <= LatencyHistogram.highestValue(index));
+            assertTrue(v + " below its bucket", index == 0 || v > LatencyHistogram.highestValue(index - 1));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++)
+            histogram.record(i);
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertEquals(5000, histogram.getValueAtPercentile(50), 5000 * 0.04);
+        assertEquals(9900, histogram.getValueAtPercentile(99), 9900 * 0.04);
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.core.trace;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileSpanExporterTest {
+    @Test
+    public void testToJson() {
+        Span span = new Span("t1", "s2", null, "lookup", 0);
+        span.attribute("signature", "say \"hi\"\n");
+        String json = FileSpanExporter.toJson(span, new StringBuilder()).toString();
+        assertTrue(json, json.startsWith("{\"trace\":\"t1\",\"span\":\"s2\",\"parent\":null,\"name\":\"lookup\","));
+        assertTrue(json, json.endsWith(",\"duration\":-1,\"failed\":false,\"signature\":\"say \\\"hi\\\"\\n\"}"));
+    }
+
+    @Test
+    public void testNoopSpan() {
+        Span.NOOP.attribute("a", "b").end(true);
+        assertEquals(-1, Span.NOOP.getDuration());
+        assertTrue(Span.NOOP.getAttributes().isEmpty());
+    }
+}
@@ -2428,6 +2428,8 @@ public class GenericUtil implements Serializable {
         con.setDoOutput(true);
         con.setDoInput(true);
         con.setRequestMethod("PUT");
+        // stream the body instead of buffering all of it to compute its length
+        con.setChunkedStreamingMode(64 * 1024);
         con.setRequestProperty("Content-Type", "text/plain");
         con.setReadTimeout(30000);
 
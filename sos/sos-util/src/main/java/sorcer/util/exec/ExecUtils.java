@@ -120,20 +120,24 @@ public class ExecUtils {
         // concurrency to avoid stdio deadlocks
         Redir stdout = null;
         String out = null;
+        Thread tout = null;
         if (!outLogged) {
             stdout = new Redir(process.getInputStream());
-            new Thread(stdout, tName("STDOUT-" + process.toString())).start();
+            tout = new Thread(stdout, tName("STDOUT-" + process.toString()));
+            tout.start();
         }
         Redir stderr = new Redir(process.getErrorStream());
-        new Thread(stderr, tName("STDERR-" + process.toString())).start();
+        Thread terr = new Thread(stderr, tName("STDERR-" + process.toString()));
+        terr.start();
         // redirect input in the current thread
         if (stdin != null) {
             OutputStream pout = process.getOutputStream();
             new RedirectingInputStream(stdin, true, true).redirectAll(pout);
         }
-        process.waitFor();
-        int exitValue = process.exitValue();
-        Thread.sleep(50);
+        int exitValue = process.waitFor();
+        if (tout != null)
+            tout.join();
+        terr.join();
         if (stdout != null) {
             stdout.throwIfHadException();
             out = new String(stdout.getResult());
@@ -144,6 +148,70 @@ public class ExecUtils {
         return new CmdResult(exitValue, out, err);
     }
 
+    /**
+     * Attach to the specified process, feed specified standard input and
+     * stream its standard output and error to the given sinks as the data
+     * arrives. Only the last <code>tailSize</code> bytes of each stream are
+     * kept in the returned {@link CmdResult}, so the memory used does not
+     * depend on the amount of output the process produces. The sinks are
+     * closed when the corresponding process stream ends. If a sink fails, the
+     * rest of its stream is still read but discarded, and the error of the
+     * sink is thrown when the process ends.
+     *
+     * @param process the process to attach to
+     * @param stdin the data to redirect to process' standard input, may be null
+     * @param stdout sink for the standard output (e.g. a file or a
+     *        {@link LineOutputStream}), may be null
+     * @param stderr sink for the standard error, may be null
+     * @param tailSize number of trailing bytes of each stream kept in the result
+     * @return the exit value of the process and the tails of its output
+     * @throws IOException if an I/O error occurs
+     * @throws InterruptedException if thread is interrupted before process
+     *         ends
+     */
+    public static CmdResult execCommand(final Process process, final InputStream stdin,
+                                        OutputStream stdout, OutputStream stderr,
+                                        int tailSize) throws IOException, InterruptedException {
+        TailOutputStream outTail = new TailOutputStream(tailSize);
+        TailOutputStream errTail = new TailOutputStream(tailSize);
+        GuardedOutputStream outSink = stdout == null ? null : new GuardedOutputStream(stdout);
+        GuardedOutputStream errSink = stderr == null ? null : new GuardedOutputStream(stderr);
+        Redir out = new Redir(process.getInputStream(), new TeeOutputStream(outSink, outTail));
+        Redir err = new Redir(process.getErrorStream(), new TeeOutputStream(errSink, errTail));
+        Thread tout = new Thread(out, tName("STDOUT-" + process.toString()));
+        Thread terr = new Thread(err, tName("STDERR-" + process.toString()));
+        tout.start();
+        terr.start();
+        if (stdin != null) {
+            OutputStream pout = process.getOutputStream();
+            new RedirectingInputStream(stdin, true, true).redirectAll(pout);
+        } else {
+            process.getOutputStream().close();
+        }
+        int exitValue = process.waitFor();
+        tout.join();
+        terr.join();
+        out.throwIfHadException();
+        err.throwIfHadException();
+        if (outSink != null)
+            outSink.throwIfHadException();
+        if (errSink != null)
+            errSink.throwIfHadException();
+        return new CmdResult(exitValue, outTail.toString(), errTail.toString());
+    }
+
+    /**
+     * Receives the output of a process line by line.
+     *
+     * @see LineOutputStream
+     */
+    public static interface LineHandler {
+        /**
+         * @param line a line of the output, without the line terminator
+         */
+        void handleLine(String line) throws IOException;
+    }
+
     /**
      * User-specified IO exception handler for exceptions during
      * I/O redirection.
@@ -476,14 +544,16 @@ public class ExecUtils {
         final Pipe pipe;
         IOException ex;
         Redir(InputStream is) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            this(is, new ByteArrayOutputStream());
+        }
+        Redir(InputStream is, OutputStream sink) {
             BrokenPipeHandler bph = new BrokenPipeHandler() {
                 public void brokenPipe(IOException ex, InputStream src,
                                        OutputStream sink) {
                     setException(ex);
                 }
             };
-            this.pipe = new Pipe(is, bos, bph, true, true);
+            this.pipe = new Pipe(is, sink, bph, true, true);
         }
         public void run() {
             pipe.run();
@@ -499,6 +569,75 @@ public class ExecUtils {
         }
     }
 
+    /**
+     * Sink wrapper that remembers the first exception of the sink and drops
+     * everything written after it, so that a failing sink (or line handler)
+     * does not stop draining the process output and the process never blocks
+     * on a full pipe.
+     */
+    private static class GuardedOutputStream extends OutputStream {
+        final OutputStream sink;
+        Exception ex;
+
+        GuardedOutputStream(OutputStream sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) {
+            if (ex != null)
+                return;
+            try {
+                sink.write(b);
+            } catch (Exception e) {
+                setException(e);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (ex != null)
+                return;
+            try {
+                sink.write(b, off, len);
+            } catch (Exception e) {
+                setException(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (ex != null)
+                return;
+            try {
+                sink.flush();
+            } catch (Exception e) {
+                setException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                if (ex == null)
+                    setException(e);
+            }
+        }
+
+        synchronized void setException(Exception e) {
+            this.ex = e;
+        }
+
+        synchronized void throwIfHadException() throws IOException {
+            if (ex instanceof IOException)
+                throw (IOException) ex;
+            if (ex != null)
+                throw new IOException("Output sink failed", ex);
+        }
+    }
+
     private static class ProcessHandler {
         final Process process;
         final Thread tstdin;
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.exec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream splitting written bytes into lines and passing each line to a
+ * {@link ExecUtils.LineHandler}. Lines longer than <code>maxLineLength</code>
+ * are passed in pieces, so memory use is bounded regardless of the output.
+ */
+public class LineOutputStream extends OutputStream {
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+
+    private final ExecUtils.LineHandler handler;
+    private final int maxLineLength;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    private boolean skipLf;
+
+    public LineOutputStream(ExecUtils.LineHandler handler) {
+        this(handler, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    public LineOutputStream(ExecUtils.LineHandler handler, int maxLineLength) {
+        this.handler = handler;
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        if (skipLf) {
+            skipLf = false;
+            if (b == '\n')
+                return;
+        }
+        if (b == '\n' || b == '\r') {
+            skipLf = b == '\r';
+            emit();
+        } else {
+            line.write(b);
+            if (line.size() >= maxLineLength)
+                emit();
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++)
+            write(b[i]);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (line.size() > 0)
+            emit();
+    }
+
+    private void emit() throws IOException {
+        String s = line.toString();
+        line.reset();
+        handler.handleLine(s);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.exec;
+
+import java.io.OutputStream;
+
+/**
+ * Output stream that keeps only the last <code>capacity</code> bytes written
+ * to it. Used to capture the tail of a process output without holding the
+ * whole output in memory.
+ */
+public class TailOutputStream extends OutputStream {
+    private final byte[] buf;
+    private int pos;
+    private long total;
+
+    public TailOutputStream(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity " + capacity);
+        buf = new byte[capacity];
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        total++;
+        if (buf.length == 0)
+            return;
+        buf[pos] = (byte) b;
+        pos = (pos + 1) % buf.length;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        total += len;
+        if (buf.length == 0)
+            return;
+        if (len >= buf.length) {
+            System.arraycopy(b, off + len - buf.length, buf, 0, buf.length);
+            pos = 0;
+            return;
+        }
+        int first = Math.min(len, buf.length - pos);
+        System.arraycopy(b, off, buf, pos, first);
+        System.arraycopy(b, off + first, buf, 0, len - first);
+        pos = (pos + len) % buf.length;
+    }
+
+    /**
+     * @return the retained bytes in the order they were written
+     */
+    public synchronized byte[] toByteArray() {
+        int size = (int) Math.min(total, buf.length);
+        byte[] result = new byte[size];
+        if (total <= buf.length) {
+            System.arraycopy(buf, 0, result, 0, size);
+        } else {
+            System.arraycopy(buf, pos, result, 0, buf.length - pos);
+            System.arraycopy(buf, 0, result, buf.length - pos, pos);
+        }
+        return result;
+    }
+
+    /**
+     * @return total number of bytes written, including the ones that were dropped
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized boolean isTruncated() {
+        return total > buf.length;
+    }
+
+    public synchronized void reset() {
+        pos = 0;
+        total = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(toByteArray());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.exec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream writing everything to all of its (non-null) targets.
+ */
+public class TeeOutputStream extends OutputStream {
+    private final OutputStream[] targets;
+
+    public TeeOutputStream(OutputStream... targets) {
+        int count = 0;
+        for (OutputStream target : targets)
+            if (target != null)
+                count++;
+        this.targets = new OutputStream[count];
+        int i = 0;
+        for (OutputStream target : targets)
+            if (target != null)
+                this.targets[i++] = target;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        for (OutputStream target : targets)
+            target.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        for (OutputStream target : targets)
+            target.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (OutputStream target : targets)
+            target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException ex = null;
+        for (OutputStream target : targets) {
+            try {
+                target.close();
+            } catch (IOException e) {
+                ex = e;
+            }
+        }
+        if (ex != null)
+            throw ex;
+    }
+}
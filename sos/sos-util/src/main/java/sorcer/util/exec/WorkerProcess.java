@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.exec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static sorcer.util.StringUtils.tName;
+
+/**
+ * A long running native process serving requests read from its standard
+ * input. Each request is written to the process' stdin followed by a new line;
+ * everything the process prints on stdout up to a line equal to the end
+ * marker is the response. The process' stderr is drained in the background
+ * and only its tail is kept.
+ * <p/>
+ * Instances are not meant to be shared between concurrent callers directly,
+ * use {@link WorkerProcessPool} instead.
+ */
+public class WorkerProcess {
+    private static final Logger log = LoggerFactory.getLogger(WorkerProcess.class);
+
+    public static final String DEFAULT_END_MARKER = "<<EOR>>";
+
+    private final String[] command;
+    private final Process process;
+    private final InputStream out;
+    private final OutputStream in;
+    private final TailOutputStream errTail;
+    private final byte[] endMarker;
+    private final int tailSize;
+
+    public WorkerProcess(String[] command, File dir, String endMarker, int tailSize) throws IOException {
+        this.command = command;
+        this.endMarker = endMarker.getBytes();
+        this.tailSize = tailSize;
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (dir != null)
+            builder.directory(dir);
+        process = builder.start();
+        out = new BufferedInputStream(process.getInputStream());
+        in = process.getOutputStream();
+        errTail = new TailOutputStream(tailSize);
+
+        Thread stderr = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new RedirectingInputStream(process.getErrorStream(), true, true).redirectAll(errTail);
+                } catch (IOException e) {
+                    log.debug("Error reading stderr of {}", WorkerProcess.this, e);
+                }
+            }
+        }, tName("STDERR-" + process.toString()));
+        stderr.setDaemon(true);
+        stderr.start();
+        log.info("Started worker process {}", this);
+    }
+
+    /**
+     * Send the request to the process and stream its response to the sink.
+     *
+     * @param request request written to the process' standard input
+     * @param stdout  sink for the response, may be null
+     * @return the result with exit value 0 and the tail of the response and stderr
+     * @throws IOException if the process exits before completing the response
+     */
+    public synchronized ExecUtils.CmdResult call(String request, OutputStream stdout) throws IOException {
+        errTail.reset();
+        in.write(request.getBytes());
+        if (!request.endsWith("\n"))
+            in.write('\n');
+        in.flush();
+
+        TailOutputStream outTail = new TailOutputStream(tailSize);
+        OutputStream sink = new TeeOutputStream(stdout, outTail);
+
+        // only the beginning of a line is buffered, to recognize the end marker
+        ByteArrayOutputStream line = new ByteArrayOutputStream(endMarker.length + 2);
+        boolean candidate = true;
+        int b;
+        while ((b = out.read()) != -1) {
+            if (b == '\n') {
+                if (candidate && isEndMarker(line.toByteArray())) {
+                    sink.flush();
+                    return new ExecUtils.CmdResult(0, outTail.toString(), errTail.toString());
+                }
+                line.writeTo(sink);
+                line.reset();
+                sink.write('\n');
+                candidate = true;
+            } else if (candidate) {
+                line.write(b);
+                if (line.size() > endMarker.length + 1) {
+                    line.writeTo(sink);
+                    line.reset();
+                    candidate = false;
+                }
+            } else {
+                sink.write(b);
+            }
+        }
+        line.writeTo(sink);
+        sink.flush();
+        throw new IOException("Worker process " + this + " exited before completing the request; stderr: " + errTail);
+    }
+
+    private boolean isEndMarker(byte[] line) {
+        int len = line.length;
+        if (len > 0 && line[len - 1] == '\r')
+            --len;
+        return len == endMarker.length && Arrays.equals(endMarker, Arrays.copyOf(line, len));
+    }
+
+    public boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException ignored) {
+            return true;
+        }
+    }
+
+    public void destroy() {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // process is destroyed anyway
+        }
+        process.destroy();
+        log.info("Destroyed worker process {}", this);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(command) + "@" + process;
+    }
+}
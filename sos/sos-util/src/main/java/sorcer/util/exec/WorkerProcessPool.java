@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package sorcer.util.exec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of {@link WorkerProcess}es running the same command. At most
+ * <code>maxSize</code> processes are started, each serving one request at a
+ * time, so the process startup cost is paid once per worker and not once per
+ * request. Workers that fail or exit are discarded and replaced on demand.
+ */
+public class WorkerProcessPool {
+    private static final ConcurrentMap<List<String>, WorkerProcessPool> pools = new ConcurrentHashMap<List<String>, WorkerProcessPool>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                shutdownAll();
+            }
+        }, "WorkerProcessPool shutdown hook"));
+    }
+
+    private final String[] command;
+    private final File dir;
+    private final String endMarker;
+    private final int tailSize;
+    private final Semaphore permits;
+    private final BlockingQueue<WorkerProcess> idle = new LinkedBlockingQueue<WorkerProcess>();
+    private volatile boolean closed;
+
+    public WorkerProcessPool(String[] command, File dir, String endMarker, int maxSize, int tailSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Pool size must be positive");
+        this.command = command;
+        this.dir = dir;
+        this.endMarker = endMarker != null ? endMarker : WorkerProcess.DEFAULT_END_MARKER;
+        this.tailSize = tailSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Get the shared pool for the command, creating it if necessary. Pools are
+     * identified by the command only, the other parameters are used when the
+     * pool is created.
+     */
+    public static WorkerProcessPool getPool(String[] command, File dir, String endMarker, int maxSize, int tailSize) {
+        List<String> key = Arrays.asList(command);
+        WorkerProcessPool pool = pools.get(key);
+        if (pool == null) {
+            pool = new WorkerProcessPool(command, dir, endMarker, maxSize, tailSize);
+            WorkerProcessPool existing = pools.putIfAbsent(key, pool);
+            if (existing != null)
+                pool = existing;
+        }
+        return pool;
+    }
+
+    /**
+     * Send the request to an idle worker, starting a new one if all are busy
+     * and the pool is not full, or waiting for one otherwise.
+     *
+     * @see WorkerProcess#call(String, OutputStream)
+     */
+    public ExecUtils.CmdResult call(String request, OutputStream stdout) throws IOException, InterruptedException {
+        if (closed)
+            throw new IllegalStateException("Pool " + Arrays.toString(command) + " is shut down");
+        permits.acquire();
+        WorkerProcess worker = null;
+        try {
+            worker = idle.poll();
+            while (worker != null && !worker.isAlive()) {
+                worker.destroy();
+                worker = idle.poll();
+            }
+            if (worker == null)
+                worker = new WorkerProcess(command, dir, endMarker, tailSize);
+
+            ExecUtils.CmdResult result = worker.call(request, stdout);
+            if (!closed) {
+                idle.add(worker);
+                worker = null;
+            }
+            return result;
+        } finally {
+            if (worker != null)
+                worker.destroy();
+            permits.release();
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public void shutdown() {
+        closed = true;
+        pools.remove(Arrays.asList(command), this);
+        List<WorkerProcess> workers = new ArrayList<WorkerProcess>();
+        idle.drainTo(workers);
+        for (WorkerProcess worker : workers)
+            worker.destroy();
+    }
+
+    public static void shutdownAll() {
+        for (WorkerProcessPool pool : pools.values())
+            pool.shutdown();
+    }
+}
@@ -0,0 +1,53 @@
+package sorcer.util.exec;
+/**
+ *
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecUtilsTest {
+
+    @Test(timeout = 30000)
+    public void testFailingHandlerDoesNotBlockProcess() throws Exception {
+        final List<String> lines = new ArrayList<String>();
+        LineOutputStream out = new LineOutputStream(new ExecUtils.LineHandler() {
+            @Override
+            public void handleLine(String line) throws IOException {
+                lines.add(line);
+                throw new IllegalStateException("handler failed");
+            }
+        }, 80);
+        // more output than a pipe buffer holds
+        Process process = Runtime.getRuntime().exec(new String[]{"sh", "-c", "i=0; while [ $i -lt 20000 ]; do echo line $i; i=$((i+1)); done"});
+        try {
+            ExecUtils.execCommand(process, null, out, null, 64);
+            fail("sink error not reported");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals(1, lines.size());
+        }
+        assertEquals(0, process.exitValue());
+    }
+}
@@ -0,0 +1,48 @@
+package sorcer.util.exec;
+/**
+ *
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineOutputStreamTest {
+
+    @Test
+    public void testLines() throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        LineOutputStream out = new LineOutputStream(new ExecUtils.LineHandler() {
+            @Override
+            public void handleLine(String line) {
+                lines.add(line);
+            }
+        }, 4);
+        out.write("a\nbc\r\n\nabcdef".getBytes());
+        out.close();
+        assertEquals(5, lines.size());
+        assertEquals("a", lines.get(0));
+        assertEquals("bc", lines.get(1));
+        assertEquals("", lines.get(2));
+        assertEquals("abcd", lines.get(3));
+        assertEquals("ef", lines.get(4));
+    }
+}
@@ -0,0 +1,46 @@
+package sorcer.util.exec;
+/**
+ *
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TailOutputStreamTest {
+
+    @Test
+    public void testTail() throws IOException {
+        TailOutputStream tail = new TailOutputStream(5);
+        tail.write("abc".getBytes());
+        assertEquals("abc", tail.toString());
+        assertFalse(tail.isTruncated());
+
+        tail.write("defg".getBytes());
+        assertEquals("cdefg", tail.toString());
+        tail.write('h');
+        assertEquals("defgh", tail.toString());
+        tail.write("0123456789".getBytes());
+        assertEquals("56789", tail.toString());
+        assertTrue(tail.isTruncated());
+        assertEquals(18, tail.getTotal());
+    }
+}
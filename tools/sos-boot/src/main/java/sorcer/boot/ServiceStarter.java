@@ -17,6 +17,7 @@ package sorcer.boot;
 
 import com.google.inject.*;
 import com.sun.jini.start.LifeCycle;
+import com.sun.jini.start.NonActivatableServiceDescriptor;
 import com.sun.jini.start.ServiceDescriptor;
 import net.jini.config.Configuration;
 import net.jini.config.ConfigurationException;
@@ -35,9 +36,11 @@ import javax.security.auth.Subject;
 import javax.security.auth.login.LoginContext;
 import javax.security.auth.login.LoginException;
 import java.io.File;
+import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static sorcer.boot.destroy.ServiceDestroyerFactory.getDestroyer;
 import static sorcer.core.SorcerConstants.E_RIO_HOME;
@@ -55,6 +58,7 @@ public class ServiceStarter implements LifeCycle {
     private final Set<Service> nonDestroyServices = new HashSet<Service>();
 
     private volatile boolean bootInterrupted;
+    private volatile ServiceStartup startup;
 
     private final LifeCycle exitMonitor;
     protected Injector injector;
@@ -107,14 +111,23 @@ public class ServiceStarter implements LifeCycle {
         log.debug("*** Stopping Sorcersoft.com SORCER ***");
 
         bootInterrupted = true;
+        ServiceStartup startup = this.startup;
+        if (startup != null)
+            startup.cancel();
         Service service;
-        while ((service = services.pollLast()) != null)
+        while ((service = pollLast()) != null)
             stop(service);
 
         log.info("******* Sorcersoft.com SORCER stopped *******");
         exitSorcer();
     }
 
+    private Service pollLast() {
+        synchronized (services) {
+            return services.pollLast();
+        }
+    }
+
     private void stop(Service service) {
         if (service.destroyer != null) {
             log.info("Stopping {}", service.impl);
@@ -159,8 +172,8 @@ public class ServiceStarter implements LifeCycle {
     }
 
     private static class ServiceStatHolder {
-        public int started;
-        public int erred;
+        public final AtomicInteger started = new AtomicInteger();
+        public final AtomicInteger erred = new AtomicInteger();
         public int all;
     }
 
@@ -206,7 +219,8 @@ public class ServiceStarter implements LifeCycle {
     /**
      * Generic service creation method that attempts to start the
      * services defined by the provided <code>ServiceDescriptor[]</code>
-     * argument.
+     * argument. Services are created in parallel, in the order of their
+     * declared dependencies, see {@link ServiceStartup}.
      *
      * @param descs  The <code>ServiceDescriptor[]</code> that contains
      *               the descriptors for the services to start.
@@ -216,50 +230,121 @@ public class ServiceStarter implements LifeCycle {
      * @see com.sun.jini.start.ServiceDescriptor
      * @see net.jini.config.Configuration
      */
-    public void create(ServiceDescriptor[] descs, Configuration config, ServiceStatHolder stat, Set<ServiceDescriptorProcessor> processors) {
+    public void create(ServiceDescriptor[] descs, final Configuration config, final ServiceStatHolder stat, Set<ServiceDescriptorProcessor> processors) {
+        // the pool threads run with the login subject and class loader of the caller
+        final Subject subject = Subject.getSubject(AccessController.getContext());
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        // names of SORCER providers are read from their configuration, only if needed
+        ServiceStartup.Namer namer = new ServiceStartup.Namer() {
+            @Override
+            public String getName(final ServiceDescriptor desc) {
+                return ClassLoaders.doWith(classLoader, new ClassLoaders.Callable<String, RuntimeException>() {
+                    @Override
+                    public String call() {
+                        return ServiceStarter.this.getName(desc);
+                    }
+                });
+            }
+        };
+
+        List<ServiceStartup.Node> nodes = new ArrayList<ServiceStartup.Node>(descs.length);
         for (ServiceDescriptor desc : descs) {
-            if (bootInterrupted)
-                break;
             if (desc == null)
                 continue;
 
             injector.injectMembers(desc);
-            log.info("Creating service from {}", desc);
 
             if (processors != null)
                 for (ServiceDescriptorProcessor processor : processors) {
                     processor.process(desc);
                 }
+            nodes.add(new ServiceStartup.Node(desc, namer));
+        }
 
-            Service service;
-            try {
-                if (desc instanceof AbstractServiceDescriptor) {
-                    ((AbstractServiceDescriptor) desc).addLifeCycle(this);
-                    service = (Service) desc.create(config);
-                } else if (desc instanceof RioServiceDescriptor) {
-                    log.info("Starting RIO service");
-                    RioServiceDescriptor.Created created = (RioServiceDescriptor.Created) desc.create(config);
-                    service = new Service(created.impl, created.proxy, desc);
-                } else {
-                    log.info("Starting UNKNOWN service");
-                    service = new Service(desc.create(config), null, desc);
+        ServiceStartup startup = ServiceStartup.fromEnv();
+        this.startup = startup;
+        if (bootInterrupted)
+            startup.cancel();
+        try {
+            startup.start(nodes, new ServiceStartup.Creator() {
+                @Override
+                public void create(final ServiceDescriptor desc) throws Exception {
+                    ClassLoaders.doWith(classLoader, new ClassLoaders.Callable<Void, Exception>() {
+                        @Override
+                        public Void call() throws Exception {
+                            if (subject == null)
+                                createService(desc, config, stat);
+                            else
+                                try {
+                                    Subject.doAsPrivileged(subject, new PrivilegedExceptionAction<Void>() {
+                                        public Void run() throws Exception {
+                                            createService(desc, config, stat);
+                                            return null;
+                                        }
+                                    }, null);
+                                } catch (PrivilegedActionException e) {
+                                    throw e.getException();
+                                }
+                            return null;
+                        }
+                    });
                 }
-                ServiceDestroyer destroyer = getDestroyer(service.impl);
-                log.debug("Service destroyer for {} => {}", service.impl, destroyer);
-                if (destroyer == null)
+            });
+        } finally {
+            this.startup = null;
+        }
+    }
+
+    private void createService(ServiceDescriptor desc, Configuration config, ServiceStatHolder stat) throws Exception {
+        log.info("Creating service from {}", desc);
+        Service service;
+        try {
+            if (desc instanceof AbstractServiceDescriptor) {
+                ((AbstractServiceDescriptor) desc).addLifeCycle(this);
+                service = (Service) desc.create(config);
+            } else if (desc instanceof RioServiceDescriptor) {
+                log.info("Starting RIO service");
+                RioServiceDescriptor.Created created = (RioServiceDescriptor.Created) desc.create(config);
+                service = new Service(created.impl, created.proxy, desc);
+            } else {
+                log.info("Starting UNKNOWN service");
+                service = new Service(desc.create(config), null, desc);
+            }
+            ServiceDestroyer destroyer = getDestroyer(service.impl);
+            log.debug("Service destroyer for {} => {}", service.impl, destroyer);
+            if (destroyer == null)
+                synchronized (nonDestroyServices) {
                     nonDestroyServices.add(service);
-                else {
-                    service.destroyer = destroyer;
+                }
+            else {
+                service.destroyer = destroyer;
+                synchronized (services) {
                     services.add(service);
                 }
-                ++stat.started;
-            } catch (Exception e) {
-                log.warn("Error while creating a service from {}", desc, e);
-                ++stat.erred;
-            } finally {
-                log.info("Started {}/{} services; {} errors", stat.started, stat.all, stat.erred);
             }
+            stat.started.incrementAndGet();
+        } catch (Exception e) {
+            log.warn("Error while creating a service from {}", desc, e);
+            stat.erred.incrementAndGet();
+            throw e;
+        } finally {
+            log.info("Started {}/{} services; {} errors", stat.started, stat.all, stat.erred);
+        }
+    }
+
+    /**
+     * Name of the service used to declare startup dependencies, null if the
+     * service can't be named
+     */
+    protected String getName(ServiceDescriptor desc) {
+        if (desc instanceof AbstractServiceDescriptor)
+            return ((AbstractServiceDescriptor) desc).getName();
+        if (desc instanceof NonActivatableServiceDescriptor) {
+            String className = ((NonActivatableServiceDescriptor) desc).getImplClassName();
+            return className.substring(className.lastIndexOf('.') + 1);
         }
+        return null;
     }
 
     /**
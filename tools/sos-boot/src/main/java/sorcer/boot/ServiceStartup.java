@@ -0,0 +1,368 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.boot;
+
+import com.sun.jini.start.ServiceDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sorcer.core.SorcerEnv;
+import sorcer.util.ConfigurableThreadFactory;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates services on a bounded pool of threads. Services are independent
+ * unless a dependency is declared, a service is then created after the
+ * services it depends on, and not at all if any of them fails.
+ * <p/>
+ * Dependencies are declared by service names in the
+ * {@value #P_DEPENDENCIES} property as <code>service:dependency[,dependency]</code>
+ * entries separated by semicolons, e.g. <code>ExertMonitor:DatabaseStorer</code>.
+ * A service is named by its opstring service element or by its provider name.
+ * Names that have to be read from the service configuration are read on the
+ * pool, and only if any dependency is declared.
+ * Unless the property is set, the exert monitor depends on the database storer.
+ * A dependency on a service that is not started here is ignored.
+ * With {@value #P_THREADS} set to 1, services are created one after another
+ * in the order of their descriptors.
+ */
+class ServiceStartup {
+    private static final Logger log = LoggerFactory.getLogger(ServiceStartup.class);
+
+    public static final String P_THREADS = "sorcer.boot.threads";
+    public static final String P_DEPENDENCIES = "sorcer.boot.dependencies";
+
+    interface Creator {
+        void create(ServiceDescriptor descriptor) throws Exception;
+    }
+
+    interface Namer {
+        /**
+         * @return name of the service, null if it can't be named
+         */
+        String getName(ServiceDescriptor descriptor);
+    }
+
+    enum State {
+        PENDING, STARTED, FAILED, SKIPPED
+    }
+
+    static class Node {
+        final ServiceDescriptor descriptor;
+        // reads the name when it is needed, null if the name is given
+        final Namer namer;
+        // null if the service can't be named or the name was not needed
+        String name;
+        final List<Node> dependencies = new ArrayList<Node>();
+        final List<Node> dependents = new ArrayList<Node>();
+
+        // guarded by the ServiceStartup
+        int pending;
+        State state = State.PENDING;
+        Throwable error;
+        String reason;
+        long time;
+
+        Node(ServiceDescriptor descriptor, String name) {
+            this.descriptor = descriptor;
+            this.namer = null;
+            this.name = name;
+        }
+
+        Node(ServiceDescriptor descriptor, Namer namer) {
+            this.descriptor = descriptor;
+            this.namer = namer;
+        }
+
+        public String toString() {
+            return name != null ? name : String.valueOf(descriptor);
+        }
+    }
+
+    private final int threads;
+    private final Map<String, Set<String>> dependencies;
+
+    private ThreadPoolExecutor pool;
+    private CountDownLatch done;
+    private Creator creator;
+    private volatile boolean cancelled;
+
+    ServiceStartup(int threads, Map<String, Set<String>> dependencies) {
+        this.threads = Math.max(1, threads);
+        this.dependencies = dependencies;
+    }
+
+    static ServiceStartup fromEnv() {
+        String threads = getProperty(P_THREADS);
+        String dependencies = getProperty(P_DEPENDENCIES);
+        if (dependencies == null)
+            dependencies = getDefaultDependencies();
+        return new ServiceStartup(
+                threads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads.trim()),
+                parseDependencies(dependencies));
+    }
+
+    /*
+     * The exert monitor after the database storer, by the names of the
+     * opstring services and by the provider names
+     */
+    private static String getDefaultDependencies() {
+        return "ExertMonitor:DatabaseStorer;"
+                + SorcerEnv.getExertMonitorName() + ":" + SorcerEnv.getDatabaseStorerName();
+    }
+
+    private static String getProperty(String key) {
+        return SorcerEnv.getProperty(key, System.getProperty(key));
+    }
+
+    static Map<String, Set<String>> parseDependencies(String spec) {
+        Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+        if (spec == null)
+            return result;
+        for (String entry : spec.split(";")) {
+            if (entry.trim().isEmpty())
+                continue;
+            String[] parts = entry.split(":", 2);
+            if (parts.length != 2 || parts[0].trim().isEmpty()) {
+                log.warn("Malformed service dependency {} in {}", entry, P_DEPENDENCIES);
+                continue;
+            }
+            Set<String> deps = result.get(parts[0].trim());
+            if (deps == null) {
+                deps = new LinkedHashSet<String>();
+                result.put(parts[0].trim(), deps);
+            }
+            for (String dep : parts[1].split(","))
+                if (!dep.trim().isEmpty())
+                    deps.add(dep.trim());
+        }
+        return result;
+    }
+
+    /**
+     * Create the services, return when all of them are either created, failed or skipped
+     *
+     * @param nodes services in the order of their descriptors
+     */
+    void start(List<Node> nodes, Creator creator) {
+        if (nodes.isEmpty())
+            return;
+        this.creator = creator;
+        done = new CountDownLatch(nodes.size());
+
+        ConfigurableThreadFactory tf = new ConfigurableThreadFactory();
+        tf.setDaemon(true);
+        tf.setNameFormat("ServiceStarter-%2$d");
+        int size = Math.min(threads, nodes.size());
+        pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), tf);
+
+        if (!dependencies.isEmpty()) {
+            readNames(nodes);
+            link(nodes);
+        }
+
+        List<Node> ready = new ArrayList<Node>();
+        synchronized (this) {
+            for (Node node : nodes) {
+                node.pending = node.dependencies.size();
+                if (node.pending == 0)
+                    ready.add(node);
+            }
+        }
+        log.debug("Starting {} services on {} threads", nodes.size(), size);
+        for (Node node : ready)
+            submit(node);
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        report(nodes);
+    }
+
+    /**
+     * Don't create services that were not started yet
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /*
+     * Read the names of the services that are not named yet, in parallel
+     */
+    private void readNames(List<Node> nodes) {
+        Map<Node, Future<String>> names = new LinkedHashMap<Node, Future<String>>();
+        for (final Node node : nodes) {
+            if (node.namer == null)
+                continue;
+            names.put(node, pool.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return node.namer.getName(node.descriptor);
+                }
+            }));
+        }
+        try {
+            for (Map.Entry<Node, Future<String>> e : names.entrySet()) {
+                try {
+                    e.getKey().name = e.getValue().get();
+                } catch (ExecutionException x) {
+                    log.warn("Could not name the service {}", e.getKey(), x.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Resolve declared dependencies to nodes, drop the ones that would make a cycle
+     */
+    private void link(List<Node> nodes) {
+        Map<String, List<Node>> byName = new HashMap<String, List<Node>>();
+        for (Node node : nodes) {
+            if (node.name == null)
+                continue;
+            List<Node> named = byName.get(node.name);
+            if (named == null) {
+                named = new ArrayList<Node>();
+                byName.put(node.name, named);
+            }
+            named.add(node);
+        }
+        for (Node node : nodes) {
+            Set<String> names = node.name == null ? null : dependencies.get(node.name);
+            if (names == null)
+                continue;
+            for (String name : names) {
+                List<Node> deps = byName.get(name);
+                if (deps == null) {
+                    log.debug("{} depends on {} which is not started here", node, name);
+                    continue;
+                }
+                for (Node dep : deps)
+                    if (dep != node && !node.dependencies.contains(dep))
+                        node.dependencies.add(dep);
+            }
+        }
+
+        Set<Node> visited = new HashSet<Node>();
+        for (Node node : nodes)
+            breakCycles(node, new LinkedHashSet<Node>(), visited);
+        for (Node node : nodes)
+            for (Node dep : node.dependencies)
+                dep.dependents.add(node);
+    }
+
+    private static void breakCycles(Node node, Set<Node> path, Set<Node> visited) {
+        if (!visited.add(node))
+            return;
+        path.add(node);
+        for (Iterator<Node> it = node.dependencies.iterator(); it.hasNext(); ) {
+            Node dep = it.next();
+            if (path.contains(dep)) {
+                log.warn("Ignoring dependency of {} on {}, it makes a cycle {}", node, dep, path);
+                it.remove();
+            } else {
+                breakCycles(dep, path, visited);
+            }
+        }
+        path.remove(node);
+    }
+
+    private void submit(final Node node) {
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                execute(node);
+            }
+        });
+    }
+
+    private void execute(Node node) {
+        if (cancelled) {
+            finish(node, State.SKIPPED, null, "boot interrupted", 0);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            creator.create(node.descriptor);
+            finish(node, State.STARTED, null, null, System.nanoTime() - start);
+        } catch (Throwable e) {
+            finish(node, State.FAILED, e, null, System.nanoTime() - start);
+        }
+    }
+
+    private void finish(Node node, State state, Throwable error, String reason, long time) {
+        List<Node> ready = new ArrayList<Node>();
+        synchronized (this) {
+            node.state = state;
+            node.error = error;
+            node.reason = reason;
+            node.time = TimeUnit.NANOSECONDS.toMillis(time);
+            for (Node dependent : node.dependents) {
+                if (dependent.state != State.PENDING)
+                    continue;
+                if (state != State.STARTED)
+                    skip(dependent, node);
+                else if (--dependent.pending == 0)
+                    ready.add(dependent);
+            }
+        }
+        done.countDown();
+        for (Node dependent : ready)
+            submit(dependent);
+    }
+
+    // called with the lock held
+    private void skip(Node node, Node cause) {
+        node.state = State.SKIPPED;
+        node.reason = "dependency " + cause + " " + cause.state.name().toLowerCase();
+        log.warn("Not starting {}, {}", node, node.reason);
+        done.countDown();
+        for (Node dependent : node.dependents)
+            if (dependent.state == State.PENDING)
+                skip(dependent, node);
+    }
+
+    private static void report(List<Node> nodes) {
+        if (!log.isInfoEnabled())
+            return;
+        StringBuilder result = new StringBuilder("Service startup:");
+        for (Node node : nodes) {
+            result.append("\n  ").append(node).append(": ").append(node.state);
+            if (node.state == State.STARTED || node.state == State.FAILED)
+                result.append(" in ").append(node.time).append(" ms");
+            if (node.error != null)
+                result.append(", ").append(node.error);
+            if (node.reason != null)
+                result.append(", ").append(node.reason);
+        }
+        log.info(result.toString());
+    }
+}
@@ -22,6 +22,8 @@ import com.google.inject.Module;
 import com.sun.jini.start.*;
 import edu.emory.mathcs.util.classloader.URIClassLoader;
 import net.jini.config.Configuration;
+import net.jini.config.ConfigurationException;
+import net.jini.config.ConfigurationProvider;
 import net.jini.security.policy.DynamicPolicyProvider;
 import net.jini.security.policy.PolicyFileProvider;
 import org.rioproject.loader.ClassAnnotator;
@@ -50,11 +52,15 @@ import java.security.Policy;
 import java.util.*;
 
 import static sorcer.container.core.InitializingModule.INIT_MODULE;
+import static sorcer.core.SorcerConstants.J_PROVIDER_NAME;
 
 /**
  * @author Rafał Krupiński
  */
 public abstract class AbstractServiceDescriptor implements ServiceDescriptor {
+    // configuration component of SORCER providers, see sorcer.core.provider.ServiceProvider
+    private static final String PROVIDER_COMPONENT = "sorcer.core.provider.ServiceProvider";
+
     /*
     * Injection works after the constructor is called, but before calling create
     */
@@ -75,6 +81,8 @@ public abstract class AbstractServiceDescriptor implements ServiceDescriptor {
 
     private String policyFile;
 
+    private String name;
+
     @Inject
     @Named("globalPolicy")
     protected AggregatePolicyProvider globalPolicy;
@@ -232,6 +240,52 @@ public abstract class AbstractServiceDescriptor implements ServiceDescriptor {
         return implClassName;
     }
 
+    /**
+     * @return name of the service, used to declare its startup dependencies:
+     * the provider name from its configuration or, for services that are not
+     * SORCER providers, the simple name of the implementation class
+     */
+    public synchronized String getName() {
+        if (name == null)
+            name = readName();
+        return name;
+    }
+
+    protected String readName() {
+        List<String> args = getServiceConfigArgs();
+        if (args != null && !args.isEmpty()) {
+            String[] configArgs = args.toArray(new String[args.size()]);
+            ClassLoader parent = Thread.currentThread().getContextClassLoader();
+            String providerName = null;
+            try {
+                providerName = readProviderName(configArgs, parent);
+            } catch (ConfigurationException e) {
+                // the configuration may refer to classes of the service
+                Set<URI> classpath = getClasspath();
+                if (classpath == null || classpath.isEmpty())
+                    logger.warn("Could not read the provider name from {}", args, e);
+                else
+                    try {
+                        providerName = readProviderName(configArgs,
+                                new URIClassLoader(classpath.toArray(new URI[classpath.size()]), parent));
+                    } catch (ConfigurationException x) {
+                        logger.warn("Could not read the provider name from {}", args, x);
+                    }
+            }
+            if (providerName != null && !providerName.isEmpty())
+                return providerName;
+        }
+        String className = getImplClassName();
+        if (className == null)
+            return getClass().getSimpleName();
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static String readProviderName(String[] configArgs, ClassLoader loader) throws ConfigurationException {
+        Configuration config = ConfigurationProvider.getInstance(configArgs, loader);
+        return (String) config.getEntry(PROVIDER_COMPONENT, J_PROVIDER_NAME, String.class, null);
+    }
+
     protected List<String> getServiceConfigArgs() {
         return configArgs;
     }
@@ -0,0 +1,167 @@
+package sorcer.boot;
+
+import com.sun.jini.start.ServiceDescriptor;
+import net.jini.config.Configuration;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static sorcer.boot.ServiceStartup.Node;
+import static sorcer.boot.ServiceStartup.State;
+
+public class ServiceStartupTest {
+    private final List<String> created = Collections.synchronizedList(new ArrayList<String>());
+    private final Set<String> failing = new HashSet<String>();
+    private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+    private final ServiceStartup.Creator creator = new ServiceStartup.Creator() {
+        @Override
+        public void create(ServiceDescriptor descriptor) throws Exception {
+            String name = descriptor.toString();
+            threads.add(Thread.currentThread().getName());
+            Thread.sleep(20);
+            if (failing.contains(name))
+                throw new Exception(name + " failed");
+            created.add(name);
+        }
+    };
+
+    @Test
+    public void testParseDependencies() {
+        Map<String, Set<String>> deps = ServiceStartup.parseDependencies(" Exert Monitor:Database Storage ; Exerter:Cataloger,Jobber;bad;");
+        assertEquals(2, deps.size());
+        assertEquals(Collections.singleton("Database Storage"), deps.get("Exert Monitor"));
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("Cataloger", "Jobber")), deps.get("Exerter"));
+    }
+
+    @Test(timeout = 10000)
+    public void testDependencyOrder() {
+        List<Node> nodes = nodes("C", "B", "A", "D");
+        start(4, "C:B;B:A", nodes);
+
+        assertEquals(4, created.size());
+        assertTrue(created.indexOf("A") < created.indexOf("B"));
+        assertTrue(created.indexOf("B") < created.indexOf("C"));
+        for (Node node : nodes)
+            assertEquals(State.STARTED, node.state);
+    }
+
+    @Test(timeout = 10000)
+    public void testSkipDependentsOfFailed() {
+        failing.add("A");
+        List<Node> nodes = nodes("A", "B", "C", "D");
+        start(4, "B:A;C:B", nodes);
+
+        assertEquals(Arrays.asList("D"), created);
+        assertEquals(State.FAILED, nodes.get(0).state);
+        assertNotNull(nodes.get(0).error);
+        assertEquals(State.SKIPPED, nodes.get(1).state);
+        assertEquals(State.SKIPPED, nodes.get(2).state);
+        assertEquals(State.STARTED, nodes.get(3).state);
+    }
+
+    @Test(timeout = 10000)
+    public void testBreakCycle() {
+        List<Node> nodes = nodes("A", "B", "C");
+        start(4, "A:B;B:C;C:A", nodes);
+
+        assertEquals(3, created.size());
+        for (Node node : nodes)
+            assertEquals(State.STARTED, node.state);
+    }
+
+    @Test(timeout = 10000)
+    public void testSequentialInDescriptorOrder() {
+        List<Node> nodes = nodes("F", "E", "D", "C", "B", "A");
+        nodes.add(new Node(new NamedDescriptor("unnamed"), (String) null));
+        start(1, "", nodes);
+
+        assertEquals(Arrays.asList("F", "E", "D", "C", "B", "A", "unnamed"), created);
+        assertEquals(1, threads.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testNamesReadOnPool() {
+        final Set<String> namingThreads = Collections.synchronizedSet(new HashSet<String>());
+        ServiceStartup.Namer namer = new ServiceStartup.Namer() {
+            @Override
+            public String getName(ServiceDescriptor descriptor) {
+                namingThreads.add(Thread.currentThread().getName());
+                return descriptor.toString();
+            }
+        };
+        List<Node> nodes = new ArrayList<Node>();
+        for (String name : new String[]{"B", "A"})
+            nodes.add(new Node(new NamedDescriptor(name), namer));
+        start(2, "B:A", nodes);
+
+        assertEquals(Arrays.asList("A", "B"), created);
+        assertEquals("B", nodes.get(0).name);
+        assertFalse(namingThreads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test(timeout = 10000)
+    public void testNoNamesWithoutDependencies() {
+        ServiceStartup.Namer namer = new ServiceStartup.Namer() {
+            @Override
+            public String getName(ServiceDescriptor descriptor) {
+                throw new AssertionError("named " + descriptor);
+            }
+        };
+        List<Node> nodes = new ArrayList<Node>();
+        for (String name : new String[]{"A", "B"})
+            nodes.add(new Node(new NamedDescriptor(name), namer));
+        start(2, "", nodes);
+
+        assertEquals(2, created.size());
+        assertNull(nodes.get(0).name);
+    }
+
+    @Test(timeout = 10000)
+    public void testCancel() {
+        final ServiceStartup startup = new ServiceStartup(1, ServiceStartup.parseDependencies(""));
+        List<Node> nodes = nodes("A", "B", "C", "D");
+        startup.start(nodes, new ServiceStartup.Creator() {
+            @Override
+            public void create(ServiceDescriptor descriptor) throws Exception {
+                created.add(descriptor.toString());
+                if (created.size() == 2)
+                    startup.cancel();
+            }
+        });
+
+        assertEquals(Arrays.asList("A", "B"), created);
+        assertEquals(State.SKIPPED, nodes.get(2).state);
+        assertEquals(State.SKIPPED, nodes.get(3).state);
+    }
+
+    private void start(int threads, String dependencies, List<Node> nodes) {
+        new ServiceStartup(threads, ServiceStartup.parseDependencies(dependencies)).start(nodes, creator);
+    }
+
+    private static List<Node> nodes(String... names) {
+        List<Node> result = new ArrayList<Node>();
+        for (String name : names)
+            result.add(new Node(new NamedDescriptor(name), name));
+        return result;
+    }
+
+    private static class NamedDescriptor implements ServiceDescriptor {
+        private final String name;
+
+        NamedDescriptor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object create(Configuration config) throws Exception {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
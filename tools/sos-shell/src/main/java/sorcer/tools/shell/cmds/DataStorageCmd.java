@@ -21,15 +21,13 @@ import java.io.PrintStream;
 import java.net.MalformedURLException;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import net.jini.core.lookup.ServiceItem;
 import net.jini.id.Uuid;
-import sorcer.core.provider.Provider;
 import sorcer.core.provider.StorageManagement;
+import sorcer.core.provider.dbp.StorePage;
 import sorcer.core.monitor.MonitorUIManagement;
 import sorcer.eo.operator;
 import sorcer.jini.lookup.AttributesUtil;
@@ -37,10 +35,8 @@ import sorcer.service.Context;
 import sorcer.service.ContextException;
 import sorcer.core.provider.DatabaseStorer;
 import sorcer.service.Exertion;
-import sorcer.service.ExertionException;
 import sorcer.service.MonitorException;
 import sorcer.service.ServiceExertion;
-import sorcer.service.SignatureException;
 import sorcer.tools.shell.NetworkShell;
 import sorcer.tools.shell.ReggieHelper;
 import sorcer.tools.shell.ShellCmd;
@@ -48,8 +44,6 @@ import sorcer.util.WhitespaceTokenizer;
 import sorcer.util.bdb.objects.ObjectInfo;
 import sorcer.util.url.sos.SdbUtil;
 
-import static sorcer.co.operator.list;
-import static sorcer.co.operator.store;
 
 public class DataStorageCmd extends ShellCmd {
 
@@ -73,6 +67,8 @@ public class DataStorageCmd extends ShellCmd {
 
 	}
 
+	private static final int PAGE_SIZE = 100;
+
 	static private PrintStream out;
 	static private ServiceItem[] dataStorers;
 	static private ObjectInfo[] recordInfos;
@@ -201,41 +197,13 @@ public class DataStorageCmd extends ShellCmd {
 //					.getMonitorableExertionInfo(type,
 //							NetworkShell.getPrincipal());
 			
-			Context cxt = null;
-			 try {
-                 store("dupa");
-				 out.println("XXXXXXXXXXXXX service item: " + dataStorers[selectedDataStorer]);
-				 out.println("XXXXXXXXXXXXX service: " + dataStorers[selectedDataStorer].service);
-				 out.println("XXXXXXXXXXXXX interfaces: " + Arrays.toString(dataStorers[selectedDataStorer].service.getClass().getInterfaces()));
-				 out.println("XXXXXXXXXXXXX name: " + ((Provider) dataStorers[selectedDataStorer].service).getProviderName());
-				 try {
-				 cxt = ((DatabaseStorer) dataStorers[selectedDataStorer].service).contextList(SdbUtil.getListContext(DatabaseStorer.Store.object));
-				} catch (MalformedURLException e) {
-					e.printStackTrace();
-				}
-				out.println("XXXXXXXXXXXXX dataContext: " + cxt);
-				try {
-                    store("dupa");
-                    List<String>  records = list(DatabaseStorer.Store.object);
-					out.println("XXXXXXXXXXXXX records; " + records);
-				} catch (ExertionException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				} catch (SignatureException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-				out.println(cxt.getValue(StorageManagement.store_content_list));
-//			} catch (ExertionException e) {
-//				e.printStackTrace();
-//			} catch (SignatureException e) {
-//				e.printStackTrace();
+			try {
+				printPages((StorageManagement) dataStorers[selectedDataStorer].service, type);
 			} catch (ContextException e) {
-				e.printStackTrace();
+				out.println("Problem listing records: " + e.getMessage());
+			} catch (MalformedURLException e) {
+				out.println("Problem listing records: " + e.getMessage());
 			}
-			
-			
-			
 		} else {
 			Map<Uuid, ObjectInfo> ri = null;
 			all = new HashMap<Uuid, ObjectInfo>();
@@ -269,6 +237,24 @@ public class DataStorageCmd extends ShellCmd {
 //		printRecordInfos(recordInfos);
 	}
 
+	/**
+	 * Print the store records page by page, so the storage never has to
+	 * materialize the whole listing at once.
+	 */
+	private void printPages(StorageManagement storer, DatabaseStorer.Store type)
+			throws RemoteException, ContextException, MalformedURLException {
+		String token = null;
+		int count = 0;
+		do {
+			Context cxt = storer.contextList(SdbUtil.getListContext(type, PAGE_SIZE, token));
+			StorePage page = (StorePage) cxt.getValue(StorageManagement.store_page);
+			for (StorePage.Entry entry : page.getEntries())
+				out.println(count++ + ": " + entry);
+			token = page.getNextToken();
+		} while (token != null);
+		out.println("Records: " + count);
+	}
+
 	private void printRecordInfos(ObjectInfo[] recordInfos) {
 		for (int i = 0; i < recordInfos.length; i++) {
 			out.println("--------- RECORD # " + i + " ---------");
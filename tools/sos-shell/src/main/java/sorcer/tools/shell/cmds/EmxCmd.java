@@ -23,6 +23,8 @@ import java.util.*;
 
 import net.jini.core.lookup.ServiceItem;
 import net.jini.id.Uuid;
+import sorcer.core.monitor.ExertionInfoPage;
+import sorcer.core.monitor.ExertionInfoQuery;
 import sorcer.core.monitor.MonitorUIManagement;
 import sorcer.core.monitor.MonitoringManagement;
 import sorcer.core.provider.Provider;
@@ -45,7 +47,7 @@ public class EmxCmd extends ShellCmd {
 		NOT_LOADED_MSG = "***command not loaded due to conflict";
 
 		COMMAND_USAGE = "emx [-xrt | -emx | <EMX/exertion index> | -v | -x]"
-			+ "\n\t\t\t  | [ -a | -d | -f | -r | -y | <exertion index>] "
+			+ "\n\t\t\t  | [ -a | -d | -f | -r | -y | -n | <exertion index>] "
 			+ "\n\t\t\t  | (-e | -c | -cc | -ccc) [<exertion index>] [-s <filename>]";
 
 		COMMAND_HELP = "Support for monitoring runtime exertions;"
@@ -58,6 +60,7 @@ public class EmxCmd extends ShellCmd {
 				+ "\n  -f   show failed monitored exertions"
 				+ "\n  -r   show running monitored exertions"
 				+ "\n  -y   show asynchronous monitored exertions"
+				+ "\n  -n   show the next page of the monitored exertions"
 				+ "\n  -e   print the selected exertion"
 				+ "\n  <exertion index>   select the exertion given <exertion index>"
 				+ "\n  -c   print the data context of selected exertion"
@@ -74,6 +77,8 @@ public class EmxCmd extends ShellCmd {
 	static private ExertionInfo[] exertionInfos = new ExertionInfo[0];
 	private int selectedExertion = -1;
 	static private Map<Uuid, ServiceItem> monitorMap = new HashMap<Uuid, ServiceItem>();
+	// paged queries of the last listing of monitored exertions, one per EMX
+	static private List<ExertionCursor> cursors = new ArrayList<ExertionCursor>();
 
 	public EmxCmd() {
 	}
@@ -113,6 +118,9 @@ public class EmxCmd extends ShellCmd {
 					|| next.equals("-a") || next.equals("-y")) {
 				xrtType = getStatus(next);
 				printMonitoredExertions(xrtType);
+			} else if (next.equals("-n")) {
+				if (!printNextPage())
+					out.println("No more monitored exertions.");
 			} else if (next.equals("-x")) {
 				// clear monitor selection
 				selectedMonitor = -1;
@@ -240,61 +248,89 @@ public class EmxCmd extends ShellCmd {
 		} catch (Exception e) {
 			findMonitors();
 		}
-		Map<Uuid, ExertionInfo> all;
+		cursors.clear();
+		monitorMap.clear();
 		if (selectedMonitor >= 0) {
-			out.println("From EMX "
-					+ AttributesUtil
-							.getProviderName(emxMonitors[selectedMonitor].attributeSets)
-					+ " at: "
-					+ AttributesUtil
-							.getHostName(emxMonitors[selectedMonitor].attributeSets));
-			all = ((MonitorUIManagement) emxMonitors[selectedMonitor].service)
-					.getMonitorableExertionInfo(xetType,
-							NetworkShell.getPrincipal());
-		} else {
-			Map<Uuid, ExertionInfo> hm;
-			all = new HashMap<Uuid, ExertionInfo>();
-            if (emxMonitors!=null)
-                for (int i = 0; i < emxMonitors.length; i++) {
-                    out.println("From EMX "
-                            + AttributesUtil
-                                    .getProviderName(emxMonitors[i].attributeSets)
-                            + " at: "
-                            + AttributesUtil
-                                    .getHostName(emxMonitors[i].attributeSets));
-
-                    MonitorUIManagement emx = (MonitorUIManagement) emxMonitors[i].service;
-                    hm = emx.getMonitorableExertionInfo(xetType,
-                            NetworkShell.getPrincipal());
-                    if (hm != null && hm.size() > 0) {
-                        all.putAll(hm);
-                    }
-                    // populate exertion/EMX map
-                    monitorMap.clear();
-                    for (ExertionInfo ei : hm.values()) {
-                        monitorMap.put(ei.getStoreId(), emxMonitors[i]);
-                    }
-                }
+			cursors.add(new ExertionCursor(emxMonitors[selectedMonitor], xetType));
+		} else if (emxMonitors != null) {
+			for (ServiceItem emx : emxMonitors)
+				cursors.add(new ExertionCursor(emx, xetType));
 		}
-		if (all.size() == 0) {
+		exertionInfos = new ExertionInfo[0];
+		if (!printNextPage())
 			out.println("No monitored exertions at this time.");
-			return;
-		}
+	}
 
-        ArrayList<ExertionInfo> eInfos =  new ArrayList<ExertionInfo>(all.values());
-        Collections.sort(eInfos);
-        exertionInfos = new ExertionInfo[all.size()];
-        eInfos.toArray(exertionInfos);
-		printExerionInfos(exertionInfos);
+	/**
+	 * Fetch the next page of monitored exertions from every EMX of the last
+	 * listing that has more of them, and append it to the listed exertions.
+	 *
+	 * @return false if there were no more exertions
+	 */
+	private boolean printNextPage() throws RemoteException, MonitorException {
+		List<ExertionInfo> page = new ArrayList<ExertionInfo>();
+		boolean more = false;
+		for (ExertionCursor cursor : cursors) {
+			if (!cursor.hasMore())
+				continue;
+			out.println("From EMX "
+					+ AttributesUtil.getProviderName(cursor.emx.attributeSets)
+					+ " at: "
+					+ AttributesUtil.getHostName(cursor.emx.attributeSets));
+			for (ExertionInfo info : cursor.next()) {
+				page.add(info);
+				monitorMap.put(info.getStoreId(), cursor.emx);
+			}
+			more |= cursor.hasMore();
+		}
+		if (page.isEmpty())
+			return false;
+
+		Collections.sort(page);
+		int first = exertionInfos.length;
+		ExertionInfo[] infos = Arrays.copyOf(exertionInfos, first + page.size());
+		for (int i = 0; i < page.size(); i++)
+			infos[first + i] = page.get(i);
+		exertionInfos = infos;
+		printExerionInfos(exertionInfos, first);
+		if (more)
+			out.println("More monitored exertions, use 'emx -n' to show the next page.");
+		return true;
 	}
 
-	private void printExerionInfos(ExertionInfo[] exertionInfos) {
-		for (int i = 0; i < exertionInfos.length; i++) {
+	private void printExerionInfos(ExertionInfo[] exertionInfos, int first) {
+		for (int i = first; i < exertionInfos.length; i++) {
 			out.println("--------- EXERTION # " + i + " ---------");
 			out.println(exertionInfos[i].describe());
 		}
 	}
 
+	/*
+	 * Paged query of the monitored exertions of an EMX service
+	 */
+	private static class ExertionCursor {
+		final ServiceItem emx;
+		final ExertionInfoQuery query;
+		boolean more = true;
+
+		ExertionCursor(ServiceItem emx, State state) {
+			this.emx = emx;
+			this.query = new ExertionInfoQuery(state);
+		}
+
+		boolean hasMore() {
+			return more;
+		}
+
+		List<ExertionInfo> next() throws RemoteException, MonitorException {
+			ExertionInfoPage page = ((MonitorUIManagement) emx.service)
+					.getMonitorableExertionInfo(query, NetworkShell.getPrincipal());
+			query.setContinuation(page.getContinuation());
+			more = page.hasMore();
+			return page.getInfos();
+		}
+	}
+
 	private void showEmxServices() throws RemoteException {
 		findMonitors();
 		printEmxServices();
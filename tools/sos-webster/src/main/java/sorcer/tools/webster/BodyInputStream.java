@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.tools.webster;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Request body of a known length or in the chunked transfer coding, read
+ * from the connection without reading past its end, so the next request of
+ * the connection stays intact.
+ */
+abstract class BodyInputStream extends InputStream {
+    protected final InputStream in;
+
+    BodyInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    /*
+     * Whether the whole body has been read
+     */
+    abstract boolean isFinished();
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    static BodyInputStream fixed(InputStream in, final long length) {
+        return new BodyInputStream(in) {
+            private long remaining = length;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining == 0)
+                    return -1;
+                int read = in.read(b, off, (int) Math.min(len, remaining));
+                if (read < 0)
+                    throw new EOFException("Got " + (length - remaining) + " of " + length + " bytes");
+                remaining -= read;
+                return read;
+            }
+
+            @Override
+            boolean isFinished() {
+                return remaining == 0;
+            }
+        };
+    }
+
+    static BodyInputStream chunked(InputStream in) {
+        return new BodyInputStream(in) {
+            private long remaining;
+            private boolean eof;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (eof)
+                    return -1;
+                if (remaining == 0) {
+                    nextChunk();
+                    if (eof)
+                        return -1;
+                }
+                int read = in.read(b, off, (int) Math.min(len, remaining));
+                if (read < 0)
+                    throw new EOFException("Chunk ended " + remaining + " bytes short");
+                remaining -= read;
+                if (remaining == 0 && Webster.Request.readLine(in) == null)
+                    throw new EOFException("Chunk not terminated");
+                return read;
+            }
+
+            private void nextChunk() throws IOException {
+                String line = Webster.Request.readLine(in);
+                if (line == null)
+                    throw new EOFException("Missing chunk size");
+                int ext = line.indexOf(';');
+                try {
+                    remaining = Long.parseLong((ext < 0 ? line : line.substring(0, ext)).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad chunk size: " + line);
+                }
+                if (remaining < 0)
+                    throw new IOException("Bad chunk size: " + line);
+                if (remaining == 0) {
+                    // skip the trailer
+                    while ((line = Webster.Request.readLine(in)) != null && line.length() > 0) ;
+                    eof = true;
+                }
+            }
+
+            @Override
+            boolean isFinished() {
+                return eof;
+            }
+        };
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.tools.webster;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contents of hot files, mostly codebase jars requested over and over when a
+ * cluster starts. Files up to maxFileSize are kept in direct buffers, least
+ * recently used first out when the total size would exceed maxSize. A cached
+ * content is served only while the file has the same modification time and
+ * length as when it was read.
+ */
+class FileCache {
+    private final long maxSize;
+    private final long maxFileSize;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, .75f, true);
+    private long size;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    FileCache(long maxSize, long maxFileSize) {
+        this.maxSize = maxSize;
+        this.maxFileSize = Math.min(maxFileSize, maxSize);
+    }
+
+    /**
+     * @return the current content of the file as a read only buffer of its
+     * own, or null if the file is too large to be cached
+     */
+    ByteBuffer get(File file) throws IOException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (length > maxFileSize)
+            return null;
+        String path = file.getAbsolutePath();
+        synchronized (entries) {
+            Entry e = entries.get(path);
+            if (e != null) {
+                if (e.lastModified == lastModified && e.content.capacity() == length) {
+                    hits.incrementAndGet();
+                    return e.content.duplicate();
+                }
+                remove(path);
+            }
+        }
+        misses.incrementAndGet();
+        ByteBuffer content = read(file, length);
+        // don't cache a version that changed while being read
+        if (content == null || file.lastModified() != lastModified)
+            return content;
+        synchronized (entries) {
+            Entry old = entries.put(path, new Entry(lastModified, content));
+            if (old != null)
+                size -= old.content.capacity();
+            size += content.capacity();
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (size > maxSize && eldest.hasNext()) {
+                size -= eldest.next().content.capacity();
+                eldest.remove();
+            }
+        }
+        return content.duplicate();
+    }
+
+    void invalidate(File file) {
+        synchronized (entries) {
+            remove(file.getAbsolutePath());
+        }
+    }
+
+    private void remove(String path) {
+        Entry e = entries.remove(path);
+        if (e != null)
+            size -= e.content.capacity();
+    }
+
+    /*
+     * @return null if the file length is not the expected one any more
+     */
+    private static ByteBuffer read(File file, long length) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            if (channel.size() != length)
+                return null;
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) length);
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    return null;
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return entries, cached bytes, hits and misses
+     */
+    Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<String, Long>();
+        synchronized (entries) {
+            stats.put("entries", (long) entries.size());
+            stats.put("size", size);
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private static class Entry {
+        final long lastModified;
+        final ByteBuffer content;
+
+        Entry(long lastModified, ByteBuffer content) {
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.tools.webster;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Validators of served files for conditional GET. The entity tag of a file
+ * is made of its modification time, its length and, for files up to
+ * {@link #MAX_HASHED_LENGTH}, a hash of its content, computed once per
+ * version of the file. Larger files get a weak tag without the hash.
+ */
+class FileValidators {
+    static final long MAX_HASHED_LENGTH = 64 * 1024 * 1024;
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final String RFC1123 = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(256, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FileValidators.Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @return the entity tag of the current version of the file
+     */
+    String getETag(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(path);
+        }
+        if (e != null && e.lastModified == lastModified && e.length == length)
+            return e.etag;
+        String version = Long.toHexString(lastModified) + "-" + Long.toHexString(length);
+        String etag = length <= MAX_HASHED_LENGTH
+                ? "\"" + version + "-" + hash(file) + "\""
+                : "W/\"" + version + "\"";
+        synchronized (entries) {
+            entries.put(path, new Entry(lastModified, length, etag));
+        }
+        return etag;
+    }
+
+    /**
+     * Forget the entity tag of a file that was written or deleted
+     */
+    void invalidate(File file) {
+        synchronized (entries) {
+            entries.remove(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Whether the client's copy, as described by the If-None-Match or else the
+     * If-Modified-Since header, is the current version of the file
+     */
+    static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModified) {
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || opaque(tag).equals(opaque(etag)))
+                    return true;
+            }
+            return false;
+        }
+        if (ifModifiedSince != null) {
+            long since = parseDate(ifModifiedSince);
+            return since >= 0 && lastModified / 1000 <= since / 1000;
+        }
+        return false;
+    }
+
+    /**
+     * Whether a range request applies to the current version of the file: if
+     * the If-Range header is absent or has the strong entity tag or the exact
+     * modification date of the file. Otherwise the whole file is sent.
+     */
+    static boolean isRangeCurrent(String ifRange, String etag, long lastModified) {
+        if (ifRange == null)
+            return true;
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return !etag.startsWith("W/") && ifRange.equals(etag);
+        long date = parseDate(ifRange);
+        return date >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    // weak comparison, as allowed for GET
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    static String formatDate(long time) {
+        SimpleDateFormat format = new SimpleDateFormat(RFC1123, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(time));
+    }
+
+    static long parseDate(String date) {
+        SimpleDateFormat format = new SimpleDateFormat(RFC1123, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(date).getTime();
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                digest.update(buffer, 0, n);
+        } finally {
+            in.close();
+        }
+        StringBuilder sb = new StringBuilder(16);
+        byte[] bytes = digest.digest();
+        // 64 bits of the digest are plenty to tell versions of one file apart
+        for (int i = 0; i < 8; i++)
+            sb.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16)).append(Character.forDigit(bytes[i] & 0xf, 16));
+        return sb.toString();
+    }
+
+    private static class Entry {
+        final long lastModified;
+        final long length;
+        final String etag;
+
+        Entry(long lastModified, long length, String etag) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.etag = etag;
+        }
+    }
+}
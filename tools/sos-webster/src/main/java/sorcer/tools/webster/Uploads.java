@@ -0,0 +1,270 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.tools.webster;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Receives uploaded files. A body is streamed through a bounded buffer into
+ * a temporary file next to the target, checked against the SHA-1 sent by the
+ * client in the X-Content-SHA1 header, if any, and only then moved in place,
+ * so a failed upload never leaves a partial file behind.
+ * <p>
+ * A file may also be uploaded in parts, in parallel, each part with a
+ * Content-Range header. Parts are written at their offset into a temporary
+ * file shared by all parts of the file, which is checked and moved in place
+ * once all its bytes have arrived. Unfinished uploads idle for longer than
+ * {@link #ABANDONED_AFTER} are deleted.
+ */
+class Uploads {
+    static final String CONTENT_SHA1 = "X-Content-SHA1";
+    static final long ABANDONED_AFTER = 10 * 60 * 1000;
+
+    private final Map<String, Assembly> assemblies = new HashMap<String, Assembly>();
+
+    /**
+     * The uploaded content does not match its checksum or its range
+     */
+    static class BadUploadException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BadUploadException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Receive a whole file
+     */
+    void receive(File target, InputStream body, String sha1, byte[] buffer) throws IOException {
+        File tmp = File.createTempFile("." + target.getName(), ".upload", target.getParentFile());
+        try {
+            MessageDigest digest = sha1 != null ? newDigest() : null;
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                int read;
+                while ((read = body.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                    if (digest != null)
+                        digest.update(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+            if (digest != null)
+                verify(target, sha1, digest);
+            moveInPlace(tmp, target);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Receive a part of a file
+     *
+     * @param contentRange the Content-Range header of the part: bytes first-last/length
+     * @return whether the file is complete and in place
+     */
+    boolean receivePart(File target, InputStream body, String contentRange, String sha1, byte[] buffer)
+            throws IOException {
+        long[] range = parseContentRange(contentRange);
+        long position = range[0];
+        long end = range[1] + 1;
+        Assembly assembly = getAssembly(target, range[2], sha1);
+        FileChannel channel = assembly.channel;
+        while (position < end) {
+            int read = body.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+            if (read < 0)
+                throw new BadUploadException("Part ended at " + position + " of " + contentRange);
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+            while (bytes.hasRemaining())
+                position += channel.write(bytes, position);
+        }
+        if (body.read(buffer, 0, 1) >= 0)
+            throw new BadUploadException("Part longer than " + contentRange);
+        return assembly.received(range[0], end);
+    }
+
+    private synchronized Assembly getAssembly(File target, long length, String sha1) throws IOException {
+        long now = System.currentTimeMillis();
+        for (Iterator<Assembly> it = assemblies.values().iterator(); it.hasNext(); ) {
+            Assembly a = it.next();
+            if (a.lastUpdate < now - ABANDONED_AFTER) {
+                it.remove();
+                a.discard();
+            }
+        }
+        String key = target.getAbsolutePath();
+        Assembly assembly = assemblies.get(key);
+        if (assembly == null) {
+            assembly = new Assembly(target, length, sha1);
+            assemblies.put(key, assembly);
+        } else if (assembly.length != length) {
+            throw new BadUploadException("Part of a " + length + " byte upload of a "
+                                         + assembly.length + " byte file");
+        }
+        assembly.lastUpdate = now;
+        return assembly;
+    }
+
+    private synchronized void finished(Assembly assembly) {
+        assemblies.remove(assembly.target.getAbsolutePath());
+    }
+
+    /*
+     * first, last and length of a Content-Range header
+     */
+    static long[] parseContentRange(String contentRange) throws BadUploadException {
+        String spec = contentRange.trim();
+        if (spec.startsWith("bytes"))
+            spec = spec.substring("bytes".length()).trim();
+        int dash = spec.indexOf('-');
+        int slash = spec.indexOf('/');
+        try {
+            if (dash > 0 && slash > dash) {
+                long first = Long.parseLong(spec.substring(0, dash).trim());
+                long last = Long.parseLong(spec.substring(dash + 1, slash).trim());
+                long length = Long.parseLong(spec.substring(slash + 1).trim());
+                if (first >= 0 && last >= first && last < length)
+                    return new long[]{first, last, length};
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new BadUploadException("Bad Content-Range: " + contentRange);
+    }
+
+    private static void verify(File target, String sha1, MessageDigest digest) throws BadUploadException {
+        String actual = toHex(digest.digest());
+        if (!actual.equalsIgnoreCase(sha1.trim()))
+            throw new BadUploadException("SHA-1 of " + target.getName() + " is " + actual + ", expected " + sha1);
+    }
+
+    private static void moveInPlace(File tmp, File target) throws IOException {
+        if (!tmp.renameTo(target)) {
+            target.delete();
+            if (!tmp.renameTo(target))
+                throw new IOException("Could not move " + tmp + " to " + target);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return sb.toString();
+    }
+
+    /*
+     * A file being uploaded in parts
+     */
+    private class Assembly {
+        final File target;
+        final long length;
+        final String sha1;
+        final File tmp;
+        final RandomAccessFile file;
+        final FileChannel channel;
+        // first -> end of the received ranges, merged
+        final TreeMap<Long, Long> ranges = new TreeMap<Long, Long>();
+        volatile long lastUpdate;
+
+        Assembly(File target, long length, String sha1) throws IOException {
+            this.target = target;
+            this.length = length;
+            this.sha1 = sha1;
+            tmp = File.createTempFile("." + target.getName(), ".upload", target.getParentFile());
+            file = new RandomAccessFile(tmp, "rw");
+            file.setLength(length);
+            channel = file.getChannel();
+        }
+
+        /*
+         * Record a part and complete the file if it was the last one
+         */
+        boolean received(long first, long end) throws IOException {
+            synchronized (this) {
+                Map.Entry<Long, Long> before = ranges.floorEntry(first);
+                if (before != null && before.getValue() >= first) {
+                    first = before.getKey();
+                    end = Math.max(end, before.getValue());
+                }
+                Map.Entry<Long, Long> after;
+                while ((after = ranges.ceilingEntry(first)) != null && after.getKey() <= end) {
+                    end = Math.max(end, after.getValue());
+                    ranges.remove(after.getKey());
+                }
+                ranges.put(first, end);
+                lastUpdate = System.currentTimeMillis();
+                if (ranges.size() != 1 || ranges.firstKey() != 0 || ranges.firstEntry().getValue() != length)
+                    return false;
+            }
+            finished(this);
+            try {
+                channel.force(false);
+                file.close();
+                if (sha1 != null) {
+                    MessageDigest digest = newDigest();
+                    InputStream in = new FileInputStream(tmp);
+                    try {
+                        byte[] buffer = new byte[64 * 1024];
+                        int read;
+                        while ((read = in.read(buffer)) > 0)
+                            digest.update(buffer, 0, read);
+                    } finally {
+                        in.close();
+                    }
+                    verify(target, sha1, digest);
+                }
+                moveInPlace(tmp, target);
+                return true;
+            } finally {
+                tmp.delete();
+            }
+        }
+
+        void discard() {
+            try {
+                file.close();
+            } catch (IOException ignore) {
+                // deleted anyway
+            }
+            tmp.delete();
+        }
+    }
+}
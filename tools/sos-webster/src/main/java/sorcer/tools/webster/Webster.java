@@ -21,8 +21,15 @@ import net.jini.config.ConfigurationProvider;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +60,12 @@ public class Webster implements Runnable {
 
     static final int DEFAULT_MIN_THREADS = 1;
     static final int DEFAULT_MAX_THREADS = 10;
+    static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 5000;
+    static final int DEFAULT_REQUEST_TIMEOUT = 10000;
+    static final int IDLE_POLL_INTERVAL = 250;
+    static final int MAX_KEEP_ALIVE_REQUESTS = 100;
+    static final long DEFAULT_CACHE_SIZE = 64 * 1024 * 1024;
+    static final long MAX_CACHED_FILE_SIZE = 1024 * 1024;
     private ServerSocket ss;
     private int port;
     private volatile boolean run = true;
@@ -64,12 +77,18 @@ public class Webster implements Runnable {
     private int startPort = 0;
     private int endPort = 0;
     private int soTimeout = 0;
+    private int keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT;
+    private int requestTimeout = DEFAULT_REQUEST_TIMEOUT;
     private static Logger logger = LoggerFactory.getLogger(Webster.class.getName());
     private com.sun.jini.start.LifeCycle lifeCycle;
     private boolean debug = false;
     private boolean isDaemon = false;
     private static String SERVER_DESCRIPTION = Webster.class.getName();
     private String tempDir;
+    private final FileValidators validators = new FileValidators();
+    private final Uploads uploads = new Uploads();
+    private long cacheSize = DEFAULT_CACHE_SIZE;
+    private FileCache fileCache;
     // Shared class server (webster) 
     private static Webster webster;
 
@@ -229,6 +248,8 @@ public class Webster implements Runnable {
      * @param args      String[] of options. Valid options are [-port port],
      *                  [-roots list-of-roots], [-bindAddress address], [-minThreads minThreads],
      *                  [-maxThreads maxThreads] [-soTimeout soTimeout]
+     *                  [-keepAliveTimeout keepAliveTimeout] [-requestTimeout requestTimeout]
+     *                  [-cacheSize bytes]
      * @param lifeCycle The LifeCycle object, may be null
      * @throws BindException if Webster cannot create a socket
      */
@@ -296,6 +317,15 @@ public class Webster implements Runnable {
             } else if (option.equals("-soTimeout")) {
                 i++;
                 soTimeout = Integer.parseInt(options[i]);
+            } else if (option.equals("-keepAliveTimeout")) {
+                i++;
+                keepAliveTimeout = Integer.parseInt(options[i]);
+            } else if (option.equals("-requestTimeout")) {
+                i++;
+                requestTimeout = Integer.parseInt(options[i]);
+            } else if (option.equals("-cacheSize")) {
+                i++;
+                cacheSize = Long.parseLong(options[i]);
             } else if (option.equals("-isDaemon")) {
                 i++;
                 isDaemon = Boolean.parseBoolean(options[i]);
@@ -360,6 +390,11 @@ public class Webster implements Runnable {
             if (str != null && str.equals("true"))
                 debug = true;
         }
+        str = System.getProperty("webster.cache.size");
+        if (str != null)
+            cacheSize = Long.parseLong(str);
+        if (cacheSize > 0)
+            fileCache = new FileCache(cacheSize, MAX_CACHED_FILE_SIZE);
         str = System.getProperty("webster.tmp.dir");
         if (str != null) {
             tempDir = str;
@@ -426,7 +461,10 @@ public class Webster implements Runnable {
             if (s != null && s.length() > 0) {
                 port = new Integer(s);
             }
-            ss = new ServerSocket(port, 0, address);
+            // a channel backed server socket accepts channel backed sockets,
+            // so GET can send files with FileChannel.transferTo
+            ss = ServerSocketChannel.open().socket();
+            ss.bind(new InetSocketAddress(address, port));
         } catch (IOException ioe) {
             if (startPort == endPort) {
                 //logger.error( "Port bind server socket failure: " + endPort, ioe);
@@ -564,144 +602,247 @@ public class Webster implements Runnable {
         return getAvailablePort();
     }
 
-    private String readRequest(InputStream inputStream) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        int read;
-        int prev = -1;
-        while ((read = inputStream.read()) != -1) {
-            if (read != '\n' && read != '\r')
-                sb.append((char) read);
-            if (read == '\n' && prev == '\r') {
-                break;
-            }
-            if (read == '\r' && prev == '0') {
-                //sb.delete(0, sb.length());
-                break;
-            }
-            prev = read;
-        }
-        return sb.toString();
+    /**
+     * Get the statistics of the in-memory cache of hot files
+     *
+     * @return entries, cached bytes, maximum size, hits and misses, empty
+     * if the cache is disabled
+     */
+    public Map<String, Long> getCacheStatistics() {
+        return fileCache != null ? fileCache.getStatistics() : Collections.<String, Long>emptyMap();
     }
 
-
+    /**
+     * Accept connections and hand each of them to a worker, which parses
+     * and serves its requests.
+     */
     public void run() {
-        Socket s;
         try {
             loadMimes();
-            String fileName;
-            while (run) {
+        } catch (IOException e) {
+            logger.error("Loading Mimetypes", e);
+        }
+        while (run) {
+            Socket s;
+            try {
                 s = ss.accept(); // accept incoming requests
-                if (soTimeout > 0) {
-                    s.setSoTimeout(soTimeout);
+            } catch (IOException e) {
+                if (!run || ss.isClosed())
+                    break;
+                logger.warn("Accepting HTTP connection", e);
+                continue;
+            }
+            try {
+                pool.execute(new Connection(s));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(s);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket s) {
+        try {
+            s.close();
+        } catch (IOException e) {
+            logger.warn("Closing incoming socket", e);
+        }
+    }
+
+    /*
+     * A client connection. Requests are read through a buffer and served in
+     * turn for as long as the client keeps the connection alive, the
+     * connection stays idle for no longer than keepAliveTimeout and no other
+     * connection is waiting for a worker. A client has requestTimeout to send
+     * the request line and headers.
+     */
+    class Connection implements Runnable {
+        private final Socket client;
+
+        Connection(Socket client) {
+            this.client = client;
+        }
+
+        public void run() {
+            String from = client.getInetAddress().getHostAddress() + ":" + client.getPort();
+            OutputStream out = null;
+            try {
+                // the header and the body are written separately, don't let
+                // Nagle's algorithm hold back the body of a small file
+                client.setTcpNoDelay(true);
+                InputStream in = new BufferedInputStream(client.getInputStream());
+                out = new BufferedOutputStream(client.getOutputStream());
+                for (int served = 1; run; served++) {
+                    if (!awaitRequest(in, served == 1 ? requestTimeout : keepAliveTimeout, served > 1))
+                        break;
+                    client.setSoTimeout(requestTimeout);
+                    Request request = Request.read(in);
+                    if (request == null)
+                        break;
+                    client.setSoTimeout(soTimeout);
+                    if (debug)
+                        System.out.println("\nFrom: " + from + ", Request: " + request);
+                    if (logger.isDebugEnabled())
+                        logger.debug("From: " + from + ", Request: " + request);
+
+                    boolean keepAlive = request.isKeepAlive()
+                            && served < MAX_KEEP_ALIVE_REQUESTS
+                            && pool.getQueue().isEmpty();
+                    Handler handler = createHandler(request, in, out, keepAlive);
+                    keepAlive = handler.handle();
+                    out.flush();
+                    if (!keepAlive)
+                        break;
                 }
-                String line;
-                Properties header = new Properties();
-                DataInputStream inputStream = null;
-                try {
-                    inputStream = new DataInputStream(s.getInputStream());
-                    StringBuilder lineBuilder = new StringBuilder();
-                    StringTokenizer tokenizer;
-                    while ((line = readRequest(inputStream)).length() != 0) {
-                        if (lineBuilder.length() > 0)
-                            lineBuilder.append("\n");
-                        lineBuilder.append(line);
-                        tokenizer = new StringTokenizer(line, ":");
-                        String aToken = tokenizer.nextToken().trim();
-                        if (tokenizer.hasMoreTokens()) {
-                            header.setProperty(aToken, tokenizer.nextToken().trim());
-                        }
-                    }
-                    line = lineBuilder.toString();
-                    int port = s.getPort();
-                    String from = s.getInetAddress().getHostAddress() + ":" + port;
-                    if (debug) {
-                        StringBuilder buff = new StringBuilder();
-                        buff.append("From: ").append(from).append(", ");
-                        if (soTimeout > 0)
-                            buff.append("SO_TIMEOUT: ").append(soTimeout).append(", ");
-                        buff.append("Request: ").append(line);
-                        System.out.println("\n"+buff.toString());
-                    }
-                    if (logger.isDebugEnabled()) {
-                        StringBuilder buff = new StringBuilder();
-                        buff.append("From: ").append(from).append(", ");
-                        if (soTimeout > 0)
-                            buff.append("SO_TIMEOUT: ").append(soTimeout).append(", ");
-                        buff.append("Request: ").append(line);
-                        if (logger.isDebugEnabled())
-                            logger.debug(buff.toString());
+            } catch (SocketTimeoutException e) {
+                // client too slow sending the request
+            } catch (Exception e) {
+                if (!run)
+                    return; // terminated, the connection is closed below
+                logger.warn("Processing HTTP request from " + from, e);
+                if (out != null) {
+                    try {
+                        byte[] msg = ("HTTP/1.0 500 Internal Server Error\r\n" +
+                                "MIME-Version: 1.0\r\n" +
+                                "Server: " + SERVER_DESCRIPTION + "\r\n" +
+                                "Connection: close\r\n" +
+                                "\r\n<H1>500 Internal Server Error</H1>\n" + e).getBytes("ISO-8859-1");
+                        out.write(msg);
+                        out.flush();
+                    } catch (IOException ignored) {
                     }
-                    if (line != null && line.length()>0) {
-                        tokenizer = new StringTokenizer(line, " ");
-                        if (!tokenizer.hasMoreTokens())
-                            break;
-                        String token = tokenizer.nextToken();
-                        fileName = tokenizer.nextToken();
-                        if (fileName.startsWith("/"))
-                            fileName = fileName.substring(1);
-                        if (token.equals("GET")) {
-                            header.setProperty("GET", fileName);
-                        } else if (token.equals("PUT")) {
-                            header.setProperty("PUT", fileName);
-                        } else if (token.equals("DELETE")) {
-                            header.setProperty("DELETE", fileName);
-                        } else if (token.equals("HEAD")) {
-                            header.setProperty("HEAD", fileName);
-                        }
-                        while (tokenizer.hasMoreTokens()) {
-                            String aToken = tokenizer.nextToken().trim();
-                            if (tokenizer.hasMoreTokens()) {
-                                header.setProperty(aToken,
-                                                   tokenizer.nextToken().trim());
-                            }
-                        }
-                        if (header.getProperty("GET") != null) {
-                            pool.execute(new GetFile(s, fileName));
-                        } else if (header.getProperty("PUT") != null) {
-                            pool.execute(new PutFile(s, fileName, header, inputStream));
-                        } else if (header.getProperty("DELETE") != null) {
-                            pool.execute(new DelFile(s, fileName));
-                        } else if (header.getProperty("HEAD") != null) {
-                            pool.execute(new Head(s, fileName));
-                        } else {
-                            if (debug)
-                                System.out.println(
-                                        "bad request [" + line + "] from " + from);
-                            if (logger.isDebugEnabled())
-                                logger.debug("bad request [" + line + "] " +
-                                                   "from " + from);
-                            DataOutputStream clientStream =
-                                    new DataOutputStream(
-                                            new BufferedOutputStream(
-                                                    s.getOutputStream()));
-                            clientStream.writeBytes(
-                                    "HTTP/1.0 400 Bad Request\r\n\r\n");
-                            clientStream.flush();
-                            clientStream.close();
-                        }
-                    } /* if line != null */
-                } catch (Exception e) {
-                    DataOutputStream clientStream =
-                            new DataOutputStream(
-                                    new BufferedOutputStream(
-                                            s.getOutputStream()));
-                    clientStream.writeBytes(
-                            "HTTP/1.0 500 Internal Server Error\n" +
-                                    "MIME-Version: 1.0\n" +
-                                    "Server: " + SERVER_DESCRIPTION + "\n" +
-                                    "\n\n<H1>500 Internal Server Error</H1>\n"
-                                    + e);
-                    clientStream.flush();
-                    clientStream.close();
-                    inputStream.close();
-                    logger.warn("Getting Request", e);
                 }
+            } finally {
+                closeQuietly(client);
             }
-        } catch (Exception e) {
-            if (run) {
-                e.printStackTrace();
-                logger.warn("Processing HTTP Request", e);
+        }
+
+        /*
+         * Wait for the first byte of the next request in short slices. Give up
+         * after timeout ms or, while an idle persistent connection waits, as
+         * soon as other connections are queued for a worker.
+         *
+         * @return whether a request is coming
+         */
+        private boolean awaitRequest(InputStream in, int timeout, boolean idle) throws IOException {
+            long deadline = System.currentTimeMillis() + timeout;
+            while (run) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0)
+                    return false;
+                client.setSoTimeout((int) Math.min(left, IDLE_POLL_INTERVAL));
+                in.mark(1);
+                try {
+                    if (in.read() == -1)
+                        return false;
+                    in.reset();
+                    return true;
+                } catch (SocketTimeoutException e) {
+                    if (idle && !pool.getQueue().isEmpty())
+                        return false;
+                }
             }
+            return false;
+        }
+
+        private Handler createHandler(Request request, InputStream in, OutputStream out,
+                                      boolean keepAlive) {
+            String method = request.getMethod();
+            if (method.equals("GET"))
+                return new GetFile(client, request, out, keepAlive);
+            else if (method.equals("HEAD"))
+                return new Head(client, request, out, keepAlive);
+            else if (method.equals("PUT"))
+                return new PutFile(client, request, out, keepAlive, in);
+            else if (method.equals("DELETE"))
+                return new DelFile(client, request, out, keepAlive);
+            return new BadRequest(client, request, out);
+        }
+    }
+
+    /*
+     * A parsed HTTP request line and its headers
+     */
+    static class Request {
+        private static final int MAX_LINE = 8192;
+
+        private String method;
+        private String fileName;
+        private String version;
+        private final Map<String, String> headers =
+                new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+
+        /*
+         * Read the next request of a connection
+         *
+         * @return the request, or null if the client closed the connection
+         */
+        static Request read(InputStream in) throws IOException {
+            String line = readLine(in);
+            // tolerate empty lines between requests
+            while (line != null && line.length() == 0)
+                line = readLine(in);
+            if (line == null)
+                return null;
+            Request request = new Request();
+            StringTokenizer tokenizer = new StringTokenizer(line, " ");
+            request.method = tokenizer.hasMoreTokens() ? tokenizer.nextToken() : "";
+            String fileName = tokenizer.hasMoreTokens() ? tokenizer.nextToken() : "";
+            if (fileName.startsWith("/"))
+                fileName = fileName.substring(1);
+            request.fileName = fileName;
+            request.version = tokenizer.hasMoreTokens() ? tokenizer.nextToken() : "HTTP/1.0";
+            while ((line = readLine(in)) != null && line.length() > 0) {
+                int colon = line.indexOf(':');
+                if (colon > 0)
+                    request.headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+            return request;
+        }
+
+        static String readLine(InputStream in) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int read;
+            while ((read = in.read()) != -1) {
+                if (read == '\n')
+                    return sb.toString();
+                if (read != '\r')
+                    sb.append((char) read);
+                if (sb.length() > MAX_LINE)
+                    throw new IOException("HTTP header line too long");
+            }
+            return sb.length() > 0 ? sb.toString() : null;
+        }
+
+        String getMethod() {
+            return method;
+        }
+
+        String getFileName() {
+            return fileName;
+        }
+
+        String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        boolean isHttp11() {
+            return "HTTP/1.1".equals(version);
+        }
+
+        /*
+         * HTTP/1.1 connections are persistent unless the client asks to
+         * close, HTTP/1.0 ones only if the client asks to keep them
+         */
+        boolean isKeepAlive() {
+            String connection = getHeader("Connection");
+            if (isHttp11())
+                return connection == null || !connection.equalsIgnoreCase("close");
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + fileName + " " + version + " " + headers;
         }
     }
 
@@ -838,193 +979,227 @@ public class Webster implements Runnable {
         return (wildcarded);
     }
 
-    class Head implements Runnable {
-        private Socket client;
-        private String fileName;
+    /*
+     * Serves one request of a connection
+     */
+    abstract class Handler {
+        final Socket client;
+        final Request request;
+        final String fileName;
+        final OutputStream out;
+        boolean keepAlive;
+
+        Handler(Socket client, Request request, OutputStream out, boolean keepAlive) {
+            this.client = client;
+            this.request = request;
+            this.fileName = request.getFileName();
+            this.out = out;
+            this.keepAlive = keepAlive;
+        }
+
+        /*
+         * @return whether the connection can serve another request
+         */
+        abstract boolean handle() throws IOException;
 
-        Head(Socket s, String fileName) {
-            client = s;
-            this.fileName = fileName;
+        void sendHeader(String status, String contentType, long contentLength) throws IOException {
+            sendHeader(status, contentType, contentLength, null);
         }
 
-        public void run() {
-            StringBuffer dirData = new StringBuffer();
-            StringBuffer logData = new StringBuffer();
-            try {
-                File getFile = parseFileName(fileName);
-                logData.append("Do HEAD: input=")
-                       .append(fileName)
-                       .append(", " + "parsed=")
-                       .append(getFile)
-                       .append(", ");
-                int fileLength;
-                String header;
-                if (getFile.isDirectory()) {
-                    logData.append("directory located");
-                    String files[] = getFile.list();
-                    for (String file : files) {
-                        File f = new File(getFile, file);
-                        dirData.append(f.toString().substring(
-                                getFile.getParent().length()));
-                        dirData.append("\t");
-                        if (f.isDirectory())
-                            dirData.append("d");
-                        else
-                            dirData.append("f");
-                        dirData.append("\t");
-                        dirData.append(f.length());
-                        dirData.append("\t");
-                        dirData.append(f.lastModified());
-                        dirData.append("\n");
-                    }
-                    fileLength = dirData.length();
-                    String fileType = MimeTypes.getProperty("txt");
-                    if (fileType == null)
-                        fileType = "application/java";
-                    header = "HTTP/1.0 200 OK\n" +
-                            "Allow: GET\nMIME-Version: 1.0\n" +
-                            "Server: " + SERVER_DESCRIPTION + "\n" +
-                            "Content-Type: " + fileType + "\n" +
-                            "Content-Length: " + fileLength + "\r\n\r\n";
-                } else if (getFile.exists()) {
-                    DataInputStream requestedFile = new DataInputStream(
-                            new BufferedInputStream(new FileInputStream(getFile)));
-                    fileLength = requestedFile.available();
-                    String fileType =
-                            fileName.substring(fileName.lastIndexOf(".") + 1,
-                                               fileName.length());
-                    fileType = MimeTypes.getProperty(fileType);
-                    logData.append("file size: [").append(fileLength).append("]");
-                    header = "HTTP/1.0 200 OK\n"
-                            + "Allow: GET\nMIME-Version: 1.0\n"
-                            + "Server: " + SERVER_DESCRIPTION + "\n"
-                            + "Content-Type: "
-                            + fileType
-                            + "\n"
-                            + "Content-Length: "
-                            + fileLength
-                            + "\r\n\r\n";
-                } else {
-                    header = "HTTP/1.1 404 Not Found\r\n\r\n";
-                    logData.append("not found");
-                }
+        /*
+         * @param contentLength omitted if negative, for responses without a body
+         * @param extraHeaders additional header lines, each ending with CRLF
+         */
+        void sendHeader(String status, String contentType, long contentLength, String extraHeaders)
+                throws IOException {
+            out.write(header(status, contentType, contentLength, extraHeaders));
+        }
 
-                if (debug)
-                    System.out.println(logData.toString());
-                if (logger.isDebugEnabled())
-                    logger.debug(logData.toString());
-
-                DataOutputStream clientStream =
-                        new DataOutputStream(
-                                new BufferedOutputStream(client.getOutputStream()));
-                clientStream.writeBytes(header);
-                clientStream.flush();
-                clientStream.close();
-            } catch (Exception e) {
-                logger.warn("Error closing Socket", e);
-            } finally {
-                try {
-                    client.close();
-                } catch (IOException e2) {
-                    logger.warn(
-                               "Closing incoming socket",
-                               e2);
-                }
+        byte[] header(String status, String contentType, long contentLength, String extraHeaders)
+                throws IOException {
+            StringBuilder header = new StringBuilder();
+            header.append(request.isHttp11() ? "HTTP/1.1 " : "HTTP/1.0 ").append(status).append("\r\n")
+                  .append("MIME-Version: 1.0\r\n")
+                  .append("Server: ").append(SERVER_DESCRIPTION).append("\r\n");
+            if (contentType != null)
+                header.append("Content-Type: ").append(contentType).append("\r\n");
+            if (contentLength >= 0)
+                header.append("Content-Length: ").append(contentLength).append("\r\n");
+            if (extraHeaders != null)
+                header.append(extraHeaders);
+            header.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n")
+                  .append("\r\n");
+            return header.toString().getBytes("ISO-8859-1");
+        }
+
+        /*
+         * ETag and Last-Modified header lines of the file
+         */
+        String validatorHeaders(File file, String etag) {
+            return "ETag: " + etag + "\r\n"
+                   + "Last-Modified: " + FileValidators.formatDate(file.lastModified()) + "\r\n";
+        }
+
+        /*
+         * Whether the conditional request's copy of the file is current
+         */
+        boolean isNotModified(File file, String etag) {
+            return FileValidators.isNotModified(request.getHeader("If-None-Match"),
+                                                request.getHeader("If-Modified-Since"),
+                                                etag, file.lastModified());
+        }
+
+        void sendMessage(String status, String message) throws IOException {
+            byte[] body = ("<H1>" + message + "</H1>\n").getBytes("ISO-8859-1");
+            sendHeader(status, "text/html", body.length);
+            if (!request.getMethod().equals("HEAD"))
+                out.write(body);
+        }
+
+        String listDirectory(File dir) {
+            StringBuilder dirData = new StringBuilder();
+            String files[] = dir.list();
+            for (String file : files) {
+                File f = new File(dir, file);
+                dirData.append(f.toString().substring(
+                        dir.getParent().length()));
+                dirData.append("\t");
+                if (f.isDirectory())
+                    dirData.append("d");
+                else
+                    dirData.append("f");
+                dirData.append("\t");
+                dirData.append(f.length());
+                dirData.append("\t");
+                dirData.append(f.lastModified());
+                dirData.append("\n");
+            }
+            return dirData.toString();
+        }
+
+        String mimeType(File file) {
+            if (file.isDirectory()) {
+                String fileType = MimeTypes.getProperty("txt");
+                return fileType == null ? "application/java" : fileType;
             }
-        } // end of Head
+            return MimeTypes.getProperty(fileName.substring(fileName.lastIndexOf(".") + 1,
+                                                            fileName.length()));
+        }
+
+        void log(StringBuilder logData) {
+            if (debug)
+                System.out.println(logData.toString());
+            if (logger.isDebugEnabled())
+                logger.debug(logData.toString());
+        }
     }
 
-    class GetFile implements Runnable {
-        private Socket client;
-        private String fileName;
-        private DataInputStream requestedFile;
-        private int fileLength;
+    class Head extends Handler {
 
-        GetFile(Socket s, String fileName) {
-            client = s;
-            this.fileName = fileName;
+        Head(Socket s, Request request, OutputStream out, boolean keepAlive) {
+            super(s, request, out, keepAlive);
         }
 
-        public void run() {
-            StringBuffer dirData = new StringBuffer();
-            StringBuffer logData = new StringBuffer();
-            try {
-                File getFile = parseFileName(fileName);
-                logData.append("Do GET: input=")
-                       .append(fileName)
-                       .append(", " + "parsed=")
-                       .append(getFile)
-                       .append(", ");
-                String header;
-                if (getFile.isDirectory()) {
-                    logData.append("directory located");
-                    String files[] = getFile.list();
-                    for (String file : files) {
-                        File f = new File(getFile, file);
-                        dirData.append(f.toString().substring(
-                                getFile.getParent().length()));
-                        dirData.append("\t");
-                        if (f.isDirectory())
-                            dirData.append("d");
-                        else
-                            dirData.append("f");
-                        dirData.append("\t");
-                        dirData.append(f.length());
-                        dirData.append("\t");
-                        dirData.append(f.lastModified());
-                        dirData.append("\n");
-                    }
-                    fileLength = dirData.length();
-                    String fileType = MimeTypes.getProperty("txt");
-                    if (fileType == null)
-                        fileType = "application/java";
-                    header = "HTTP/1.0 200 OK\n"
-                            + "Allow: GET\nMIME-Version: 1.0\n"
-                            + "Server: " + SERVER_DESCRIPTION + "\n"
-                            + "Content-Type: "
-                            + fileType
-                            + "\n"
-                            + "Content-Length: "
-                            + fileLength
-                            + "\r\n\r\n";
-                } else if (getFile.exists()) {
-                    requestedFile =
-                            new DataInputStream(
-                                    new BufferedInputStream(new FileInputStream(getFile)));
-                    fileLength = requestedFile.available();
-                    String fileType =
-                            fileName.substring(fileName.lastIndexOf(".") + 1,
-                                               fileName.length());
-                    fileType = MimeTypes.getProperty(fileType);
-                    header = "HTTP/1.0 200 OK\n"
-                            + "Allow: GET\nMIME-Version: 1.0\n"
-                            + "Server: " + SERVER_DESCRIPTION + "\n"
-                            + "Content-Type: "
-                            + fileType
-                            + "\n"
-                            + "Content-Length: "
-                            + fileLength
-                            + "\r\n\r\n";
+        boolean handle() throws IOException {
+            StringBuilder logData = new StringBuilder();
+            File getFile = parseFileName(fileName);
+            logData.append("Do HEAD: input=")
+                   .append(fileName)
+                   .append(", " + "parsed=")
+                   .append(getFile)
+                   .append(", ");
+            if (getFile.isDirectory()) {
+                logData.append("directory located");
+                sendHeader("200 OK", mimeType(getFile), listDirectory(getFile).length());
+            } else if (getFile.exists()) {
+                long fileLength = getFile.length();
+                String etag = validators.getETag(getFile);
+                if (isNotModified(getFile, etag)) {
+                    logData.append("not modified");
+                    sendHeader("304 Not Modified", null, -1, validatorHeaders(getFile, etag));
                 } else {
-                    header = "HTTP/1.0 404 Not Found\r\n\r\n";
+                    logData.append("file size: [").append(fileLength).append("]");
+                    sendHeader("200 OK", mimeType(getFile), fileLength,
+                               validatorHeaders(getFile, etag) + "Accept-Ranges: bytes\r\n");
                 }
-                DataOutputStream clientStream =
-                        new DataOutputStream(
-                                new BufferedOutputStream(client.getOutputStream()));
-                clientStream.writeBytes(header);
-
-                if (getFile.isDirectory()) {
-                    clientStream.writeBytes(dirData.toString());
-                } else if (getFile.exists()) {
-                    byte[] buffer = new byte[fileLength];
-                    requestedFile.readFully(buffer);
+            } else {
+                logData.append("not found");
+                sendHeader("404 Not Found", null, 0);
+            }
+            log(logData);
+            return keepAlive;
+        }
+    }
+
+    class GetFile extends Handler {
+
+        GetFile(Socket s, Request request, OutputStream out, boolean keepAlive) {
+            super(s, request, out, keepAlive);
+        }
+
+        boolean handle() throws IOException {
+            StringBuilder logData = new StringBuilder();
+            File getFile = parseFileName(fileName);
+            logData.append("Do GET: input=")
+                   .append(fileName)
+                   .append(", " + "parsed=")
+                   .append(getFile)
+                   .append(", ");
+            if (getFile.isDirectory()) {
+                logData.append("directory located");
+                byte[] dirData = listDirectory(getFile).getBytes("ISO-8859-1");
+                sendHeader("200 OK", mimeType(getFile), dirData.length);
+                out.write(dirData);
+            } else if (getFile.exists()) {
+                String etag = validators.getETag(getFile);
+                if (isNotModified(getFile, etag)) {
+                    logData.append("not modified");
+                    sendHeader("304 Not Modified", null, -1, validatorHeaders(getFile, etag));
+                    log(logData);
+                    return keepAlive;
+                }
+                // hot files are served from memory, the others straight from the file
+                ByteBuffer content = fileCache != null ? fileCache.get(getFile) : null;
+                FileChannel requestedFile = content == null ? new FileInputStream(getFile).getChannel() : null;
+                try {
+                    long fileLength = content != null ? content.remaining() : requestedFile.size();
                     logData.append("file size: [").append(fileLength).append("]");
+                    String headers = validatorHeaders(getFile, etag) + "Accept-Ranges: bytes\r\n";
+                    long[] range = null;
+                    String rangeHeader = request.getHeader("Range");
+                    if (rangeHeader != null && FileValidators.isRangeCurrent(request.getHeader("If-Range"), etag,
+                                                                             getFile.lastModified()))
+                        range = parseRange(rangeHeader, fileLength);
+                    long position = 0;
+                    long count = fileLength;
+                    byte[] header;
+                    if (range == null) {
+                        header = header("200 OK", mimeType(getFile), fileLength, headers);
+                    } else if (range.length == 0) {
+                        logData.append(", range not satisfiable: ").append(rangeHeader);
+                        sendHeader("416 Requested Range Not Satisfiable", null, 0,
+                                   "Content-Range: bytes */" + fileLength + "\r\n");
+                        log(logData);
+                        return keepAlive;
+                    } else {
+                        position = range[0];
+                        count = range[1] - range[0] + 1;
+                        logData.append(", range: [").append(range[0]).append("-").append(range[1]).append("]");
+                        header = header("206 Partial Content", mimeType(getFile), count, headers
+                                   + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + fileLength + "\r\n");
+                    }
                     try {
-                        clientStream.write(buffer);
-                    } catch (Exception e) {
+                        if (content != null) {
+                            sendBuffer(header, content, position, count, client, out);
+                        } else {
+                            out.write(header);
+                            out.flush();
+                            sendFile(requestedFile, position, count, client, out);
+                        }
+                    } catch (IOException e) {
                         String s = "Sending [" +
                                 getFile.getAbsolutePath() + "], " +
-                                "size [" + fileLength + "], " +
+                                "size [" + count + "], " +
                                 "to client at " +
                                 "[" +
                                 client.getInetAddress().getHostAddress() +
@@ -1035,215 +1210,230 @@ public class Webster implements Runnable {
                             System.out.println(s);
                             e.printStackTrace();
                         }
+                        // the response is incomplete, the client must not reuse the connection
+                        keepAlive = false;
                     }
-                    requestedFile.close();
-                } else {
-                    logData.append("not found");
-                }
-                if (debug)
-                    System.out.println(logData.toString());
-                if (logger.isDebugEnabled())
-                    logger.debug(logData.toString());
-                clientStream.flush();
-                clientStream.close();
-            } catch (Exception e) {
-                logger.warn("Closing Socket", e);
-            } finally {
-                try {
-                    client.close();
-                } catch (IOException e2) {
-                    logger.warn(
-                               "Closing incoming socket",
-                               e2);
+                } finally {
+                    if (requestedFile != null)
+                        requestedFile.close();
                 }
+            } else {
+                logData.append("not found");
+                sendMessage("404 Not Found", "404 File not Found");
             }
-        } // end of GetFile
+            log(logData);
+            return keepAlive;
+        }
     }
 
-    class PutFile implements Runnable {
-        private Socket client;
-        private String fileName;
-        private Properties rheader;
-        private InputStream inputStream;
-        final int BUFFER_SIZE = 4096;
+    /*
+     * Send the header and length bytes of the cached content from the
+     * position, both in one gathering write if the socket has a channel
+     */
+    static void sendBuffer(byte[] header, ByteBuffer content, long position, long length, Socket client,
+                           OutputStream out) throws IOException {
+        content.limit((int) (position + length)).position((int) position);
+        SocketChannel channel = client.getChannel();
+        if (channel == null) {
+            out.write(header);
+            out.flush();
+            WritableByteChannel target = Channels.newChannel(out);
+            while (content.hasRemaining())
+                target.write(content);
+            return;
+        }
+        out.flush();
+        ByteBuffer[] buffers = {ByteBuffer.wrap(header), content};
+        while (content.hasRemaining())
+            channel.write(buffers);
+    }
 
-        PutFile(Socket s, String fileName, Properties header, InputStream fromClient) {
-            rheader = header;
-            client = s;
-            this.fileName = fileName;
-            this.inputStream = fromClient;
+    /*
+     * First and last byte of a single range Range header, null if the header
+     * is not one and must be ignored, an empty array if the range is not
+     * satisfiable. Multiple ranges are ignored, the whole file is sent instead.
+     */
+    static long[] parseRange(String header, long length) {
+        header = header.trim();
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0)
+            return null;
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return null;
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                // the last n bytes
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0 || length == 0)
+                    return new long[0];
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash).trim());
+                String end = spec.substring(dash + 1).trim();
+                last = end.isEmpty() ? Long.MAX_VALUE : Long.parseLong(end);
+                if (first < 0 || last < first)
+                    return null;
+                if (first >= length)
+                    return new long[0];
+                last = Math.min(last, length - 1);
+            }
+            return new long[]{first, last};
+        } catch (NumberFormatException e) {
+            return null;
         }
+    }
 
-        public void run() {
+    /*
+     * Send length bytes of the file from the position without copying them to
+     * the heap: straight from the file system cache to the socket (sendfile)
+     * if the socket has a channel, through the channel's own transfer buffer
+     * otherwise.
+     */
+    static void sendFile(FileChannel file, long position, long length, Socket client, OutputStream out)
+            throws IOException {
+        WritableByteChannel target = client.getChannel();
+        if (target == null)
+            target = Channels.newChannel(out);
+        long end = position + length;
+        while (position < end) {
+            long sent = file.transferTo(position, end - position, target);
+            if (sent <= 0)
+                throw new EOFException("File truncated at " + position + " of " + end + " bytes");
+            position += sent;
+        }
+    }
 
-            String s = ignoreCaseProperty(rheader, "Content-Length");
-            if (s == null) {
-                try {
-                    sendResponse("HTTP/1.0 411 OK\n"
-                                         + "Allow: PUT\n"
-                                         + "MIME-Version: 1.0\n"
-                                         + "Server : SORCER Webster: a Java HTTP Server \n"
-                                         + "\n\n <H1>411 Webster refuses to accept the out request for " + fileName + " " +
-                                         "without a defined Content-Length.</H1>\n");
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            } else {
-                String header;
-                OutputStream requestedFileOutputStream = null;
-                try {
-                    // check to see if the file exists if it does the return code
-                    // will be 200 if it doesn't it will be 201
-                    File putFile;
-                    if (tempDir != null) {
-                        putFile = new File(tempDir + File.separator + fileName);
-                    } else {
-                        putFile = parseFileName(fileName);
-                    }
-                    if (debug)
-                        System.out
-                              .println("tempDir: " + tempDir + ", fileName: " + fileName + ", putFile: " + putFile.getPath());
-
-                    if (putFile.exists()) {
-                        header = "HTTP/1.0 200 OK\n"
-                                + "Allow: PUT\n"
-                                + "MIME-Version: 1.0\n"
-                                + "Server : SORCER Webster: a Java HTTP Server \n"
-                                + "\n\n <H1>200 PUT File " + fileName + " updated</H1>\n";
-                        if (debug)
-                            System.out.println("updated putFile: " + putFile);
-                    } else {
-                        header = "HTTP/1.0 201 Created\n"
-                                + "Allow: PUT\n"
-                                + "MIME-Version: 1.0\n"
-                                + "Server : SORCER Webster: a Java HTTP Server \n"
-                                + "\n\n <H1>201 PUT File " + fileName + " Created</H1>\n";
-                        File parentDir = putFile.getParentFile();
-                        System.out.println("Parent: " + parentDir.getPath() + ", exists? " + parentDir.exists());
-                        if (!parentDir.exists()) {
-                            if (parentDir.mkdirs() && debug) {
-                                System.out.println("Created " + parentDir.getPath());
-                            }
-                        }
-                        if (debug)
-                            System.out.println("Created putFile: " + putFile + ", exists? " + putFile.exists());
-                    }
+    class PutFile extends Handler {
+        private InputStream inputStream;
+        final int BUFFER_SIZE = 64 * 1024;
 
-                    int length = Integer.parseInt(ignoreCaseProperty(rheader, "Content-Length"));
-                    if (debug)
-                        System.out.println("Putting " + fileName + " size: " + length + ", header: " + rheader);
-                    try {
-                        requestedFileOutputStream = new DataOutputStream(new FileOutputStream(putFile));
-                        int read;
-                        long amountRead = 0;
-                        byte[] buffer = new byte[length < BUFFER_SIZE ? length : BUFFER_SIZE];
-                        while (amountRead < length) {
-                            read = inputStream.read(buffer);
-                            requestedFileOutputStream.write(buffer, 0, read);
-                            amountRead += read;
-                        }
-                        requestedFileOutputStream.flush();
-                        System.out.println("Wrote: " + putFile.getPath() + " size: " + putFile.length());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        header = "HTTP/1.0 500 Internal Server Error\n"
-                                + "Allow: PUT\n"
-                                + "MIME-Version: 1.0\n"
-                                + "Server: " + SERVER_DESCRIPTION + "\n"
-                                + "\n\n <H1>500 Internal Server Error</H1>\n"
-                                + e;
-                    } finally {
-                        if (requestedFileOutputStream != null)
-                            requestedFileOutputStream.close();
-                        sendResponse(header);
-                    }
+        PutFile(Socket s, Request request, OutputStream out, boolean keepAlive, InputStream fromClient) {
+            super(s, request, out, keepAlive);
+            this.inputStream = fromClient;
+        }
 
-                } catch (Exception e) {
-                    logger.warn("Closing Socket", e);
-                } finally {
-                    try {
-                        if (requestedFileOutputStream != null)
-                            requestedFileOutputStream.close();
-                        client.close();
-                    } catch (IOException e2) {
-                        logger.warn("Closing incoming socket", e2);
+        boolean handle() throws IOException {
+            String s = request.getHeader("Content-Length");
+            String transferEncoding = request.getHeader("Transfer-Encoding");
+            boolean chunked = transferEncoding != null && transferEncoding.toLowerCase().contains("chunked");
+            if (s == null && !chunked) {
+                // the end of the body is unknown, so is the start of the next request
+                keepAlive = false;
+                sendMessage("411 Length Required", "411 Webster refuses to accept the out request for "
+                        + fileName + " without a defined Content-Length.");
+                return false;
+            }
+            // check to see if the file exists if it does the return code
+            // will be 200 if it doesn't it will be 201
+            File putFile;
+            if (tempDir != null) {
+                putFile = new File(tempDir + File.separator + fileName);
+            } else {
+                putFile = parseFileName(fileName);
+            }
+            if (debug)
+                System.out
+                      .println("tempDir: " + tempDir + ", fileName: " + fileName + ", putFile: " + putFile.getPath());
+
+            String status;
+            String message;
+            if (putFile.exists()) {
+                status = "200 OK";
+                message = "200 PUT File " + fileName + " updated";
+                if (debug)
+                    System.out.println("updated putFile: " + putFile);
+            } else {
+                status = "201 Created";
+                message = "201 PUT File " + fileName + " Created";
+                File parentDir = putFile.getParentFile();
+                if (!parentDir.exists()) {
+                    if (parentDir.mkdirs() && debug) {
+                        System.out.println("Created " + parentDir.getPath());
                     }
                 }
+                if (debug)
+                    System.out.println("Created putFile: " + putFile + ", exists? " + putFile.exists());
             }
-        }
-
-        void sendResponse(String header) throws IOException {
-            DataOutputStream clientStream = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
-            clientStream.writeBytes(header);
-            clientStream.flush();
-            clientStream.close();
-        }
 
-        public String ignoreCaseProperty(Properties props, String field) {
-            Enumeration<?> names = props.propertyNames();
-            while (names.hasMoreElements()) {
-                String propName = (String) names.nextElement();
-                if (field.equalsIgnoreCase(propName)) {
-                    return (props.getProperty(propName));
+            BodyInputStream body = chunked ? BodyInputStream.chunked(inputStream)
+                                           : BodyInputStream.fixed(inputStream, Long.parseLong(s.trim()));
+            String contentRange = request.getHeader("Content-Range");
+            String sha1 = request.getHeader(Uploads.CONTENT_SHA1);
+            if (debug)
+                System.out.println("Putting " + fileName + (chunked ? " chunked" : " size: " + s)
+                                   + ", header: " + request);
+            try {
+                if (contentRange == null) {
+                    uploads.receive(putFile, body, sha1, new byte[BUFFER_SIZE]);
+                } else if (!uploads.receivePart(putFile, body, contentRange, sha1, new byte[BUFFER_SIZE])) {
+                    status = "202 Accepted";
+                    message = "202 PUT part " + contentRange + " of " + fileName + " received";
                 }
+                if (debug)
+                    System.out.println("Wrote: " + putFile.getPath() + " size: " + putFile.length());
+            } catch (Uploads.BadUploadException e) {
+                logger.warn("Rejected upload of " + putFile + ": " + e.getMessage());
+                status = "400 Bad Request";
+                message = "400 " + e.getMessage();
+            } catch (IOException e) {
+                logger.warn("Writing " + putFile, e);
+                status = "500 Internal Server Error";
+                message = "500 Internal Server Error: " + e;
+            } finally {
+                // the modification time alone may not tell the versions apart
+                validators.invalidate(putFile);
+                if (fileCache != null)
+                    fileCache.invalidate(putFile);
             }
-            return (null);
+            if (!body.isFinished())
+                keepAlive = false;
+            sendMessage(status, message);
+            return keepAlive;
         }
     } // end of PutFile
 
-    class DelFile implements Runnable {
-        private Socket client;
-        private String fileName;
+    class DelFile extends Handler {
 
-        DelFile(Socket s, String fileName) {
-            client = s;
-            this.fileName = fileName;
+        DelFile(Socket s, Request request, OutputStream out, boolean keepAlive) {
+            super(s, request, out, keepAlive);
         }
 
-        public void run() {
-            try {
-                File putFile = parseFileName(fileName);
-                String header;
-                if (!putFile.exists()) {
-                    header = "HTTP/1.0 404 File not found\n"
-                            + "Allow: GET\n"
-                            + "MIME-Version: 1.0\n"
-                            + "Server: " + SERVER_DESCRIPTION + "\n"
-                            + "\n\n <H1>404 File not Found</H1>\n"
-                            + "<BR>";
-                } else if (putFile.delete()) {
-                    header = "HTTP/1.0 200 OK\n"
-                            + "Allow: PUT\n"
-                            + "MIME-Version: 1.0\n"
-                            + "Server: " + SERVER_DESCRIPTION + "\n"
-                            + "\n\n <H1>200 File succesfully deleted</H1>\n";
-                } else {
-                    header = "HTTP/1.0 500 Internal Server Error\n"
-                            + "Allow: PUT\n"
-                            + "MIME-Version: 1.0\n"
-                            + "Server: " + SERVER_DESCRIPTION + "\n"
-                            + "\n\n <H1>500 File could not be deleted</H1>\n";
-                }
-                DataOutputStream clientStream =
-                        new DataOutputStream(
-                                new BufferedOutputStream(client.getOutputStream()));
-                clientStream.writeBytes(header);
-                clientStream.flush();
-                clientStream.close();
-            } catch (Exception e) {
-                logger.warn("Closing Socket", e);
-            } finally {
-                try {
-                    client.close();
-                } catch (IOException e2) {
-                    logger.warn(
-                               "Closing incoming socket",
-                               e2);
-                }
+        boolean handle() throws IOException {
+            File putFile = parseFileName(fileName);
+            if (!putFile.exists()) {
+                sendMessage("404 File not found", "404 File not Found");
+            } else if (putFile.delete()) {
+                validators.invalidate(putFile);
+                if (fileCache != null)
+                    fileCache.invalidate(putFile);
+                sendMessage("200 OK", "200 File succesfully deleted");
+            } else {
+                sendMessage("500 Internal Server Error", "500 File could not be deleted");
             }
+            return keepAlive;
         }
     }
 
+    class BadRequest extends Handler {
+
+        BadRequest(Socket s, Request request, OutputStream out) {
+            super(s, request, out, false);
+        }
+
+        boolean handle() throws IOException {
+            String from = client.getInetAddress().getHostAddress() + ":" + client.getPort();
+            if (debug)
+                System.out.println("bad request [" + request + "] from " + from);
+            if (logger.isDebugEnabled())
+                logger.debug("bad request [" + request + "] " + "from " + from);
+            sendMessage("400 Bad Request", "400 Bad Request");
+            return false;
+        }
+    }
     public static int getWebsterPort() {
         return new Integer(System.getProperty("webster.port"));
     }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.tools.webster;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+public class BodyInputStreamTest {
+
+    @Test
+    public void testChunked() throws IOException {
+        InputStream in = stream("3\r\nabc\r\n2;name=value\r\nde\r\n0\r\nTrailer: x\r\n\r\nGET /next");
+        BodyInputStream body = BodyInputStream.chunked(in);
+        assertFalse(body.isFinished());
+        assertEquals("abcde", readAll(body));
+        assertTrue(body.isFinished());
+        // the next request of the connection is left intact
+        assertEquals("GET /next", readAll(in));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedChunkSize() throws IOException {
+        readAll(BodyInputStream.chunked(stream("xyz\r\nabc\r\n0\r\n\r\n")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNegativeChunkSize() throws IOException {
+        readAll(BodyInputStream.chunked(stream("-3\r\nabc\r\n0\r\n\r\n")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOversizedChunkSize() throws IOException {
+        readAll(BodyInputStream.chunked(stream("10000000000000000\r\nabc\r\n0\r\n\r\n")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOversizedChunkHeader() throws IOException {
+        StringBuilder header = new StringBuilder("3;");
+        for (int i = 0; i < 10000; i++)
+            header.append('x');
+        readAll(BodyInputStream.chunked(stream(header + "\r\nabc\r\n0\r\n\r\n")));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testMissingChunkSize() throws IOException {
+        readAll(BodyInputStream.chunked(stream("")));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testShortChunk() throws IOException {
+        readAll(BodyInputStream.chunked(stream("5\r\nab")));
+    }
+
+    @Test
+    public void testFixed() throws IOException {
+        InputStream in = stream("abcdefGET /next");
+        BodyInputStream body = BodyInputStream.fixed(in, 6);
+        assertEquals("abcdef", readAll(body));
+        assertTrue(body.isFinished());
+        assertEquals("GET /next", readAll(in));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testShortFixed() throws IOException {
+        readAll(BodyInputStream.fixed(stream("abc"), 6));
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes());
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4];
+        int read;
+        while ((read = in.read(buffer)) >= 0)
+            out.write(buffer, 0, read);
+        return out.toString();
+    }
+}
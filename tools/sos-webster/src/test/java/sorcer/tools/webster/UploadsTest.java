@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.tools.webster;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class UploadsTest {
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes();
+
+    private final Uploads uploads = new Uploads();
+    private final byte[] buffer = new byte[4];
+    private File dir;
+    private File target;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("uploads", "");
+        dir.delete();
+        dir.mkdirs();
+        target = new File(dir, "file.bin");
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void testReceive() throws Exception {
+        uploads.receive(target, body(0, CONTENT.length), sha1(CONTENT), buffer);
+        assertArrayEquals(CONTENT, read(target));
+        assertEquals(1, dir.list().length);
+    }
+
+    @Test
+    public void testReceiveBadSha1() throws Exception {
+        try {
+            uploads.receive(target, body(0, CONTENT.length), sha1("other".getBytes()), buffer);
+            fail();
+        } catch (Uploads.BadUploadException e) {
+            // expected
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void testPartsOutOfOrder() throws Exception {
+        String sha1 = sha1(CONTENT);
+        assertFalse(part(15, 19, sha1));
+        assertFalse(part(0, 4, sha1));
+        assertFalse(target.exists());
+        assertTrue(part(5, 14, sha1));
+        assertArrayEquals(CONTENT, read(target));
+        assertEquals(1, dir.list().length);
+    }
+
+    @Test
+    public void testOverlappingParts() throws Exception {
+        String sha1 = sha1(CONTENT);
+        assertFalse(part(0, 9, sha1));
+        assertFalse(part(5, 12, sha1));
+        assertFalse(part(15, 19, sha1));
+        // fills the gap 13-14 and overlaps both neighbours
+        assertTrue(part(11, 16, sha1));
+        assertArrayEquals(CONTENT, read(target));
+    }
+
+    @Test
+    public void testPartsBadSha1() throws Exception {
+        String sha1 = sha1("other".getBytes());
+        assertFalse(part(0, 9, sha1));
+        try {
+            part(10, 19, sha1);
+            fail();
+        } catch (Uploads.BadUploadException e) {
+            // expected
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test(expected = Uploads.BadUploadException.class)
+    public void testPartLongerThanRange() throws Exception {
+        uploads.receivePart(target, body(0, 10), "bytes 0-4/20", null, buffer);
+    }
+
+    @Test(expected = Uploads.BadUploadException.class)
+    public void testPartOfDifferentLength() throws Exception {
+        part(0, 9, null);
+        uploads.receivePart(target, body(10, 19), "bytes 10-19/30", null, buffer);
+    }
+
+    @Test
+    public void testParseContentRange() throws Exception {
+        assertArrayEquals(new long[]{0, 4, 20}, Uploads.parseContentRange("bytes 0-4/20"));
+        for (String bad : new String[]{"bytes 5-4/20", "bytes 0-20/20", "bytes 0-4/*", "bytes */20"}) {
+            try {
+                Uploads.parseContentRange(bad);
+                fail(bad);
+            } catch (Uploads.BadUploadException e) {
+                // expected
+            }
+        }
+    }
+
+    private boolean part(int first, int last, String sha1) throws IOException {
+        return uploads.receivePart(target, body(first, last + 1),
+                "bytes " + first + "-" + last + "/" + CONTENT.length, sha1, buffer);
+    }
+
+    private static InputStream body(int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(CONTENT, from, to));
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int off = 0;
+            int read;
+            while (off < bytes.length && (read = in.read(bytes, off, bytes.length - off)) > 0)
+                off += read;
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private static String sha1(byte[] bytes) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes))
+            sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package sorcer.tools.webster;
+/*
+ * Copyright 2013 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GET throughput and peak heap of Webster with many concurrent clients
+ * fetching codebase jars and large data files, run as
+ * <pre>
+ * java sorcer.tools.webster.WebsterBenchmark [clients] [requests per client] [data file MB]
+ * </pre>
+ */
+public class WebsterBenchmark {
+
+	private static final int JARS = 40;
+	private static final int JAR_SIZE = 256 * 1024;
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int dataMB = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+		File root = File.createTempFile("webster-bench", "");
+		root.delete();
+		root.mkdirs();
+		try {
+			for (int i = 0; i < JARS; i++)
+				createFile(new File(root, "lib-" + i + ".jar"), JAR_SIZE);
+			createFile(new File(root, "data.bin"), dataMB * 1024L * 1024L);
+
+			Webster webster = new Webster(0, root.getPath(), "127.0.0.1", 1, clients, true);
+			try {
+				String base = "http://127.0.0.1:" + webster.getPort() + "/";
+				run("jars", base, clients, requests, false);
+				run("jars+data", base, clients, requests, true);
+			} finally {
+				webster.terminate();
+			}
+		} finally {
+			for (File f : root.listFiles())
+				f.delete();
+			root.delete();
+		}
+	}
+
+	private static void run(String label, final String base, int clients, final int requests,
+			final boolean data) throws Exception {
+		final AtomicLong bytes = new AtomicLong();
+		final HeapSampler heap = new HeapSampler();
+		Thread sampler = new Thread(heap, "HeapSampler");
+		sampler.setDaemon(true);
+		System.gc();
+		sampler.start();
+
+		ExecutorService pool = Executors.newFixedThreadPool(clients);
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		long start = System.nanoTime();
+		for (int c = 0; c < clients; c++) {
+			final int client = c;
+			results.add(pool.submit(new Callable<Object>() {
+				public Object call() throws IOException {
+					for (int r = 0; r < requests; r++) {
+						// every fourth client of the data run fetches the data file once
+						String file = data && client % 4 == 0 && r == 0 ? "data.bin"
+								: "lib-" + ((client + r) % JARS) + ".jar";
+						bytes.addAndGet(fetch(new URL(base + file)));
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<?> f : results)
+			f.get();
+		long elapsed = System.nanoTime() - start;
+		pool.shutdown();
+		heap.stop();
+		sampler.join();
+
+		System.out.println(String.format("%-10s %,d requests  %8.1f MB/s  %8.0f req/s  peak heap %,d KB",
+				label, clients * requests, bytes.get() / (elapsed / 1e9) / (1024 * 1024),
+				clients * requests / (elapsed / 1e9), heap.peak / 1024));
+	}
+
+	private static long fetch(URL url) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		InputStream in = conn.getInputStream();
+		byte[] buffer = new byte[64 * 1024];
+		long total = 0;
+		int n;
+		try {
+			while ((n = in.read(buffer)) > 0)
+				total += n;
+		} finally {
+			in.close();
+		}
+		long expected = conn.getContentLength();
+		if (expected >= 0 && expected != total)
+			throw new IOException(url + ": got " + total + " of " + expected + " bytes");
+		return total;
+	}
+
+	private static void createFile(File file, long size) throws IOException {
+		byte[] chunk = new byte[64 * 1024];
+		new Random(size).nextBytes(chunk);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			for (long written = 0; written < size; written += chunk.length)
+				out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+		} finally {
+			out.close();
+		}
+	}
+
+	private static class HeapSampler implements Runnable {
+		private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		private volatile boolean running = true;
+		volatile long peak;
+
+		public void run() {
+			while (running) {
+				peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		void stop() {
+			running = false;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Sorcersoft.com S.A.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sorcer.tools.webster;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WebsterRangeTest {
+
+    @Test
+    public void testRange() {
+        assertArrayEquals(new long[]{2, 5}, Webster.parseRange("bytes=2-5", 10));
+        assertArrayEquals(new long[]{2, 9}, Webster.parseRange("bytes=2-100", 10));
+    }
+
+    @Test
+    public void testSuffixRange() {
+        assertArrayEquals(new long[]{7, 9}, Webster.parseRange("bytes=-3", 10));
+        assertArrayEquals(new long[]{0, 9}, Webster.parseRange("bytes=-20", 10));
+    }
+
+    @Test
+    public void testOpenRange() {
+        assertArrayEquals(new long[]{4, 9}, Webster.parseRange("bytes=4-", 10));
+        assertArrayEquals(new long[]{0, 9}, Webster.parseRange(" bytes=0- ", 10));
+    }
+
+    @Test
+    public void testUnsatisfiableRange() {
+        assertEquals(0, Webster.parseRange("bytes=10-", 10).length);
+        assertEquals(0, Webster.parseRange("bytes=12-15", 10).length);
+        assertEquals(0, Webster.parseRange("bytes=-0", 10).length);
+        assertEquals(0, Webster.parseRange("bytes=-5", 0).length);
+    }
+
+    @Test
+    public void testIgnoredRange() {
+        // the whole file is sent
+        assertNull(Webster.parseRange("bytes=5-2", 10));
+        assertNull(Webster.parseRange("bytes=0-1,4-5", 10));
+        assertNull(Webster.parseRange("items=0-1", 10));
+        assertNull(Webster.parseRange("bytes=a-b", 10));
+        assertNull(Webster.parseRange("bytes=5", 10));
+    }
+}